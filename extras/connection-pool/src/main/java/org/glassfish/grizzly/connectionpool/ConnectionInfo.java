@@ -40,6 +40,7 @@
 
 package org.glassfish.grizzly.connectionpool;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import org.glassfish.grizzly.Connection;
 
 /**
@@ -49,18 +50,56 @@ import org.glassfish.grizzly.Connection;
  * @author Alexey Stashok
  */
 public final class ConnectionInfo<E> {
+    /**
+     * The {@link Connection} is used by a user
+     */
+    static final int BUSY = 0;
+    /**
+     * The {@link Connection} is waiting in the pool to be taken
+     */
+    static final int READY = 1;
+    /**
+     * The {@link Connection} is not associated with the pool anymore
+     */
+    static final int DETACHED = 2;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<ConnectionInfo> stateUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(ConnectionInfo.class, "state");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<ConnectionInfo> balancedUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(ConnectionInfo.class, "balanced");
+    
     final Connection connection;
-    final Link<ConnectionInfo<E>> readyStateLink;
     final SingleEndpointPool<E> endpointPool;
     
     long ttlTimeout; // the place holder for TTL time stamp
     
     private final long pooledTimeStamp;
 
+    /**
+     * The current {@link Connection} state: {@link #BUSY}, {@link #READY}
+     * or {@link #DETACHED}
+     */
+    private volatile int state = BUSY;
+    /**
+     * The timestamp, when the {@link Connection} was switched to ready state
+     */
+    volatile long readyTimeStamp = -1;
+    /**
+     * The {@link System#nanoTime()} stamp, when the {@link Connection} was
+     * handed out to a user
+     */
+    volatile long takenNanos = System.nanoTime();
+    /**
+     * 1, if the {@link Connection} has been handed out by a
+     * {@link LoadBalancingPool} and not returned yet, otherwise 0
+     */
+    private volatile int balanced;
+    
     ConnectionInfo(final Connection connection, final SingleEndpointPool<E> endpointPool) {
         this.connection = connection;
         this.endpointPool = endpointPool;
-        this.readyStateLink = new Link<ConnectionInfo<E>>(this);
         pooledTimeStamp = System.currentTimeMillis();
     }
 
@@ -70,9 +109,7 @@ public final class ConnectionInfo<E> {
      * if the {@link Connection} is currently busy.
      */
     public boolean isReady() {
-        synchronized(endpointPool.poolSync) {
-            return readyStateLink.isAttached();
-        }
+        return state == READY;
     }
     
     /**
@@ -81,9 +118,8 @@ public final class ConnectionInfo<E> {
      * the {@link Connection} is currently in busy state.
      */
     public long getReadyTimeStamp() {
-        synchronized(endpointPool.poolSync) {
-            return readyStateLink.getAttachmentTimeStamp();
-        }
+        final long timeStamp = readyTimeStamp;
+        return state == READY ? timeStamp : -1;
     }
     
     /**
@@ -94,11 +130,42 @@ public final class ConnectionInfo<E> {
         return pooledTimeStamp;
     }
 
+    /**
+     * Atomically switches the {@link Connection} state from
+     * <tt>expectedState</tt> to <tt>newState</tt>.
+     * 
+     * @return <tt>true</tt> if the state has been switched, or <tt>false</tt>
+     *         if the current state is not <tt>expectedState</tt>
+     */
+    boolean compareAndSetState(final int expectedState, final int newState) {
+        return stateUpdater.compareAndSet(this, expectedState, newState);
+    }
+
+    /**
+     * Atomically switches the {@link LoadBalancingPool} accounting flag from
+     * <tt>expected</tt> to <tt>newValue</tt>.
+     * 
+     * @return <tt>true</tt> if the flag has been switched
+     */
+    boolean compareAndSetBalanced(final boolean expected, final boolean newValue) {
+        return balancedUpdater.compareAndSet(this, expected ? 1 : 0,
+                newValue ? 1 : 0);
+    }
+
+    /**
+     * Marks the {@link Connection} as detached from the pool.
+     * 
+     * @return the state the {@link Connection} had before it was detached
+     */
+    int markDetached() {
+        return stateUpdater.getAndSet(this, DETACHED);
+    }
+    
     @Override
     public String toString() {
         return "ConnectionInfo{"
                     + "connection=" + connection
-                    + ", readyStateLink=" + readyStateLink
+                    + ", state=" + state
                     + ", endpointPool=" + endpointPool
                     + ", pooledTimeStamp=" + pooledTimeStamp
                     + "} " + super.toString();
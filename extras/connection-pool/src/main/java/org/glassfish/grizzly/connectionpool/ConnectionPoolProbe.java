@@ -0,0 +1,184 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.connectionpool;
+
+import org.glassfish.grizzly.Connection;
+
+/**
+ * Monitoring probe providing callbacks that may be invoked by
+ * {@link SingleEndpointPool} and {@link MultiEndpointPool} implementations.
+ * 
+ * All the time values are reported in nanoseconds.
+ */
+public interface ConnectionPoolProbe {
+
+    /**
+     * Method will be called, when a {@link Connection} is handed over to a
+     * consumer.
+     * 
+     * @param pool the endpoint pool, the event belongs to
+     * @param connection the {@link Connection} the consumer obtained
+     * @param waitNanos the time the consumer has been waiting for the {@link Connection}
+     */
+    void onConnectionTakenEvent(SingleEndpointPool<?> pool,
+            Connection connection, long waitNanos);
+
+    /**
+     * Method will be called, when a {@link Connection} is returned to the pool.
+     * 
+     * @param pool the endpoint pool, the event belongs to
+     * @param connection the released {@link Connection}
+     * @param borrowNanos the time the {@link Connection} has been used by the consumer
+     */
+    void onConnectionReleasedEvent(SingleEndpointPool<?> pool,
+            Connection connection, long borrowNanos);
+
+    /**
+     * Method will be called, when a consumer couldn't obtain a {@link Connection},
+     * because the pool is exhausted, the poll timeout expired or the pool
+     * failed to connect to the endpoint.
+     * 
+     * @param pool the endpoint pool, the event belongs to
+     * @param error the error, the consumer has been notified with
+     */
+    void onTakeFailedEvent(SingleEndpointPool<?> pool, Throwable error);
+
+    /**
+     * Method will be called, when the pool has established a new {@link Connection}.
+     * 
+     * @param pool the endpoint pool, the event belongs to
+     * @param connection the new {@link Connection}
+     * @param connectNanos the time the connect operation took
+     */
+    void onConnectEvent(SingleEndpointPool<?> pool,
+            Connection connection, long connectNanos);
+
+    /**
+     * Method will be called, when the pool failed to establish a new {@link Connection}.
+     * 
+     * @param pool the endpoint pool, the event belongs to
+     * @param error the connect error
+     * @param connectNanos the time the connect operation took
+     */
+    void onConnectFailedEvent(SingleEndpointPool<?> pool,
+            Throwable error, long connectNanos);
+
+    /**
+     * Method will be called, when the pool schedules a reconnect attempt after
+     * the previous connect operation failed.
+     * 
+     * @param pool the endpoint pool, the event belongs to
+     * @param attempt the number of the consecutive reconnect attempt
+     */
+    void onReconnectScheduledEvent(SingleEndpointPool<?> pool, int attempt);
+
+    /**
+     * Method will be called, when the pool evicts a {@link Connection}
+     * because of the keep-alive timeout or connection time-to-live expiration.
+     * 
+     * @param pool the endpoint pool, the event belongs to
+     * @param connection the evicted {@link Connection}
+     */
+    void onConnectionEvictedEvent(SingleEndpointPool<?> pool,
+            Connection connection);
+    
+
+    // ---------------------------------------------------------- Nested Classes
+
+    /**
+     * {@link ConnectionPoolProbe} adapter that provides no-op implementations for
+     * all interface methods allowing easy extension by the developer.
+     */
+    @SuppressWarnings("UnusedDeclaration")
+    class Adapter implements ConnectionPoolProbe {
+
+
+        // ------------------------------------ Methods from ConnectionPoolProbe
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onConnectionTakenEvent(SingleEndpointPool<?> pool,
+                Connection connection, long waitNanos) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onConnectionReleasedEvent(SingleEndpointPool<?> pool,
+                Connection connection, long borrowNanos) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onTakeFailedEvent(SingleEndpointPool<?> pool, Throwable error) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onConnectEvent(SingleEndpointPool<?> pool,
+                Connection connection, long connectNanos) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onConnectFailedEvent(SingleEndpointPool<?> pool,
+                Throwable error, long connectNanos) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onReconnectScheduledEvent(SingleEndpointPool<?> pool,
+                int attempt) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onConnectionEvictedEvent(SingleEndpointPool<?> pool,
+                Connection connection) {}
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.connectionpool;
+
+import org.glassfish.grizzly.Connection;
+
+/**
+ * Utility class, which has notification methods for different
+ * {@link ConnectionPoolProbe} events.
+ */
+final class ConnectionPoolProbeNotifier {
+
+    /**
+     * Notify registered {@link ConnectionPoolProbe}s about the "connection taken" event.
+     *
+     * @param pool the endpoint pool event occurred on.
+     * @param connection the {@link Connection} handed over to a consumer.
+     * @param waitNanos the time the consumer has been waiting.
+     */
+    static void notifyConnectionTaken(final SingleEndpointPool<?> pool,
+            final Connection connection, final long waitNanos) {
+
+        final ConnectionPoolProbe[] probes =
+                pool.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (ConnectionPoolProbe probe : probes) {
+                probe.onConnectionTakenEvent(pool, connection, waitNanos);
+            }
+        }
+    }
+
+    /**
+     * Notify registered {@link ConnectionPoolProbe}s about the "connection released" event.
+     *
+     * @param pool the endpoint pool event occurred on.
+     * @param connection the released {@link Connection}.
+     * @param borrowNanos the time the {@link Connection} has been used.
+     */
+    static void notifyConnectionReleased(final SingleEndpointPool<?> pool,
+            final Connection connection, final long borrowNanos) {
+
+        final ConnectionPoolProbe[] probes =
+                pool.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (ConnectionPoolProbe probe : probes) {
+                probe.onConnectionReleasedEvent(pool, connection, borrowNanos);
+            }
+        }
+    }
+
+    /**
+     * Notify registered {@link ConnectionPoolProbe}s about the "take failed" event.
+     *
+     * @param pool the endpoint pool event occurred on.
+     * @param error the error the consumer has been notified with.
+     */
+    static void notifyTakeFailed(final SingleEndpointPool<?> pool,
+            final Throwable error) {
+
+        final ConnectionPoolProbe[] probes =
+                pool.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (ConnectionPoolProbe probe : probes) {
+                probe.onTakeFailedEvent(pool, error);
+            }
+        }
+    }
+
+    /**
+     * Notify registered {@link ConnectionPoolProbe}s about the "connect" event.
+     *
+     * @param pool the endpoint pool event occurred on.
+     * @param connection the new {@link Connection}.
+     * @param connectNanos the time the connect operation took.
+     */
+    static void notifyConnect(final SingleEndpointPool<?> pool,
+            final Connection connection, final long connectNanos) {
+
+        final ConnectionPoolProbe[] probes =
+                pool.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (ConnectionPoolProbe probe : probes) {
+                probe.onConnectEvent(pool, connection, connectNanos);
+            }
+        }
+    }
+
+    /**
+     * Notify registered {@link ConnectionPoolProbe}s about the "connect failed" event.
+     *
+     * @param pool the endpoint pool event occurred on.
+     * @param error the connect error.
+     * @param connectNanos the time the connect operation took.
+     */
+    static void notifyConnectFailed(final SingleEndpointPool<?> pool,
+            final Throwable error, final long connectNanos) {
+
+        final ConnectionPoolProbe[] probes =
+                pool.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (ConnectionPoolProbe probe : probes) {
+                probe.onConnectFailedEvent(pool, error, connectNanos);
+            }
+        }
+    }
+
+    /**
+     * Notify registered {@link ConnectionPoolProbe}s about the "reconnect scheduled" event.
+     *
+     * @param pool the endpoint pool event occurred on.
+     * @param attempt the number of the consecutive reconnect attempt.
+     */
+    static void notifyReconnectScheduled(final SingleEndpointPool<?> pool,
+            final int attempt) {
+
+        final ConnectionPoolProbe[] probes =
+                pool.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (ConnectionPoolProbe probe : probes) {
+                probe.onReconnectScheduledEvent(pool, attempt);
+            }
+        }
+    }
+
+    /**
+     * Notify registered {@link ConnectionPoolProbe}s about the "connection evicted" event.
+     *
+     * @param pool the endpoint pool event occurred on.
+     * @param connection the evicted {@link Connection}.
+     */
+    static void notifyConnectionEvicted(final SingleEndpointPool<?> pool,
+            final Connection connection) {
+
+        final ConnectionPoolProbe[] probes =
+                pool.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (ConnectionPoolProbe probe : probes) {
+                probe.onConnectionEvictedEvent(pool, connection);
+            }
+        }
+    }
+}
@@ -0,0 +1,676 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.connectionpool;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.glassfish.grizzly.CompletionHandler;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.EmptyCompletionHandler;
+import org.glassfish.grizzly.GrizzlyFuture;
+import org.glassfish.grizzly.impl.FutureImpl;
+import org.glassfish.grizzly.impl.SafeFutureImpl;
+import org.glassfish.grizzly.utils.Futures;
+
+/**
+ * The load-balancing front end for {@link MultiEndpointPool}, which picks
+ * the {@link Endpoint} for each <tt>take</tt> operation, so the load gets
+ * spread across a set of equivalent endpoints.
+ * 
+ * Supported {@link Strategy strategies}:
+ *      - {@link Strategy#LEAST_OUTSTANDING}: the endpoint with the smallest
+ *                      number of {@link Connection}s currently taken (or being
+ *                      waited for) is chosen;
+ *      - {@link Strategy#LEAST_LATENCY}: each endpoint keeps an exponentially
+ *                      weighted moving average (EWMA) of the time its
+ *                      {@link Connection}s stay borrowed, the endpoint with the
+ *                      smallest <tt>ewma * (outstanding + 1)</tt> score is chosen.
+ *                      An endpoint without samples is probed only while it
+ *                      has no outstanding {@link Connection}s, otherwise it is
+ *                      scored using the highest EWMA among the endpoints.
+ *                      Failed <tt>take</tt> operations are accounted with the
+ *                      configured penalty latency, so a failing endpoint
+ *                      gets avoided until it recovers.
+ * 
+ * Ties are resolved in round-robin fashion.
+ * 
+ * The {@link Connection}s taken from the <tt>LoadBalancingPool</tt> have
+ * to be returned using {@link #release(org.glassfish.grizzly.Connection)}
+ * of this pool, otherwise the outstanding counters will not be updated.
+ * 
+ * @param <E> the address type, for example for TCP transport it's {@link java.net.SocketAddress}
+ */
+public class LoadBalancingPool<E> {
+    
+    /**
+     * The endpoint selection strategy.
+     */
+    public enum Strategy {
+        LEAST_OUTSTANDING, LEAST_LATENCY
+    }
+    
+    /**
+     * Returns load balancing pool {@link Builder}.
+     * 
+     * @param endpointType endpoint address type, for example
+     *        {@link java.net.SocketAddress} for TCP and UDP transports
+     * @param <T> endpoint type
+     * 
+     * @return {@link Builder} 
+     */
+    public static <T> Builder<T> builder(Class<T> endpointType) {
+        return new Builder<T>();
+    }
+    
+    /**
+     * The underlying pool
+     */
+    private final MultiEndpointPool<E> pool;
+    /**
+     * The endpoint selection strategy
+     */
+    private final Strategy strategy;
+    /**
+     * The EWMA smoothing factor
+     */
+    private final double ewmaAlpha;
+    /**
+     * The latency to be accounted for each failed take operation
+     */
+    private final long failurePenaltyNanos;
+    /**
+     * The balanced endpoints
+     */
+    private final List<EndpointStats<E>> endpoints =
+            new CopyOnWriteArrayList<EndpointStats<E>>();
+    /**
+     * The round-robin counter, used to resolve ties
+     */
+    private final AtomicInteger roundRobinCounter = new AtomicInteger();
+
+    /**
+     * Constructs LoadBalancingPool instance.
+     * 
+     * @param pool the {@link MultiEndpointPool} to obtain {@link Connection}s from
+     * @param endpoints the initial set of {@link Endpoint}s
+     * @param strategy the endpoint selection {@link Strategy}
+     * @param ewmaAlpha the EWMA smoothing factor, the weight of the newest latency sample
+     * @param failurePenaltyNanos the latency to be accounted for each failed take operation
+     */
+    protected LoadBalancingPool(final MultiEndpointPool<E> pool,
+            final List<Endpoint<E>> endpoints,
+            final Strategy strategy,
+            final double ewmaAlpha,
+            final long failurePenaltyNanos) {
+        this.pool = pool;
+        this.strategy = strategy;
+        this.ewmaAlpha = ewmaAlpha;
+        this.failurePenaltyNanos = failurePenaltyNanos;
+        
+        for (Endpoint<E> endpoint : endpoints) {
+            addEndpoint(endpoint);
+        }
+    }
+
+    /**
+     * @return the underlying {@link MultiEndpointPool}
+     */
+    public MultiEndpointPool<E> getPool() {
+        return pool;
+    }
+
+    /**
+     * @return the endpoint selection {@link Strategy}
+     */
+    public Strategy getStrategy() {
+        return strategy;
+    }
+    
+    /**
+     * @return the {@link Endpoint}s the load is balanced across
+     */
+    public List<Endpoint<E>> getEndpoints() {
+        final List<Endpoint<E>> result =
+                new ArrayList<Endpoint<E>>(endpoints.size());
+        for (EndpointStats<E> stats : endpoints) {
+            result.add(stats.endpoint);
+        }
+        
+        return Collections.unmodifiableList(result);
+    }
+    
+    /**
+     * Adds the {@link Endpoint} to the set of balanced endpoints.
+     * 
+     * @param endpoint {@link Endpoint}
+     * @return <tt>true</tt> if the {@link Endpoint} has been added, or
+     *          <tt>false</tt> if it had already been balanced
+     */
+    public boolean addEndpoint(final Endpoint<E> endpoint) {
+        if (endpoint == null) {
+            throw new IllegalArgumentException("The endpoint can not be null");
+        }
+        
+        synchronized (endpoints) {
+            if (getStats(endpoint) != null) {
+                return false;
+            }
+            
+            endpoints.add(new EndpointStats<E>(endpoint));
+            return true;
+        }
+    }
+
+    /**
+     * Removes the {@link Endpoint} from the set of balanced endpoints.
+     * The {@link Connection}s to the {@link Endpoint}, which are currently in
+     * use, are not affected, the idle ones are closed.
+     * 
+     * @param endpoint {@link Endpoint}
+     * @return <tt>true</tt> if the {@link Endpoint} has been removed, or
+     *          <tt>false</tt> otherwise
+     */
+    public boolean removeEndpoint(final Endpoint<E> endpoint) {
+        final boolean isRemoved;
+        synchronized (endpoints) {
+            final EndpointStats<E> stats = getStats(endpoint);
+            isRemoved = stats != null && endpoints.remove(stats);
+        }
+        
+        if (isRemoved) {
+            pool.close(endpoint);
+        }
+        
+        return isRemoved;
+    }
+    
+    /**
+     * Returns the number of {@link Connection}s, which are currently taken
+     * (or being waited for) from the {@link Endpoint} via this pool.
+     * 
+     * @param endpoint {@link Endpoint}
+     * @return the number of outstanding {@link Connection}s, or <tt>-1</tt>
+     *          if the {@link Endpoint} is not balanced by this pool
+     */
+    public int getOutstandingCount(final Endpoint<E> endpoint) {
+        final EndpointStats<E> stats = getStats(endpoint);
+        return stats != null ? stats.outstanding.get() : -1;
+    }
+
+    /**
+     * Returns the current latency EWMA of the {@link Endpoint}.
+     * 
+     * @param endpoint {@link Endpoint}
+     * @param timeUnit {@link TimeUnit}
+     * @return the latency EWMA, or <tt>-1</tt> if no samples have been
+     *          collected yet or the {@link Endpoint} is not balanced by this pool
+     */
+    public long getLatency(final Endpoint<E> endpoint, final TimeUnit timeUnit) {
+        final EndpointStats<E> stats = getStats(endpoint);
+        if (stats == null) {
+            return -1;
+        }
+        
+        final double ewma = stats.getEwma();
+        return ewma < 0 ? -1 : timeUnit.convert((long) ewma, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Obtains a {@link Connection} from the pool in non-blocking/asynchronous
+     * fashion, the {@link Endpoint} is chosen according to the {@link Strategy}.
+     * Cancelling the returned {@link GrizzlyFuture} also cancels the wait
+     * for a {@link Connection} in the chosen {@link Endpoint}'s pool.
+     * 
+     * @return {@link GrizzlyFuture}
+     * @see MultiEndpointPool#take(org.glassfish.grizzly.connectionpool.Endpoint) 
+     */
+    public GrizzlyFuture<Connection> take() {
+        final EndpointStats<E> stats = choose();
+        if (stats == null) {
+            return Futures.createReadyFuture(
+                    new IOException("No endpoints available"));
+        }
+        
+        stats.outstanding.incrementAndGet();
+        final GrizzlyFuture<Connection> delegate = pool.take(stats.endpoint);
+        
+        final FutureImpl<Connection> future = new SafeFutureImpl<Connection>() {
+            @Override
+            protected void onComplete() {
+                if (isCancelled()) {
+                    // remove the waiter from the endpoint pool
+                    delegate.cancel(false);
+                }
+            }
+        };
+        
+        delegate.addCompletionHandler(balancingHandler(stats,
+                new EmptyCompletionHandler<Connection>() {
+
+            @Override
+            public void completed(final Connection connection) {
+                future.result(connection);
+                
+                if (future.isCancelled()) {
+                    // the future has been cancelled by the user - return
+                    // the connection back to the pool
+                    release(connection);
+                }
+            }
+
+            @Override
+            public void cancelled() {
+                future.cancel(false);
+            }
+
+            @Override
+            public void failed(final Throwable throwable) {
+                future.failure(throwable);
+            }
+        }));
+        
+        return future;
+    }
+
+    /**
+     * Obtains a {@link Connection} from the pool in non-blocking/asynchronous
+     * fashion, the {@link Endpoint} is chosen according to the {@link Strategy}.
+     * The passed {@link CompletionHandler} will be notified about the result of the
+     * non-blocking/asynchronous obtain task.
+     * 
+     * @param completionHandler {@link CompletionHandler}
+     */
+    public void take(final CompletionHandler<Connection> completionHandler) {
+        if (completionHandler == null) {
+            throw new IllegalArgumentException("The completionHandler argument can not be null");
+        }
+        
+        final EndpointStats<E> stats = choose();
+        if (stats == null) {
+            completionHandler.failed(new IOException("No endpoints available"));
+            return;
+        }
+        
+        stats.outstanding.incrementAndGet();
+        pool.take(stats.endpoint, balancingHandler(stats, completionHandler));
+    }
+    
+    /**
+     * Wraps the {@link CompletionHandler} to account the take operation
+     * result in the {@link Endpoint}'s stats.
+     */
+    private CompletionHandler<Connection> balancingHandler(
+            final EndpointStats<E> stats,
+            final CompletionHandler<Connection> completionHandler) {
+        return new CompletionHandler<Connection>() {
+
+            @Override
+            public void cancelled() {
+                stats.outstanding.decrementAndGet();
+                completionHandler.cancelled();
+            }
+
+            @Override
+            public void failed(final Throwable throwable) {
+                onTakeFailed(stats);
+                completionHandler.failed(throwable);
+            }
+
+            @Override
+            public void completed(final Connection result) {
+                final ConnectionInfo<E> info = pool.getConnectionInfo(result);
+                if (info == null || !info.compareAndSetBalanced(false, true)) {
+                    // not accounted on release
+                    stats.outstanding.decrementAndGet();
+                }
+                
+                completionHandler.completed(result);
+            }
+
+            @Override
+            public void updated(final Connection result) {
+                completionHandler.updated(result);
+            }
+        };
+    }
+    
+    /**
+     * Returns the {@link Connection} to the pool, the time the {@link Connection}
+     * has been borrowed is accounted as a latency sample of its {@link Endpoint}.
+     * 
+     * @param connection the {@link Connection} to return
+     * @return <code>true</code> if the connection was successfully released.
+     *  If the connection cannot be released, the connection will be closed
+     *  and <code>false</code> will be returned.
+     * @see MultiEndpointPool#release(org.glassfish.grizzly.Connection) 
+     */
+    public boolean release(final Connection connection) {
+        final ConnectionInfo<E> info = pool.getConnectionInfo(connection);
+        // the flag is cleared once, so a double release is accounted once
+        if (info != null && info.compareAndSetBalanced(true, false)) {
+            final EndpointStats<E> stats =
+                    getStats(info.endpointPool.getEndpoint());
+            if (stats != null) {
+                stats.outstanding.decrementAndGet();
+                stats.addSample(System.nanoTime() - info.takenNanos, ewmaAlpha);
+            }
+        }
+        
+        return pool.release(connection);
+    }
+
+    /**
+     * Closes the underlying {@link MultiEndpointPool}.
+     */
+    public void close() {
+        pool.close();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(128);
+        sb.append("LoadBalancingPool[strategy=").append(strategy)
+                .append(", endpoints=[");
+        
+        boolean isFirst = true;
+        for (EndpointStats<E> stats : endpoints) {
+            if (!isFirst) {
+                sb.append(", ");
+            }
+            sb.append(stats.endpoint).append(" (outstanding=")
+                    .append(stats.outstanding.get())
+                    .append(", ewma=").append((long) stats.getEwma())
+                    .append("ns)");
+            isFirst = false;
+        }
+        
+        return sb.append("]]").toString();
+    }
+    
+    /**
+     * Chooses the {@link Endpoint} for the next take operation.
+     */
+    EndpointStats<E> choose() {
+        final Object[] snapshot = endpoints.toArray();
+        final int size = snapshot.length;
+        if (size == 0) {
+            return null;
+        }
+        
+        // start from the round-robin position, so ties are spread evenly
+        final int start = (roundRobinCounter.getAndIncrement() & 0x7FFFFFFF) % size;
+        
+        // the score of the endpoints, which have outstanding connections,
+        // but no latency samples yet, is based on the worst known latency
+        double maxEwma = -1;
+        if (strategy == Strategy.LEAST_LATENCY) {
+            for (int i = 0; i < size; i++) {
+                @SuppressWarnings("unchecked")
+                final EndpointStats<E> stats = (EndpointStats<E>) snapshot[i];
+                maxEwma = Math.max(maxEwma, stats.getEwma());
+            }
+        }
+        
+        EndpointStats<E> best = null;
+        double bestScore = Double.MAX_VALUE;
+        
+        for (int i = 0; i < size; i++) {
+            @SuppressWarnings("unchecked")
+            final EndpointStats<E> stats =
+                    (EndpointStats<E>) snapshot[(start + i) % size];
+            final double score = score(stats, maxEwma);
+            if (score < bestScore) {
+                best = stats;
+                bestScore = score;
+            }
+        }
+        
+        return best;
+    }
+    
+    private double score(final EndpointStats<E> stats, final double maxEwma) {
+        final int outstanding = stats.outstanding.get();
+        
+        if (strategy == Strategy.LEAST_LATENCY) {
+            double ewma = stats.getEwma();
+            if (ewma < 0) {
+                if (outstanding == 0) {
+                    // the idle endpoint without samples is probed first
+                    return -1;
+                }
+                
+                if (maxEwma < 0) {
+                    // no samples at all - balance by outstanding connections
+                    return outstanding;
+                }
+                
+                // the probe hasn't returned yet, don't trust the endpoint
+                // more than the slowest known one
+                ewma = maxEwma;
+            }
+            
+            return ewma * (outstanding + 1);
+        }
+        
+        return outstanding;
+    }
+    
+    private void onTakeFailed(final EndpointStats<E> stats) {
+        stats.outstanding.decrementAndGet();
+        stats.addSample(failurePenaltyNanos, ewmaAlpha);
+    }
+    
+    private EndpointStats<E> getStats(final Endpoint<E> endpoint) {
+        for (EndpointStats<E> stats : endpoints) {
+            if (stats.endpoint.equals(endpoint)) {
+                return stats;
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * The per-endpoint load statistics.
+     */
+    static final class EndpointStats<E> {
+        final Endpoint<E> endpoint;
+        /**
+         * The number of taken or being waited for {@link Connection}s
+         */
+        final AtomicInteger outstanding = new AtomicInteger();
+        /**
+         * The latency EWMA in nanoseconds, stored as double bits,
+         * negative value means there are no samples yet
+         */
+        private final AtomicLong ewmaBits =
+                new AtomicLong(Double.doubleToRawLongBits(-1));
+
+        EndpointStats(final Endpoint<E> endpoint) {
+            this.endpoint = endpoint;
+        }
+        
+        double getEwma() {
+            return Double.longBitsToDouble(ewmaBits.get());
+        }
+        
+        void addSample(final long latencyNanos, final double alpha) {
+            for (;;) {
+                final long bits = ewmaBits.get();
+                final double ewma = Double.longBitsToDouble(bits);
+                final double newEwma = ewma < 0
+                        ? latencyNanos
+                        : ewma + alpha * (latencyNanos - ewma);
+                
+                if (ewmaBits.compareAndSet(bits,
+                        Double.doubleToRawLongBits(newEwma))) {
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * The Builder class responsible for constructing {@link LoadBalancingPool}.
+     * 
+     * @param <E> endpoint address type, for example {@link java.net.SocketAddress} for TCP and UDP transports
+     */
+    public static class Builder<E> {
+        /**
+         * The underlying {@link MultiEndpointPool}
+         */
+        private MultiEndpointPool<E> pool;
+        /**
+         * The initial set of balanced {@link Endpoint}s
+         */
+        private final List<Endpoint<E>> endpoints = new ArrayList<Endpoint<E>>();
+        /**
+         * The endpoint selection strategy
+         */
+        private Strategy strategy = Strategy.LEAST_OUTSTANDING;
+        /**
+         * The EWMA smoothing factor
+         */
+        private double ewmaAlpha = 0.3;
+        /**
+         * The latency to be accounted for each failed take operation
+         */
+        private long failurePenaltyNanos = TimeUnit.SECONDS.toNanos(1);
+
+        /**
+         * Sets the {@link MultiEndpointPool} to obtain {@link Connection}s from.
+         * If not set - the {@link MultiEndpointPool} with the default
+         * settings will be created.
+         * 
+         * @param pool {@link MultiEndpointPool}
+         * @return this {@link Builder}
+         */
+        public Builder<E> pool(final MultiEndpointPool<E> pool) {
+            this.pool = pool;
+            return this;
+        }
+        
+        /**
+         * Adds the {@link Endpoint} to balance the load across.
+         * 
+         * @param endpoint {@link Endpoint}
+         * @return this {@link Builder}
+         */
+        public Builder<E> endpoint(final Endpoint<E> endpoint) {
+            if (endpoint == null) {
+                throw new IllegalArgumentException("The endpoint can not be null");
+            }
+            
+            this.endpoints.add(endpoint);
+            return this;
+        }
+        
+        /**
+         * Sets the endpoint selection {@link Strategy}.
+         * The default value is {@link Strategy#LEAST_OUTSTANDING}.
+         * 
+         * @param strategy {@link Strategy}
+         * @return this {@link Builder}
+         */
+        public Builder<E> strategy(final Strategy strategy) {
+            if (strategy == null) {
+                throw new IllegalArgumentException("The strategy can not be null");
+            }
+            
+            this.strategy = strategy;
+            return this;
+        }
+
+        /**
+         * Sets the EWMA smoothing factor, used by {@link Strategy#LEAST_LATENCY},
+         * the value has to be in <tt>(0, 1]</tt> range, where bigger values
+         * make the balancer react faster to latency changes.
+         * The default value is <tt>0.3</tt>.
+         * 
+         * @param ewmaAlpha the weight of the newest latency sample
+         * @return this {@link Builder}
+         */
+        public Builder<E> ewmaAlpha(final double ewmaAlpha) {
+            if (!(ewmaAlpha > 0 && ewmaAlpha <= 1)) {
+                throw new IllegalArgumentException("The ewmaAlpha has to be in (0, 1] range");
+            }
+            
+            this.ewmaAlpha = ewmaAlpha;
+            return this;
+        }
+
+        /**
+         * Sets the latency to be accounted, when a take operation for
+         * an {@link Endpoint} fails.
+         * The default value is 1 second.
+         * 
+         * @param failurePenalty the penalty latency
+         * @param timeunit {@link TimeUnit}
+         * @return this {@link Builder}
+         */
+        public Builder<E> failurePenalty(final long failurePenalty,
+                final TimeUnit timeunit) {
+            this.failurePenaltyNanos = failurePenalty > 0
+                    ? TimeUnit.NANOSECONDS.convert(failurePenalty, timeunit)
+                    : 0;
+            return this;
+        }
+        
+        /**
+         * Constructs {@link LoadBalancingPool}.
+         * @return {@link LoadBalancingPool}
+         */
+        public LoadBalancingPool<E> build() {
+            final MultiEndpointPool<E> p = pool != null
+                    ? pool
+                    : new MultiEndpointPool.Builder<E>().build();
+            
+            return new LoadBalancingPool<E>(p, endpoints, strategy,
+                    ewmaAlpha, failurePenaltyNanos);
+        }
+    }
+}
@@ -43,7 +43,6 @@ package org.glassfish.grizzly.connectionpool;
 import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -53,8 +52,9 @@ import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.ConnectorHandler;
 import org.glassfish.grizzly.Grizzly;
 import org.glassfish.grizzly.GrizzlyFuture;
-import org.glassfish.grizzly.threadpool.GrizzlyExecutorService;
-import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
+import org.glassfish.grizzly.monitoring.DefaultMonitoringConfig;
+import org.glassfish.grizzly.monitoring.MonitoringAware;
+import org.glassfish.grizzly.monitoring.MonitoringConfig;
 import org.glassfish.grizzly.utils.DelayedExecutor;
 import org.glassfish.grizzly.utils.DelayedExecutor.DelayQueue;
 import org.glassfish.grizzly.utils.Futures;
@@ -85,7 +85,8 @@ import static org.glassfish.grizzly.connectionpool.SingleEndpointPool.*;
  * 
  * @author Alexey Stashok
  */
-public class MultiEndpointPool<E> {
+public class MultiEndpointPool<E>
+        implements MonitoringAware<ConnectionPoolProbe> {
 
     private static final Logger LOGGER = Grizzly.logger(MultiEndpointPool.class);
     /**
@@ -146,10 +147,6 @@ public class MultiEndpointPool<E> {
      * keep-alive, re-connect or other timeout related mechanisms.
      */
     private final DelayedExecutor delayedExecutor;
-    /**
-     * The thread-pool used by theownDelayedExecutor
-     */
-    private final ExecutorService ownDelayedExecutorThreadPool;
     /**
      * Own/internal {@link DelayedExecutor} to be used for keep-alive and reconnect
      * mechanisms, if one (DelayedExecutor} was not specified by user
@@ -240,6 +237,13 @@ public class MultiEndpointPool<E> {
      */
     private final boolean failFastWhenMaxSizeReached;
     
+    /**
+     * Connection pool probes, shared by all the endpoint sub-pools
+     */
+    private final DefaultMonitoringConfig<ConnectionPoolProbe> monitoringConfig =
+            new DefaultMonitoringConfig<ConnectionPoolProbe>(
+                    ConnectionPoolProbe.class);
+    
     /**
      * Constructs MultiEndpointPool instance.
      * 
@@ -288,19 +292,11 @@ public class MultiEndpointPool<E> {
         this.endpointPoolCustomizer = endpointPoolCustomizer;
         
         if (delayedExecutor == null) {
-            final ThreadPoolConfig tpc = ThreadPoolConfig.defaultConfig()
-                    .setPoolName("connection-pool-delays-thread-pool")
-                    .setCorePoolSize(1)
-                    .setMaxPoolSize(1);
-
-            ownDelayedExecutorThreadPool =
-                    GrizzlyExecutorService.createInstance(tpc);
-            ownDelayedExecutor = new DelayedExecutor(
-                    ownDelayedExecutorThreadPool);
+            // if custom DelayedExecutor is null - share the common timer thread
+            ownDelayedExecutor = DelayedExecutor.createShared();
             ownDelayedExecutor.start();
             this.delayedExecutor = ownDelayedExecutor;
         } else {
-            ownDelayedExecutorThreadPool = null;
             ownDelayedExecutor = null;
             this.delayedExecutor = delayedExecutor;
         }
@@ -353,6 +349,17 @@ public class MultiEndpointPool<E> {
                 endpointPoolCustomizer);
     }
     
+    /**
+     * {@inheritDoc}
+     * 
+     * The probes registered here will be notified about events happening in
+     * any of the endpoint sub-pools.
+     */
+    @Override
+    public MonitoringConfig<ConnectionPoolProbe> getMonitoringConfig() {
+        return monitoringConfig;
+    }
+    
     /**
      * @return the total maximum number of {@link Connection}s to be kept by the pool
      */
@@ -748,10 +755,6 @@ public class MultiEndpointPool<E> {
             if (ownDelayedExecutor != null) {
                 ownDelayedExecutor.destroy();
             }
-            
-            if (ownDelayedExecutorThreadPool != null) {
-                ownDelayedExecutorThreadPool.shutdownNow();
-            }            
         }
     }
 
@@ -940,7 +943,8 @@ public class MultiEndpointPool<E> {
                     connectTimeoutMillis, keepAliveTimeoutMillis,
                     keepAliveCheckIntervalMillis, reconnectDelayMillis,
                     maxReconnectAttempts, asyncPollTimeoutMillis,
-                    connectionTTLMillis, failFastWhenMaxSizeReached);
+                    connectionTTLMillis, failFastWhenMaxSizeReached,
+                    MultiEndpointPool.this.monitoringConfig);
         }
 
         public EndpointPoolImpl(final Endpoint<E> endpoint,
@@ -966,7 +970,8 @@ public class MultiEndpointPool<E> {
                     connectTimeoutMillis, keepAliveTimeoutMillis,
                     keepAliveCheckIntervalMillis, reconnectDelayMillis,
                     maxReconnectAttempts, asyncPollTimeoutMillis,
-                    connectionTTLMillis, failFastWhenMaxSizeReached);
+                    connectionTTLMillis, failFastWhenMaxSizeReached,
+                    MultiEndpointPool.this.monitoringConfig);
         }
 
         @Override
@@ -43,12 +43,16 @@ package org.glassfish.grizzly.connectionpool;
 import java.io.IOException;
 import java.net.ConnectException;
 import java.net.SocketAddress;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.glassfish.grizzly.CloseListener;
@@ -61,10 +65,11 @@ import org.glassfish.grizzly.Grizzly;
 import org.glassfish.grizzly.GrizzlyFuture;
 import org.glassfish.grizzly.impl.FutureImpl;
 import org.glassfish.grizzly.impl.SafeFutureImpl;
+import org.glassfish.grizzly.monitoring.DefaultMonitoringConfig;
+import org.glassfish.grizzly.monitoring.MonitoringAware;
+import org.glassfish.grizzly.monitoring.MonitoringConfig;
 import org.glassfish.grizzly.nio.transport.TCPNIOConnectorHandler;
 import org.glassfish.grizzly.nio.transport.UDPNIOConnectorHandler;
-import org.glassfish.grizzly.threadpool.GrizzlyExecutorService;
-import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
 import org.glassfish.grizzly.utils.DelayedExecutor;
 import org.glassfish.grizzly.utils.DelayedExecutor.DelayQueue;
 import org.glassfish.grizzly.utils.Futures;
@@ -95,11 +100,19 @@ import org.glassfish.grizzly.utils.Futures;
  *      - <tt>connectionTTLMillis</tt>: the maximum amount of time, a
  *                                      {@link Connection} could be associated with the pool
  * 
+ * The ready {@link Connection}s and the consumers waiting for a {@link Connection}
+ * are kept in lock-free queues, so taking a ready {@link Connection}, polling
+ * and releasing it back to the pool don't require the pool monitor. The
+ * monitor is used only to coordinate less frequent operations like opening
+ * new {@link Connection}s, attaching/detaching {@link Connection}s and
+ * closing the pool.
+ * 
  * @param <E> the address type, for example for TCP transport it's {@link SocketAddress}
  * 
  * @author Alexey Stashok
  */
-public class SingleEndpointPool<E> {
+public class SingleEndpointPool<E>
+        implements MonitoringAware<ConnectionPoolProbe> {
     private static final Logger LOGGER = Grizzly.logger(SingleEndpointPool.class);
     
     /**
@@ -127,30 +140,32 @@ public class SingleEndpointPool<E> {
             new PoolConnectionCloseListener();
     
     /**
-     * The {@link Chain} of ready connections
+     * The stack of ready connections: the most recently released connection
+     * is at the tail, the connection, which has been idle the longest, is at the head
+     */
+    private final ConcurrentLinkedDeque<ConnectionInfo<E>> readyConnections =
+            new ConcurrentLinkedDeque<ConnectionInfo<E>>();
+    /**
+     * The number of connections in the ready state
      */
-    private final Chain<ConnectionInfo<E>> readyConnections = new Chain<ConnectionInfo<E>>();
+    private final AtomicInteger readyConnectionsCount = new AtomicInteger();
     
     /**
      * The {@link Map} contains *all* pooled {@link Connection}s
      */
     private final Map<Connection, ConnectionInfo<E>> connectionsMap =
-            new HashMap<Connection, ConnectionInfo<E>>();
+            new ConcurrentHashMap<Connection, ConnectionInfo<E>>();
     
     /**
-     * Sync object
+     * Sync object, which guards the pool size counters and connect logic
      */
     final Object poolSync = new Object();
     
     /**
      * close flag
      */
-    private boolean isClosed;
+    private volatile boolean isClosed;
     
-    /**
-     * The thread-pool used by theownDelayedExecutor
-     */
-    private final ExecutorService ownDelayedExecutorThreadPool;
     /**
      * Own/internal {@link DelayedExecutor} to be used for keep-alive and reconnect
      * mechanisms, if one (DelayedExecutor} was not specified by user
@@ -234,13 +249,14 @@ public class SingleEndpointPool<E> {
     private final boolean failFastWhenMaxSizeReached;
     
     /**
-     * current pool size
+     * current pool size (updated under poolSync)
      */
-    private int poolSize;
+    private volatile int poolSize;
     /**
-     * Number of connections we're currently trying to establish and waiting for the result
+     * Number of connections we're currently trying to establish and waiting
+     * for the result (updated under poolSync)
      */
-    protected int pendingConnections;
+    protected volatile int pendingConnections;
 
     /**
      * Number of failed connect attempts.
@@ -250,7 +266,18 @@ public class SingleEndpointPool<E> {
     /**
      * The waiting list of asynchronous polling clients
      */
-    private final Chain<AsyncPoll> asyncWaitingList = new Chain<AsyncPoll>();
+    private final Queue<Link<AsyncPoll>> asyncWaitingList =
+            new ConcurrentLinkedQueue<Link<AsyncPoll>>();
+    /**
+     * The number of asynchronous polling clients, which are still waiting for
+     * a {@link Connection}
+     */
+    private final AtomicInteger asyncWaitingListSize = new AtomicInteger();
+
+    /**
+     * Connection pool probes
+     */
+    final DefaultMonitoringConfig<ConnectionPoolProbe> monitoringConfig;
 
     /**
      * Constructs SingleEndpointPool instance.
@@ -292,23 +319,16 @@ public class SingleEndpointPool<E> {
         this.asyncPollTimeoutMillis = asyncPollTimeoutMillis;
         this.connectionTTLMillis = connectionTTLMillis;
         this.failFastWhenMaxSizeReached = failFastWhenMaxSizeReached;
+        this.monitoringConfig = new DefaultMonitoringConfig<ConnectionPoolProbe>(
+                ConnectionPoolProbe.class);
         
         if (delayedExecutor == null) {
-            // if custom DelayedExecutor is null - create our own
-            final ThreadPoolConfig tpc = ThreadPoolConfig.defaultConfig()
-                    .setPoolName("connection-pool-delays-thread-pool")
-                    .setCorePoolSize(1)
-                    .setMaxPoolSize(1);
-            
-            ownDelayedExecutorThreadPool =
-                    GrizzlyExecutorService.createInstance(tpc);
-            ownDelayedExecutor = new DelayedExecutor(
-                    ownDelayedExecutorThreadPool);
+            // if custom DelayedExecutor is null - share the common timer thread
+            ownDelayedExecutor = DelayedExecutor.createShared();
             ownDelayedExecutor.start();
             
             delayedExecutor = ownDelayedExecutor;
         } else {
-            ownDelayedExecutorThreadPool = null;
             ownDelayedExecutor = null;
         }
         
@@ -375,7 +395,6 @@ public class SingleEndpointPool<E> {
      * @param connectionTTLMillis the maximum time, a connection could stay registered with the pool
      * @param failFastWhenMaxSizeReached <tt>true</tt> if the "take" method should fail fast if there is no free connection in the pool and max pool size is reached
      */    
-    @SuppressWarnings("unchecked")
     protected SingleEndpointPool(
             final Endpoint<E> endpoint,
             final int corePoolSize, final int maxPoolSize,
@@ -392,7 +411,57 @@ public class SingleEndpointPool<E> {
             final long asyncPollTimeoutMillis,
             final long connectionTTLMillis,
             final boolean failFastWhenMaxSizeReached) {
+        this(endpoint, corePoolSize, maxPoolSize, connectTimeoutQueue,
+                reconnectQueue, keepAliveCleanerQueue, asyncPollTimeoutQueue,
+                connectionTTLQueue, connectTimeoutMillis, keepAliveTimeoutMillis,
+                keepAliveCheckIntervalMillis, reconnectDelayMillis,
+                maxReconnectAttempts, asyncPollTimeoutMillis,
+                connectionTTLMillis, failFastWhenMaxSizeReached,
+                new DefaultMonitoringConfig<ConnectionPoolProbe>(
+                        ConnectionPoolProbe.class));
+    }
+    
+    /**
+     * Constructs SingleEndpointPool instance.
+     * 
+     * @param endpoint {@link Endpoint} to be used to establish new {@link Connection}s
+     * @param corePoolSize the number of {@link Connection}s, kept in the pool, that are immune to keep-alive mechanism
+     * @param maxPoolSize the max number of {@link Connection}s kept by this pool
+     * @param connectTimeoutQueue the {@link DelayQueue} used by connect timeout mechanism
+     * @param reconnectQueue the {@link DelayQueue} used by reconnect mechanism
+     * @param keepAliveCleanerQueue the {@link DelayQueue} used by keep-alive mechanism
+     * @param asyncPollTimeoutQueue the {@link DelayQueue} used by async connection poll mechanism
+     * @param connectionTTLQueue the {@link DelayQueue} used by connection TTL mechanism
+     * @param connectTimeoutMillis timeout, after which, if a connection is not established, it is considered failed
+     * @param keepAliveTimeoutMillis the maximum number of milliseconds an idle {@link Connection} will be kept in the pool
+     * @param keepAliveCheckIntervalMillis the interval, which specifies how often the pool will perform idle {@link Connection}s check
+     * @param reconnectDelayMillis the delay to be used before the pool will repeat the attempt to connect to the endpoint after previous connect had failed
+     * @param maxReconnectAttempts the maximum number of reconnect attempts that may be made before failure notification.
+     * @param asyncPollTimeoutMillis the maximum time, the async poll operation could wait for a connection to become available
+     * @param connectionTTLMillis the maximum time, a connection could stay registered with the pool
+     * @param failFastWhenMaxSizeReached <tt>true</tt> if the "take" method should fail fast if there is no free connection in the pool and max pool size is reached
+     * @param monitoringConfig the {@link ConnectionPoolProbe}s config, which might be shared with other pools
+     */    
+    @SuppressWarnings("unchecked")
+    protected SingleEndpointPool(
+            final Endpoint<E> endpoint,
+            final int corePoolSize, final int maxPoolSize,
+            final DelayQueue<ConnectTimeoutTask> connectTimeoutQueue,
+            final DelayQueue<ReconnectTask> reconnectQueue,
+            final DelayQueue<KeepAliveCleanerTask> keepAliveCleanerQueue,
+            final DelayQueue<Link<AsyncPoll>> asyncPollTimeoutQueue,
+            final DelayQueue<ConnectionInfo> connectionTTLQueue,
+            final long connectTimeoutMillis,
+            final long keepAliveTimeoutMillis,
+            final long keepAliveCheckIntervalMillis,
+            final long reconnectDelayMillis,
+            final int maxReconnectAttempts,
+            final long asyncPollTimeoutMillis,
+            final long connectionTTLMillis,
+            final boolean failFastWhenMaxSizeReached,
+            final DefaultMonitoringConfig<ConnectionPoolProbe> monitoringConfig) {
         
+        this.monitoringConfig = monitoringConfig;
         this.endpoint = endpoint;
         this.corePoolSize = corePoolSize;
         this.maxPoolSize = maxPoolSize;
@@ -406,7 +475,6 @@ public class SingleEndpointPool<E> {
         this.failFastWhenMaxSizeReached = failFastWhenMaxSizeReached;
         
         ownDelayedExecutor = null;
-        ownDelayedExecutorThreadPool = null;
         
         this.connectTimeoutQueue = connectTimeoutQueue;
         this.reconnectQueue = reconnectQueue;
@@ -419,6 +487,14 @@ public class SingleEndpointPool<E> {
         this.connectionTTLQueue = connectionTTLQueue;
     }
     
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MonitoringConfig<ConnectionPoolProbe> getMonitoringConfig() {
+        return monitoringConfig;
+    }
+    
     /**
      * @return the endpoint description
      */
@@ -536,9 +612,7 @@ public class SingleEndpointPool<E> {
      * @return the current pool size
      */
     public int size() {
-        synchronized (poolSync) {
-            return poolSize + pendingConnections;
-        }
+        return poolSize + pendingConnections;
     }
     
     /**
@@ -547,18 +621,14 @@ public class SingleEndpointPool<E> {
      * (connect in progress) {@link Connection}s.
      */
     public int getOpenConnectionsCount() {
-        synchronized (poolSync) {
-            return poolSize;
-        }
+        return poolSize;
     }
 
     /**
      * @return the number of {@link Connection}s ready to be retrieved and used.
      */
     public int getReadyConnectionsCount() {
-        synchronized (poolSync) {
-            return readyConnections.size();
-        }
+        return readyConnectionsCount.get();
     }
 
     /**
@@ -567,10 +637,8 @@ public class SingleEndpointPool<E> {
      * <tt>false</tt> otherwise.
      */
     public boolean isMaxCapacityReached() {
-        synchronized (poolSync) {
-            return maxPoolSize != -1
-                    && poolSize + pendingConnections >= maxPoolSize;
-        }
+        return maxPoolSize != -1
+                && poolSize + pendingConnections >= maxPoolSize;
     }
     
     /**
@@ -584,9 +652,7 @@ public class SingleEndpointPool<E> {
      * the {@link Connection} is not registered in the pool
      */
     public boolean isRegistered(final Connection connection) {
-        synchronized (poolSync) {
-            return connectionsMap.containsKey(connection);
-        }
+        return connectionsMap.containsKey(connection);
     }
     
     /**
@@ -600,15 +666,11 @@ public class SingleEndpointPool<E> {
      * returns <tt>false</tt>
      */
     public boolean isBusy(final Connection connection) {
-        synchronized (poolSync) {
-            return isBusy0(connectionsMap.get(connection));
-        }
+        return isBusy0(connectionsMap.get(connection));
     }
 
     boolean isBusy0(final ConnectionInfo<E> connectionRecord) {
-        synchronized (poolSync) {
-            return connectionRecord != null && !connectionRecord.isReady();
-        }
+        return connectionRecord != null && !connectionRecord.isReady();
     }
     
     /**
@@ -622,9 +684,7 @@ public class SingleEndpointPool<E> {
      * this pool
      */
     public ConnectionInfo<E> getConnectionInfo(final Connection connection) {
-        synchronized (poolSync) {
-            return connectionsMap.get(connection);
-        }
+        return connectionsMap.get(connection);
     }
     
     /**
@@ -655,8 +715,21 @@ public class SingleEndpointPool<E> {
      * @return {@link GrizzlyFuture}
      */
     public GrizzlyFuture<Connection> take() {
+        if (isClosed) {
+            return Futures.createReadyFuture(new IOException("The pool is closed"));
+        }
+
+        // fast path: reuse a ready connection without entering the pool monitor
+        final ConnectionInfo<E> readyInfo = pollReadyConnection();
+        if (readyInfo != null) {
+            ConnectionPoolProbeNotifier.notifyConnectionTaken(this,
+                    readyInfo.connection, 0);
+            return Futures.createReadyFuture(readyInfo.connection);
+        }
+
         int errorCode = 0;
         GrizzlyFuture<Connection> future = null;
+        Connection connection = null;
         boolean isCreateNewConnection = false;
         
         try {
@@ -664,7 +737,8 @@ public class SingleEndpointPool<E> {
                 // we need to maintain this weird if's layout to make sure we
                 // create Exceptions or new connections outside of synchronized.
                 if (!isClosed) {
-                    if (readyConnections.isEmpty()) {
+                    final ConnectionInfo<E> info = pollReadyConnection();
+                    if (info == null) {
                         if (!failFastWhenMaxSizeReached
                                 || !isMaxCapacityReached()
                                 || pendingConnections >= getWaitingListSize() + 1) {
@@ -684,9 +758,7 @@ public class SingleEndpointPool<E> {
                                             } catch (Throwable ignored) {
                                             }
 
-                                            synchronized (poolSync) {
-                                                removeFromAsyncWaitingList(pollLink);
-                                            }
+                                            removeFromAsyncWaitingList(pollLink);
                                         }
                                     };
 
@@ -699,8 +771,8 @@ public class SingleEndpointPool<E> {
                             errorCode = 2;
                         }
                     } else {
-                        future = Futures.createReadyFuture(
-                                readyConnections.pollLast().getValue().connection);
+                        connection = info.connection;
+                        future = Futures.createReadyFuture(connection);
                     }
                 } else {
                     errorCode = 1;
@@ -710,6 +782,16 @@ public class SingleEndpointPool<E> {
             switch (errorCode) {
                 case 0: {
                     assert future != null;
+
+                    if (connection != null) {
+                        ConnectionPoolProbeNotifier.notifyConnectionTaken(this,
+                                connection, 0);
+                        return future;
+                    }
+                    
+                    // a connection might have been released, while we were
+                    // registering the waiter
+                    matchReadyConnectionsWithWaiters();
                     
                     if (isCreateNewConnection) {
                         connect();
@@ -722,7 +804,9 @@ public class SingleEndpointPool<E> {
                     return Futures.createReadyFuture(new IOException("The pool is closed"));
                 
                 case 2: {
-                    return Futures.createReadyFuture(new IOException("Max connections exceeded"));
+                    final IOException error = new IOException("Max connections exceeded");
+                    ConnectionPoolProbeNotifier.notifyTakeFailed(this, error);
+                    return Futures.createReadyFuture(error);
                 }
                 
                 default: {
@@ -748,6 +832,20 @@ public class SingleEndpointPool<E> {
             throw new IllegalArgumentException("The completionHandler argument can not be null");
         }
         
+        if (isClosed) {
+            completionHandler.failed(new IOException("The pool is closed"));
+            return;
+        }
+
+        // fast path: reuse a ready connection without entering the pool monitor
+        final ConnectionInfo<E> readyInfo = pollReadyConnection();
+        if (readyInfo != null) {
+            ConnectionPoolProbeNotifier.notifyConnectionTaken(this,
+                    readyInfo.connection, 0);
+            completionHandler.completed(readyInfo.connection);
+            return;
+        }
+
         int errorCode = 0;
         Connection connection = null;
         boolean isCreateNewConnection = false;
@@ -757,7 +855,8 @@ public class SingleEndpointPool<E> {
                 // we need to maintain this weird if's layout to make sure we
                 // create Exceptions or new connections outside of synchronized.
                 if (!isClosed) {
-                    if (readyConnections.isEmpty()) {
+                    final ConnectionInfo<E> info = pollReadyConnection();
+                    if (info == null) {
                         if (!failFastWhenMaxSizeReached
                                 || !isMaxCapacityReached()
                                 || pendingConnections >= getWaitingListSize() + 1) {
@@ -773,7 +872,7 @@ public class SingleEndpointPool<E> {
                             errorCode = 2;
                         }
                     } else {
-                        connection = readyConnections.pollLast().getValue().connection;
+                        connection = info.connection;
                     }
                 } else {
                     errorCode = 1;
@@ -783,9 +882,17 @@ public class SingleEndpointPool<E> {
             switch (errorCode) {
                 case 0: {
                     if (connection != null) {
+                        ConnectionPoolProbeNotifier.notifyConnectionTaken(this,
+                                connection, 0);
                         completionHandler.completed(connection);
-                    } else if (isCreateNewConnection) {
-                        connect();
+                    } else {
+                        // a connection might have been released, while we were
+                        // registering the waiter
+                        matchReadyConnectionsWithWaiters();
+
+                        if (isCreateNewConnection) {
+                            connect();
+                        }
                     }
                     
                     break;
@@ -797,7 +904,9 @@ public class SingleEndpointPool<E> {
                 }
                 
                 case 2: {
-                    completionHandler.failed(new IOException("Max connections exceeded"));
+                    final IOException error = new IOException("Max connections exceeded");
+                    ConnectionPoolProbeNotifier.notifyTakeFailed(this, error);
+                    completionHandler.failed(error);
                     break;
                 }
             }
@@ -812,15 +921,18 @@ public class SingleEndpointPool<E> {
      * @throws java.io.IOException if the pool is closed
      */
     public Connection poll() throws IOException {
-        synchronized (poolSync) {
-            if (isClosed) {
-                throw new IOException("The pool is closed");
-            }
+        if (isClosed) {
+            throw new IOException("The pool is closed");
+        }
 
-            return !readyConnections.isEmpty()
-                    ? readyConnections.pollLast().getValue().connection
-                    : null;
+        final ConnectionInfo<E> info = pollReadyConnection();
+        if (info == null) {
+            return null;
         }
+        
+        ConnectionPoolProbeNotifier.notifyConnectionTaken(this,
+                info.connection, 0);
+        return info.connection;
     }
     
     /**
@@ -841,53 +953,57 @@ public class SingleEndpointPool<E> {
      *  and <code>false</code> will be returned.
      */
     public boolean release(final Connection connection) {
-        synchronized (poolSync) {
-            final ConnectionInfo<E> info = connectionsMap.get(connection);
-            if (info == null) {
-                connection.closeSilently();
-                return false;
-            } 
-            
-            return release0(info);
+        final ConnectionInfo<E> info = connectionsMap.get(connection);
+        if (info == null) {
+            connection.closeSilently();
+            return false;
         }
+            
+        return release0(info);
     }
 
     /**
      * Same as {@link #release(org.glassfish.grizzly.Connection)}, but is based
-     * on connection {@link Link}.
+     * on {@link ConnectionInfo}.
      */
     boolean release0(final ConnectionInfo<E> info) {
-        final boolean isKeepAlive;
-        AsyncPoll asyncPoller = null;
+        if (info.isReady()) {
+            return false;
+        }
         
-        synchronized (poolSync) {
-            if (info.isReady()) {
-                return false;
+        ConnectionPoolProbeNotifier.notifyConnectionReleased(this,
+                info.connection, System.nanoTime() - info.takenNanos);
+        
+        // close pooled connection, if keepAliveTimeoutMillis == 0
+        if (keepAliveTimeoutMillis == 0) {
+            boolean isKeepAlive = true;
+            synchronized (poolSync) {
+                if (poolSize > corePoolSize) {
+                    detach(info.connection); // detach in sync block and close outside sync
+                    isKeepAlive = false;
+                }
             }
 
-            // close pooled connection, if keepAliveTimeoutMillis == 0
-            if (keepAliveTimeoutMillis == 0 && poolSize > corePoolSize) {
-                detach(info.connection); // detach in sync block and close outside sync
-                isKeepAlive = false;
-            } else {
-                isKeepAlive = true;
-                asyncPoller = getAsyncPoller();
-                if (asyncPoller == null) {
-                    readyConnections.offerLast(info.readyStateLink);
-                }
+            if (!isKeepAlive) {
+                info.connection.closeSilently();
+                return false;
             }
         }
         
-        if (!isKeepAlive) {
+        // the connection is handed over to a waiter via the ready stack, so
+        // the waiter claims it atomically (READY -> BUSY) and never gets
+        // a connection, which has been detached concurrently (TTL expired)
+        if (!offerReadyConnection(info)) {
+            // the connection has been detached concurrently, detach() takes
+            // care of replacing it for the waiters
             info.connection.closeSilently();
+            matchReadyConnectionsWithWaiters();
             return false;
         }
         
-        if (asyncPoller != null) {
-            Futures.notifyResult(asyncPoller.future,
-                    asyncPoller.completionHandler, info.connection);
-        }
-        
+        // a consumer might have been registered, while we were returning
+        // the connection
+        matchReadyConnectionsWithWaiters();
         return true;
     }
     
@@ -971,20 +1087,14 @@ public class SingleEndpointPool<E> {
                     ownDelayedExecutor.destroy();
                 }
                 
-                if (ownDelayedExecutorThreadPool != null) {
-                    ownDelayedExecutorThreadPool.shutdownNow();
+                ConnectionInfo<E> info;
+                while ((info = pollReadyConnection()) != null) {
+                    info.connection.closeSilently();
                 }
                 
-                final int size = readyConnections.size();
-                for (int i = 0; i < size; i++) {
-                    final Connection c = readyConnections.pollLast().getValue().connection;
-                    c.closeSilently();
-                }
-                
-                final int asyncWaitingListSize = asyncWaitingList.size();
+                AsyncPoll asyncPoll;
                 IOException exception = null;
-                for (int i = 0; i < asyncWaitingListSize; i++) {
-                    final AsyncPoll asyncPoll = obtainFromAsyncWaitingList();
+                while ((asyncPoll = getAsyncPoller()) != null) {
                     if (exception == null) {
                         exception = new IOException("The pool is closed");
                     }
@@ -1012,11 +1122,12 @@ public class SingleEndpointPool<E> {
      * connection.
      * Please note, if the method returns <tt>true</tt> it also increases
      * the {@link #pendingConnections} counter, so don't forget to decrease it, if needed.
+     * The method has to be called, when holding the pool sync.
      * 
      * @return <tt>true</tt> if new connection could be created, or <tt>false</tt> otherwise
      */
     protected boolean checkBeforeOpeningConnection() {
-        if (pendingConnections < asyncWaitingList.size()
+        if (pendingConnections < getWaitingListSize()
                 && !isMaxCapacityReached()) {
             pendingConnections++;
             return true;
@@ -1029,7 +1140,7 @@ public class SingleEndpointPool<E> {
      * @return the number of consumers waiting for a connection
      */
     protected int getWaitingListSize() {
-        return asyncWaitingList.size();
+        return asyncWaitingListSize.get();
     }
     
     /**
@@ -1095,22 +1206,31 @@ public class SingleEndpointPool<E> {
                 return true;
             }
 
-            if (!readyConnections.isEmpty() && poolSize > corePoolSize) {
+            if (poolSize > corePoolSize) {
                 final long now = System.currentTimeMillis();
 
                 try {
-                    do {
-                        final Link<ConnectionInfo<E>> link = readyConnections.getFirstLink();
+                    ConnectionInfo<E> info;
+                    while (poolSize > corePoolSize
+                            && (info = readyConnections.peekFirst()) != null) {
+                        if (!info.isReady()) {
+                            // the connection has been taken or detached
+                            readyConnections.removeFirstOccurrence(info);
+                            continue;
+                        }
                         
-                        if ((now - link.getAttachmentTimeStamp()) >= keepAliveTimeoutMillis) {
-                            final Connection c = link.getValue().connection;
-                            detach(c);
-                            c.closeSilently();
-                        } else { // the rest of links are ok
+                        if ((now - info.readyTimeStamp) < keepAliveTimeoutMillis) {
+                            // the rest of connections are ok
                             break;
                         }
                         
-                    } while (!readyConnections.isEmpty() && poolSize > corePoolSize);
+                        if (claimReadyConnection(info)) {
+                            final Connection c = info.connection;
+                            detach(c);
+                            c.closeSilently();
+                            ConnectionPoolProbeNotifier.notifyConnectionEvicted(this, c);
+                        }
+                    }
                 } catch (Exception ignore) {
                 }
             }
@@ -1153,7 +1273,15 @@ public class SingleEndpointPool<E> {
      * Establish new pool connection.
      */
     private void connect() {
+        final long connectStartNanos = System.nanoTime();
         final GrizzlyFuture<Connection> future = endpoint.connect();
+        
+        // the probes have to be notified before the connection is handed over
+        if (monitoringConfig.hasProbes()) {
+            future.addCompletionHandler(
+                    new ConnectProbeCompletionHandler(connectStartNanos));
+        }
+        
         future.addCompletionHandler(defaultConnectionCompletionHandler);
         
         if (connectTimeoutMillis >= 0) {
@@ -1165,20 +1293,142 @@ public class SingleEndpointPool<E> {
         }
     }
 
+    /**
+     * Retrieves the most recently released ready {@link Connection} and
+     * switches it to the busy state.
+     *
+     * @return {@link ConnectionInfo} of the retrieved {@link Connection},
+     *         or <tt>null</tt>, if there are no ready {@link Connection}s
+     */
+    private ConnectionInfo<E> pollReadyConnection() {
+        ConnectionInfo<E> info;
+        while ((info = readyConnections.pollLast()) != null) {
+            if (info.compareAndSetState(ConnectionInfo.READY, ConnectionInfo.BUSY)) {
+                readyConnectionsCount.decrementAndGet();
+                info.takenNanos = System.nanoTime();
+                return info;
+            }
+            // the connection has been detached - skip it
+        }
+
+        return null;
+    }
+
+    /**
+     * Switches the {@link Connection} to the ready state and adds it to the
+     * tail of the ready {@link Connection}s stack.
+     *
+     * @return <tt>true</tt> if the {@link Connection} is ready, or
+     *         <tt>false</tt> if it's not busy anymore (has been detached)
+     */
+    private boolean offerReadyConnection(final ConnectionInfo<E> info) {
+        info.readyTimeStamp = System.currentTimeMillis();
+        if (!info.compareAndSetState(ConnectionInfo.BUSY, ConnectionInfo.READY)) {
+            return false;
+        }
+
+        readyConnectionsCount.incrementAndGet();
+        readyConnections.offerLast(info);
+        return true;
+    }
+
+    /**
+     * Switches the ready {@link Connection} to the busy state without
+     * retrieving it from the ready {@link Connection}s stack.
+     *
+     * @return <tt>true</tt> if the {@link Connection} has been claimed,
+     *         or <tt>false</tt> otherwise
+     */
+    boolean claimReadyConnection(final ConnectionInfo<E> info) {
+        if (info.compareAndSetState(ConnectionInfo.READY, ConnectionInfo.BUSY)) {
+            readyConnectionsCount.decrementAndGet();
+            readyConnections.removeFirstOccurrence(info);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Hands ready {@link Connection}s over to the waiting consumers.
+     * Both {@link #release0(org.glassfish.grizzly.connectionpool.ConnectionInfo)}
+     * and the "take" methods call it after publishing a ready {@link Connection}
+     * or a waiter respectively, so a {@link Connection} is never left idle
+     * while a consumer is waiting.
+     */
+    private void matchReadyConnectionsWithWaiters() {
+        while (getWaitingListSize() > 0 && readyConnectionsCount.get() > 0) {
+            final ConnectionInfo<E> info = pollReadyConnection();
+            if (info == null) {
+                // the thread, which is about to add a ready connection, will
+                // do the match
+                return;
+            }
+
+            final AsyncPoll asyncPoller = getAsyncPoller();
+            if (asyncPoller == null) {
+                // return the connection back, the thread which is about to
+                // add a waiter will do the match
+                offerReadyConnection(info);
+                return;
+            }
+
+            notifyAsyncPoller(asyncPoller, info);
+        }
+    }
+
+    /**
+     * Notifies the waiting consumer about the {@link Connection} it has been
+     * assigned.
+     */
+    private void notifyAsyncPoller(final AsyncPoll asyncPoller,
+            final ConnectionInfo<E> info) {
+        info.takenNanos = System.nanoTime();
+        ConnectionPoolProbeNotifier.notifyConnectionTaken(this,
+                info.connection, info.takenNanos - asyncPoller.startNanos);
+        
+        Futures.notifyResult(asyncPoller.future,
+                asyncPoller.completionHandler, info.connection);
+
+        if (asyncPoller.future != null && asyncPoller.future.isCancelled()) {
+            // the consumer gave up before the Connection was assigned
+            release0(info);
+        }
+    }
+
     private AsyncPoll getAsyncPoller() {
-        if (!asyncWaitingList.isEmpty()) {
-            return obtainFromAsyncWaitingList();
+        Link<AsyncPoll> link;
+        while ((link = asyncWaitingList.poll()) != null) {
+            final AsyncPoll asyncPoll = link.getValue();
+            if (asyncPoll.markCompleted()) {
+                asyncWaitingListSize.decrementAndGet();
+
+                if (asyncPollTimeoutMillis >= 0) {
+                    asyncPollTimeoutQueue.remove(link);
+                }
+
+                return asyncPoll;
+            }
+            // the waiter has been cancelled or timed out - skip it
         }
         
         return null;
     }
     
     private void notifyAsyncPollersOfFailure(final Throwable t) {
-        failedConnectAttempts = 0;
-        final int waitersToFail = getWaitingListSize() - pendingConnections;
+        final int waitersToFail;
+        synchronized (poolSync) {
+            failedConnectAttempts = 0;
+            waitersToFail = getWaitingListSize() - pendingConnections;
+        }
         
         for (int i = 0; i < waitersToFail; i++) {
-            final AsyncPoll asyncPoll = obtainFromAsyncWaitingList();
+            final AsyncPoll asyncPoll = getAsyncPoller();
+            if (asyncPoll == null) {
+                break;
+            }
+
+            ConnectionPoolProbeNotifier.notifyTakeFailed(this, t);
             Futures.notifyFailure(asyncPoll.future,
                                   asyncPoll.completionHandler,
                                   t);
@@ -1190,14 +1440,21 @@ public class SingleEndpointPool<E> {
             connectionTTLQueue.remove(info);
         }
         
-        readyConnections.remove(info.readyStateLink);
+        if (info.markDetached() == ConnectionInfo.READY) {
+            readyConnectionsCount.decrementAndGet();
+            readyConnections.removeFirstOccurrence(info);
+        }
+
         poolSize--;
 
         onCloseConnection(info);
     }
 
     private void addToAsyncWaitingList(final Link<AsyncPoll> pollLink) {
-        asyncWaitingList.offerLast(pollLink);
+        // increment the counter first, so the waiter is never matched before
+        // it's counted
+        asyncWaitingListSize.incrementAndGet();
+        asyncWaitingList.offer(pollLink);
 
         if (asyncPollTimeoutMillis >= 0) {
             asyncPollTimeoutQueue.add(pollLink,
@@ -1205,24 +1462,19 @@ public class SingleEndpointPool<E> {
         }
     }
 
-    private AsyncPoll obtainFromAsyncWaitingList() {
-        final Link<AsyncPoll> link = asyncWaitingList.pollFirst();
-        
-        if (asyncPollTimeoutMillis >= 0) {
-            asyncPollTimeoutQueue.remove(link);
-        }
-        
-        return link.getValue();
-    }
-    
     private boolean removeFromAsyncWaitingList(final Link<AsyncPoll> pollLink) {
-        final boolean result = asyncWaitingList.remove(pollLink);
+        if (!pollLink.getValue().markCompleted()) {
+            return false;
+        }
+
+        asyncWaitingListSize.decrementAndGet();
+        asyncWaitingList.remove(pollLink);
         
-        if (result && asyncPollTimeoutMillis >= 0) {
+        if (asyncPollTimeoutMillis >= 0) {
             asyncPollTimeoutQueue.remove(pollLink);
         }
         
-        return result;
+        return true;
     }    
     
     @Override
@@ -1251,8 +1503,7 @@ public class SingleEndpointPool<E> {
                 LOGGER.log(Level.FINEST, "Pool connection is established {0}", connection);
             }
 
-            boolean isOk = false;
-            AsyncPoll asyncPoller = null;
+            ConnectionInfo<E> info = null;
             
             synchronized (poolSync) {
                if (!isClosed) {
@@ -1260,23 +1511,25 @@ public class SingleEndpointPool<E> {
                    onConnected(connection);
 
                    if (!isOverflown()) {
-                       isOk = true;
-                       
-                       final ConnectionInfo<E> info = attach0(connection);
-                       asyncPoller = getAsyncPoller();
-                       if (asyncPoller == null) {
-                           readyConnections.offerLast(info.readyStateLink);
-                       }
+                       info = attach0(connection);
                    }
                 }
             }
             
-            if (!isOk) {
+            if (info == null) {
                 connection.closeSilently();
-            } else if (asyncPoller != null) {
+                return;
+            }
+            
+            final AsyncPoll asyncPoller = getAsyncPoller();
+            if (asyncPoller != null) {
                 endpoint.onConnect(connection, SingleEndpointPool.this);
-                Futures.notifyResult(asyncPoller.future,
-                        asyncPoller.completionHandler, connection);
+                notifyAsyncPoller(asyncPoller, info);
+            } else if (offerReadyConnection(info)) {
+                matchReadyConnectionsWithWaiters();
+            } else {
+                // the pool has been closed in the meantime
+                connection.closeSilently();
             }
         }
 
@@ -1293,6 +1546,7 @@ public class SingleEndpointPool<E> {
         @SuppressWarnings("unchecked")
         private void onFailedToConnect(final Throwable t) {
             boolean notifyAsyncPollers = false;
+            int reconnectAttempt = 0;
             try {
                 synchronized (poolSync) {
                     pendingConnections--;
@@ -1301,13 +1555,14 @@ public class SingleEndpointPool<E> {
 
                     // check if there is still a thread(s) waiting for a connection
                     // and reconnect mechanism is enabled
-                    if (reconnectQueue != null && !asyncWaitingList.isEmpty()) {
+                    if (reconnectQueue != null && getWaitingListSize() > 0) {
                         if (LOGGER.isLoggable(Level.FINEST)) {
                             LOGGER.log(Level.FINEST, "Pool connect operation failed, schedule reconnect");
                         }
                         if (++failedConnectAttempts > maxReconnectAttempts) {
                             notifyAsyncPollers = true;
                         } else {
+                            reconnectAttempt = failedConnectAttempts;
                             reconnectQueue.add(
                                     new ReconnectTask(SingleEndpointPool.this),
                                     reconnectDelayMillis, TimeUnit.MILLISECONDS);
@@ -1317,6 +1572,11 @@ public class SingleEndpointPool<E> {
                     }
                 }
             } finally {
+                if (reconnectAttempt > 0) {
+                    ConnectionPoolProbeNotifier.notifyReconnectScheduled(
+                            SingleEndpointPool.this, reconnectAttempt);
+                }
+                
                 if (notifyAsyncPollers) {
                     notifyAsyncPollersOfFailure(t);
                 }
@@ -1325,6 +1585,36 @@ public class SingleEndpointPool<E> {
 
     }
     
+    /**
+     * {@link CompletionHandler} to notify {@link ConnectionPoolProbe}s about
+     * the connect operation result and latency.
+     */
+    private final class ConnectProbeCompletionHandler
+            extends EmptyCompletionHandler<Connection> {
+        private final long connectStartNanos;
+
+        private ConnectProbeCompletionHandler(final long connectStartNanos) {
+            this.connectStartNanos = connectStartNanos;
+        }
+
+        @Override
+        public void completed(final Connection connection) {
+            ConnectionPoolProbeNotifier.notifyConnect(SingleEndpointPool.this,
+                    connection, System.nanoTime() - connectStartNanos);
+        }
+
+        @Override
+        public void cancelled() {
+            failed(new ConnectException("Connect timeout"));
+        }
+
+        @Override
+        public void failed(final Throwable throwable) {
+            ConnectionPoolProbeNotifier.notifyConnectFailed(SingleEndpointPool.this,
+                    throwable, System.nanoTime() - connectStartNanos);
+        }
+    }
+    
     /**
      * The {@link CloseListener} to be notified, when pool {@link Connection}
      * either busy or ready has been closed, so the pool can adjust its counters.
@@ -1445,7 +1735,7 @@ public class SingleEndpointPool<E> {
 
         @Override
         public boolean doWork(final ReconnectTask reconnectTask) {
-            reconnectTask.pool.createConnectionIfPossibleNoSync();
+            reconnectTask.pool.createConnectionIfPossible();
             return true;
         }
     }
@@ -1488,27 +1778,22 @@ public class SingleEndpointPool<E> {
 
         @Override
         public boolean doWork(final Link<AsyncPoll> asyncPollLink) {
-            // even though it's not volatile - dirty check should be good
-            // enough for us, because we don't plan to use asyncPollLink in this thread
-            if (asyncPollLink.isAttached()) {
-                final boolean removed;
-                // no volatile barrier, but should be safe, because we access final fields
-                final SingleEndpointPool<?> pool = asyncPollLink.getValue().pool;
-                synchronized (pool.poolSync) {
-                    removed = pool.asyncWaitingList.remove(asyncPollLink);
+            final SingleEndpointPool<?> pool = asyncPollLink.getValue().pool;
+            
+            // the waiter might have been already served or cancelled
+            if (pool.removeFromAsyncWaitingList(asyncPollLink)) {
+                if (LOGGER.isLoggable(Level.FINEST)) {
+                    LOGGER.log(Level.FINEST, "Async poll timed out for {0}",
+                            asyncPollLink.getValue());
                 }
                 
-                if (removed) {
-                    if (LOGGER.isLoggable(Level.FINEST)) {
-                        LOGGER.log(Level.FINEST, "Async poll timed out for {0}",
-                                asyncPollLink.getValue());
-                    }
-
-                    final AsyncPoll asyncPoll = asyncPollLink.getValue();
-                    Futures.notifyFailure(asyncPoll.future,
-                                          asyncPoll.completionHandler,
-                                          new TimeoutException("Poll timeout expired"));
-                }
+                final AsyncPoll asyncPoll = asyncPollLink.getValue();
+                final TimeoutException error =
+                        new TimeoutException("Poll timeout expired");
+                ConnectionPoolProbeNotifier.notifyTakeFailed(pool, error);
+                Futures.notifyFailure(asyncPoll.future,
+                                      asyncPoll.completionHandler,
+                                      error);
             }
             
             return true;
@@ -1537,15 +1822,32 @@ public class SingleEndpointPool<E> {
     }
     
     protected static final class AsyncPoll {
+        private static final AtomicIntegerFieldUpdater<AsyncPoll> completedUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(AsyncPoll.class, "completed");
+        
         private final SingleEndpointPool pool;
         private FutureImpl<Connection> future;
         private CompletionHandler<Connection> completionHandler;
         
         private long timeout; // timeout stamp
 
+        private final long startNanos = System.nanoTime(); // the time the poll started
+        
+        @SuppressWarnings("unused")
+        private volatile int completed;
+
         protected AsyncPoll(final SingleEndpointPool pool) {
             this.pool = pool;
         }
+        
+        /**
+         * @return <tt>true</tt> if the caller is the first one, who's
+         *         completing this poll (assigning a {@link Connection},
+         *         timing out or cancelling it), or <tt>false</tt> otherwise
+         */
+        boolean markCompleted() {
+            return completedUpdater.compareAndSet(this, 0, 1);
+        }
     }
     
 //================================= Connect timeout mechanism ======================
@@ -1563,16 +1865,23 @@ public class SingleEndpointPool<E> {
                         ci.connection);
             }
             
-            synchronized(ci.endpointPool.poolSync) {
-                if (ci.isReady()) {
-                    ci.connection.close();
-                } else {
-                    ci.endpointPool.detach(ci.connection);
-                }
-            }
+            final ConnectionInfo<?> info = ci;
+            evict(info);
             
             return true;
         }
+        
+        private static <E> void evict(final ConnectionInfo<E> ci) {
+            final SingleEndpointPool<E> pool = ci.endpointPool;
+            if (pool.claimReadyConnection(ci)) {
+                ci.connection.close();
+                ConnectionPoolProbeNotifier.notifyConnectionEvicted(pool, ci.connection);
+            } else if (ci.compareAndSetState(ConnectionInfo.BUSY,
+                    ConnectionInfo.DETACHED)) {
+                pool.detach(ci.connection);
+                ConnectionPoolProbeNotifier.notifyConnectionEvicted(pool, ci.connection);
+            }
+        }
     }
 
     protected final static class ConnectionTTLTaskResolver
@@ -0,0 +1,271 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.connectionpool;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.GrizzlyFuture;
+import org.glassfish.grizzly.filterchain.FilterChain;
+import org.glassfish.grizzly.filterchain.FilterChainBuilder;
+import org.glassfish.grizzly.filterchain.TransportFilter;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * The {@link LoadBalancingPool} tests.
+ */
+public class LoadBalancingPoolTest {
+    private static final int PORT = 18344;
+    private static final int NUMBER_OF_PORTS_TO_BIND = 3;
+    
+    private TCPNIOTransport transport;
+    
+    @Before
+    public void init() throws IOException {
+        final FilterChain filterChain = FilterChainBuilder.stateless()
+                .add(new TransportFilter())
+                .build();
+        
+        transport = TCPNIOTransportBuilder.newInstance().build();
+        transport.setProcessor(filterChain);
+        
+        for (int i = 0; i < NUMBER_OF_PORTS_TO_BIND; i++) {
+            transport.bind(PORT + i);
+        }
+        
+        transport.start();
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        if (transport != null) {
+            transport.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLeastOutstanding() throws Exception {
+        final LoadBalancingPool<SocketAddress> pool =
+                createPool(LoadBalancingPool.Strategy.LEAST_OUTSTANDING);
+        final List<Endpoint<SocketAddress>> endpoints = pool.getEndpoints();
+        
+        try {
+            final List<Connection> connections = new ArrayList<Connection>();
+            for (int i = 0; i < NUMBER_OF_PORTS_TO_BIND * 2; i++) {
+                connections.add(pool.take().get(10, TimeUnit.SECONDS));
+            }
+            
+            for (Endpoint<SocketAddress> endpoint : endpoints) {
+                assertEquals(2, pool.getOutstandingCount(endpoint));
+            }
+            
+            // free up the first endpoint, the next take has to go there
+            final Endpoint<SocketAddress> endpoint0 = endpoints.get(0);
+            for (Connection c : connections) {
+                if (pool.getPool().getConnectionInfo(c)
+                        .endpointPool.getEndpoint().equals(endpoint0)) {
+                    assertTrue(pool.release(c));
+                }
+            }
+            
+            assertEquals(0, pool.getOutstandingCount(endpoint0));
+            
+            final Connection c = pool.take().get(10, TimeUnit.SECONDS);
+            assertEquals(endpoint0, pool.getPool().getConnectionInfo(c)
+                    .endpointPool.getEndpoint());
+            assertEquals(1, pool.getOutstandingCount(endpoint0));
+        } finally {
+            pool.close();
+        }
+    }
+    
+    @Test
+    public void testLeastLatencyAvoidsFailingEndpoint() throws Exception {
+        final LoadBalancingPool<SocketAddress> pool =
+                createPool(LoadBalancingPool.Strategy.LEAST_LATENCY);
+        
+        // nobody listens on this port
+        final Endpoint<SocketAddress> failingEndpoint =
+                Endpoint.Factory.create(
+                        new InetSocketAddress("localhost", PORT + 10),
+                        null, transport);
+        assertTrue(pool.addEndpoint(failingEndpoint));
+        assertFalse(pool.addEndpoint(failingEndpoint));
+        
+        try {
+            // probe each endpoint once
+            for (int i = 0; i < NUMBER_OF_PORTS_TO_BIND + 1; i++) {
+                try {
+                    final Connection c = pool.take().get(10, TimeUnit.SECONDS);
+                    assertTrue(pool.release(c));
+                } catch (ExecutionException e) {
+                    // the failing endpoint
+                }
+            }
+            
+            assertTrue(pool.getLatency(failingEndpoint, TimeUnit.MILLISECONDS)
+                    >= 1000);
+            
+            for (int i = 0; i < 10; i++) {
+                final Connection c = pool.take().get(10, TimeUnit.SECONDS);
+                assertNotEquals(failingEndpoint, pool.getPool()
+                        .getConnectionInfo(c).endpointPool.getEndpoint());
+                assertTrue(pool.release(c));
+            }
+            
+            assertEquals(0, pool.getOutstandingCount(failingEndpoint));
+            
+            assertTrue(pool.removeEndpoint(failingEndpoint));
+            assertEquals(-1, pool.getOutstandingCount(failingEndpoint));
+        } finally {
+            pool.close();
+        }
+    }
+    
+    @Test
+    public void testLeastLatencyUnsampledBusyEndpoint() throws Exception {
+        final LoadBalancingPool<SocketAddress> pool =
+                createPool(LoadBalancingPool.Strategy.LEAST_LATENCY);
+        
+        try {
+            // the endpoint, which never answers - its connection is never released
+            final Connection hung = pool.take().get(10, TimeUnit.SECONDS);
+            final Endpoint<SocketAddress> hungEndpoint = pool.getPool()
+                    .getConnectionInfo(hung).endpointPool.getEndpoint();
+            assertEquals(-1, pool.getLatency(hungEndpoint, TimeUnit.NANOSECONDS));
+            
+            for (int i = 0; i < 10; i++) {
+                final Connection c = pool.take().get(10, TimeUnit.SECONDS);
+                assertNotEquals(hungEndpoint, pool.getPool()
+                        .getConnectionInfo(c).endpointPool.getEndpoint());
+                assertTrue(pool.release(c));
+            }
+            
+            assertEquals(1, pool.getOutstandingCount(hungEndpoint));
+        } finally {
+            pool.close();
+        }
+    }
+    
+    @Test
+    public void testDoubleRelease() throws Exception {
+        final LoadBalancingPool<SocketAddress> pool =
+                createPool(LoadBalancingPool.Strategy.LEAST_OUTSTANDING);
+        
+        try {
+            final Connection c = pool.take().get(10, TimeUnit.SECONDS);
+            final Endpoint<SocketAddress> endpoint = pool.getPool()
+                    .getConnectionInfo(c).endpointPool.getEndpoint();
+            assertEquals(1, pool.getOutstandingCount(endpoint));
+            
+            pool.release(c);
+            pool.release(c);
+            assertEquals(0, pool.getOutstandingCount(endpoint));
+        } finally {
+            pool.close();
+        }
+    }
+    
+    @Test
+    public void testCancelTake() throws Exception {
+        final Endpoint<SocketAddress> endpoint = Endpoint.Factory.create(
+                new InetSocketAddress("localhost", PORT), null, transport);
+        final LoadBalancingPool<SocketAddress> pool =
+                LoadBalancingPool.builder(SocketAddress.class)
+                        .pool(MultiEndpointPool.builder(SocketAddress.class)
+                                .maxConnectionsPerEndpoint(1)
+                                .build())
+                        .endpoint(endpoint)
+                        .build();
+        
+        try {
+            final Connection c = pool.take().get(10, TimeUnit.SECONDS);
+            final SingleEndpointPool<SocketAddress> endpointPool =
+                    pool.getPool().getConnectionInfo(c).endpointPool;
+            
+            // no connections left - the take has to wait
+            final GrizzlyFuture<Connection> future = pool.take();
+            assertFalse(future.isDone());
+            assertEquals(1, endpointPool.getWaitingListSize());
+            assertEquals(2, pool.getOutstandingCount(endpoint));
+            
+            // the cancel has to remove the waiter from the endpoint pool
+            assertTrue(future.cancel(false));
+            assertEquals(0, endpointPool.getWaitingListSize());
+            assertEquals(1, pool.getOutstandingCount(endpoint));
+            
+            assertTrue(pool.release(c));
+            assertEquals(0, pool.getOutstandingCount(endpoint));
+            assertEquals(1, endpointPool.getReadyConnectionsCount());
+        } finally {
+            pool.close();
+        }
+    }
+    
+    private LoadBalancingPool<SocketAddress> createPool(
+            final LoadBalancingPool.Strategy strategy) {
+        final LoadBalancingPool.Builder<SocketAddress> builder =
+                LoadBalancingPool.builder(SocketAddress.class)
+                        .pool(MultiEndpointPool.builder(SocketAddress.class)
+                                .maxConnectionsPerEndpoint(4)
+                                .maxConnectionsTotal(16)
+                                .build())
+                        .strategy(strategy);
+        
+        for (int i = 0; i < NUMBER_OF_PORTS_TO_BIND; i++) {
+            builder.endpoint(Endpoint.Factory.create(
+                    new InetSocketAddress("localhost", PORT + i),
+                    null, transport));
+        }
+        
+        return builder.build();
+    }
+}
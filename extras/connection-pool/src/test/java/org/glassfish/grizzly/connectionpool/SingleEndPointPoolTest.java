@@ -48,9 +48,12 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.glassfish.grizzly.Connection;
@@ -516,6 +519,39 @@ public class SingleEndPointPoolTest {
         }
     }
     
+    @Test
+    public void testReleaseDetachedConnection() throws Exception {
+        final SingleEndpointPool<SocketAddress> pool = SingleEndpointPool
+                .builder(SocketAddress.class)
+                .connectorHandler(transport)
+                .endpointAddress(new InetSocketAddress("localhost", PORT))
+                .maxPoolSize(1)
+                .build();
+        
+        try {
+            final Connection c1 = pool.take().get();
+            assertNotNull(c1);
+            
+            final GrizzlyFuture<Connection> waiter = pool.take();
+            assertFalse(waiter.isDone());
+            
+            // emulate the TTL expiration, which has detached the busy
+            // connection, but hasn't deregistered it yet
+            assertTrue(pool.getConnectionInfo(c1).compareAndSetState(
+                    ConnectionInfo.BUSY, ConnectionInfo.DETACHED));
+            
+            // the detached connection must be closed, not passed to the waiter
+            assertFalse(pool.release(c1));
+            assertFalse(c1.isOpen());
+            
+            final Connection c2 = waiter.get(10, TimeUnit.SECONDS);
+            assertNotSame(c1, c2);
+            assertTrue(c2.isOpen());
+        } finally {
+            pool.close();
+        }
+    }
+    
     @Test
     public void testKeepAliveZero() throws Exception {
         final SingleEndpointPool<SocketAddress> pool = SingleEndpointPool
@@ -563,4 +599,135 @@ public class SingleEndPointPoolTest {
             transport.shutdownNow();
         }
     }    
+
+    @Test
+    public void testConcurrentTakeRelease() throws Exception {
+        final int maxPoolSize = 4;
+        final int threadsCount = 16;
+        final int iterations = 2000;
+        
+        final SingleEndpointPool<SocketAddress> pool = SingleEndpointPool
+                .builder(SocketAddress.class)
+                .connectorHandler(transport)
+                .endpointAddress(new InetSocketAddress("localhost", PORT))
+                .maxPoolSize(maxPoolSize)
+                .asyncPollTimeout(10, TimeUnit.SECONDS)
+                .build();
+        
+        final ExecutorService executor = Executors.newFixedThreadPool(threadsCount);
+        
+        try {
+            final Set<Connection> busyConnections =
+                    Collections.newSetFromMap(new ConcurrentHashMap<>());
+            final AtomicInteger errorsCount = new AtomicInteger();
+            final CountDownLatch latch = new CountDownLatch(threadsCount);
+            
+            for (int i = 0; i < threadsCount; i++) {
+                executor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        try {
+                            for (int j = 0; j < iterations; j++) {
+                                final Connection c = pool.take().get(10, TimeUnit.SECONDS);
+                                // the same connection must never be given to two consumers
+                                if (!busyConnections.add(c)) {
+                                    errorsCount.incrementAndGet();
+                                }
+                                busyConnections.remove(c);
+                                
+                                if (!pool.release(c)) {
+                                    errorsCount.incrementAndGet();
+                                }
+                            }
+                        } catch (Exception e) {
+                            errorsCount.incrementAndGet();
+                        } finally {
+                            latch.countDown();
+                        }
+                    }
+                });
+            }
+            
+            assertTrue(latch.await(60, TimeUnit.SECONDS));
+            assertEquals(0, errorsCount.get());
+            assertTrue(pool.size() <= maxPoolSize);
+            assertEquals(pool.size(), pool.getReadyConnectionsCount());
+        } finally {
+            executor.shutdownNow();
+            pool.close();
+        }
+    }
+    
+    @Test
+    public void testProbes() throws Exception {
+        final SingleEndpointPool<SocketAddress> pool = SingleEndpointPool
+                        .builder(SocketAddress.class)
+                        .connectorHandler(transport)
+                        .endpointAddress(new InetSocketAddress("localhost", PORT))
+                        .maxPoolSize(1)
+                        .failFastWhenMaxSizeReached(true)
+                        .build();
+
+        final AtomicInteger connectCounter = new AtomicInteger();
+        final AtomicInteger takenCounter = new AtomicInteger();
+        final AtomicInteger releasedCounter = new AtomicInteger();
+        final AtomicInteger takeFailedCounter = new AtomicInteger();
+        
+        pool.getMonitoringConfig().addProbes(new ConnectionPoolProbe.Adapter() {
+
+            @Override
+            public void onConnectEvent(SingleEndpointPool<?> pool,
+                    Connection connection, long connectNanos) {
+                assertTrue(connectNanos >= 0);
+                connectCounter.incrementAndGet();
+            }
+
+            @Override
+            public void onConnectionTakenEvent(SingleEndpointPool<?> pool,
+                    Connection connection, long waitNanos) {
+                assertTrue(waitNanos >= 0);
+                takenCounter.incrementAndGet();
+            }
+
+            @Override
+            public void onConnectionReleasedEvent(SingleEndpointPool<?> pool,
+                    Connection connection, long borrowNanos) {
+                assertTrue(borrowNanos >= 0);
+                releasedCounter.incrementAndGet();
+            }
+
+            @Override
+            public void onTakeFailedEvent(SingleEndpointPool<?> pool,
+                    Throwable error) {
+                takeFailedCounter.incrementAndGet();
+            }
+        });
+        
+        try {
+            Connection c1 = pool.take().get(10, TimeUnit.SECONDS);
+            assertEquals(1, connectCounter.get());
+            assertEquals(1, takenCounter.get());
+            
+            try {
+                pool.take().get(10, TimeUnit.SECONDS);
+                fail("Max connections exceeded is expected");
+            } catch (ExecutionException e) {
+                assertEquals(1, takeFailedCounter.get());
+            }
+            
+            pool.release(c1);
+            assertEquals(1, releasedCounter.get());
+
+            Connection c2 = pool.poll();
+            assertSame(c1, c2);
+            assertEquals(2, takenCounter.get());
+            assertEquals(1, connectCounter.get());
+            
+            pool.release(c2);
+            assertEquals(2, releasedCounter.get());
+        } finally {
+            pool.close();
+        }
+    }
 }
@@ -0,0 +1,222 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http.multipart;
+
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.memory.BufferArray;
+import org.glassfish.grizzly.utils.Charsets;
+
+/**
+ * Boyer-Moore-Horspool search of the "--boundary" pattern in a {@link Buffer}.
+ *
+ * The bad character shift table is built once per multipart boundary, so
+ * the search inspects on average only <tt>N / boundary length</tt> bytes of
+ * the multipart entry content.
+ */
+final class BoundaryFinder {
+
+    private final byte[] pattern;
+    private final int[] shifts = new int[256];
+    // the bytes around the composite buffer components border
+    private final byte[] borderBytes;
+
+    BoundaryFinder(final String boundary) {
+        pattern = ("--" + boundary).getBytes(Charsets.ASCII_CHARSET);
+
+        final int length = pattern.length;
+        for (int i = 0; i < shifts.length; i++) {
+            shifts[i] = length;
+        }
+
+        for (int i = 0; i < length - 1; i++) {
+            shifts[pattern[i] & 0xFF] = length - 1 - i;
+        }
+
+        borderBytes = new byte[2 * (length - 1)];
+    }
+
+    /**
+     * @return the length of the "--boundary" pattern.
+     */
+    int length() {
+        return pattern.length;
+    }
+
+    /**
+     * Finds the first occurrence of the "--boundary" pattern, which lays
+     * completely within the <tt>[from, to)</tt> {@link Buffer} region.
+     *
+     * @return the index of the pattern occurrence, or <tt>-1</tt>, if
+     *  the pattern wasn't found.
+     */
+    int indexOf(final Buffer buffer, final int from, final int to) {
+        if (buffer.hasArray()) {
+            final int offset = buffer.arrayOffset();
+            final int idx = indexOf(buffer.array(), from + offset, to + offset);
+            return idx != -1 ? idx - offset : -1;
+        }
+
+        if (buffer.isComposite()) {
+            return indexOfComposite(buffer, from, to);
+        }
+
+        return indexOfGeneric(buffer, from, to);
+    }
+
+    /**
+     * Searches the composite {@link Buffer} component by component, so the
+     * occurrences within a heap component are found using the array search.
+     * The occurrences spanning the components border are searched in the copy
+     * of the bytes around the border.
+     */
+    private int indexOfComposite(final Buffer buffer, final int from,
+            final int to) {
+        final int last = pattern.length - 1;
+        if (to - from <= last) {
+            return -1;
+        }
+
+        final BufferArray bufferArray = buffer.toBufferArray(from, to);
+        try {
+            final Buffer[] components = bufferArray.getArray();
+            int componentStart = from;
+            for (int i = 0, size = bufferArray.size(); i < size; i++) {
+                final Buffer component = components[i];
+                final int position = component.position();
+                final int componentEnd = componentStart + component.remaining();
+
+                int idx;
+                if (component.hasArray()) {
+                    final int offset = component.arrayOffset();
+                    idx = indexOf(component.array(), position + offset,
+                            component.limit() + offset);
+                    if (idx != -1) {
+                        idx -= offset;
+                    }
+                } else {
+                    idx = indexOfGeneric(component, position, component.limit());
+                }
+
+                if (idx != -1) {
+                    return componentStart + (idx - position);
+                }
+
+                if (i < size - 1) {
+                    final int tailStart = Math.max(position,
+                            component.limit() - last);
+                    int n = 0;
+                    for (int j = tailStart; j < component.limit(); j++) {
+                        borderBytes[n++] = component.get(j);
+                    }
+
+                    for (int k = i + 1; k < size && n < borderBytes.length; k++) {
+                        final Buffer next = components[k];
+                        for (int j = next.position();
+                                j < next.limit() && n < borderBytes.length; j++) {
+                            borderBytes[n++] = next.get(j);
+                        }
+                    }
+
+                    idx = indexOf(borderBytes, 0, n);
+                    if (idx != -1) {
+                        return componentEnd - (component.limit() - tailStart) + idx;
+                    }
+                }
+
+                componentStart = componentEnd;
+            }
+
+            return -1;
+        } finally {
+            bufferArray.restore();
+            bufferArray.recycle();
+        }
+    }
+
+    private int indexOfGeneric(final Buffer buffer, final int from,
+            final int to) {
+        final byte[] p = pattern;
+        final int last = p.length - 1;
+
+        int i = from + last;
+        while (i < to) {
+            final byte b = buffer.get(i);
+            if (b == p[last]) {
+                int k = 1;
+                while (k <= last && buffer.get(i - k) == p[last - k]) {
+                    k++;
+                }
+
+                if (k > last) {
+                    return i - last;
+                }
+            }
+
+            i += shifts[b & 0xFF];
+        }
+
+        return -1;
+    }
+
+    private int indexOf(final byte[] array, final int from, final int to) {
+        final byte[] p = pattern;
+        final int last = p.length - 1;
+
+        int i = from + last;
+        while (i < to) {
+            final byte b = array[i];
+            if (b == p[last]) {
+                int k = 1;
+                while (k <= last && array[i - k] == p[last - k]) {
+                    k++;
+                }
+
+                if (k > last) {
+                    return i - last;
+                }
+            }
+
+            i += shifts[b & 0xFF];
+        }
+
+        return -1;
+    }
+}
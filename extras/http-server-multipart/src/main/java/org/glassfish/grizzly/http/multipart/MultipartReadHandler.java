@@ -42,6 +42,7 @@ package org.glassfish.grizzly.http.multipart;
 
 import java.io.IOException;
 import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.memory.CompositeBuffer;
 import org.glassfish.grizzly.CompletionHandler;
 import org.glassfish.grizzly.ReadHandler;
 import org.glassfish.grizzly.http.server.Request;
@@ -79,6 +80,20 @@ public class MultipartReadHandler implements ReadHandler {
 
     private final Line line = new Line();
 
+    private final BoundaryFinder boundaryFinder;
+
+    /**
+     * The offset (relative to the end of the entry content, which has been
+     * made available so far) where the next boundary search will start.
+     */
+    private int bodySearchOffset;
+
+    /**
+     * <tt>true</tt>, if no content of the current entry has been made
+     * available yet.
+     */
+    private boolean isBodyStart;
+
     private final MultipartEntry multipartEntry;
     
     private State state = State.PREAMBLE;
@@ -96,6 +111,7 @@ public class MultipartReadHandler implements ReadHandler {
         this.requestCompletionHandler = completionHandler;
         this.multipartContext = multipartContext;
         this.boundary = multipartContext.getBoundary();
+        this.boundaryFinder = new BoundaryFinder(boundary);
         this.parentInputStream = request.getNIOInputStream();
 
         multipartMixedCompletionHandler = null;
@@ -113,6 +129,7 @@ public class MultipartReadHandler implements ReadHandler {
         this.multipartMixedCompletionHandler = completionHandler;
         this.multipartContext = multipartContext;
         this.boundary = multipartContext.getBoundary();
+        this.boundaryFinder = new BoundaryFinder(boundary);
 
         this.parentInputStream = parentMultipartEntry.getNIOInputStream();
 
@@ -203,6 +220,8 @@ public class MultipartReadHandler implements ReadHandler {
                 case START_BODY:
                 {
                     state = State.BODY;
+                    bodySearchOffset = 0;
+                    isBodyStart = true;
 //                    feedMultipartEntry();
                     multipartHandler.handle(multipartEntry);
 
@@ -239,64 +258,144 @@ public class MultipartReadHandler implements ReadHandler {
         } while (true);
     }
 
+    /**
+     * Searches the multipart entry content for the delimiter
+     * (<tt>CRLF--boundary[--] CRLF</tt>) using the Boyer-Moore-Horspool
+     * algorithm and makes the content, which precedes the delimiter
+     * (or the content, which can't be a part of the delimiter, if it hasn't been
+     * found yet) available for the {@link MultipartEntry}.
+     */
     @SuppressWarnings({"ResultOfMethodCallIgnored"})
     private void feedMultipartEntry() throws Exception {
-//        int available = 0;
-        boolean isComplete;
-        
-        do {
-            line.offset = multipartEntry.availableBytes() + multipartEntry.getReservedBytes();
+        final Buffer buffer = parentInputStream.getBuffer();
+        final int position = buffer.position();
+        final int ready = parentInputStream.readyData();
+        final int patternLength = boundaryFinder.length();
 
-            readLine();
+        // all the offsets below are relative to the buffer position
+        final int contentEnd = multipartEntry.availableBytes();
+        int from = contentEnd + bodySearchOffset;
 
-            isComplete = line.isComplete;
-//            System.out.println("Line=" + line.toString() + " " + isComplete);
+        do {
+            final int idx = boundaryFinder.indexOf(buffer,
+                    position + from, position + ready);
             
-            if (isComplete) {
-                if (line.isBoundary()) {
-                    isFinished = line.isFinalBoundary;
-                    
-                    multipartEntry.onFinished();
-
-                    try {
-                        // Skip the boundary + all the leftovers from the prev.
-                        // multipart entry
-                        parentInputStream.skip(multipartEntry.availableBytes()
-                                + multipartEntry.getReservedBytes() + line.len);
-                    } catch (IOException ignored) {
-                        // should never happen
-                    }
+            if (idx == -1) {
+                // the boundary might start only within the last
+                // (patternLength - 1) bytes, so the bytes before its
+                // potential line terminator are the entry content
+                final int next = Math.max(from, ready - patternLength + 1);
+                makeAvailable(contentEnd,
+                        isBodyStart && next == 0 ? 0 : next - 2, next, ready);
+                break;
+            }
+
+            final int boundaryIdx = idx - position;
+            final int delimiterStart;
+            if (isBodyStart && boundaryIdx == 0) {
+                delimiterStart = 0;
+            } else if (buffer.get(idx - 1) == Constants.LF) {
+                delimiterStart = boundaryIdx - 2 >= contentEnd
+                        && buffer.get(idx - 2) == Constants.CR
+                        ? boundaryIdx - 2
+                        : boundaryIdx - 1;
+            } else {
+                // not at the beginning of a line
+                from = boundaryIdx + 1;
+                continue;
+            }
 
-//                    line.skip();
-                    line.reset();
-                    return;
+            // check the boundary line suffix: optional "--",
+            // optional transport padding and the line terminator
+            int offset = boundaryIdx + patternLength;
+            boolean isFinalBoundary = false;
+            boolean isComplete = false;
+            boolean isValid = true;
+            
+            if (offset < ready && buffer.get(position + offset) == '-') {
+                if (offset + 1 < ready) {
+                    isFinalBoundary = buffer.get(position + offset + 1) == '-';
+                    isValid = isFinalBoundary;
+                    offset += 2;
                 } else {
-                    final int lineTerminatorLength = line.getLineTerminatorLength();
+                    offset = ready;
+                }
+            }
 
-                    multipartEntry.addAvailableBytes(line.len +
-                            multipartEntry.getReservedBytes() - lineTerminatorLength);
+            if (isValid) {
+                while (offset < ready && isPadding(buffer.get(position + offset))) {
+                    offset++;
+                }
 
-                    multipartEntry.setReservedBytes(lineTerminatorLength);
-//                    available += line.len;
-                    line.reset();
+                if (offset < ready && buffer.get(position + offset) == Constants.CR) {
+                    offset++;
                 }
-            } else {
-                // if line is incomplete - we always make available line.len - 1
-                // bytes (cause the last byte can be CR).
-                // Also we have to make sure the incomplete line is not a boundary
-                if (line.len > 1 && !line.couldBeBoundary()) {
-                    multipartEntry.addAvailableBytes((line.len - 1) +
-                            multipartEntry.getReservedBytes());
-
-                    line.len = 1;
-                    multipartEntry.setReservedBytes(0);
+
+                if (offset < ready) {
+                    isValid = buffer.get(position + offset) == Constants.LF;
+                    isComplete = isValid;
+                    offset++;
+                } else if (isFinalBoundary && parentInputStream.isFinished()) {
+                    // the final boundary w/o line terminator at the end of the content
+                    isComplete = true;
                 }
             }
-        } while (isComplete);
+
+            if (!isValid) {
+                from = boundaryIdx + 1;
+                continue;
+            }
+
+            if (!isComplete) {
+                // need more data to check the boundary line
+                makeAvailable(contentEnd, delimiterStart, boundaryIdx, ready);
+                break;
+            }
+
+            if (delimiterStart > contentEnd) {
+                multipartEntry.addAvailableBytes(delimiterStart - contentEnd);
+            }
+            multipartEntry.setReservedBytes(offset - delimiterStart);
+
+            isFinished = isFinalBoundary;
+            multipartEntry.onFinished();
+
+            try {
+                // Skip the boundary + all the leftovers from the prev.
+                // multipart entry
+                parentInputStream.skip(multipartEntry.availableBytes()
+                        + multipartEntry.getReservedBytes());
+            } catch (IOException ignored) {
+                // should never happen
+            }
+
+            return;
+        } while (true);
 
         multipartEntry.onDataReceived();
     }
 
+    /**
+     * Makes the bytes up to <tt>newContentEnd</tt> available for
+     * the {@link MultipartEntry} and reserves the rest, which might be
+     * a part of the delimiter.
+     */
+    private void makeAvailable(final int contentEnd, final int newContentEnd,
+            final int nextSearchIdx, final int ready) {
+        final int end = Math.max(contentEnd, newContentEnd);
+        if (end > contentEnd) {
+            multipartEntry.addAvailableBytes(end - contentEnd);
+            isBodyStart = false;
+        }
+
+        bodySearchOffset = nextSearchIdx - end;
+        multipartEntry.setReservedBytes(ready - end);
+    }
+
+    private static boolean isPadding(final byte b) {
+        return b == Constants.SP || b == Constants.HT;
+    }
+
     private boolean skipPreamble() {
         do {
             readLine();
@@ -394,19 +493,32 @@ public class MultipartReadHandler implements ReadHandler {
     void readLine() {
         final Buffer buffer = parentInputStream.getBuffer();
 
-        final int position = buffer.position() + line.offset;
+        final int position = buffer.position();
 //        final int limit = buffer.limit();
         final int limit = buffer.position() + parentInputStream.readyData();
         int offset = position + line.len;
 
-        while(offset < limit) {
-            final byte b = buffer.get(offset++);
-
-            if (b == Constants.LF) {
+        if (buffer.isComposite()) {
+            final int lfIdx = ((CompositeBuffer) buffer).indexOf(
+                    Constants.LF, offset, limit);
+            if (lfIdx != -1) {
+                offset = lfIdx + 1;
                 line.isCrLf = position <= offset - 2 &&
                         buffer.get(offset - 2) == Constants.CR;
                 line.isComplete = true;
-                break;
+            } else {
+                offset = Math.max(offset, limit);
+            }
+        } else {
+            while(offset < limit) {
+                final byte b = buffer.get(offset++);
+
+                if (b == Constants.LF) {
+                    line.isCrLf = position <= offset - 2 &&
+                            buffer.get(offset - 2) == Constants.CR;
+                    line.isComplete = true;
+                    break;
+                }
             }
         }
 
@@ -460,10 +572,6 @@ public class MultipartReadHandler implements ReadHandler {
         
         boolean isComplete;
         int len;
-        int offset;
-
-        // Offset, which remembers where the last couldBeBoundary check was finished
-        int couldBeBoundaryOffset;
 
         boolean isBoundary;
         boolean isFinalBoundary;
@@ -472,8 +580,6 @@ public class MultipartReadHandler implements ReadHandler {
             isCrLf = false;
             isComplete = false;
             len = 0;
-            offset = 0;
-            couldBeBoundaryOffset = 0;
             isBoundary = false;
             isFinalBoundary = false;
         }
@@ -497,21 +603,13 @@ public class MultipartReadHandler implements ReadHandler {
             }
 
             final Buffer buffer = parentInputStream.getBuffer();
-            final int position = buffer.position() + offset;
-
-            // if we called couldBeBoundary() for the incomplete boundary line - let's reuse its findings
-            int checkIdx = couldBeBoundaryOffset;
-
-            if (checkIdx < 2) {
-                if (buffer.get(position) != '-' || buffer.get(position + 1) != '-') {
-                    return false;
-                }
+            final int position = buffer.position();
 
-                checkIdx = 2;
+            if (buffer.get(position) != '-' || buffer.get(position + 1) != '-') {
+                return false;
             }
 
-            // if we called couldBeBoundary() for the incomplete boundary line - let's reuse its findings
-            for (int i = checkIdx; i < boundaryLength + 2; i++) {
+            for (int i = 2; i < boundaryLength + 2; i++) {
                 // '+ 2' because of '--' prefix
                 if (buffer.get(position + i) != boundary.charAt(i - 2)) {
                     return false;
@@ -530,31 +628,6 @@ public class MultipartReadHandler implements ReadHandler {
             return true;
         }
 
-        private boolean couldBeBoundary() {
-            // 2 + 4 means 2 bytes for line terminator, 4 - for prefix and postfix '--'.
-            if (len > boundary.length() + 2 + 4) {
-                return false;
-            }
-            
-            final Buffer buffer = parentInputStream.getBuffer();
-            final int position = buffer.position();
-
-            for (; couldBeBoundaryOffset < 2 && couldBeBoundaryOffset < len; couldBeBoundaryOffset++) {
-                if (buffer.get(offset + position + couldBeBoundaryOffset) != '-') {
-                    return false;
-                }
-            }
-
-            final int boundaryLength = boundary.length();
-            for (; couldBeBoundaryOffset < line.len && couldBeBoundaryOffset < boundaryLength; couldBeBoundaryOffset++) {
-                if (buffer.get(offset + position + couldBeBoundaryOffset) != boundary.charAt(couldBeBoundaryOffset - 2)) {
-                    return false;
-                }
-            }
-
-            return true;
-        }
-        
         private int getLineTerminatorLength() {
             return 1 + (isCrLf ? 1 : 0);
         }
@@ -573,7 +646,7 @@ public class MultipartReadHandler implements ReadHandler {
             final StringBuilder sb = new StringBuilder();
             if (len > 0) {
                 final Buffer buffer = parentInputStream.getBuffer();
-                final int start = buffer.position() + offset;
+                final int start = buffer.position();
                 
                 sb.append(buffer.toStringContent(null, start, start + len));
             }
@@ -0,0 +1,313 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http.multipart;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.memory.ByteBufferArray;
+import org.glassfish.grizzly.utils.Charsets;
+
+/**
+ * {@link MultipartEntry} content received by the
+ * {@link SpoolingMultipartEntryHandler}. The content is kept in memory
+ * until its size exceeds the handler's threshold, after that the content is
+ * spooled to a temporary file.
+ *
+ * @since 2.4.4
+ */
+public final class SpooledPart {
+    private static final Logger LOGGER = Grizzly.logger(SpooledPart.class);
+
+    private final Map<String, String> headers;
+    private final String name;
+    private final String fileName;
+    private final String contentType;
+    private final String encoding;
+
+    private final File directory;
+    private final int threshold;
+
+    private byte[] memoryContent;
+    private long size;
+
+    private File file;
+    private FileChannel fileChannel;
+
+    private volatile boolean isComplete;
+    private volatile Throwable error;
+
+    SpooledPart(final MultipartEntry entry, final File directory,
+            final int threshold) {
+        final Map<String, String> headersCopy =
+                new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+        for (String headerName : entry.getHeaderNames()) {
+            headersCopy.put(headerName, entry.getHeader(headerName));
+        }
+        headers = Collections.unmodifiableMap(headersCopy);
+
+        final ContentDisposition contentDisposition = entry.getContentDisposition();
+        if (contentDisposition != null) {
+            name = contentDisposition.getDispositionParamUnquoted("name");
+            fileName = contentDisposition.getDispositionParamUnquoted("filename");
+        } else {
+            name = null;
+            fileName = null;
+        }
+
+        contentType = entry.getContentType();
+        encoding = entry.getEncoding();
+        this.directory = directory;
+        this.threshold = threshold;
+        memoryContent = new byte[Math.min(threshold, 1024)];
+    }
+
+    /**
+     * @return the <tt>name</tt> parameter of the part Content-Disposition,
+     *  or <tt>null</tt>.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the <tt>filename</tt> parameter of the part Content-Disposition,
+     *  or <tt>null</tt>.
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * @return the part content type.
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @param name the header name.
+     * @return the part header value, or <tt>null</tt>.
+     */
+    public String getHeader(final String name) {
+        return headers.get(name);
+    }
+
+    /**
+     * @return the part headers.
+     */
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return the number of the part content bytes received so far.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return <tt>true</tt> if the whole part content has been received.
+     */
+    public boolean isComplete() {
+        return isComplete;
+    }
+
+    /**
+     * @return the error occurred during the part processing, or <tt>null</tt>.
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * @return <tt>true</tt> if the part content is kept in memory, or
+     *  <tt>false</tt> if it's been spooled to a file.
+     */
+    public boolean isInMemory() {
+        return file == null;
+    }
+
+    /**
+     * @return the file the part content has been spooled to, or <tt>null</tt>
+     *  if the content is kept in memory.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the part content, if it's kept in memory.
+     * @throws IllegalStateException if the content has been spooled to a file.
+     */
+    public byte[] getBytes() {
+        if (!isInMemory()) {
+            throw new IllegalStateException("The content has been spooled to " + file);
+        }
+
+        return Arrays.copyOf(memoryContent, (int) size);
+    }
+
+    /**
+     * @return the part content decoded using the part charset, if
+     *  the content is kept in memory.
+     * @throws IllegalStateException if the content has been spooled to a file.
+     */
+    public String getString() {
+        return new String(getBytes(), Charsets.lookupCharset(encoding));
+    }
+
+    /**
+     * @return the {@link InputStream} to read the part content.
+     * @throws IOException if the spooled file can't be opened.
+     */
+    public InputStream getInputStream() throws IOException {
+        return isInMemory()
+                ? new ByteArrayInputStream(memoryContent, 0, (int) size)
+                : new FileInputStream(file);
+    }
+
+    /**
+     * Deletes the file the part content has been spooled to, if any.
+     */
+    public void delete() {
+        closeFile();
+
+        final File f = file;
+        if (f != null && f.exists() && !f.delete()) {
+            f.deleteOnExit();
+        }
+    }
+
+    // ------------------------------------------------------- Package-private
+
+    void write(final Buffer buffer) throws IOException {
+        final int length = buffer.remaining();
+        if (length == 0) {
+            return;
+        }
+
+        if (fileChannel == null && size + length > threshold) {
+            spool();
+        }
+
+        if (fileChannel == null) {
+            ensureMemoryCapacity((int) size + length);
+            buffer.get(memoryContent, (int) size, length);
+        } else if (!buffer.isComposite()) {
+            writeFully(buffer.toByteBuffer());
+        } else {
+            // avoid copying the composite buffer content
+            final ByteBufferArray bufferArray = buffer.toByteBufferArray();
+            try {
+                final ByteBuffer[] byteBuffers = bufferArray.getArray();
+                for (int i = 0, len = bufferArray.size(); i < len; i++) {
+                    writeFully(byteBuffers[i]);
+                }
+            } finally {
+                bufferArray.restore();
+                bufferArray.recycle();
+            }
+        }
+
+        size += length;
+    }
+
+    void onComplete() {
+        closeFile();
+        isComplete = true;
+    }
+
+    void onError(final Throwable t) {
+        error = t;
+        delete();
+    }
+
+    // --------------------------------------------------------- Private Methods
+
+    private void spool() throws IOException {
+        file = File.createTempFile("grizzly-multipart-", ".part", directory);
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        fileChannel = raf.getChannel();
+
+        writeFully(ByteBuffer.wrap(memoryContent, 0, (int) size));
+        memoryContent = null;
+    }
+
+    private void writeFully(final ByteBuffer byteBuffer) throws IOException {
+        while (byteBuffer.hasRemaining()) {
+            fileChannel.write(byteBuffer);
+        }
+    }
+
+    private void ensureMemoryCapacity(final int capacity) {
+        if (capacity > memoryContent.length) {
+            memoryContent = Arrays.copyOf(memoryContent,
+                    Math.min(threshold, Math.max(capacity, memoryContent.length * 2)));
+        }
+    }
+
+    private void closeFile() {
+        final FileChannel channel = fileChannel;
+        if (channel != null) {
+            fileChannel = null;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Can't close the file " + file, e);
+            }
+        }
+    }
+}
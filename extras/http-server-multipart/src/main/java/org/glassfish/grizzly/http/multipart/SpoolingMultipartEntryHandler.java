@@ -0,0 +1,194 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http.multipart;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.ReadHandler;
+import org.glassfish.grizzly.http.io.NIOInputStream;
+
+/**
+ * {@link MultipartEntryHandler}, which collects the content of every
+ * {@link MultipartEntry} into a {@link SpooledPart}. Parts smaller than the
+ * threshold are kept in memory, bigger parts are written to a temporary file
+ * directly from the {@link Buffer}s received from the network, so the memory
+ * footprint doesn't depend on the upload size.
+ *
+ * Nested multipart entries (multipart/mixed) are scanned recursively.
+ * It's the application's responsibility to call {@link #deleteAll()} once
+ * the spooled parts are not needed anymore.
+ *
+ * Please note, the file writes are blocking and are performed by the thread,
+ * which reads the request content.
+ *
+ * @since 2.4.4
+ */
+public class SpoolingMultipartEntryHandler implements MultipartEntryHandler {
+    /**
+     * The default max number of bytes, which can be kept in memory per part.
+     */
+    public static final int DEFAULT_THRESHOLD = 64 * 1024;
+
+    private final File directory;
+    private final int threshold;
+
+    private final List<SpooledPart> parts =
+            Collections.synchronizedList(new ArrayList<SpooledPart>());
+
+    /**
+     * Constructs the handler, which spools parts bigger than
+     * {@link #DEFAULT_THRESHOLD} to the default temporary-file directory.
+     */
+    public SpoolingMultipartEntryHandler() {
+        this(null, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Constructs the handler.
+     *
+     * @param directory the directory to create the temporary files in, if
+     *  <tt>null</tt> - the default temporary-file directory is used.
+     * @param threshold the max number of bytes, which can be kept in memory
+     *  per part.
+     */
+    public SpoolingMultipartEntryHandler(final File directory,
+            final int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold can't be negative");
+        }
+
+        this.directory = directory;
+        this.threshold = threshold;
+    }
+
+    /**
+     * @return the directory to create the temporary files in, or
+     *  <tt>null</tt> if the default temporary-file directory is used.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the max number of bytes, which can be kept in memory per part.
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @return the {@link SpooledPart}s in the order they've been received.
+     */
+    public List<SpooledPart> getParts() {
+        synchronized (parts) {
+            return new ArrayList<SpooledPart>(parts);
+        }
+    }
+
+    /**
+     * Deletes the temporary files of all the received parts.
+     */
+    public void deleteAll() {
+        for (SpooledPart part : getParts()) {
+            part.delete();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void handle(final MultipartEntry multipartEntry) throws Exception {
+        if (multipartEntry.isMultipart()) {
+            MultipartScanner.scan(multipartEntry, this, null);
+            return;
+        }
+
+        final SpooledPart part = new SpooledPart(multipartEntry,
+                directory, threshold);
+        parts.add(part);
+
+        final NIOInputStream inputStream = multipartEntry.getNIOInputStream();
+        inputStream.notifyAvailable(new SpoolingReadHandler(inputStream, part));
+    }
+
+    private static final class SpoolingReadHandler implements ReadHandler {
+        private final NIOInputStream inputStream;
+        private final SpooledPart part;
+
+        private SpoolingReadHandler(final NIOInputStream inputStream,
+                final SpooledPart part) {
+            this.inputStream = inputStream;
+            this.part = part;
+        }
+
+        @Override
+        public void onDataAvailable() throws Exception {
+            writeAvailable();
+            inputStream.notifyAvailable(this);
+        }
+
+        @Override
+        public void onAllDataRead() throws Exception {
+            writeAvailable();
+            part.onComplete();
+        }
+
+        @Override
+        public void onError(final Throwable t) {
+            part.onError(t);
+        }
+
+        private void writeAvailable() throws Exception {
+            while (inputStream.isReady()) {
+                final Buffer buffer = inputStream.readBuffer();
+                try {
+                    part.write(buffer);
+                } finally {
+                    buffer.tryDispose();
+                }
+            }
+        }
+    }
+}
@@ -45,7 +45,10 @@ import org.glassfish.grizzly.CloseType;
 import org.glassfish.grizzly.GenericCloseListener;
 import org.glassfish.grizzly.utils.Charsets;
 import org.junit.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -297,6 +300,148 @@ public class MultipartBasicTest {
         }
     }
     
+    @Test
+    public void multipartSpoolingTest() throws Exception {
+        final HttpServer httpServer = createServer("0.0.0.0", PORT);
+
+        final HttpClient httpClient = new HttpClient(
+                httpServer.getListener("Grizzly").getTransport(), 4000);
+        final File directory = createTempDirectory();
+        final SpoolingMultipartEntryHandler spoolingHandler =
+                new SpoolingMultipartEntryHandler(directory, 1024);
+        try {
+            httpServer.getServerConfiguration().addHttpHandler(new HttpHandler() {
+
+                @Override
+                public void service(final Request request, final Response response)
+                        throws Exception {
+                    response.suspend();
+                    
+                    MultipartScanner.scan(request, spoolingHandler,
+                            new EmptyCompletionHandler<Request>() {
+
+                        @Override
+                        public void completed(Request result) {
+                            try {
+                                response.getOutputStream().write("TRUE".getBytes(Charsets.ASCII_CHARSET));
+                            } catch (IOException e) {
+                            } finally {
+                                response.resume();
+                            }
+                        }
+
+                        @Override
+                        public void failed(Throwable throwable) {
+                            try {
+                                response.getOutputStream().write(("FALSE: " + throwable).getBytes(Charsets.ASCII_CHARSET));
+                            } catch (IOException e) {
+                            } finally {
+                                response.resume();
+                            }
+                        }
+                        
+                    });
+                }
+            }, "/");
+
+            httpServer.start();
+
+            final String boundary = "---------------------------===103832778631715===";
+            final StringBuilder sb = new StringBuilder();
+            for (int i = 0; sb.length() < 300000; i++) {
+                sb.append("line ").append(i).append(" --").append(boundary)
+                        .append(i % 2 == 0 ? "\r\n" : "\n")
+                        .append("-").append(boundary.substring(0, i % boundary.length()))
+                        .append("\r\n");
+            }
+            final String fileContent = sb.toString();
+
+            final MultipartPacketBuilder mpb = MultipartPacketBuilder.builder(boundary);
+            mpb.preamble("preamble").epilogue("epilogue");
+            mpb.addMultipartEntry(MultipartEntryPacket.builder()
+                    .contentDisposition("form-data; name=\"name\"")
+                    .content("small value")
+                    .build());
+            mpb.addMultipartEntry(MultipartEntryPacket.builder()
+                    .contentDisposition("form-data; name=\"file\"; filename=\"big.txt\"")
+                    .contentType("text/plain")
+                    .content(fileContent)
+                    .build());
+
+            final Buffer bodyBuffer = mpb.build();
+            final HttpRequestPacket requestHeader = HttpRequestPacket.builder()
+                    .method(Method.POST)
+                    .uri("/multipart")
+                    .protocol(Protocol.HTTP_1_1)
+                    .header("host", "localhost")
+                    .contentType("multipart/form-data; boundary=" + boundary)
+                    .contentLength(bodyBuffer.remaining())
+                    .build();
+
+            final Future<Connection> connectFuture = httpClient.connect("localhost", PORT);
+            connectFuture.get(10, TimeUnit.SECONDS);
+
+            final Future<HttpPacket> responsePacketFuture =
+                    httpClient.get(HttpContent.builder(requestHeader)
+                    .content(bodyBuffer)
+                    .build());
+            final HttpPacket responsePacket = 
+                    responsePacketFuture.get(10, TimeUnit.SECONDS);
+
+            assertTrue(HttpContent.isContent(responsePacket));
+            
+            final HttpContent responseContent = (HttpContent) responsePacket;
+            assertEquals("TRUE", responseContent.getContent().toStringContent(Charsets.ASCII_CHARSET));
+
+            final List<SpooledPart> parts = spoolingHandler.getParts();
+            assertEquals(2, parts.size());
+
+            final SpooledPart smallPart = parts.get(0);
+            assertTrue(smallPart.isComplete());
+            assertTrue(smallPart.isInMemory());
+            assertEquals("name", smallPart.getName());
+            assertEquals("small value", smallPart.getString());
+
+            final SpooledPart bigPart = parts.get(1);
+            assertTrue(bigPart.isComplete());
+            assertFalse(bigPart.isInMemory());
+            assertEquals("file", bigPart.getName());
+            assertEquals("big.txt", bigPart.getFileName());
+            assertEquals("text/plain", bigPart.getContentType());
+            assertEquals(fileContent.length(), bigPart.getSize());
+            assertEquals(directory, bigPart.getFile().getParentFile());
+            assertEquals(fileContent, readFully(bigPart.getInputStream()));
+
+            spoolingHandler.deleteAll();
+            assertFalse(bigPart.getFile().exists());
+        } finally {
+            spoolingHandler.deleteAll();
+            directory.delete();
+            httpServer.shutdownNow();
+        }
+    }
+
+    private static File createTempDirectory() throws IOException {
+        final File directory = File.createTempFile("grizzly-multipart-test", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdir());
+        return directory;
+    }
+
+    private static String readFully(final InputStream inputStream) throws IOException {
+        try {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            final byte[] buf = new byte[8192];
+            int len;
+            while ((len = inputStream.read(buf)) != -1) {
+                baos.write(buf, 0, len);
+            }
+            return new String(baos.toByteArray(), Charsets.ASCII_CHARSET);
+        } finally {
+            inputStream.close();
+        }
+    }
+
     private HttpPacket createMultipartFormDataPacket() {
         String boundary = "---------------------------===103832778631715===";
         MultipartPacketBuilder mpb = MultipartPacketBuilder.builder(boundary);
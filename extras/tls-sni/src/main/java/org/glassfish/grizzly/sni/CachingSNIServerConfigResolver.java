@@ -0,0 +1,541 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.sni;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.ssl.SSLEngineConfigurator;
+
+/**
+ * {@link SNIServerConfigResolver} implementation, which maps SNI host names
+ * to pre-initialized {@link SSLEngineConfigurator}s.
+ * 
+ * The resolver consults two tables:
+ * <ul>
+ *  <li>the host names {@link #register(String, SSLEngineConfigurator) registered}
+ *      explicitly, which are never evicted;</li>
+ *  <li>the host names, whose configurations have been lazily loaded using the
+ *      {@link Loader} on the first handshake, bounded by
+ *      {@link #getMaxLoadedConfigs()} entries with the least recently used
+ *      entries evicted first.</li>
+ * </ul>
+ * The lookups don't take any lock, only the cache updates (loads, evictions
+ * and invalidations) are serialized. If the {@link Loader} fails - the host
+ * name is served with the default configuration and the load is retried
+ * after {@link #getFailedLoadRetryDelay(TimeUnit)}.
+ * Both tables support wildcard host names like <tt>*.example.com</tt>, which
+ * match the host names with exactly one extra leading label
+ * (<tt>www.example.com</tt>, but not <tt>example.com</tt> or
+ * <tt>a.b.example.com</tt>). The exact host name match always wins over the
+ * wildcard one. If neither matches - the {@link SNIFilter} default
+ * {@link SSLEngineConfigurator} is used.
+ * 
+ * The configurations may be replaced at runtime using {@link #register(String, SSLEngineConfigurator)},
+ * {@link #reload(String)} or {@link #invalidate(String)}: the replacement is
+ * atomic, already established {@link Connection}s keep their
+ * {@link javax.net.ssl.SSLEngine}s and the new handshakes use the new
+ * configuration.
+ * 
+ * @see KeyStoreDirectoryLoader
+ * @since 2.4.4
+ */
+public class CachingSNIServerConfigResolver implements SNIServerConfigResolver {
+    private static final Logger LOGGER =
+            Grizzly.logger(CachingSNIServerConfigResolver.class);
+
+    /**
+     * The default max number of the lazily loaded configurations.
+     */
+    public static final int DEFAULT_MAX_LOADED_CONFIGS = 1024;
+    
+    /**
+     * The default time, in milliseconds, the failed load result is cached for.
+     */
+    public static final long DEFAULT_FAILED_LOAD_RETRY_MILLIS = 5000;
+    
+    // the negative lookup result marker
+    private static final SNIConfig NOT_FOUND = SNIConfig.newServerConfig(null);
+    
+    /**
+     * Loads {@link SSLEngineConfigurator} for a host name, which has not been
+     * registered explicitly.
+     */
+    public interface Loader {
+        /**
+         * Returns the {@link SSLEngineConfigurator} for the given host name,
+         * or <tt>null</tt> if the host name is not supported.
+         * The method may be called for wildcard host names like
+         * <tt>*.example.com</tt> as well.
+         * 
+         * @param hostname the lower-case host name
+         * @return the {@link SSLEngineConfigurator} for the given host name,
+         *         or <tt>null</tt> if the host name is not supported
+         * 
+         * @throws Exception if the configuration can not be loaded
+         */
+        SSLEngineConfigurator load(String hostname) throws Exception;
+    }
+    
+    private final ConcurrentHashMap<String, SNIConfig> registered =
+            new ConcurrentHashMap<>();
+    
+    private final Loader loader;
+    private final int maxLoadedConfigs;
+    
+    private volatile long failedLoadRetryMillis = DEFAULT_FAILED_LOAD_RETRY_MILLIS;
+    
+    // read lock-free, updated holding the loaded lock
+    private final LoadedConfigs loaded;
+    
+    // the negative results are kept apart, so a flood of unknown host names
+    // can't evict the loaded configurations; updated holding the loaded lock
+    private final LoadedConfigs notFound;
+    
+    // incremented on every invalidation, so the loads, which started before
+    // the invalidation, don't put stale configurations to the cache
+    private final AtomicInteger generation = new AtomicInteger();
+
+    /**
+     * Creates the resolver, which serves the explicitly registered
+     * host names only.
+     */
+    public CachingSNIServerConfigResolver() {
+        this(null, DEFAULT_MAX_LOADED_CONFIGS);
+    }
+
+    /**
+     * Creates the resolver, which lazily loads the configurations of the
+     * not registered host names using the given {@link Loader}.
+     * 
+     * @param loader the {@link Loader}, or <tt>null</tt> to serve the
+     *          registered host names only
+     * @param maxLoadedConfigs the max number of the loaded configurations to
+     *          be cached, up to a quarter of this number of the negative
+     *          results is cached separately
+     */
+    public CachingSNIServerConfigResolver(final Loader loader,
+            final int maxLoadedConfigs) {
+        if (maxLoadedConfigs <= 0) {
+            throw new IllegalArgumentException("maxLoadedConfigs must be greater than zero");
+        }
+        
+        this.loader = loader;
+        this.maxLoadedConfigs = maxLoadedConfigs;
+        this.loaded = new LoadedConfigs(maxLoadedConfigs);
+        this.notFound = new LoadedConfigs(Math.max(1, maxLoadedConfigs / 4));
+    }
+
+    /**
+     * @return the {@link Loader}, which loads the configurations of
+     *          the not registered host names, or <tt>null</tt>
+     */
+    public Loader getLoader() {
+        return loader;
+    }
+
+    /**
+     * @return the max number of the lazily loaded configurations to be cached
+     */
+    public int getMaxLoadedConfigs() {
+        return maxLoadedConfigs;
+    }
+
+    /**
+     * @param timeUnit the {@link TimeUnit}
+     * @return the time the failed {@link Loader} result is cached for, before
+     *          the load is retried
+     */
+    public long getFailedLoadRetryDelay(final TimeUnit timeUnit) {
+        return timeUnit.convert(failedLoadRetryMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sets the time the failed {@link Loader} result is cached for, before
+     * the load is retried. Until then the host name is served with the default
+     * configuration.
+     * 
+     * @param delay the delay, non-positive value means the failures are
+     *          not cached
+     * @param timeUnit the {@link TimeUnit}
+     */
+    public void setFailedLoadRetryDelay(final long delay,
+            final TimeUnit timeUnit) {
+        failedLoadRetryMillis = TimeUnit.MILLISECONDS.convert(delay, timeUnit);
+    }
+
+    /**
+     * @return the number of the currently cached lazily loaded configurations
+     *          (including the negative results)
+     */
+    public int getLoadedConfigsCount() {
+        return loaded.size() + notFound.size();
+    }
+    
+    /**
+     * Registers (or atomically replaces) the {@link SSLEngineConfigurator}
+     * for the host name. The {@link javax.net.ssl.SSLContext} is initialized
+     * right away, so it is not done during a handshake.
+     * 
+     * @param hostname the host name, or wildcard host name like <tt>*.example.com</tt>
+     * @param configurator the server-side {@link SSLEngineConfigurator}
+     */
+    public void register(final String hostname,
+            final SSLEngineConfigurator configurator) {
+        if (configurator == null) {
+            throw new IllegalArgumentException("configurator can't be null");
+        }
+        
+        registered.put(normalize(hostname), newConfig(configurator));
+    }
+
+    /**
+     * Unregisters the host name configuration.
+     * 
+     * @param hostname the host name, or wildcard host name like <tt>*.example.com</tt>
+     * @return <tt>true</tt> if the host name has been registered
+     */
+    public boolean unregister(final String hostname) {
+        return registered.remove(normalize(hostname)) != null;
+    }
+    
+    /**
+     * Loads the host name configuration using the {@link Loader} and
+     * atomically replaces the cached one. If the configuration can't be
+     * loaded - the cached one is kept.
+     * 
+     * @param hostname the host name, or wildcard host name like <tt>*.example.com</tt>
+     * @return <tt>true</tt> if the configuration has been reloaded
+     */
+    public boolean reload(final String hostname) {
+        if (loader == null) {
+            return false;
+        }
+        
+        final String key = normalize(hostname);
+        final SSLEngineConfigurator configurator;
+        try {
+            configurator = loader.load(key);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Can't reload SSL configuration for "
+                    + key + ", keeping the current one", e);
+            return false;
+        }
+        
+        final SNIConfig config = configurator != null
+                ? newConfig(configurator)
+                : NOT_FOUND;
+        synchronized (loaded) {
+            generation.incrementAndGet();
+            cache(key, config, 0);
+        }
+        
+        return config != NOT_FOUND;
+    }
+    
+    /**
+     * Removes the lazily loaded host name configuration from the cache, so
+     * it will be loaded again on the next handshake.
+     * 
+     * @param hostname the host name, or wildcard host name like <tt>*.example.com</tt>
+     */
+    public void invalidate(final String hostname) {
+        final String key = normalize(hostname);
+        synchronized (loaded) {
+            generation.incrementAndGet();
+            loaded.remove(key);
+            notFound.remove(key);
+        }
+    }
+
+    /**
+     * Removes all the lazily loaded configurations from the cache.
+     */
+    public void invalidateAll() {
+        synchronized (loaded) {
+            generation.incrementAndGet();
+            loaded.clear();
+            notFound.clear();
+        }
+    }
+    
+    @Override
+    public SNIConfig resolve(final Connection connection, final String hostname) {
+        if (hostname == null || hostname.isEmpty()) {
+            return null;
+        }
+        
+        // the host name comes from the client as is
+        final String host = toLowerCase(hostname);
+        if (!isValidHostName(host)) {
+            return null;
+        }
+        
+        final SNIConfig config = lookup(host);
+        if (config != null) {
+            return config;
+        }
+        
+        final int dot = host.indexOf('.');
+        if (dot <= 0 || dot == host.length() - 1) {
+            return null;
+        }
+        
+        return lookup("*" + host.substring(dot));
+    }
+    
+    private SNIConfig lookup(final String key) {
+        SNIConfig config = registered.get(key);
+        if (config != null || loader == null) {
+            return config;
+        }
+        
+        config = loaded.get(key);
+        if (config == null) {
+            config = notFound.get(key);
+        }
+        
+        if (config == null) {
+            config = load(key);
+        }
+        
+        return config != NOT_FOUND ? config : null;
+    }
+
+    /**
+     * Loads the configuration outside of the lock, so concurrent handshakes
+     * for the same new host name may load it more than once, but never block
+     * each other.
+     */
+    private SNIConfig load(final String key) {
+        final int gen = generation.get();
+        
+        SNIConfig config;
+        long ttlMillis = 0;
+        try {
+            final SSLEngineConfigurator configurator = loader.load(key);
+            config = configurator != null ? newConfig(configurator) : NOT_FOUND;
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Can't load SSL configuration for " + key, e);
+            // the failure might be transient, so it's cached for a short time
+            config = NOT_FOUND;
+            ttlMillis = failedLoadRetryMillis;
+            if (ttlMillis <= 0) {
+                return null;
+            }
+        }
+        
+        synchronized (loaded) {
+            if (gen == generation.get()) {
+                cache(key, config, ttlMillis);
+            }
+        }
+        
+        return config;
+    }
+    
+    // must be called holding the loaded lock
+    private void cache(final String key, final SNIConfig config,
+            final long ttlMillis) {
+        if (config != NOT_FOUND) {
+            notFound.remove(key);
+            loaded.put(key, config, 0);
+        } else {
+            loaded.remove(key);
+            notFound.put(key, config, ttlMillis);
+        }
+    }
+    
+    private static SNIConfig newConfig(final SSLEngineConfigurator configurator) {
+        // initialize SSLContext now, not during the handshake
+        configurator.getSslContext();
+        return SNIConfig.newServerConfig(configurator);
+    }
+    
+    private static String normalize(final String hostname) {
+        if (hostname == null) {
+            throw new IllegalArgumentException("hostname can't be null");
+        }
+        
+        final String host = toLowerCase(hostname);
+        if (!isValidHostName(host)) {
+            throw new IllegalArgumentException("Invalid hostname: " + hostname);
+        }
+        
+        return host;
+    }
+    
+    private static String toLowerCase(final String hostname) {
+        final String host = hostname.endsWith(".")
+                ? hostname.substring(0, hostname.length() - 1)
+                : hostname;
+        return host.toLowerCase(Locale.ENGLISH);
+    }
+    
+    /**
+     * Returns <tt>true</tt> if the lower-case host name consists of
+     * letter-digit-hyphen labels only, optionally prefixed with <tt>*.</tt>.
+     * Everything else, including path separators and <tt>..</tt>, is
+     * rejected, so the host name is safe to be used as a file name.
+     */
+    static boolean isValidHostName(final String host) {
+        int offset = host.startsWith("*.") ? 2 : 0;
+        final int length = host.length();
+        if (length == offset || length > 253) {
+            return false;
+        }
+        
+        int labelLength = 0;
+        for (int i = offset; i < length; i++) {
+            final char c = host.charAt(i);
+            if (c == '.') {
+                if (labelLength == 0 || host.charAt(i - 1) == '-') {
+                    return false;
+                }
+                labelLength = 0;
+            } else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || (c == '-' && labelLength > 0)) {
+                if (++labelLength > 63) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+        }
+        
+        return labelLength > 0 && host.charAt(length - 1) != '-';
+    }
+    
+    /**
+     * The bounded cache, which is read with no locking. Every read records the
+     * entry access time, so once the cache is full the put evicts the least
+     * recently used entry. The eviction scans the entries, which is cheap
+     * comparing to the configuration loading it follows.
+     */
+    private static final class LoadedConfigs {
+        private final ConcurrentHashMap<String, CachedConfig> map =
+                new ConcurrentHashMap<>();
+        private final int maxSize;
+
+        LoadedConfigs(final int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        SNIConfig get(final String key) {
+            final CachedConfig cached = map.get(key);
+            if (cached == null) {
+                return null;
+            }
+            
+            final long now = System.nanoTime();
+            if (cached.isExpiring && now - cached.expirationNanos >= 0) {
+                return null;
+            }
+            
+            cached.accessNanos = now;
+            return cached.config;
+        }
+        
+        // must be called holding the resolver's loaded lock
+        void put(final String key, final SNIConfig config,
+                final long ttlMillis) {
+            final long now = System.nanoTime();
+            final CachedConfig cached = ttlMillis > 0
+                    ? new CachedConfig(config, now, true,
+                            now + TimeUnit.MILLISECONDS.toNanos(ttlMillis))
+                    : new CachedConfig(config, now, false, 0);
+            
+            if (map.put(key, cached) == null) {
+                while (map.size() > maxSize) {
+                    evictLeastRecentlyUsed();
+                }
+            }
+        }
+        
+        void remove(final String key) {
+            map.remove(key);
+        }
+        
+        void clear() {
+            map.clear();
+        }
+        
+        int size() {
+            return map.size();
+        }
+        
+        private void evictLeastRecentlyUsed() {
+            Map.Entry<String, CachedConfig> eldest = null;
+            for (Map.Entry<String, CachedConfig> entry : map.entrySet()) {
+                if (eldest == null || entry.getValue().accessNanos
+                        - eldest.getValue().accessNanos < 0) {
+                    eldest = entry;
+                }
+            }
+            
+            if (eldest != null) {
+                map.remove(eldest.getKey(), eldest.getValue());
+            }
+        }
+    }
+    
+    private static final class CachedConfig {
+        private final SNIConfig config;
+        private final boolean isExpiring;
+        private final long expirationNanos;
+        
+        private volatile long accessNanos;
+
+        CachedConfig(final SNIConfig config, final long accessNanos,
+                final boolean isExpiring, final long expirationNanos) {
+            this.config = config;
+            this.accessNanos = accessNanos;
+            this.isExpiring = isExpiring;
+            this.expirationNanos = expirationNanos;
+        }
+    }
+}
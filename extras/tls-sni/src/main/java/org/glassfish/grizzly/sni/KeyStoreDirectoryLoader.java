@@ -0,0 +1,284 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.sni;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.ssl.SSLEngineConfigurator;
+
+/**
+ * {@link CachingSNIServerConfigResolver.Loader}, which loads the host
+ * certificates from the key store files in a directory.
+ * 
+ * The key store file name is the host name followed by the key store type
+ * extension: <tt>.jks</tt> for the <tt>JKS</tt> key stores,
+ * <tt>.p12</tt> or <tt>.pfx</tt> for the <tt>PKCS12</tt> ones, for example
+ * <tt>www.example.com.p12</tt>. The wildcard host name certificates use
+ * <tt>_</tt> instead of <tt>*</tt>, for example <tt>_.example.com.p12</tt>
+ * for <tt>*.example.com</tt>. All the key stores and keys are protected with
+ * the same password.
+ * 
+ * Once {@link #watch(CachingSNIServerConfigResolver)} is called the loader
+ * watches the directory and reloads the configuration of the created or
+ * modified key stores in the resolver, the configuration of the removed ones
+ * is invalidated.
+ * 
+ * @since 2.4.4
+ */
+public class KeyStoreDirectoryLoader
+        implements CachingSNIServerConfigResolver.Loader, Closeable {
+    private static final Logger LOGGER =
+            Grizzly.logger(KeyStoreDirectoryLoader.class);
+    
+    private static final String[] EXTENSIONS = {".jks", ".p12", ".pfx"};
+    private static final String[] TYPES = {"JKS", "PKCS12", "PKCS12"};
+    
+    private final File directory;
+    private final char[] password;
+    
+    private WatchService watchService;
+    private Thread watchThread;
+
+    /**
+     * @param directory the key store directory
+     * @param password the key store and key password
+     */
+    public KeyStoreDirectoryLoader(final File directory, final char[] password) {
+        if (directory == null) {
+            throw new IllegalArgumentException("directory can't be null");
+        }
+        
+        this.directory = directory;
+        this.password = password != null
+                ? Arrays.copyOf(password, password.length)
+                : null;
+    }
+
+    /**
+     * @return the key store directory
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public SSLEngineConfigurator load(final String hostname) throws Exception {
+        if (!CachingSNIServerConfigResolver.isValidHostName(hostname)) {
+            return null;
+        }
+        
+        final String baseName = hostname.startsWith("*")
+                ? "_" + hostname.substring(1)
+                : hostname;
+        
+        final File canonicalDirectory = directory.getCanonicalFile();
+        for (int i = 0; i < EXTENSIONS.length; i++) {
+            final File file = new File(directory, baseName + EXTENSIONS[i]);
+            if (file.isFile()
+                    && canonicalDirectory.equals(file.getCanonicalFile().getParentFile())) {
+                return createSSLEngineConfigurator(
+                        createSSLContext(loadKeyStore(file, TYPES[i])));
+            }
+        }
+        
+        return null;
+    }
+
+    /**
+     * Starts watching the directory for key store changes, which will be
+     * applied to the given resolver.
+     * 
+     * @param resolver the {@link CachingSNIServerConfigResolver} using this loader
+     * @throws IOException if the directory can't be watched
+     */
+    public synchronized void watch(final CachingSNIServerConfigResolver resolver)
+            throws IOException {
+        if (watchService != null) {
+            throw new IllegalStateException("The directory is already watched");
+        }
+        
+        final WatchService ws = FileSystems.getDefault().newWatchService();
+        directory.toPath().register(ws,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        
+        final Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                processEvents(ws, resolver);
+            }
+        }, "Grizzly-SNI-KeyStore-Watcher(" + directory.getName() + ")");
+        t.setDaemon(true);
+        
+        watchService = ws;
+        watchThread = t;
+        t.start();
+    }
+
+    /**
+     * Stops watching the directory.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+            watchThread.interrupt();
+            watchService = null;
+            watchThread = null;
+        }
+    }
+
+    /**
+     * Creates the server-side {@link SSLEngineConfigurator} for the loaded
+     * {@link SSLContext}. May be overridden to customize protocols, cipher
+     * suites or client authentication.
+     * 
+     * @param sslContext the {@link SSLContext} initialized with the host key store
+     * @return the server-side {@link SSLEngineConfigurator}
+     */
+    protected SSLEngineConfigurator createSSLEngineConfigurator(
+            final SSLContext sslContext) {
+        return new SSLEngineConfigurator(sslContext, false, false, false);
+    }
+
+    /**
+     * Creates the {@link SSLContext} for the host key store.
+     * 
+     * @param keyStore the host key store
+     * @return the {@link SSLContext}
+     * @throws Exception if the {@link SSLContext} can't be initialized
+     */
+    protected SSLContext createSSLContext(final KeyStore keyStore)
+            throws Exception {
+        final KeyManagerFactory kmf = KeyManagerFactory.getInstance(
+                KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, password);
+        
+        final SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(kmf.getKeyManagers(), null, null);
+        return sslContext;
+    }
+    
+    private KeyStore loadKeyStore(final File file, final String type)
+            throws Exception {
+        final KeyStore keyStore = KeyStore.getInstance(type);
+        try (InputStream in = new FileInputStream(file)) {
+            keyStore.load(in, password);
+        }
+        
+        return keyStore;
+    }
+    
+    private void processEvents(final WatchService ws,
+            final CachingSNIServerConfigResolver resolver) {
+        try {
+            for (;;) {
+                final WatchKey key = ws.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        resolver.invalidateAll();
+                        continue;
+                    }
+
+                    final String hostname =
+                            toHostName(((Path) event.context()).toString());
+                    if (hostname == null) {
+                        continue;
+                    }
+
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                        resolver.invalidate(hostname);
+                    } else {
+                        // reload eagerly, so a broken or partially written key
+                        // store doesn't replace the working configuration
+                        resolver.reload(hostname);
+                    }
+                }
+                
+                if (!key.reset()) {
+                    LOGGER.log(Level.WARNING,
+                            "Key store directory {0} is no longer accessible",
+                            directory);
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+    
+    private static String toHostName(final String fileName) {
+        for (String extension : EXTENSIONS) {
+            if (fileName.endsWith(extension)
+                    && fileName.length() > extension.length()) {
+                final String baseName = fileName.substring(0,
+                        fileName.length() - extension.length());
+                final String hostname = (baseName.startsWith("_")
+                        ? "*" + baseName.substring(1)
+                        : baseName).toLowerCase(Locale.ENGLISH);
+                return CachingSNIServerConfigResolver.isValidHostName(hostname)
+                        ? hostname
+                        : null;
+            }
+        }
+        
+        return null;
+    }
+}
@@ -40,9 +40,15 @@
 
 package org.glassfish.grizzly.sni;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.Grizzly;
 import org.glassfish.grizzly.attributes.Attribute;
@@ -156,6 +162,237 @@ public class SNITest {
         }
     }
     
+    @Test
+    public void testCachingResolver() throws Exception {
+        final SSLEngineConfigurator exactConfig = new SSLEngineConfigurator(
+                createSSLContextConfigurator().createSSLContext(),
+                false, false, false);
+        final SSLEngineConfigurator wildcardConfig = new SSLEngineConfigurator(
+                createSSLContextConfigurator().createSSLContext(),
+                false, false, false);
+        
+        final ConcurrentLinkedQueue<String> loads = new ConcurrentLinkedQueue<>();
+        final CachingSNIServerConfigResolver resolver =
+                new CachingSNIServerConfigResolver(
+                        new CachingSNIServerConfigResolver.Loader() {
+
+            @Override
+            public SSLEngineConfigurator load(final String hostname) {
+                loads.add(hostname);
+                return hostname.endsWith(".loaded.com")
+                        ? new SSLEngineConfigurator(exactConfig)
+                        : null;
+            }
+        }, 2);
+        
+        resolver.register("www.example.com", exactConfig);
+        resolver.register("*.Example.com", wildcardConfig);
+
+        // registered exact and wildcard host names
+        assertSame(exactConfig, resolver.resolve(null, "WWW.example.com.").sslEngineConfigurator);
+        assertSame(wildcardConfig, resolver.resolve(null, "mail.example.com").sslEngineConfigurator);
+        // the exact host name is looked up by the loader before the wildcard
+        assertEquals("mail.example.com", loads.poll());
+        assertTrue(loads.isEmpty());
+        
+        // wildcard matches one label only
+        assertNull(resolver.resolve(null, "example.com"));
+        assertNull(resolver.resolve(null, "a.b.example.com"));
+        assertNull(resolver.resolve(null, null));
+        
+        // lazily loaded configs and negative results are cached
+        resolver.invalidateAll();
+        loads.clear();
+        final SNIConfig loaded = resolver.resolve(null, "a.loaded.com");
+        assertNotNull(loaded);
+        assertSame(loaded, resolver.resolve(null, "a.loaded.com"));
+        assertEquals(1, loads.size());
+        assertEquals(1, resolver.getLoadedConfigsCount());
+        
+        // the negative results are bounded separately and never evict
+        // the loaded configs
+        assertNull(resolver.resolve(null, "unknown"));
+        assertNull(resolver.resolve(null, "other")); // evicts unknown
+        resolver.resolve(null, "b.loaded.com");
+        assertEquals(3, resolver.getLoadedConfigsCount());
+        loads.clear();
+        assertSame(loaded, resolver.resolve(null, "a.loaded.com"));
+        assertNull(resolver.resolve(null, "other"));
+        assertTrue(loads.isEmpty());
+        assertNull(resolver.resolve(null, "unknown"));
+        assertEquals("unknown", loads.poll());
+        assertTrue(loads.isEmpty());
+        
+        // the LRU bound evicts the least recently used config
+        resolver.resolve(null, "c.loaded.com");
+        loads.clear();
+        assertSame(loaded, resolver.resolve(null, "a.loaded.com"));
+        assertTrue(loads.isEmpty());
+        assertNotNull(resolver.resolve(null, "b.loaded.com"));
+        assertEquals("b.loaded.com", loads.poll());
+        
+        // the invalid host names never reach the loader
+        loads.clear();
+        assertNull(resolver.resolve(null, "../a.loaded.com"));
+        assertNull(resolver.resolve(null, "a.loaded.com/x"));
+        assertNull(resolver.resolve(null, "a_b.loaded.com"));
+        assertTrue(loads.isEmpty());
+        try {
+            resolver.register("../www.example.com", exactConfig);
+            fail("IllegalArgumentException is expected");
+        } catch (IllegalArgumentException expected) {
+        }
+        
+        // reload and invalidate atomically replace the cached config
+        assertTrue(resolver.reload("a.loaded.com"));
+        final SNIConfig reloaded = resolver.resolve(null, "a.loaded.com");
+        assertNotSame(loaded, reloaded);
+        resolver.invalidate("a.loaded.com");
+        assertNotSame(reloaded, resolver.resolve(null, "a.loaded.com"));
+        
+        assertTrue(resolver.unregister("www.example.com"));
+        assertSame(wildcardConfig, resolver.resolve(null, "www.example.com").sslEngineConfigurator);
+    }
+    
+    @Test
+    public void testCachingResolverLoadFailure() throws Exception {
+        final SSLEngineConfigurator config = new SSLEngineConfigurator(
+                createSSLContextConfigurator().createSSLContext(),
+                false, false, false);
+        
+        final AtomicInteger loads = new AtomicInteger();
+        final AtomicBoolean isFailing = new AtomicBoolean(true);
+        final CachingSNIServerConfigResolver resolver =
+                new CachingSNIServerConfigResolver(
+                        new CachingSNIServerConfigResolver.Loader() {
+
+            @Override
+            public SSLEngineConfigurator load(final String hostname)
+                    throws Exception {
+                if (hostname.startsWith("*.")) {
+                    return null;
+                }
+                
+                loads.incrementAndGet();
+                if (isFailing.get()) {
+                    throw new IOException("transient failure");
+                }
+                
+                return new SSLEngineConfigurator(config);
+            }
+        }, 16);
+        resolver.setFailedLoadRetryDelay(200, TimeUnit.MILLISECONDS);
+        
+        // the failure is cached for the retry delay only
+        assertNull(resolver.resolve(null, "a.loaded.com"));
+        assertEquals(1, loads.get());
+        assertNull(resolver.resolve(null, "a.loaded.com"));
+        assertEquals(1, loads.get());
+        
+        isFailing.set(false);
+        Thread.sleep(300);
+        
+        assertNotNull(resolver.resolve(null, "a.loaded.com"));
+        assertEquals(2, loads.get());
+        assertNotNull(resolver.resolve(null, "a.loaded.com"));
+        assertEquals(2, loads.get());
+        
+        // the failures are not cached at all
+        resolver.setFailedLoadRetryDelay(0, TimeUnit.MILLISECONDS);
+        isFailing.set(true);
+        assertNull(resolver.resolve(null, "b.loaded.com"));
+        assertNull(resolver.resolve(null, "b.loaded.com"));
+        assertEquals(4, loads.get());
+    }
+    
+    @Test
+    public void testKeyStoreDirectoryLoader() throws Exception {
+        final File dir = Files.createTempDirectory("grizzly-sni").toFile();
+        final File keyStore = new File(SNITest.class.getClassLoader()
+                .getResource("ssltest-keystore.jks").toURI());
+        
+        final KeyStoreDirectoryLoader loader = new KeyStoreDirectoryLoader(
+                dir, "changeit".toCharArray());
+        final CachingSNIServerConfigResolver resolver =
+                new CachingSNIServerConfigResolver(loader, 16);
+        try {
+            Files.copy(keyStore.toPath(), new File(dir, "sni-test.com.jks").toPath());
+            Files.copy(keyStore.toPath(), new File(dir, "_.example.com.jks").toPath());
+            
+            final SNIConfig exact = resolver.resolve(null, "sni-test.com");
+            assertNotNull(exact);
+            assertNotNull(exact.sslEngineConfigurator.createSSLEngine());
+            assertNotNull(resolver.resolve(null, "www.example.com"));
+            assertNull(resolver.resolve(null, "unknown.com"));
+            
+            loader.watch(resolver);
+            
+            // the replaced key store is reloaded, the removed one - invalidated
+            Files.copy(keyStore.toPath(), new File(dir, "sni-test.com.jks").toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+            assertTrue(new File(dir, "_.example.com.jks").delete());
+            
+            final long deadline = System.currentTimeMillis() + 10000;
+            while ((resolver.resolve(null, "sni-test.com") == exact
+                    || resolver.resolve(null, "www.example.com") != null)
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            
+            final SNIConfig reloaded = resolver.resolve(null, "sni-test.com");
+            assertNotNull(reloaded);
+            assertNotSame(exact, reloaded);
+            assertNull(resolver.resolve(null, "www.example.com"));
+        } finally {
+            loader.close();
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+    
+    @Test
+    public void testKeyStoreDirectoryLoaderPathTraversal() throws Exception {
+        final File parent = Files.createTempDirectory("grizzly-sni").toFile();
+        final File dir = new File(parent, "keys");
+        assertTrue(dir.mkdir());
+        final File keyStore = new File(SNITest.class.getClassLoader()
+                .getResource("ssltest-keystore.jks").toURI());
+        
+        final KeyStoreDirectoryLoader loader = new KeyStoreDirectoryLoader(
+                dir, "changeit".toCharArray());
+        final CachingSNIServerConfigResolver resolver =
+                new CachingSNIServerConfigResolver(loader, 16);
+        try {
+            // the key store outside of the directory
+            Files.copy(keyStore.toPath(), new File(parent, "outside.jks").toPath());
+            Files.copy(keyStore.toPath(), new File(dir, "inside.com.jks").toPath());
+            
+            assertNotNull(resolver.resolve(null, "inside.com"));
+            
+            assertNull(resolver.resolve(null, "../outside"));
+            assertNull(resolver.resolve(null, "..\\outside"));
+            assertNull(resolver.resolve(null, parent.getAbsolutePath() + "/outside"));
+            assertNull(resolver.resolve(null, "x/../../outside"));
+            assertEquals(1, resolver.getLoadedConfigsCount());
+            
+            assertNull(loader.load("../outside"));
+            assertNull(loader.load(".inside.com"));
+            assertNull(loader.load("_.inside.com"));
+        } finally {
+            loader.close();
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+            for (File f : parent.listFiles()) {
+                f.delete();
+            }
+            parent.delete();
+        }
+    }
+    
     private static SSLContextConfigurator createSSLContextConfigurator() {
         SSLContextConfigurator sslContextConfigurator =
                 new SSLContextConfigurator();
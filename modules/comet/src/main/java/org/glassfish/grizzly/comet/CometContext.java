@@ -41,10 +41,12 @@
 package org.glassfish.grizzly.comet;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -60,6 +62,9 @@ import org.glassfish.grizzly.http.server.Response;
 import org.glassfish.grizzly.http.server.TimeoutHandler;
 import org.glassfish.grizzly.http.io.NIOInputStream;
 import org.glassfish.grizzly.http.util.Header;
+import org.glassfish.grizzly.monitoring.DefaultMonitoringConfig;
+import org.glassfish.grizzly.monitoring.MonitoringAware;
+import org.glassfish.grizzly.monitoring.MonitoringConfig;
 
 /**
  * The main object used by {@link CometHandler} and Servlet to push information amongst suspended request/response. The
@@ -95,8 +100,11 @@ import org.glassfish.grizzly.http.util.Header;
  * connection will never get resumed by Grizzly. <p/> <p>Attributes can be added/removed the same way HttpServletSession
  * is doing. It is not recommended to use attributes if this {@link CometContext} is not shared amongst multiple context
  * path (uses HttpServletSession instead). </p>
+ * <p/> <p>The registered {@link CometHandler}s are kept in a concurrent set, so adding and removing a
+ * {@link CometHandler} costs O(1) regardless of the number of suspended connections. The notification order is not
+ * defined.</p>
  */
-public class CometContext<E> {
+public class CometContext<E> implements MonitoringAware<CometProbe> {
     /**
      * Generic error message
      */
@@ -123,9 +131,14 @@ public class CometContext<E> {
      */
     protected NotificationHandler notificationHandler;
     /**
-     * The list of registered {@link CometHandler}
+     * The set of registered {@link CometHandler}
      */
-    private final List<CometHandler> handlers;
+    private final Set<CometHandler> handlers;
+    /**
+     * Comet probes
+     */
+    final DefaultMonitoringConfig<CometProbe> monitoringConfig =
+            new DefaultMonitoringConfig<CometProbe>(CometProbe.class);
     protected final CometEvent<CometContext> eventInterrupt;
     protected final CometEvent<CometContext> eventTerminate;
     private final CometEvent<CometContext> eventInitialize;
@@ -145,7 +158,8 @@ public class CometContext<E> {
     public CometContext(CometEngine engine, String contextTopic) {
         topic = contextTopic;
         attributes = new ConcurrentHashMap<>();
-        handlers = new CopyOnWriteArrayList<CometHandler>();
+        handlers = Collections.newSetFromMap(
+                new ConcurrentHashMap<CometHandler, Boolean>());
         eventInterrupt = new CometEvent<CometContext>(CometEvent.Type.INTERRUPT, this);
         eventInitialize = new CometEvent<CometContext>(CometEvent.Type.INITIALIZE, this);
         eventTerminate = new CometEvent<CometContext>(CometEvent.Type.TERMINATE, this, this);
@@ -251,7 +265,9 @@ public class CometContext<E> {
                 response.getRequest().getInputBuffer().initiateAsyncronousDataReceiving();
             }
 
-            handlers.add(handler);
+            if (handlers.add(handler)) {
+                CometProbeNotifier.notifyHandlerAdded(this, handler);
+            }
         } catch (IOException e) {
             throw new RuntimeException(e.getMessage(), e);
         }
@@ -311,8 +327,11 @@ public class CometContext<E> {
      */
     public boolean removeCometHandler(CometHandler handler, boolean resume) {
         boolean removed = handlers.remove(handler);
-        if (removed && resume) {
-            handler.getResponse().resume();
+        if (removed) {
+            CometProbeNotifier.notifyHandlerRemoved(this, handler);
+            if (resume) {
+                handler.getResponse().resume();
+            }
         }
         return removed;
     }
@@ -469,12 +488,35 @@ public class CometContext<E> {
     }
 
     /**
-     * Return the current list of active {@link CometHandler}
+     * Return the snapshot of the current active {@link CometHandler}s. Modifying the returned list doesn't affect
+     * this {@link CometContext}, use {@link #addCometHandler(CometHandler)} and
+     * {@link #removeCometHandler(CometHandler)} instead. The handlers are not returned in the registration order.
+     * <p/>
+     * Prior to 2.4.4 this method returned the live list of the registered {@link CometHandler}s. The handlers are
+     * kept in a concurrent set now, so the method copies them on every call and should not be used on the hot path,
+     * {@link #getCometHandlersCount()} returns the number of the handlers with no copying.
      *
-     * @return the current list of active {@link CometHandler}
+     * @return the snapshot of the current active {@link CometHandler}s
      */
     public List<CometHandler> getCometHandlers() {
-        return handlers;
+        return new ArrayList<CometHandler>(handlers);
+    }
+
+    /**
+     * Return the number of the current active {@link CometHandler}s.
+     *
+     * @return the number of the current active {@link CometHandler}s
+     */
+    public int getCometHandlersCount() {
+        return handlers.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MonitoringConfig<CometProbe> getMonitoringConfig() {
+        return monitoringConfig;
     }
 
     /**
@@ -0,0 +1,122 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.comet;
+
+/**
+ * Utility class, which has notification methods for different
+ * {@link CometProbe} events.
+ */
+final class CometProbeNotifier {
+
+    /**
+     * Notify registered {@link CometProbe}s about the "handler added" event.
+     *
+     * @param cometContext the {@link CometContext} event occurred on.
+     * @param handler the added {@link CometHandler}.
+     */
+    static void notifyHandlerAdded(final CometContext<?> cometContext,
+            final CometHandler handler) {
+
+        final CometProbe[] probes = cometContext.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (CometProbe probe : probes) {
+                probe.onHandlerAddedEvent(cometContext, handler);
+            }
+        }
+    }
+
+    /**
+     * Notify registered {@link CometProbe}s about the "handler removed" event.
+     *
+     * @param cometContext the {@link CometContext} event occurred on.
+     * @param handler the removed {@link CometHandler}.
+     */
+    static void notifyHandlerRemoved(final CometContext<?> cometContext,
+            final CometHandler handler) {
+
+        final CometProbe[] probes = cometContext.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (CometProbe probe : probes) {
+                probe.onHandlerRemovedEvent(cometContext, handler);
+            }
+        }
+    }
+
+    /**
+     * Notify registered {@link CometProbe}s about the "notify" event.
+     *
+     * @param cometContext the {@link CometContext} event occurred on.
+     * @param event the delivered {@link CometEvent}.
+     * @param deliveredCount the number of successfully notified {@link CometHandler}s.
+     * @param failedCount the number of failed {@link CometHandler}s.
+     * @param durationNanos the notification duration.
+     */
+    static void notifyNotify(final CometContext<?> cometContext,
+            final CometEvent event, final int deliveredCount,
+            final int failedCount, final long durationNanos) {
+
+        final CometProbe[] probes = cometContext.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (CometProbe probe : probes) {
+                probe.onNotifyEvent(cometContext, event, deliveredCount,
+                        failedCount, durationNanos);
+            }
+        }
+    }
+
+    /**
+     * Notify registered {@link CometProbe}s about the "notify failed" event.
+     *
+     * @param cometContext the {@link CometContext} event occurred on.
+     * @param handler the failed {@link CometHandler}.
+     * @param error the error.
+     */
+    static void notifyNotifyFailed(final CometContext<?> cometContext,
+            final CometHandler handler, final Throwable error) {
+
+        final CometProbe[] probes = cometContext.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (CometProbe probe : probes) {
+                probe.onNotifyFailedEvent(cometContext, handler, error);
+            }
+        }
+    }
+}
@@ -41,14 +41,32 @@
 package org.glassfish.grizzly.comet;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.http.server.Response;
+import org.glassfish.grizzly.nio.NIOConnection;
+
 /**
  * Default NotificationHandler that uses a thread pool dedicated to the CometEngine to execute the notification
  * process.<br>
+ * <p/>
+ * By default all the {@link CometHandler}s are notified sequentially using the caller thread. If the notification
+ * batch size is set ({@link #setNotificationBatchSize(int)}), the {@link CometHandler}s are split into batches of the
+ * given size, which are notified in parallel using the {@link ExecutorService} set via
+ * {@link #setThreadPool(ExecutorService)}, or the worker thread pool of the suspended connections' transport if none
+ * was set. The last batch is notified using the caller thread. The batches could be additionally grouped by the
+ * connections' selector thread ({@link #setGroupBySelectorThread(boolean)}), so each batch touches connections served
+ * by a single selector thread.
  *
  * @author Jeanfrancois Arcand
  * @author Gustav Trede
@@ -60,6 +78,16 @@ public class DefaultNotificationHandler implements NotificationHandler {
      * The {@link ExecutorService} used to execute threaded notification.
      */
     protected ExecutorService threadPool;
+    /**
+     * The number of {@link CometHandler}s notified by a single task, non-positive value means the
+     * {@link CometHandler}s are notified sequentially using the caller thread.
+     */
+    private volatile int notificationBatchSize;
+    /**
+     * true, if the {@link CometHandler}s have to be grouped by their connection's selector thread,
+     * when notified in parallel.
+     */
+    private volatile boolean isGroupBySelectorThread;
 
     public DefaultNotificationHandler() {
     }
@@ -71,6 +99,40 @@ public class DefaultNotificationHandler implements NotificationHandler {
         this.threadPool = threadPool;
     }
 
+    /**
+     * Returns the number of {@link CometHandler}s notified by a single task. Non-positive value means the
+     * {@link CometHandler}s are notified sequentially using the caller thread.
+     */
+    public int getNotificationBatchSize() {
+        return notificationBatchSize;
+    }
+
+    /**
+     * Sets the number of {@link CometHandler}s notified by a single task. Non-positive value (default) means the
+     * {@link CometHandler}s are notified sequentially using the caller thread.
+     *
+     * @param notificationBatchSize the number of {@link CometHandler}s notified by a single task
+     */
+    public void setNotificationBatchSize(final int notificationBatchSize) {
+        this.notificationBatchSize = notificationBatchSize;
+    }
+
+    /**
+     * Returns <tt>true</tt>, if the {@link CometHandler}s are grouped by their connection's selector thread, when
+     * notified in parallel.
+     */
+    public boolean isGroupBySelectorThread() {
+        return isGroupBySelectorThread;
+    }
+
+    /**
+     * Sets the flag, which indicates if the {@link CometHandler}s have to be grouped by their connection's selector
+     * thread, when notified in parallel. The feature is disabled by default.
+     */
+    public void setGroupBySelectorThread(final boolean isGroupBySelectorThread) {
+        this.isGroupBySelectorThread = isGroupBySelectorThread;
+    }
+
     /**
      * Notify all {@link CometHandler}.
      *
@@ -79,9 +141,53 @@ public class DefaultNotificationHandler implements NotificationHandler {
      */
     public void notify(final CometEvent cometEvent, final Iterator<CometHandler> iteratorHandlers)
         throws IOException {
-        while (iteratorHandlers.hasNext()) {
-            notify(cometEvent, iteratorHandlers.next());
+        final long startNanos = System.nanoTime();
+        final int batchSize = notificationBatchSize;
+        
+        if (batchSize <= 0) {
+            int delivered = 0;
+            int failed = 0;
+            while (iteratorHandlers.hasNext()) {
+                if (deliver(cometEvent, iteratorHandlers.next())) {
+                    delivered++;
+                } else {
+                    failed++;
+                }
+            }
+            
+            onNotified(cometEvent, delivered, failed, startNanos);
+            return;
+        }
+        
+        final List<List<CometHandler>> batches = split(iteratorHandlers, batchSize);
+        if (batches.isEmpty()) {
+            onNotified(cometEvent, 0, 0, startNanos);
+            return;
+        }
+        
+        final NotificationTracker tracker =
+                new NotificationTracker(cometEvent, batches.size(), startNanos);
+        final int lastIdx = batches.size() - 1;
+        
+        for (int i = 0; i < lastIdx; i++) {
+            final List<CometHandler> batch = batches.get(i);
+            final NotificationTask task = new NotificationTask(tracker, batch);
+            
+            final ExecutorService executor = getExecutor(batch.get(0));
+            if (executor != null) {
+                try {
+                    executor.execute(task);
+                    continue;
+                } catch (RejectedExecutionException e) {
+                    logger.log(Level.FINE, "Notification task rejected: ", e);
+                }
+            }
+            
+            task.run();
         }
+        
+        // the caller thread notifies the last batch
+        new NotificationTask(tracker, batches.get(lastIdx)).run();
     }
 
     /**
@@ -90,7 +196,9 @@ public class DefaultNotificationHandler implements NotificationHandler {
      * @param cometEvent cometEvent the CometEvent used to notify CometHandler
      */
     public void notify(final CometEvent cometEvent, final CometHandler cometHandler) throws IOException {
-        notify0(cometEvent, cometHandler);
+        final long startNanos = System.nanoTime();
+        final boolean isDelivered = deliver(cometEvent, cometHandler);
+        onNotified(cometEvent, isDelivered ? 1 : 0, isDelivered ? 0 : 1, startNanos);
     }
 
     /**
@@ -101,6 +209,10 @@ public class DefaultNotificationHandler implements NotificationHandler {
      * CometEvent.TERMINATE -> <code>CometHandler.onTerminate</code> CometEvent.READ ->
      * <code>CometHandler.onEvent</code> CometEvent.WRITE -> <code>CometHandler.onEvent</code>
      *
+     * <p/>
+     * The {@link CometHandler} failure is propagated as an unchecked exception, which is logged and reported to the
+     * {@link CometProbe}s by the caller, and the failed {@link CometHandler} is resumed.
+     *
      * @param cometEvent An object shared amongst {@link CometHandler}.
      * @param cometHandler The CometHandler to invoke.
      */
@@ -126,15 +238,183 @@ public class DefaultNotificationHandler implements NotificationHandler {
                 default:
                     throw ISEempty;
             }
+        } catch (IOException e) {
+            throw new NotificationException(e);
+        }
+    }
+
+    /**
+     * Delivers the event to the {@link CometHandler} using {@link #notify0(CometEvent, CometHandler)}.
+     *
+     * @return <tt>true</tt> if the {@link CometHandler} processed the event successfully, or <tt>false</tt>
+     *         otherwise
+     */
+    private boolean deliver(final CometEvent cometEvent, final CometHandler cometHandler) {
+        try {
+            notify0(cometEvent, cometHandler);
+            return true;
+        } catch (NotificationException ex) {
+            onNotificationFailed(cometEvent, cometHandler, ex.getCause());
+            return false;
         } catch (Throwable ex) {
-            logger.log(Level.FINE, "Notification failed: ", ex);
-            try {
-                cometEvent.getCometContext().resumeCometHandler(cometHandler);
-            } catch (Throwable t) {
-                logger.log(Level.FINE, "Resume phase failed: ", t);
+            onNotificationFailed(cometEvent, cometHandler, ex);
+            return false;
+        }
+    }
+
+    private void onNotificationFailed(final CometEvent cometEvent, final CometHandler cometHandler,
+        final Throwable ex) {
+        logger.log(Level.FINE, "Notification failed: ", ex);
+        final CometContext cometContext = cometEvent.getCometContext();
+        if (cometContext == null) {
+            return;
+        }
+        
+        CometProbeNotifier.notifyNotifyFailed(cometContext, cometHandler, ex);
+        try {
+            cometContext.resumeCometHandler(cometHandler);
+        } catch (Throwable t) {
+            logger.log(Level.FINE, "Resume phase failed: ", t);
+        }
+    }
+
+    private static void onNotified(final CometEvent cometEvent, final int delivered,
+        final int failed, final long startNanos) {
+        final CometContext cometContext = cometEvent.getCometContext();
+        if (cometContext != null) {
+            CometProbeNotifier.notifyNotify(cometContext, cometEvent, delivered, failed,
+                System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Splits the {@link CometHandler}s into batches, grouping them by selector thread if required.
+     */
+    private List<List<CometHandler>> split(final Iterator<CometHandler> iteratorHandlers,
+        final int batchSize) {
+        final List<List<CometHandler>> batches = new ArrayList<List<CometHandler>>();
+        
+        if (!isGroupBySelectorThread) {
+            List<CometHandler> batch = null;
+            while (iteratorHandlers.hasNext()) {
+                if (batch == null || batch.size() >= batchSize) {
+                    batch = new ArrayList<CometHandler>(batchSize);
+                    batches.add(batch);
+                }
+                batch.add(iteratorHandlers.next());
+            }
+            
+            return batches;
+        }
+        
+        final Map<Object, List<CometHandler>> groups = new LinkedHashMap<Object, List<CometHandler>>();
+        while (iteratorHandlers.hasNext()) {
+            final CometHandler handler = iteratorHandlers.next();
+            final Connection connection = getConnection(handler);
+            final Object key = connection instanceof NIOConnection
+                ? ((NIOConnection) connection).getSelectorRunner()
+                : null;
+            
+            List<CometHandler> batch = groups.get(key);
+            if (batch == null || batch.size() >= batchSize) {
+                batch = new ArrayList<CometHandler>(batchSize);
+                batches.add(batch);
+                groups.put(key, batch);
             }
+            batch.add(handler);
         }
+        
+        return batches;
     }
 
+    /**
+     * Returns the {@link ExecutorService} to notify the batch, which starts with the {@link CometHandler}.
+     */
+    private ExecutorService getExecutor(final CometHandler cometHandler) {
+        final ExecutorService executor = threadPool;
+        if (executor != null) {
+            return executor;
+        }
+        
+        final Connection connection = getConnection(cometHandler);
+        return connection != null
+            ? connection.getTransport().getWorkerThreadPool()
+            : null;
+    }
+
+    private static Connection getConnection(final CometHandler cometHandler) {
+        final Response response = cometHandler.getResponse();
+        if (response == null || response.getRequest() == null
+            || response.getRequest().getContext() == null) {
+            return null;
+        }
+        
+        return response.getRequest().getContext().getConnection();
+    }
+
+    /**
+     * Collects the results of the parallel notification batches.
+     */
+    private static final class NotificationTracker {
+        private final CometEvent cometEvent;
+        private final long startNanos;
+        private final AtomicInteger pendingBatches;
+        private final AtomicInteger delivered = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
 
+        private NotificationTracker(final CometEvent cometEvent, final int batchesCount,
+            final long startNanos) {
+            this.cometEvent = cometEvent;
+            this.startNanos = startNanos;
+            this.pendingBatches = new AtomicInteger(batchesCount);
+        }
+
+        private void onBatchCompleted(final int batchDelivered, final int batchFailed) {
+            delivered.addAndGet(batchDelivered);
+            failed.addAndGet(batchFailed);
+            
+            if (pendingBatches.decrementAndGet() == 0) {
+                onNotified(cometEvent, delivered.get(), failed.get(), startNanos);
+            }
+        }
+    }
+
+    /**
+     * Notifies a batch of {@link CometHandler}s.
+     */
+    private final class NotificationTask implements Runnable {
+        private final NotificationTracker tracker;
+        private final List<CometHandler> batch;
+
+        private NotificationTask(final NotificationTracker tracker, final List<CometHandler> batch) {
+            this.tracker = tracker;
+            this.batch = batch;
+        }
+
+        @Override
+        public void run() {
+            int delivered = 0;
+            int failed = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                if (deliver(tracker.cometEvent, batch.get(i))) {
+                    delivered++;
+                } else {
+                    failed++;
+                }
+            }
+            
+            tracker.onBatchCompleted(delivered, failed);
+        }
+    }
+
+    /**
+     * Propagates the checked {@link CometHandler} failure out of {@link #notify0(CometEvent, CometHandler)}.
+     */
+    private static final class NotificationException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private NotificationException(final IOException cause) {
+            super(cause);
+        }
+    }
 }
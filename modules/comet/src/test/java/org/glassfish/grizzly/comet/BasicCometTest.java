@@ -48,8 +48,12 @@ import java.net.HttpURLConnection;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
  
 import junit.framework.TestCase;
@@ -343,6 +347,123 @@ public class BasicCometTest extends TestCase {
         conn.disconnect();
     }
 
+    public void testParallelNotification() throws Exception {
+        System.out.println("testParallelNotification ");
+        final String alias = "/ParallelNotification";
+        final int clientsCount = 5;
+        cometContext.setExpirationDelay(-1);
+        
+        final DefaultNotificationHandler notificationHandler =
+                (DefaultNotificationHandler) cometContext.getNotificationHandler();
+        notificationHandler.setNotificationBatchSize(2);
+        notificationHandler.setGroupBySelectorThread(true);
+        
+        final AtomicInteger addedCount = new AtomicInteger();
+        final AtomicInteger deliveredCount = new AtomicInteger();
+        final AtomicInteger failedCount = new AtomicInteger();
+        final CountDownLatch notifyLatch = new CountDownLatch(1);
+        cometContext.getMonitoringConfig().addProbes(new CometProbe.Adapter() {
+            @Override
+            public void onHandlerAddedEvent(CometContext cometContext, CometHandler handler) {
+                addedCount.incrementAndGet();
+            }
+
+            @Override
+            public void onNotifyEvent(CometContext cometContext, CometEvent event,
+                    int delivered, int failed, long durationNanos) {
+                if (event.getType() == CometEvent.Type.NOTIFY) {
+                    deliveredCount.set(delivered);
+                    failedCount.set(failed);
+                    notifyLatch.countDown();
+                }
+            }
+        });
+        
+        httpServer.getServerConfiguration().addHttpHandler(
+                new CountDownHttpHandler(cometContext, false), alias);
+        
+        final List<HttpURLConnection> connections = new ArrayList<HttpURLConnection>();
+        try {
+            for (int i = 0; i < clientsCount; i++) {
+                final HttpURLConnection conn = getConnection(alias, 2000);
+                conn.getContent();
+                connections.add(conn);
+            }
+            
+            assertEquals(clientsCount, cometContext.getCometHandlersCount());
+            assertEquals(clientsCount, addedCount.get());
+            
+            cometContext.notify(onEvent);
+            
+            for (CometHandler handler : cometContext.getCometHandlers()) {
+                assertTrue("Should see onEvent() get called",
+                        ((CountDownCometHandler) handler).onEvent.await(10, TimeUnit.SECONDS));
+            }
+            
+            assertTrue(notifyLatch.await(10, TimeUnit.SECONDS));
+            assertEquals(clientsCount, deliveredCount.get());
+            assertEquals(0, failedCount.get());
+        } finally {
+            for (HttpURLConnection conn : connections) {
+                conn.disconnect();
+            }
+        }
+    }
+
+    public void testOverriddenNotify0() throws Exception {
+        System.out.println("testOverriddenNotify0 ");
+        final String alias = "/OverriddenNotify0";
+        final int clientsCount = 3;
+        cometContext.setExpirationDelay(-1);
+        
+        final AtomicInteger notify0Count = new AtomicInteger();
+        final DefaultNotificationHandler notificationHandler = new DefaultNotificationHandler() {
+            @Override
+            protected void notify0(CometEvent cometEvent, CometHandler cometHandler) {
+                if (cometEvent.getType() == CometEvent.Type.NOTIFY) {
+                    notify0Count.incrementAndGet();
+                }
+                super.notify0(cometEvent, cometHandler);
+            }
+        };
+        cometContext.setNotificationHandler(notificationHandler);
+        
+        final CountDownHttpHandler httpHandler = new CountDownHttpHandler(cometContext, false);
+        httpServer.getServerConfiguration().addHttpHandler(httpHandler, alias);
+        
+        final List<HttpURLConnection> connections = new ArrayList<HttpURLConnection>();
+        try {
+            for (int i = 0; i < clientsCount; i++) {
+                final HttpURLConnection conn = getConnection(alias, 2000);
+                conn.getContent();
+                connections.add(conn);
+            }
+            
+            // sequential notification
+            cometContext.notify(onEvent);
+            assertEquals(clientsCount, notify0Count.get());
+            
+            // single handler notification
+            final CometHandler cometHandler = cometContext.getCometHandlers().iterator().next();
+            cometContext.notify(onEvent, cometHandler);
+            assertEquals(clientsCount + 1, notify0Count.get());
+            
+            // parallel notification
+            notificationHandler.setNotificationBatchSize(1);
+            cometContext.notify(onEvent);
+            final long deadline = System.currentTimeMillis() + 10000;
+            while (notify0Count.get() < clientsCount * 2 + 1
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(clientsCount * 2 + 1, notify0Count.get());
+        } finally {
+            for (HttpURLConnection conn : connections) {
+                conn.disconnect();
+            }
+        }
+    }
+
     private HttpURLConnection getConnection(String alias, int timeout) throws IOException {
         HttpURLConnection urlConn = (HttpURLConnection) new URL("http", "localhost", PORT, alias).openConnection();
         urlConn.setConnectTimeout(5 * 1000);
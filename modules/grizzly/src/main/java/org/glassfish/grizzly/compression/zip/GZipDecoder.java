@@ -76,13 +76,28 @@ public class GZipDecoder extends AbstractTransformer<Buffer, Buffer> {
     private final static int FCOMMENT	= 16;	// File comment
 
     private final int bufferSize;
+    private final ZlibEnginePool enginePool;
 
     public GZipDecoder() {
         this(512);
     }
 
     public GZipDecoder(int bufferSize) {
+        this(bufferSize, ZlibEnginePool.DEFAULT_POOL);
+    }
+
+    /**
+     * Constructs <tt>GZipDecoder</tt>.
+     *
+     * @param bufferSize the output buffer size.
+     * @param enginePool the {@link ZlibEnginePool} to borrow
+     *          {@link Inflater}s from.
+     *
+     * @since 2.4.4
+     */
+    public GZipDecoder(int bufferSize, ZlibEnginePool enginePool) {
         this.bufferSize = bufferSize;
+        this.enginePool = enginePool;
     }
 
 
@@ -102,6 +117,19 @@ public class GZipDecoder extends AbstractTransformer<Buffer, Buffer> {
         return input.hasRemaining();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release(AttributeStorage storage) {
+        final GZipInputState state = (GZipInputState) stateAttr.get(storage);
+        if (state != null) {
+            releaseInflater(state);
+        }
+
+        super.release(storage);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -135,6 +163,9 @@ public class GZipDecoder extends AbstractTransformer<Buffer, Buffer> {
             if (decodeTrailer(input, state)) {
                 state.setDecodeStatus(DecodeStatus.DONE);
                 state.setInitialized(false);
+                // the member is complete, the next one (if any) will
+                // borrow a new inflater
+                releaseInflater(state);
             }
         }
 
@@ -233,16 +264,15 @@ public class GZipDecoder extends AbstractTransformer<Buffer, Buffer> {
     private boolean initializeInput(final Buffer buffer,
             final GZipInputState state) {
 
-        Inflater inflater = state.getInflater();
-        if (inflater == null) {
-            inflater = new Inflater(true);
+        if (state.getInflater() == null) {
+            state.setInflater(enginePool.borrowInflater(true));
+        }
+        if (state.getCrc32() == null) {
             final CRC32 crc32 = new CRC32();
             crc32.reset();
-            state.setInflater(inflater);
             state.setCrc32(crc32);
         } else if (state.getDecodeStatus() == DecodeStatus.DONE) {
             state.setDecodeStatus(DecodeStatus.INITIAL);
-            inflater.reset();
             state.getCrc32().reset();
         }
         if (!parseHeader(buffer, state)) {
@@ -255,6 +285,14 @@ public class GZipDecoder extends AbstractTransformer<Buffer, Buffer> {
         return true;
     }
 
+    private void releaseInflater(final GZipInputState state) {
+        final Inflater inflater = state.getInflater();
+        if (inflater != null) {
+            state.setInflater(null);
+            enginePool.releaseInflater(inflater, true);
+        }
+    }
+
     /*
      * Reads GZIP member header.
      */
@@ -67,6 +67,7 @@ public class GZipEncoder extends AbstractTransformer<Buffer, Buffer> {
     private static final int TRAILER_SIZE = 8;
 
     private final int bufferSize;
+    private final ZlibEnginePool enginePool;
 
     private static final Buffer header;
 
@@ -91,7 +92,21 @@ public class GZipEncoder extends AbstractTransformer<Buffer, Buffer> {
     }
 
     public GZipEncoder(int bufferSize) {
+        this(bufferSize, ZlibEnginePool.DEFAULT_POOL);
+    }
+
+    /**
+     * Constructs <tt>GZipEncoder</tt>.
+     *
+     * @param bufferSize the output buffer size.
+     * @param enginePool the {@link ZlibEnginePool} to borrow
+     *          {@link Deflater}s from.
+     *
+     * @since 2.4.4
+     */
+    public GZipEncoder(int bufferSize, ZlibEnginePool enginePool) {
         this.bufferSize = bufferSize;
+        this.enginePool = enginePool;
     }
 
 
@@ -130,7 +145,7 @@ public class GZipEncoder extends AbstractTransformer<Buffer, Buffer> {
         final GZipOutputState state = (GZipOutputState) obtainStateObject(storage);
 
         if (!state.isInitialized) {
-            state.initialize();
+            state.initialize(enginePool);
         }
 
         Buffer encodedBuffer = null;
@@ -196,12 +211,52 @@ public class GZipEncoder extends AbstractTransformer<Buffer, Buffer> {
                         resultBuffer, trailer);
             }
 
-            state.reset();
+            state.reset(enginePool);
         }
 
         return resultBuffer;
     }
     
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release(AttributeStorage storage) {
+        final GZipOutputState state = (GZipOutputState) stateAttr.get(storage);
+        if (state != null && state.isInitialized) {
+            state.reset(enginePool);
+        }
+
+        super.release(storage);
+    }
+
+    /**
+     * Sets the deflate compression level (0-9) to be used for the stream
+     * associated with the given {@link AttributeStorage}. The level may be
+     * changed at any point of the stream, the new value will be applied to
+     * the data deflated afterwards. The level is reset to
+     * {@link Deflater#DEFAULT_COMPRESSION} once the stream is finished.
+     *
+     * @param storage the {@link AttributeStorage} the stream is bound to.
+     * @param level the compression level (0-9), or
+     *              {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public void setCompressionLevel(final AttributeStorage storage,
+            final int level) {
+        if ((level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+                && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+
+        final GZipOutputState state = (GZipOutputState) obtainStateObject(storage);
+        if (state.level != level) {
+            state.level = level;
+            if (state.isInitialized) {
+                state.deflater.setLevel(level);
+            }
+        }
+    }
+
     private Buffer getHeader() {
         final Buffer headerToWrite = header.duplicate();
         headerToWrite.allowBufferDispose(false);
@@ -319,8 +374,13 @@ public class GZipEncoder extends AbstractTransformer<Buffer, Buffer> {
          */
         private Deflater deflater;
 
-        private void initialize() {
-            final Deflater newDeflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        /**
+         * Compression level for this stream.
+         */
+        private int level = Deflater.DEFAULT_COMPRESSION;
+
+        private void initialize(final ZlibEnginePool enginePool) {
+            final Deflater newDeflater = enginePool.borrowDeflater(level, true);
             final CRC32 newCrc32 = new CRC32();
             newCrc32.reset();
             deflater = newDeflater;
@@ -328,12 +388,14 @@ public class GZipEncoder extends AbstractTransformer<Buffer, Buffer> {
             isInitialized = true;
         }
         
-        private void reset() {
+        private void reset(final ZlibEnginePool enginePool) {
             isInitialized = false;
             isHeaderWritten = false;
-            deflater.end(); // ensure we don't leak memory in native compression library
+            // return the deflater to the pool, so we don't leak memory in native compression library
+            enginePool.releaseDeflater(deflater, true);
             crc32 = null;
             deflater = null;
+            level = Deflater.DEFAULT_COMPRESSION;
         }
     }
 }
@@ -0,0 +1,164 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.compression.zip;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * GZIP {@link OutputStream}, which, unlike {@link java.util.zip.GZIPOutputStream},
+ * borrows its {@link Deflater} from a {@link ZlibEnginePool} and returns it
+ * back, when the stream is closed.
+ *
+ * @since 2.4.4
+ */
+public class PooledGZipOutputStream extends DeflaterOutputStream {
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    private static final byte[] HEADER = {
+        (byte) GZIP_MAGIC,        // Magic number (short)
+        (byte) (GZIP_MAGIC >> 8), // Magic number (short)
+        Deflater.DEFLATED,        // Compression method (CM)
+        0,                        // Flags (FLG)
+        0,                        // Modification time MTIME (int)
+        0,                        // Modification time MTIME (int)
+        0,                        // Modification time MTIME (int)
+        0,                        // Modification time MTIME (int)
+        0,                        // Extra flags (XFLG)
+        0                         // Operating system (OS)
+    };
+
+    private final ZlibEnginePool enginePool;
+    private final CRC32 crc = new CRC32();
+
+    private boolean isFinished;
+    private boolean isClosed;
+
+    /**
+     * Creates a new output stream using the {@link ZlibEnginePool#DEFAULT_POOL}
+     * and the default compression level.
+     *
+     * @param out the output stream
+     * @throws IOException if an I/O error has occurred
+     */
+    public PooledGZipOutputStream(final OutputStream out) throws IOException {
+        this(out, ZlibEnginePool.DEFAULT_POOL, Deflater.DEFAULT_COMPRESSION, 512);
+    }
+
+    /**
+     * Creates a new output stream.
+     *
+     * @param out the output stream
+     * @param enginePool the {@link ZlibEnginePool} to borrow the
+     *          {@link Deflater} from
+     * @param level the compression level
+     * @param size the output buffer size
+     * @throws IOException if an I/O error has occurred
+     */
+    public PooledGZipOutputStream(final OutputStream out,
+            final ZlibEnginePool enginePool, final int level, final int size)
+            throws IOException {
+        super(out, enginePool.borrowDeflater(level, true), size);
+        this.enginePool = enginePool;
+
+        try {
+            out.write(HEADER);
+        } catch (IOException e) {
+            releaseDeflater();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void write(final byte[] buf, final int off,
+            final int len) throws IOException {
+        super.write(buf, off, len);
+        crc.update(buf, off, len);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (!isFinished) {
+            isFinished = true;
+            super.finish();
+
+            final byte[] trailer = new byte[8];
+            putUInt((int) crc.getValue(), trailer, 0);
+            putUInt(def.getTotalIn(), trailer, 4);
+            out.write(trailer);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!isClosed) {
+            isClosed = true;
+            try {
+                finish();
+            } finally {
+                try {
+                    out.close();
+                } finally {
+                    releaseDeflater();
+                }
+            }
+        }
+    }
+
+    private void releaseDeflater() {
+        enginePool.releaseDeflater(def, true);
+    }
+
+    /*
+     * Writes integer in Intel byte order to a byte array, starting at a
+     * given offset.
+     */
+    private static void putUInt(final int value, final byte[] buf,
+            final int offset) {
+        buf[offset] = (byte) value;
+        buf[offset + 1] = (byte) (value >> 8);
+        buf[offset + 2] = (byte) (value >> 16);
+        buf[offset + 3] = (byte) (value >> 24);
+    }
+}
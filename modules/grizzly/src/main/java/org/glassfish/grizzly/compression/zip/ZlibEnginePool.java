@@ -0,0 +1,353 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.compression.zip;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Bounded pool of zlib {@link Deflater} and {@link Inflater} engines.
+ *
+ * Each zlib engine holds a considerable amount of native memory (around
+ * 256K for a {@link Deflater}), which is allocated when the engine is
+ * created and released either explicitly via <tt>end()</tt> or by the
+ * garbage collector. The pool lets the compression codecs reuse the engines
+ * instead of allocating new ones for every compressed stream.
+ *
+ * Engines are borrowed in a reset state and have to be returned to the pool
+ * with the same <tt>nowrap</tt> flag they were borrowed with. If the pool
+ * already has {@link #getMaxPooledEngines()} idle engines of the kind, the
+ * returned engine is ended. An engine, which is never returned (for example
+ * because the stream was abandoned), is reclaimed by the garbage collector,
+ * but stays counted as borrowed.
+ *
+ * @since 2.4.4
+ */
+public class ZlibEnginePool {
+    /**
+     * The default max number of the idle engines of each kind the pool keeps.
+     */
+    public static final int DEFAULT_MAX_POOLED_ENGINES = Integer.getInteger(
+            ZlibEnginePool.class.getName() + ".max-pooled-engines",
+            Runtime.getRuntime().availableProcessors() * 2);
+
+    /**
+     * The default pool, shared by the Grizzly compression codecs.
+     */
+    public static final ZlibEnginePool DEFAULT_POOL =
+            new ZlibEnginePool(DEFAULT_MAX_POOLED_ENGINES);
+
+    // estimated native memory held by a zlib engine with the default
+    // window (15 bits) and memory level (8): deflate needs the window,
+    // prev and head tables plus the pending buffer; inflate needs the window
+    static final int DEFLATER_NATIVE_SIZE = 262 * 1024;
+    static final int INFLATER_NATIVE_SIZE = 39 * 1024;
+
+    private final int maxPooledEngines;
+
+    private final EngineQueue<Deflater> deflaters = new EngineQueue<>();
+    private final EngineQueue<Deflater> nowrapDeflaters = new EngineQueue<>();
+    private final EngineQueue<Inflater> inflaters = new EngineQueue<>();
+    private final EngineQueue<Inflater> nowrapInflaters = new EngineQueue<>();
+
+    private final AtomicLong deflaterHits = new AtomicLong();
+    private final AtomicLong deflaterMisses = new AtomicLong();
+    private final AtomicLong inflaterHits = new AtomicLong();
+    private final AtomicLong inflaterMisses = new AtomicLong();
+
+    private final AtomicInteger borrowedDeflaters = new AtomicInteger();
+    private final AtomicInteger borrowedInflaters = new AtomicInteger();
+
+    /**
+     * Constructs <tt>ZlibEnginePool</tt>.
+     *
+     * @param maxPooledEngines the max number of the idle engines of each
+     *          kind (deflater/inflater, wrapped/nowrap) the pool keeps.
+     *          <tt>0</tt> disables pooling.
+     */
+    public ZlibEnginePool(final int maxPooledEngines) {
+        if (maxPooledEngines < 0) {
+            throw new IllegalArgumentException("maxPooledEngines can't be negative");
+        }
+
+        this.maxPooledEngines = maxPooledEngines;
+    }
+
+    /**
+     * Returns the max number of the idle engines of each kind the pool keeps.
+     */
+    public int getMaxPooledEngines() {
+        return maxPooledEngines;
+    }
+
+    /**
+     * Borrows a {@link Deflater} from the pool, or creates a new one if the
+     * pool is empty.
+     *
+     * @param level the compression level (0-9), or
+     *              {@link Deflater#DEFAULT_COMPRESSION}.
+     * @param nowrap if <tt>true</tt>, the ZLIB header and checksum fields
+     *               will not be used in order to support the compression
+     *               format used in both GZIP and PKZIP.
+     * @return {@link Deflater} set to the given level.
+     */
+    public Deflater borrowDeflater(final int level, final boolean nowrap) {
+        borrowedDeflaters.incrementAndGet();
+
+        final Deflater deflater = deflaterQueue(nowrap).poll();
+        if (deflater != null) {
+            deflaterHits.incrementAndGet();
+            deflater.setLevel(level);
+            return deflater;
+        }
+
+        deflaterMisses.incrementAndGet();
+        return new Deflater(level, nowrap);
+    }
+
+    /**
+     * Returns the {@link Deflater} to the pool.
+     *
+     * @param deflater {@link Deflater} obtained from
+     *          {@link #borrowDeflater(int, boolean)}.
+     * @param nowrap the flag the {@link Deflater} was borrowed with.
+     */
+    public void releaseDeflater(final Deflater deflater, final boolean nowrap) {
+        borrowedDeflaters.decrementAndGet();
+
+        final EngineQueue<Deflater> queue = deflaterQueue(nowrap);
+        if (queue.reserve(maxPooledEngines)) {
+            deflater.reset();
+            queue.offer(deflater);
+        } else {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Borrows an {@link Inflater} from the pool, or creates a new one if the
+     * pool is empty.
+     *
+     * @param nowrap if <tt>true</tt> then support GZIP compatible compression.
+     * @return {@link Inflater}.
+     */
+    public Inflater borrowInflater(final boolean nowrap) {
+        borrowedInflaters.incrementAndGet();
+
+        final Inflater inflater = inflaterQueue(nowrap).poll();
+        if (inflater != null) {
+            inflaterHits.incrementAndGet();
+            return inflater;
+        }
+
+        inflaterMisses.incrementAndGet();
+        return new Inflater(nowrap);
+    }
+
+    /**
+     * Returns the {@link Inflater} to the pool.
+     *
+     * @param inflater {@link Inflater} obtained from
+     *          {@link #borrowInflater(boolean)}.
+     * @param nowrap the flag the {@link Inflater} was borrowed with.
+     */
+    public void releaseInflater(final Inflater inflater, final boolean nowrap) {
+        borrowedInflaters.decrementAndGet();
+
+        final EngineQueue<Inflater> queue = inflaterQueue(nowrap);
+        if (queue.reserve(maxPooledEngines)) {
+            inflater.reset();
+            queue.offer(inflater);
+        } else {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Ends all the idle engines and removes them from the pool.
+     */
+    public void clear() {
+        Deflater deflater;
+        while ((deflater = deflaters.poll()) != null) {
+            deflater.end();
+        }
+        while ((deflater = nowrapDeflaters.poll()) != null) {
+            deflater.end();
+        }
+
+        Inflater inflater;
+        while ((inflater = inflaters.poll()) != null) {
+            inflater.end();
+        }
+        while ((inflater = nowrapInflaters.poll()) != null) {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Returns the number of {@link Deflater}s borrowed from the pool.
+     */
+    public long getDeflaterHits() {
+        return deflaterHits.get();
+    }
+
+    /**
+     * Returns the number of {@link Deflater}s created, because the pool
+     * was empty.
+     */
+    public long getDeflaterMisses() {
+        return deflaterMisses.get();
+    }
+
+    /**
+     * Returns the number of {@link Inflater}s borrowed from the pool.
+     */
+    public long getInflaterHits() {
+        return inflaterHits.get();
+    }
+
+    /**
+     * Returns the number of {@link Inflater}s created, because the pool
+     * was empty.
+     */
+    public long getInflaterMisses() {
+        return inflaterMisses.get();
+    }
+
+    /**
+     * Returns the number of {@link Deflater}s currently borrowed.
+     */
+    public int getBorrowedDeflaters() {
+        return borrowedDeflaters.get();
+    }
+
+    /**
+     * Returns the number of {@link Inflater}s currently borrowed.
+     */
+    public int getBorrowedInflaters() {
+        return borrowedInflaters.get();
+    }
+
+    /**
+     * Returns the number of idle {@link Deflater}s in the pool.
+     */
+    public int getIdleDeflaters() {
+        return deflaters.size() + nowrapDeflaters.size();
+    }
+
+    /**
+     * Returns the number of idle {@link Inflater}s in the pool.
+     */
+    public int getIdleInflaters() {
+        return inflaters.size() + nowrapInflaters.size();
+    }
+
+    /**
+     * Returns the estimated amount of native memory, in bytes, held by the
+     * borrowed and idle engines.
+     */
+    public long getNativeMemoryInUse() {
+        return (long) (getBorrowedDeflaters() + getIdleDeflaters()) * DEFLATER_NATIVE_SIZE
+                + (long) (getBorrowedInflaters() + getIdleInflaters()) * INFLATER_NATIVE_SIZE;
+    }
+
+    @Override
+    public String toString() {
+        return "ZlibEnginePool{maxPooledEngines=" + maxPooledEngines
+                + ", deflaterHits=" + deflaterHits
+                + ", deflaterMisses=" + deflaterMisses
+                + ", inflaterHits=" + inflaterHits
+                + ", inflaterMisses=" + inflaterMisses
+                + ", nativeMemoryInUse=" + getNativeMemoryInUse() + '}';
+    }
+
+    private EngineQueue<Deflater> deflaterQueue(final boolean nowrap) {
+        return nowrap ? nowrapDeflaters : deflaters;
+    }
+
+    private EngineQueue<Inflater> inflaterQueue(final boolean nowrap) {
+        return nowrap ? nowrapInflaters : inflaters;
+    }
+
+    /**
+     * Lock-free queue with a cheap bounded size.
+     */
+    private static final class EngineQueue<E> {
+        private final Queue<E> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        E poll() {
+            final E engine = queue.poll();
+            if (engine != null) {
+                size.decrementAndGet();
+            }
+
+            return engine;
+        }
+
+        /**
+         * Reserves a slot for an engine to be offered.
+         */
+        boolean reserve(final int limit) {
+            int current;
+            do {
+                current = size.get();
+                if (current >= limit) {
+                    return false;
+                }
+            } while (!size.compareAndSet(current, current + 1));
+
+            return true;
+        }
+
+        void offer(final E engine) {
+            queue.offer(engine);
+        }
+
+        int size() {
+            return size.get();
+        }
+    }
+}
@@ -489,6 +489,17 @@ public final class DefaultFilterChain extends ListFacadeFilterChain {
         return new DefaultFilterChain(filters.subList(fromIndex, toIndex));
     }
 
+    /**
+     * Returns <tt>true</tt> if any {@link Filter} of this {@link FilterChain}
+     * has a message remainder stored for the passed {@link Connection},
+     * or <tt>false</tt> otherwise.
+     * 
+     * @param connection {@link Connection}
+     */
+    public boolean hasStoredMessages(final Connection connection) {
+        return obtainFiltersState(connection).hasStoredMessages();
+    }
+    
     @SuppressWarnings("unchecked")
     private FiltersState obtainFiltersState(final Connection connection) {
         return (FiltersState) connection.obtainProcessorState(this, filtersStateFactory);
@@ -603,6 +614,18 @@ public final class DefaultFilterChain extends ListFacadeFilterChain {
             }
         }
 
+        public boolean hasStoredMessages() {
+            for (FilterStateElement[] operationState : state) {
+                for (FilterStateElement elem : operationState) {
+                    if (elem != null && elem.isValid) {
+                        return true;
+                    }
+                }
+            }
+            
+            return false;
+        }
+        
         public int peekUnparsedIdx(final Operation operation,
                 final int start, final int end) {
             
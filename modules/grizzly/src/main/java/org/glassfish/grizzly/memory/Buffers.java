@@ -600,6 +600,31 @@ public class Buffers {
         return clone.flip();
     }
 
+    /**
+     * Returns a {@link Buffer}, which holds the content of the source
+     * {@link Buffer} between the given position and limit and stays valid
+     * after the source {@link Buffer} has been disposed.
+     * If the source is a {@link ReferenceCountedBuffer} - the content is shared
+     * using {@link ReferenceCountedBuffer#retainedSlice(int, int)}, otherwise
+     * the content is copied using {@link #cloneBuffer(Buffer, int, int)}.
+     * Either way the returned {@link Buffer} has to be disposed by the caller.
+     *
+     * @param srcBuffer the source {@link Buffer}.
+     * @param position the start position in the srcBuffer
+     * @param limit the end position in the srcBuffer
+     * @return the retained or cloned {@link Buffer}.
+     * @since 2.4.4
+     */
+    public static Buffer retainedSlice(final Buffer srcBuffer,
+            final int position, final int limit) {
+        if (srcBuffer instanceof ReferenceCountedBuffer) {
+            return ((ReferenceCountedBuffer) srcBuffer).retainedSlice(
+                    position, limit);
+        }
+
+        return cloneBuffer(srcBuffer, position, limit);
+    }
+
     /**
      * Reads data from the {@link FileChannel} into the {@link Buffer}.
      *
@@ -1290,6 +1290,184 @@ public final class BuffersBuffer extends CompositeBuffer {
         }
     }
     
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int indexOf(final byte value, final int position, final int limit) {
+        checkDispose();
+
+        int length = limit - position;
+        if (length <= 0) return -1;
+
+        int offset = position;
+
+        checkIndex(position);
+
+        int bufferIdx = lastSegmentIndex;
+        Buffer buffer = activeBuffer;
+        int bufferPosition = toActiveBufferPos(position);
+
+        while(true) {
+            final int bytesToProcess = Math.min(
+                    buffer.limit() - bufferPosition, length);
+
+            final int findPos = indexOf(buffer, value,
+                    bufferPosition, bufferPosition + bytesToProcess);
+            if (findPos != -1) {
+                return offset + (findPos - bufferPosition);
+            }
+
+            length -= bytesToProcess;
+
+            if (length == 0) return -1;
+
+            offset += bytesToProcess;
+
+            bufferIdx++;
+            buffer = buffers[bufferIdx];
+            bufferPosition = buffer.position();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int indexOf(final byte[] pattern, final int position, final int limit) {
+        final int patternLength = pattern.length;
+        if (patternLength == 0) {
+            return position <= limit ? position : -1;
+        }
+
+        final byte first = pattern[0];
+        final int lastStart = limit - patternLength;
+
+        int offset = position;
+        while (offset <= lastStart) {
+            final int idx = indexOf(first, offset, lastStart + 1);
+            if (idx == -1) {
+                return -1;
+            }
+
+            final Cursor cursor = cursor(idx + 1, idx + patternLength);
+            int i = 1;
+            while (i < patternLength && cursor.get() == pattern[i]) {
+                i++;
+            }
+
+            if (i == patternLength) {
+                return idx;
+            }
+
+            offset = idx + 1;
+        }
+
+        return -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Cursor cursor(final int position, final int limit) {
+        checkDispose();
+
+        if (position < 0 || limit > capacity || position > limit)
+            throw new IndexOutOfBoundsException("position=" + position + " limit=" + limit + "on " + toString());
+
+        return new CursorImpl(position, limit);
+    }
+
+    private static int indexOf(final Buffer buffer, final byte value,
+            final int position, final int limit) {
+        if (buffer.isComposite()) {
+            return ((CompositeBuffer) buffer).indexOf(value, position, limit);
+        }
+
+        if (buffer.hasArray()) {
+            final byte[] array = buffer.array();
+            final int arrayOffset = buffer.arrayOffset();
+            final int end = arrayOffset + limit;
+            for (int i = arrayOffset + position; i < end; i++) {
+                if (array[i] == value) {
+                    return i - arrayOffset;
+                }
+            }
+
+            return -1;
+        }
+
+        for (int i = position; i < limit; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private final class CursorImpl implements Cursor {
+        private final int limit;
+        private int position;
+
+        private int bufferIdx;
+        private Buffer buffer;
+        private byte[] array;
+        private int arrayOffset;
+        private int bufferPosition;
+
+        private CursorImpl(final int position, final int limit) {
+            this.position = position;
+            this.limit = limit;
+
+            if (position < limit) {
+                checkIndex(position);
+                bufferIdx = lastSegmentIndex;
+                setBuffer(activeBuffer, toActiveBufferPos(position));
+            }
+        }
+
+        @Override
+        public boolean hasRemaining() {
+            return position < limit;
+        }
+
+        @Override
+        public int position() {
+            return position;
+        }
+
+        @Override
+        public byte get() {
+            if (position >= limit) {
+                throw new BufferUnderflowException();
+            }
+
+            if (bufferPosition == buffer.limit()) {
+                bufferIdx++;
+                final Buffer nextBuffer = buffers[bufferIdx];
+                setBuffer(nextBuffer, nextBuffer.position());
+            }
+
+            position++;
+            return array != null
+                    ? array[arrayOffset + bufferPosition++]
+                    : buffer.get(bufferPosition++);
+        }
+
+        private void setBuffer(final Buffer buffer, final int bufferPosition) {
+            this.buffer = buffer;
+            this.bufferPosition = bufferPosition;
+            if (buffer.hasArray()) {
+                array = buffer.array();
+                arrayOffset = buffer.arrayOffset();
+            } else {
+                array = null;
+            }
+        }
+    }
+
     private final SetterImpl setter = new SetterImpl();
 
     private final static class SetterImpl implements Setter {
@@ -40,6 +40,7 @@
 
 package org.glassfish.grizzly.memory;
 
+import java.nio.BufferUnderflowException;
 import org.glassfish.grizzly.Buffer;
 
 /**
@@ -133,6 +134,100 @@ public abstract class CompositeBuffer implements Buffer {
      */
     public abstract int bulk(BulkOperation operation, int position, int limit);
 
+    /**
+     * Searches for the byte value in the {@link Buffer} content from position
+     * to limit.
+     * The default implementation examines the bytes one by one using
+     * {@link #get(int)}, the implementations are expected to override it and
+     * scan the internal {@link Buffer}s one after another, so the byte
+     * position doesn't have to be resolved for each byte.
+     *
+     * @param value the byte value to search for
+     * @param position the position to start the search from (inclusive)
+     * @param limit the position to stop the search at (exclusive)
+     * @return the position of the first byte occurrence, or <tt>-1</tt>,
+     * if the byte hasn't been found.
+     *
+     * @since 2.4.4
+     */
+    public int indexOf(final byte value, final int position, final int limit) {
+        for (int i = position; i < limit; i++) {
+            if (get(i) == value) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Searches for the byte sequence in the {@link Buffer} content from
+     * position to limit. The sequence may span several internal
+     * {@link Buffer}s.
+     * The default implementation looks for the first pattern byte using
+     * {@link #indexOf(byte, int, int)} and compares the rest of the pattern
+     * using {@link #get(int)}.
+     *
+     * @param pattern the byte sequence to search for
+     * @param position the position to start the search from (inclusive)
+     * @param limit the position to stop the search at (exclusive)
+     * @return the position of the first sequence occurrence, or <tt>-1</tt>,
+     * if the sequence hasn't been found.
+     *
+     * @since 2.4.4
+     */
+    public int indexOf(final byte[] pattern, final int position, final int limit) {
+        final int patternLength = pattern.length;
+        if (patternLength == 0) {
+            return position <= limit ? position : -1;
+        }
+
+        final byte first = pattern[0];
+        final int lastStart = limit - patternLength;
+
+        int offset = position;
+        while (offset <= lastStart) {
+            final int idx = indexOf(first, offset, lastStart + 1);
+            if (idx == -1) {
+                return -1;
+            }
+
+            int i = 1;
+            while (i < patternLength && get(idx + i) == pattern[i]) {
+                i++;
+            }
+
+            if (i == patternLength) {
+                return idx;
+            }
+
+            offset = idx + 1;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the {@link Cursor}, which reads the {@link Buffer} content from
+     * position to limit, walking the internal {@link Buffer}s sequentially.
+     * The returned {@link Cursor} doesn't change this {@link Buffer} position
+     * and is not valid anymore once the {@link Buffer} has been changed
+     * (appended, split, trimmed etc).
+     * The default implementation reads the bytes using {@link #get(int)}.
+     *
+     * @param position the position to start reading from (inclusive)
+     * @param limit the position to stop reading at (exclusive)
+     * @return {@link Cursor}
+     *
+     * @since 2.4.4
+     */
+    public Cursor cursor(final int position, final int limit) {
+        if (position < 0 || limit > capacity() || position > limit)
+            throw new IndexOutOfBoundsException("position=" + position + " limit=" + limit + "on " + toString());
+
+        return new IndexCursor(this, position, limit);
+    }
+
     /**
      * Replace one internal {@link Buffer} with another one.
      * @param oldBuffer the {@link Buffer} to replace.
@@ -155,6 +250,68 @@ public abstract class CompositeBuffer implements Buffer {
         boolean processByte(byte value, Setter setter);
     }
     
+    /**
+     * Sequential, forward-only reader of the {@link CompositeBuffer} content.
+     *
+     * @see CompositeBuffer#cursor(int, int)
+     * @since 2.4.4
+     */
+    public interface Cursor {
+        /**
+         * @return <tt>true</tt>, if there are more bytes to read.
+         */
+        boolean hasRemaining();
+
+        /**
+         * @return the {@link CompositeBuffer} position of the byte, which will
+         * be returned by the next {@link #get()} call.
+         */
+        int position();
+
+        /**
+         * Reads the current byte and moves to the next one.
+         * @return the current byte
+         * @throws java.nio.BufferUnderflowException if there are no more bytes
+         * to read.
+         */
+        byte get();
+    }
+    
+    /**
+     * {@link Cursor}, which reads the {@link Buffer} content using {@link #get(int)}.
+     */
+    private static final class IndexCursor implements Cursor {
+        private final Buffer buffer;
+        private final int limit;
+        private int position;
+
+        private IndexCursor(final Buffer buffer, final int position,
+                final int limit) {
+            this.buffer = buffer;
+            this.position = position;
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean hasRemaining() {
+            return position < limit;
+        }
+
+        @Override
+        public int position() {
+            return position;
+        }
+
+        @Override
+        public byte get() {
+            if (position >= limit) {
+                throw new BufferUnderflowException();
+            }
+
+            return buffer.get(position++);
+        }
+    }
+    
     /**
      * Setter.
      */
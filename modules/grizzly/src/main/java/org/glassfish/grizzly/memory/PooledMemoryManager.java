@@ -42,14 +42,23 @@ package org.glassfish.grizzly.memory;
 
 
 import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.Grizzly;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.glassfish.grizzly.monitoring.DefaultMonitoringConfig;
 import org.glassfish.grizzly.monitoring.MonitoringConfig;
@@ -85,6 +94,12 @@ import org.glassfish.grizzly.monitoring.MonitoringUtils;
  * {@link org.glassfish.grizzly.memory.ByteBufferManager} is that this implementation doesn't use ThreadLocal pools
  * and as such, doesn't suffer from the memory fragmentation/reallocation cycle that can impact the ThreadLocal versions.
  *
+ * The pooled {@link Buffer}s implement {@link ReferenceCountedBuffer}, so a
+ * part of a buffer may be retained by several owners and the memory is
+ * returned to the pool only once the last owner releases it. Buffers that are
+ * lost without being released may be reported using the leak detection
+ * sampling mode (see {@link #setLeakDetectionSamplingInterval(int)}).
+ *
  * @since 2.3.11
  */
 public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware {
@@ -101,6 +116,12 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
 
     private static final long BACK_OFF_DELAY = Long.getLong(
             PooledMemoryManager.class + ".back-off-delay", 0L);
+
+    private static final int LEAK_DETECTION_SAMPLING_INTERVAL = Integer.getInteger(
+            PooledMemoryManager.class + ".leak-detection-sampling-interval", 0);
+
+    private static final Logger LOGGER = Grizzly.logger(PooledMemoryManager.class);
+
     /**
      * Basic monitoring support.  Concrete implementations of this class need
      * only to implement the {@link #createJmxManagementObject()}  method
@@ -122,6 +143,10 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
     // the max buffer size pooled by this memory manager
     private final int maxPooledBufferSize;
 
+    // tracks the sampled buffers, which have not been returned to the pool
+    private final LeakDetector leakDetector =
+            new LeakDetector(LEAK_DETECTION_SAMPLING_INTERVAL);
+
 
     // ------------------------------------------------------------ Constructors
 
@@ -217,12 +242,50 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
         for (int i = 0, bufferSize = baseBufferSize; i < numberOfPools; i++, bufferSize <<= growthFactor) {
             pools[i] = new Pool(bufferSize, memoryPerSubPool,
                     numberOfPoolSlices, percentPreallocated, isDirect,
-                    monitoringConfig);
+                    monitoringConfig, leakDetector);
         }
         maxPooledBufferSize = pools[numberOfPools - 1].bufferSize;
     }
 
     
+    // ---------------------------------------------------------- Public Methods
+
+
+    /**
+     * @return the leak detection sampling interval, <tt>0</tt> means the leak
+     *  detection is disabled.
+     *
+     * @see #setLeakDetectionSamplingInterval(int)
+     * @since 2.4.4
+     */
+    public int getLeakDetectionSamplingInterval() {
+        return leakDetector.samplingInterval;
+    }
+
+    /**
+     * Enables the leak detection sampling mode, which is intended for
+     * debugging. On average one of <tt>samplingInterval</tt> buffers,
+     * allocated from the pools, will record its allocation stack trace, which
+     * will be logged if the buffer is garbage collected before all its
+     * references have been released. The value <tt>1</tt> tracks every
+     * allocation, <tt>0</tt> (the default) disables the leak detection.
+     *
+     * The initial value may be set using the
+     * <tt>org.glassfish.grizzly.memory.PooledMemoryManager.leak-detection-sampling-interval</tt>
+     * system property.
+     *
+     * @param samplingInterval the leak detection sampling interval.
+     * @since 2.4.4
+     */
+    public void setLeakDetectionSamplingInterval(final int samplingInterval) {
+        if (samplingInterval < 0) {
+            throw new IllegalArgumentException("samplingInterval can't be negative");
+        }
+
+        leakDetector.samplingInterval = samplingInterval;
+    }
+
+
     // ---------------------------------------------- Methods from MemoryManager
 
 
@@ -487,12 +550,15 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
     static final class Pool {
         private final PoolSlice[] slices;
         private final int bufferSize;
+        private final LeakDetector leakDetector;
 
         public Pool(final int bufferSize, final long memoryPerSubPool,
                 final int numberOfPoolSlices, final float percentPreallocated,
                 final boolean isDirect,
-                final DefaultMonitoringConfig<MemoryProbe> monitoringConfig) {
+                final DefaultMonitoringConfig<MemoryProbe> monitoringConfig,
+                final LeakDetector leakDetector) {
             this.bufferSize = bufferSize;
+            this.leakDetector = leakDetector;
             slices = new PoolSlice[numberOfPoolSlices];
             final long memoryPerSlice = memoryPerSubPool / numberOfPoolSlices;
             
@@ -530,7 +596,12 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
                 b = slice.allocate();
             }
             
-            return b.prepare();
+            b.prepare();
+            if (leakDetector.isEnabled()) {
+                leakDetector.track(b);
+            }
+            
+            return b;
         }
 
         @Override
@@ -901,17 +972,108 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
     } // END BufferPool
 
 
-    interface PoolBuffer extends Buffer {
+    interface PoolBuffer extends ReferenceCountedBuffer {
         PoolBuffer prepare();
         boolean free();
         PoolBuffer free(boolean free);
 
         PoolSlice owner();
+        
+        void leakTracker(LeakTracker leakTracker);
+    }
+
+    /**
+     * Samples the buffers allocated from the pools and reports the ones,
+     * which became unreachable without being returned to the pool.
+     */
+    static final class LeakDetector {
+        private final ReferenceQueue<PoolBuffer> queue =
+                new ReferenceQueue<>();
+        
+        // the trackers of the sampled buffers, which are not in the pool
+        private final Set<LeakTracker> trackers = Collections.newSetFromMap(
+                new ConcurrentHashMap<LeakTracker, Boolean>());
+        
+        volatile int samplingInterval;
+
+        LeakDetector(final int samplingInterval) {
+            this.samplingInterval = samplingInterval;
+        }
+
+        boolean isEnabled() {
+            return samplingInterval > 0;
+        }
+
+        void track(final PoolBuffer buffer) {
+            reportLeaks();
+            
+            final int interval = samplingInterval;
+            if (interval <= 0 ||
+                    (interval > 1 && ThreadLocalRandom.current().nextInt(interval) != 0)) {
+                return;
+            }
+            
+            final LeakTracker tracker = new LeakTracker(buffer, this);
+            trackers.add(tracker);
+            buffer.leakTracker(tracker);
+        }
+        
+        void reportLeaks() {
+            LeakTracker tracker;
+            while ((tracker = (LeakTracker) queue.poll()) != null) {
+                if (trackers.remove(tracker)) {
+                    LOGGER.log(Level.WARNING,
+                            "Buffer of size {0} has been garbage collected "
+                            + "before it was released, the memory is lost for "
+                            + "the pool. Make sure every allocated buffer or its "
+                            + "slice is disposed.",
+                            tracker.bufferSize);
+                    LOGGER.log(Level.WARNING, "Leaked buffer allocation trace",
+                            tracker.allocationTrace);
+                }
+            }
+        }
+    }
+
+    /**
+     * Weak reference to a sampled pool buffer, which keeps the buffer
+     * allocation stack trace.
+     */
+    static final class LeakTracker extends WeakReference<PoolBuffer> {
+        private final LeakDetector detector;
+        private final int bufferSize;
+        private final Throwable allocationTrace;
+
+        private LeakTracker(final PoolBuffer buffer, final LeakDetector detector) {
+            super(buffer, detector.queue);
+            this.detector = detector;
+            this.bufferSize = buffer.capacity();
+            this.allocationTrace = new Throwable("Buffer allocation trace");
+        }
+
+        /**
+         * Must be called once the tracked buffer is returned to the pool.
+         */
+        void close() {
+            detector.trackers.remove(this);
+            clear();
+        }
     }
     
     private static final class PoolHeapBuffer extends HeapBuffer
             implements PoolBuffer {
 
+        private static final AtomicIntegerFieldUpdater<PoolHeapBuffer> REF_COUNT_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(PoolHeapBuffer.class, "refCount");
+        
+        // The number of references to this Buffer instance, the instance is
+        // disposed once the value reaches zero.
+        private volatile int refCount = 1;
+
+        // The leak tracker of the source buffer, if it has been sampled by
+        // the leak detector.
+        private LeakTracker leakTracker;
+
         // The pool slice to which this Buffer instance will be returned.
         private final PoolSlice owner;
 
@@ -982,6 +1144,7 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
         public PoolBuffer prepare() {
             allowBufferDispose = true;
             free = false;
+            refCount = 1;
             
             return this;
         }
@@ -1001,6 +1164,50 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
             this.free = free;
             return this;
         }
+
+        @Override
+        public void leakTracker(final LeakTracker leakTracker) {
+            this.leakTracker = leakTracker;
+        }
+        
+        // ------------------------------ Methods from ReferenceCountedBuffer
+
+        @Override
+        public int refCount() {
+            return Math.max(refCount, 0);
+        }
+
+        @Override
+        public PoolHeapBuffer retain() {
+            for (;;) {
+                final int count = refCount;
+                if (count <= 0) {
+                    checkDispose();
+                    throw new IllegalStateException(
+                            "PoolBuffer has already been released");
+                }
+                
+                if (REF_COUNT_UPDATER.compareAndSet(this, count, count + 1)) {
+                    return this;
+                }
+            }
+        }
+
+        @Override
+        public boolean release() {
+            checkDispose();
+            return release0();
+        }
+
+        @Override
+        public PoolHeapBuffer retainedSlice() {
+            return (PoolHeapBuffer) slice();
+        }
+
+        @Override
+        public PoolHeapBuffer retainedSlice(final int position, final int limit) {
+            return (PoolHeapBuffer) slice(position, limit);
+        }
         
         // ------------------------------------------ Methods from HeapBuffer
 
@@ -1046,12 +1253,18 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
         
         @Override
         public void dispose() {
-            if (free) {
-                return;
+            release0();
+        }
+
+        private boolean release0() {
+            if (free || REF_COUNT_UPDATER.decrementAndGet(this) != 0) {
+                // already disposed or is still referenced
+                return false;
             }
             free = true;
             
             dispose0();
+            return true;
         }
 
         private void dispose0() {
@@ -1075,6 +1288,7 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
 
 
         private void returnToPool() {
+            closeLeakTracker();
             // restore capacity
             cap = heap.length;
             // clear
@@ -1082,6 +1296,13 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
             
             owner.offer(this);
         }
+
+        private void closeLeakTracker() {
+            if (leakTracker != null) {
+                leakTracker.close();
+                leakTracker = null;
+            }
+        }
         
         // ----------------------------------------------------- Protected Methods
         
@@ -1133,6 +1354,17 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
     private static final class PoolByteBufferWrapper extends ByteBufferWrapper
             implements PoolBuffer {
 
+        private static final AtomicIntegerFieldUpdater<PoolByteBufferWrapper> REF_COUNT_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(PoolByteBufferWrapper.class, "refCount");
+        
+        // The number of references to this Buffer instance, the instance is
+        // disposed once the value reaches zero.
+        private volatile int refCount = 1;
+
+        // The leak tracker of the source buffer, if it has been sampled by
+        // the leak detector.
+        private LeakTracker leakTracker;
+
         // The pool slice to which this Buffer instance will be returned.
         private final PoolSlice owner;
 
@@ -1209,6 +1441,7 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
         public PoolBuffer prepare() {
             allowBufferDispose = true;
             free = false;
+            refCount = 1;
             return this;
         }
 
@@ -1227,17 +1460,67 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
             this.free = free;
             return this;
         }
+
+        @Override
+        public void leakTracker(final LeakTracker leakTracker) {
+            this.leakTracker = leakTracker;
+        }
+        
+        // ------------------------------ Methods from ReferenceCountedBuffer
+
+        @Override
+        public int refCount() {
+            return Math.max(refCount, 0);
+        }
+
+        @Override
+        public PoolByteBufferWrapper retain() {
+            for (;;) {
+                final int count = refCount;
+                if (count <= 0) {
+                    checkDispose();
+                    throw new IllegalStateException(
+                            "PoolBuffer has already been released");
+                }
+                
+                if (REF_COUNT_UPDATER.compareAndSet(this, count, count + 1)) {
+                    return this;
+                }
+            }
+        }
+
+        @Override
+        public boolean release() {
+            checkDispose();
+            return release0();
+        }
+
+        @Override
+        public PoolByteBufferWrapper retainedSlice() {
+            return (PoolByteBufferWrapper) slice();
+        }
+
+        @Override
+        public PoolByteBufferWrapper retainedSlice(final int position, final int limit) {
+            return (PoolByteBufferWrapper) slice(position, limit);
+        }
         
         // ------------------------------------------ Methods from ByteBufferWrapper
         
         @Override
         public void dispose() {
-            if (free) {
-                return;
+            release0();
+        }
+
+        private boolean release0() {
+            if (free || REF_COUNT_UPDATER.decrementAndGet(this) != 0) {
+                // already disposed or is still referenced
+                return false;
             }
             free = true;
             
             dispose0();
+            return true;
         }
 
         private void dispose0() {
@@ -1294,9 +1577,17 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
         
         private void returnToPool() {
             // should be called on "source" only
+            closeLeakTracker();
             visible = origVisible;
             visible.clear();
             owner.offer(this);
         }
+
+        private void closeLeakTracker() {
+            if (leakTracker != null) {
+                leakTracker.close();
+                leakTracker = null;
+            }
+        }
     } // END PoolBuffer    
 }
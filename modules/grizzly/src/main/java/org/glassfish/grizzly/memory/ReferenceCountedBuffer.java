@@ -0,0 +1,116 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.memory;
+
+import org.glassfish.grizzly.Buffer;
+
+/**
+ * {@link Buffer}, whose memory may be shared by several owners.
+ *
+ * Every <tt>ReferenceCountedBuffer</tt> instance maintains its own reference
+ * counter, which is initially equal to <tt>1</tt>. {@link #retain()} increments
+ * the counter, {@link #release()} (as well as {@link Buffer#dispose()} and
+ * {@link Buffer#tryDispose()}) decrements it, and once the counter reaches zero
+ * the buffer instance is considered disposed.
+ *
+ * {@link #retainedSlice()} creates a new, independently counted, view of the
+ * buffer content. The underlying memory is returned to the
+ * {@link MemoryManager} only after the original buffer and all the slices,
+ * derived from it, have been released, so a component may keep part of an
+ * incoming {@link Buffer} without copying it, regardless of when the
+ * original owner disposes it.
+ *
+ * @see PooledMemoryManager
+ *
+ * @since 2.4.4
+ */
+public interface ReferenceCountedBuffer extends Buffer {
+
+    /**
+     * @return the number of references to this buffer instance, or <tt>0</tt>
+     *  if the buffer has been released.
+     */
+    int refCount();
+
+    /**
+     * Increments the reference counter of this buffer instance.
+     *
+     * @return this buffer.
+     *
+     * @throws IllegalStateException if the buffer has already been released.
+     */
+    ReferenceCountedBuffer retain();
+
+    /**
+     * Decrements the reference counter of this buffer instance. If the
+     * counter reaches zero - the buffer is disposed and, if there are no other
+     * slices sharing the same memory, the memory is returned to the
+     * {@link MemoryManager}.
+     *
+     * @return <tt>true</tt> if the buffer instance has been disposed as the
+     *  result of this call, or <tt>false</tt> otherwise.
+     *
+     * @throws IllegalStateException if the buffer has already been released.
+     */
+    boolean release();
+
+    /**
+     * Creates a new <tt>ReferenceCountedBuffer</tt>, whose content is a shared
+     * subsequence of this buffer's content between the current position and
+     * limit. The returned slice has its own reference counter equal to
+     * <tt>1</tt> and keeps the underlying memory alive until it is released.
+     *
+     * @return the new slice.
+     */
+    ReferenceCountedBuffer retainedSlice();
+
+    /**
+     * Creates a new <tt>ReferenceCountedBuffer</tt>, whose content is a shared
+     * subsequence of this buffer's content between the given position and
+     * limit. The returned slice has its own reference counter equal to
+     * <tt>1</tt> and keeps the underlying memory alive until it is released.
+     *
+     * @param position the position of the slice's first byte.
+     * @param limit the position following the slice's last byte.
+     * @return the new slice.
+     */
+    ReferenceCountedBuffer retainedSlice(int position, int limit);
+}
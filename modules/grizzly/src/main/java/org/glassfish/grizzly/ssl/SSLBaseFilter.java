@@ -48,8 +48,11 @@ import java.security.cert.X509Certificate;
 import java.util.Collections;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Filter;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -84,8 +87,11 @@ import org.glassfish.grizzly.impl.FutureImpl;
 import org.glassfish.grizzly.memory.Buffers;
 import org.glassfish.grizzly.memory.CompositeBuffer;
 import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.monitoring.DefaultMonitoringConfig;
+import org.glassfish.grizzly.monitoring.MonitoringConfig;
 import org.glassfish.grizzly.ssl.SSLConnectionContext.Allocator;
 import org.glassfish.grizzly.ssl.SSLConnectionContext.SslResult;
+import org.glassfish.grizzly.utils.Exceptions;
 import org.glassfish.grizzly.utils.Futures;
 
 import static org.glassfish.grizzly.ssl.SSLUtils.*;
@@ -130,6 +136,19 @@ public class SSLBaseFilter extends BaseFilter {
             Collections.newSetFromMap(new ConcurrentHashMap<>(2));
     
     private long handshakeTimeoutMillis = -1;
+    
+    private volatile Executor handshakeExecutor;
+    
+    // the number of handshake steps waiting for the handshakeExecutor
+    private final AtomicInteger pendingHandshakeSteps = new AtomicInteger();
+    
+    private volatile int maxPendingHandshakeSteps = Integer.MAX_VALUE;
+    
+    /**
+     * Handshake monitoring support.
+     */
+    protected final DefaultMonitoringConfig<SSLHandshakeProbe> handshakeMonitoringConfig =
+            new DefaultMonitoringConfig<>(SSLHandshakeProbe.class);
         
     private SSLTransportFilterWrapper optimizedTransportFilter;
     
@@ -233,6 +252,99 @@ public class SSLBaseFilter extends BaseFilter {
         }
     }
 
+    /**
+     * @return the {@link Executor} the CPU-heavy handshake steps are
+     * offloaded to, or <code>null</code> if the handshake is processed by
+     * the thread, which reads the data (default).
+     * 
+     * @since 2.4.4
+     */
+    public Executor getHandshakeExecutor() {
+        return handshakeExecutor;
+    }
+
+    /**
+     * Sets the {@link Executor} the non-blocking handshake steps
+     * (the handshake unwrap/wrap and the {@link SSLEngine#getDelegatedTask() delegated tasks})
+     * are offloaded to, so the expensive key exchange computations don't
+     * block the selector or worker threads serving other {@link Connection}s.
+     * The {@link FilterChain} processing is suspended and resumed by
+     * the {@link Executor} thread once the handshake step is done.
+     * 
+     * It's recommended to use a dedicated executor with a bounded queue, for
+     * example {@link org.glassfish.grizzly.threadpool.GrizzlyExecutorService}
+     * configured with {@link org.glassfish.grizzly.threadpool.ThreadPoolConfig#setQueueLimit(int)},
+     * and limit the number of the offloaded steps accordingly
+     * (see {@link #setMaxPendingHandshakeSteps(int)}). The steps exceeding the
+     * limit are processed by the current thread. If the {@link Executor}
+     * rejects a handshake step - the handshake fails and the {@link Connection}
+     * is closed.
+     * 
+     * The setting doesn't affect the blocking handshake mode
+     * (see {@link #setHandshakeTimeout(long, java.util.concurrent.TimeUnit)}).
+     * 
+     * @param handshakeExecutor the handshake {@link Executor}, or <code>null</code>
+     *      to process the handshake by the thread, which reads the data
+     * 
+     * @since 2.4.4
+     */
+    public void setHandshakeExecutor(final Executor handshakeExecutor) {
+        this.handshakeExecutor = handshakeExecutor;
+    }
+
+    /**
+     * @return the number of the handshake steps waiting for the
+     * {@link #getHandshakeExecutor() handshake executor}.
+     * 
+     * @since 2.4.4
+     */
+    public int getPendingHandshakeSteps() {
+        return pendingHandshakeSteps.get();
+    }
+
+    /**
+     * @return the max number of the handshake steps, which could wait for the
+     * {@link #getHandshakeExecutor() handshake executor} at the same time.
+     * 
+     * @since 2.4.4
+     */
+    public int getMaxPendingHandshakeSteps() {
+        return maxPendingHandshakeSteps;
+    }
+
+    /**
+     * Sets the max number of the handshake steps, which could wait for the
+     * {@link #getHandshakeExecutor() handshake executor} at the same time.
+     * Once the limit is reached, the handshake steps are processed by the
+     * thread, which reads the data, until the executor catches up.
+     * The limit should not exceed the {@link Executor} capacity (the number of
+     * threads plus the queue limit), otherwise the steps rejected by the
+     * {@link Executor} fail the handshake.
+     * By default the number of the pending steps is not limited.
+     * 
+     * @param maxPendingHandshakeSteps the max number of the pending handshake
+     *      steps
+     * 
+     * @since 2.4.4
+     */
+    public void setMaxPendingHandshakeSteps(final int maxPendingHandshakeSteps) {
+        if (maxPendingHandshakeSteps < 0) {
+            throw new IllegalArgumentException("maxPendingHandshakeSteps can't be negative");
+        }
+        
+        this.maxPendingHandshakeSteps = maxPendingHandshakeSteps;
+    }
+
+    /**
+     * @return the handshake monitoring config, which may be used to register
+     * {@link SSLHandshakeProbe}s.
+     * 
+     * @since 2.4.4
+     */
+    public MonitoringConfig<SSLHandshakeProbe> getHandshakeMonitoringConfig() {
+        return handshakeMonitoringConfig;
+    }
+
     /**
      * Completely disables renegotiation.
      *
@@ -323,54 +435,179 @@ public class SSLBaseFilter extends BaseFilter {
                 notifyHandshakeStart(connection);
             }
 
-            final Buffer buffer;
-            buffer = ((handshakeTimeoutMillis >= 0)
-                         ? doHandshakeSync(sslCtx,
-                                           ctx,
-                                           (Buffer) ctx.getMessage(),
-                                           handshakeTimeoutMillis)
-                         : makeInputRemainder(sslCtx,
-                                              ctx,
-                                              doHandshakeStep(sslCtx,
-                                                              ctx,
-                                                              (Buffer) ctx.getMessage())));
-        
-            final boolean hasRemaining = buffer != null && buffer.hasRemaining();
+            final Executor executor = handshakeExecutor;
+            if (executor != null && handshakeTimeoutMillis < 0
+                    && isHandshakeStepReady(sslEngine, (Buffer) ctx.getMessage())) {
+                final int pending = tryAcquireHandshakeStep();
+                if (pending > 0) {
+                    return offloadHandshake(executor, ctx, sslCtx, sslEngine,
+                            pending);
+                }
+            }
             
-            final boolean isHandshaking = isHandshaking(sslEngine);
-            if (!isHandshaking) {
-                notifyHandshakeComplete(connection, sslEngine);
-                final FilterChain connectionFilterChain = sslCtx.getNewConnectionFilterChain();
-                sslCtx.setNewConnectionFilterChain(null);
-                if (connectionFilterChain != null) {
-                    if (LOGGER.isLoggable(Level.FINE)) {
-                        LOGGER.log(Level.FINE, "Applying new FilterChain after"
-                                + "SSLHandshake. Connection={0} filterchain={1}",
-                                new Object[]{connection, connectionFilterChain});
-                    }
-                    
-                    connection.setProcessor(connectionFilterChain);
-
-                    if (hasRemaining) {
-                        NextAction suspendAction = ctx.getSuspendAction();
-                        ctx.setMessage(buffer);
-                        ctx.suspend();
-                        final FilterChainContext newContext =
-                                obtainProtocolChainContext(ctx, connectionFilterChain);
-                        ProcessorExecutor.execute(newContext.getInternalContext());
-                        return suspendAction;
-                    } else {
-                        return ctx.getStopAction();
-                    }
+            return handshakeRead(ctx, sslCtx, sslEngine);
+        }
+    }
+
+    private NextAction handshakeRead(final FilterChainContext ctx,
+            final SSLConnectionContext sslCtx, final SSLEngine sslEngine)
+            throws IOException {
+        
+        final Connection connection = ctx.getConnection();
+    
+        final Buffer buffer;
+        buffer = ((handshakeTimeoutMillis >= 0)
+                     ? doHandshakeSync(sslCtx,
+                                       ctx,
+                                       (Buffer) ctx.getMessage(),
+                                       handshakeTimeoutMillis)
+                     : makeInputRemainder(sslCtx,
+                                          ctx,
+                                          doHandshakeStep(sslCtx,
+                                                          ctx,
+                                                          (Buffer) ctx.getMessage())));
+    
+        final boolean hasRemaining = buffer != null && buffer.hasRemaining();
+        
+        final boolean isHandshaking = isHandshaking(sslEngine);
+        if (!isHandshaking) {
+            notifyHandshakeComplete(connection, sslEngine);
+            final FilterChain connectionFilterChain = sslCtx.getNewConnectionFilterChain();
+            sslCtx.setNewConnectionFilterChain(null);
+            if (connectionFilterChain != null) {
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.log(Level.FINE, "Applying new FilterChain after"
+                            + "SSLHandshake. Connection={0} filterchain={1}",
+                            new Object[]{connection, connectionFilterChain});
                 }
+                
+                connection.setProcessor(connectionFilterChain);
 
                 if (hasRemaining) {
+                    NextAction suspendAction = ctx.getSuspendAction();
                     ctx.setMessage(buffer);
-                    return unwrapAll(ctx, sslCtx);
+                    ctx.suspend();
+                    final FilterChainContext newContext =
+                            obtainProtocolChainContext(ctx, connectionFilterChain);
+                    ProcessorExecutor.execute(newContext.getInternalContext());
+                    return suspendAction;
+                } else {
+                    return ctx.getStopAction();
                 }
             }
 
-            return ctx.getStopAction(buffer);
+            if (hasRemaining) {
+                ctx.setMessage(buffer);
+                return unwrapAll(ctx, sslCtx);
+            }
+        }
+
+        return ctx.getStopAction(buffer);
+    }
+
+    /**
+     * Reserves a slot for the handshake step, which is going to be passed
+     * to the handshake {@link Executor}.
+     * 
+     * @return the number of the pending handshake steps including the reserved
+     *      one, or <tt>-1</tt> if the max number of the pending steps is reached
+     */
+    private int tryAcquireHandshakeStep() {
+        final int max = maxPendingHandshakeSteps;
+        while (true) {
+            final int pending = pendingHandshakeSteps.get();
+            if (pending >= max) {
+                return -1;
+            }
+            
+            if (pendingHandshakeSteps.compareAndSet(pending, pending + 1)) {
+                return pending + 1;
+            }
+        }
+    }
+    
+    /**
+     * Suspends the {@link FilterChain} processing and passes the handshake
+     * step to the handshake {@link Executor}, which resumes the processing
+     * once the step is done. No other read is processed for the
+     * {@link Connection} while the processing is suspended.
+     * If the step fails or the {@link Executor} rejects it - the
+     * {@link Connection} is closed and the suspended context is completed.
+     */
+    private NextAction offloadHandshake(final Executor executor,
+            final FilterChainContext ctx, final SSLConnectionContext sslCtx,
+            final SSLEngine sslEngine, final int pending) {
+        
+        final NextAction suspendAction = ctx.getSuspendAction();
+        ctx.suspend();
+        
+        final Runnable step = new Runnable() {
+            @Override
+            public void run() {
+                pendingHandshakeSteps.decrementAndGet();
+                
+                final NextAction nextAction;
+                try {
+                    nextAction = handshakeRead(ctx, sslCtx, sslEngine);
+                } catch (Throwable t) {
+                    failOffloadedHandshake(ctx, t);
+                    return;
+                }
+                
+                ctx.resume(nextAction);
+            }
+        };
+        
+        notifyProbesHandshakeOffload(ctx.getConnection(), pending);
+        
+        try {
+            executor.execute(step);
+        } catch (RejectedExecutionException e) {
+            pendingHandshakeSteps.decrementAndGet();
+            failOffloadedHandshake(ctx, e);
+        }
+        
+        return suspendAction;
+    }
+    
+    private void failOffloadedHandshake(final FilterChainContext ctx,
+            final Throwable t) {
+        final Connection connection = ctx.getConnection();
+        
+        // the IOExceptions are reported by doHandshakeStep
+        if (!(t instanceof IOException)) {
+            notifyHandshakeFailed(connection, t);
+        }
+        
+        try {
+            connection.closeWithReason(Exceptions.makeIOException(t));
+        } finally {
+            ctx.completeAndRecycle();
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if the handshake step has some work to do
+     * (a complete SSL packet to unwrap, a message to wrap, or a delegated task
+     * to run), so it's worth to be offloaded.
+     */
+    private static boolean isHandshakeStepReady(final SSLEngine sslEngine,
+            final Buffer inputBuffer) {
+        if (sslEngine.getHandshakeStatus() != HandshakeStatus.NEED_UNWRAP) {
+            return true;
+        }
+        
+        if (inputBuffer == null || !inputBuffer.hasRemaining()) {
+            return false;
+        }
+        
+        try {
+            final int expectedLength = getSSLPacketSize(inputBuffer);
+            return expectedLength != -1
+                    && inputBuffer.remaining() >= expectedLength;
+        } catch (SSLException e) {
+            // let the current thread report the error
+            return false;
         }
     }
 
@@ -1007,6 +1244,19 @@ public class SSLBaseFilter extends BaseFilter {
     }
 
     protected void notifyHandshakeStart(final Connection connection) {
+        final SSLConnectionContext sslCtx = getSslConnectionContext(connection);
+        if (sslCtx != null) {
+            sslCtx.handshakeStartNanos = System.nanoTime();
+        }
+        
+        final SSLHandshakeProbe[] probes =
+                handshakeMonitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (SSLHandshakeProbe probe : probes) {
+                probe.onHandshakeStartEvent(connection);
+            }
+        }
+        
         if (!handshakeListeners.isEmpty()) {
             for (final HandshakeListener listener : handshakeListeners) {
                 listener.onStart(connection);
@@ -1017,6 +1267,19 @@ public class SSLBaseFilter extends BaseFilter {
     protected void notifyHandshakeComplete(final Connection<?> connection,
                                           final SSLEngine sslEngine) {
 
+        final SSLHandshakeProbe[] probes =
+                handshakeMonitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            final SSLConnectionContext sslCtx = getSslConnectionContext(connection);
+            final long duration = sslCtx != null
+                    ? System.nanoTime() - sslCtx.handshakeStartNanos
+                    : 0;
+            
+            for (SSLHandshakeProbe probe : probes) {
+                probe.onHandshakeCompleteEvent(connection, duration);
+            }
+        }
+        
         if (!handshakeListeners.isEmpty()) {
             for (final HandshakeListener listener : handshakeListeners) {
                 listener.onComplete(connection);
@@ -1026,12 +1289,31 @@ public class SSLBaseFilter extends BaseFilter {
 
     protected void notifyHandshakeFailed(final Connection connection,
             final Throwable t) {
+        final SSLHandshakeProbe[] probes =
+                handshakeMonitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (SSLHandshakeProbe probe : probes) {
+                probe.onHandshakeFailureEvent(connection, t);
+            }
+        }
+        
         if (!handshakeListeners.isEmpty()) {
             for (final HandshakeListener listener : handshakeListeners) {
                 listener.onFailure(connection, t);
             }
         }
     }
+
+    private void notifyProbesHandshakeOffload(final Connection connection,
+            final int pendingSteps) {
+        final SSLHandshakeProbe[] probes =
+                handshakeMonitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (SSLHandshakeProbe probe : probes) {
+                probe.onHandshakeOffloadEvent(connection, pendingSteps);
+            }
+        }
+    }
     
     // ----------------------------------------------------------- Inner Classes
 
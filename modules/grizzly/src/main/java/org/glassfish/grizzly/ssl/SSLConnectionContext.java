@@ -100,6 +100,9 @@ public final class SSLConnectionContext {
     private final Connection connection;
     private FilterChain newConnectionFilterChain;
 
+    // the System.nanoTime() the last handshake has been started at
+    volatile long handshakeStartNanos;
+
     public SSLConnectionContext(Connection connection) {
         this.connection = connection;
     }    
@@ -0,0 +1,125 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.ssl;
+
+import org.glassfish.grizzly.Connection;
+
+/**
+ * Monitoring probe providing callbacks that may be invoked by
+ * {@link SSLBaseFilter} during the SSL handshake processing.
+ *
+ * @see SSLBaseFilter#getHandshakeMonitoringConfig()
+ * @since 2.4.4
+ */
+public interface SSLHandshakeProbe {
+
+    /**
+     * Method will be called, when the SSL handshake has been started.
+     *
+     * @param connection {@link Connection}, the event belongs to
+     */
+    void onHandshakeStartEvent(Connection connection);
+
+    /**
+     * Method will be called, when the SSL handshake step has been passed to
+     * the handshake executor.
+     *
+     * @param connection {@link Connection}, the event belongs to
+     * @param pendingSteps the number of the handshake steps waiting for
+     *          the handshake executor, including the passed one
+     */
+    void onHandshakeOffloadEvent(Connection connection, int pendingSteps);
+
+    /**
+     * Method will be called, when the SSL handshake has been completed.
+     *
+     * @param connection {@link Connection}, the event belongs to
+     * @param durationNanos the handshake duration in nanoseconds
+     */
+    void onHandshakeCompleteEvent(Connection connection, long durationNanos);
+
+    /**
+     * Method will be called, when the SSL handshake has failed.
+     *
+     * @param connection {@link Connection}, the event belongs to
+     * @param error the error
+     */
+    void onHandshakeFailureEvent(Connection connection, Throwable error);
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+    /**
+     * {@link SSLHandshakeProbe} adapter that provides no-op implementations for
+     * all interface methods allowing easy extension by the developer.
+     */
+    @SuppressWarnings("UnusedDeclaration")
+    class Adapter implements SSLHandshakeProbe {
+
+
+        // -------------------------------------- Methods from SSLHandshakeProbe
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onHandshakeStartEvent(Connection connection) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onHandshakeOffloadEvent(Connection connection, int pendingSteps) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onHandshakeCompleteEvent(Connection connection, long durationNanos) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onHandshakeFailureEvent(Connection connection, Throwable error) {}
+
+    } // END Adapter
+}
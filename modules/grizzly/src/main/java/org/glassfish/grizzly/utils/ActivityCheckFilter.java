@@ -163,7 +163,7 @@ public class ActivityCheckFilter extends BaseFilter {
     @SuppressWarnings({"UnusedDeclaration"})
     public static DelayedExecutor createDefaultIdleDelayedExecutor() {
 
-        return createDefaultIdleDelayedExecutor(1000, TimeUnit.MILLISECONDS);
+        return DelayedExecutor.createShared();
 
     }
 
@@ -46,7 +46,15 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.attributes.AttributeBuilder;
+import org.glassfish.grizzly.threadpool.DefaultWorkerThread;
 
 /**
  * 
@@ -55,8 +63,26 @@ import java.util.concurrent.TimeUnit;
 public class DelayedExecutor {
     public final static long UNSET_TIMEOUT = -1;
     
+    private static final Logger LOGGER = Grizzly.logger(DelayedExecutor.class);
+    
+    /**
+     * The number of the default selector runners (CPU cores) served by a
+     * single shared timer thread (see {@link #createShared()}).
+     * 
+     * @since 2.4.4
+     */
+    public static final int SHARED_TIMER_SELECTOR_RUNNERS = Integer.getInteger(
+            DelayedExecutor.class.getName() + ".shared-timer-selector-runners", 4);
+    
     private final ExecutorService threadPool;
 
+    // the DelayedExecutor, whose thread checks this executor's queues,
+    // or null if this executor runs its own check loop
+    private final DelayedExecutor parent;
+
+    private final Queue<DelayedExecutor> children =
+            new ConcurrentLinkedQueue<DelayedExecutor>();
+
     private final DelayedRunnable runnable = new DelayedRunnable();
     
     private final Queue<DelayQueue> queues =
@@ -80,13 +106,62 @@ public class DelayedExecutor {
         
         this.threadPool = threadPool;
         this.checkIntervalMillis = TimeUnit.MILLISECONDS.convert(checkInterval, timeunit);
+        this.parent = null;
+    }
+
+    private DelayedExecutor(final DelayedExecutor parent) {
+        // the timer thread is owned by the parent
+        this.threadPool = null;
+        this.checkIntervalMillis = parent.checkIntervalMillis;
+        this.parent = parent;
+    }
+
+    /**
+     * Creates a <tt>DelayedExecutor</tt>, which doesn't have its own thread,
+     * but shares one of the JVM-wide timer threads with other shared
+     * <tt>DelayedExecutor</tt>s, so their delay queues are checked within
+     * one tick every second. There is one shared timer thread per
+     * {@link #SHARED_TIMER_SELECTOR_RUNNERS} default selector runners (CPU cores),
+     * the shared <tt>DelayedExecutor</tt>s are assigned to the timer threads
+     * in round-robin fashion.
+     * 
+     * The returned <tt>DelayedExecutor</tt> has its own life-cycle:
+     * its queues are checked only after {@link #start()} is called, and
+     * {@link #stop()} and {@link #destroy()} don't affect other shared
+     * <tt>DelayedExecutor</tt>s. The {@link Worker}s are executed by the
+     * shared timer thread, so they are expected to be short and non-blocking,
+     * a slow {@link Worker} delays the timeouts of all the
+     * <tt>DelayedExecutor</tt>s sharing the thread.
+     * The shared timer thread is not owned by the returned
+     * <tt>DelayedExecutor</tt>, so its {@link #getThreadPool()} returns
+     * <tt>null</tt>.
+     * 
+     * @return a new <tt>DelayedExecutor</tt> sharing a JVM-wide timer thread
+     * @since 2.4.4
+     */
+    public static DelayedExecutor createShared() {
+        return new DelayedExecutor(SharedTimerHolder.next());
+    }
+
+    /**
+     * @return <tt>true</tt> if this <tt>DelayedExecutor</tt> shares
+     * the timer thread with other <tt>DelayedExecutor</tt>s,
+     * or <tt>false</tt> otherwise
+     * @since 2.4.4
+     */
+    public boolean isShared() {
+        return parent != null;
     }
 
     public void start() {
         synchronized(sync) {
             if (!isStarted) {
                 isStarted = true;
-                threadPool.execute(runnable);
+                if (parent != null) {
+                    parent.children.add(this);
+                } else {
+                    threadPool.execute(runnable);
+                }
             }
         }
     }
@@ -95,7 +170,11 @@ public class DelayedExecutor {
         synchronized(sync) {
             if (isStarted) {
                 isStarted = false;
-                sync.notify();
+                if (parent != null) {
+                    parent.children.remove(this);
+                } else {
+                    sync.notify();
+                }
             }
         }
     }
@@ -107,6 +186,12 @@ public class DelayedExecutor {
         }
     }
 
+    /**
+     * @return the {@link ExecutorService}, which runs this
+     * <tt>DelayedExecutor</tt>'s check loop, or <tt>null</tt> if this
+     * <tt>DelayedExecutor</tt> is shared and doesn't own a thread
+     * (see {@link #createShared()})
+     */
     @SuppressWarnings("UnusedDeclaration")
     public ExecutorService getThreadPool() {
         return threadPool;
@@ -126,6 +211,46 @@ public class DelayedExecutor {
         return l1 != l2;
     }
 
+    @SuppressWarnings("unchecked")
+    private void checkQueues(final long currentTimeMillis) {
+        for (final DelayQueue delayQueue : queues) {
+            if (delayQueue.queue.isEmpty()) continue;
+            
+            final Resolver resolver = delayQueue.resolver;
+
+            for (Iterator it = delayQueue.queue.keySet().iterator(); it.hasNext(); ) {
+                final Object element = it.next();
+                final long timeoutMillis = resolver.getTimeoutMillis(element);
+                
+                if (timeoutMillis == UNSET_TIMEOUT) {
+                    it.remove();
+                    if (wasModified(timeoutMillis,
+                            resolver.getTimeoutMillis(element))) {                                
+                        delayQueue.queue.put(element, delayQueue);
+                    }
+                } else if (currentTimeMillis - timeoutMillis >= 0) {
+                    it.remove();
+                    if (wasModified(timeoutMillis,
+                            resolver.getTimeoutMillis(element))) {
+                        delayQueue.queue.put(element, delayQueue);
+                    } else {
+                        try {
+                            if (!delayQueue.worker.doWork(element)) {
+                                delayQueue.queue.put(element, delayQueue);
+                            }
+                        } catch (Throwable t) {
+                            // the failed worker must not stop the timer
+                            // shared by other delay queues
+                            if (LOGGER.isLoggable(Level.FINE)) {
+                                LOGGER.log(Level.FINE, "DelayedExecutor worker failure", t);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     private class DelayedRunnable implements Runnable {
 
         @SuppressWarnings("unchecked")
@@ -134,35 +259,15 @@ public class DelayedExecutor {
             while(isStarted) {
                 final long currentTimeMillis = System.currentTimeMillis();
                 
-                for (final DelayQueue delayQueue : queues) {
-                    if (delayQueue.queue.isEmpty()) continue;
-                    
-                    final Resolver resolver = delayQueue.resolver;
-
-                    for (Iterator it = delayQueue.queue.keySet().iterator(); it.hasNext(); ) {
-                        final Object element = it.next();
-                        final long timeoutMillis = resolver.getTimeoutMillis(element);
-                        
-                        if (timeoutMillis == UNSET_TIMEOUT) {
-                            it.remove();
-                            if (wasModified(timeoutMillis,
-                                    resolver.getTimeoutMillis(element))) {                                
-                                delayQueue.queue.put(element, delayQueue);
-                            }
-                        } else if (currentTimeMillis - timeoutMillis >= 0) {
-                            it.remove();
-                            if (wasModified(timeoutMillis,
-                                    resolver.getTimeoutMillis(element))) {
-                                delayQueue.queue.put(element, delayQueue);
-                            } else {
-                                try {
-                                    if (!delayQueue.worker.doWork(element)) {
-                                        delayQueue.queue.put(element, delayQueue);
-                                    }
-                                } catch (Exception ignored) {
-                                }
-                            }
-                        }
+                checkQueues(currentTimeMillis);
+                
+                for (final DelayedExecutor child : children) {
+                    try {
+                        child.checkQueues(currentTimeMillis);
+                    } catch (Throwable t) {
+                        // a failed resolver must not break other
+                        // shared DelayedExecutors
+                        LOGGER.log(Level.WARNING, "DelayedExecutor check failure", t);
                     }
                 }
 
@@ -207,6 +312,52 @@ public class DelayedExecutor {
         }
     }
 
+    // Lazy initialization of the JVM-wide shared timers
+    private static class SharedTimerHolder {
+        private static final DelayedExecutor[] TIMERS = createSharedTimers();
+        
+        private static final AtomicInteger COUNTER = new AtomicInteger();
+
+        static DelayedExecutor next() {
+            final int idx = (COUNTER.getAndIncrement() & Integer.MAX_VALUE)
+                    % TIMERS.length;
+            return TIMERS[idx];
+        }
+        
+        private static DelayedExecutor[] createSharedTimers() {
+            final int selectorRunners = Runtime.getRuntime().availableProcessors();
+            final int perTimer = Math.max(1, SHARED_TIMER_SELECTOR_RUNNERS);
+            final int timersCount = (selectorRunners + perTimer - 1) / perTimer;
+            
+            final DelayedExecutor[] timers = new DelayedExecutor[timersCount];
+            for (int i = 0; i < timersCount; i++) {
+                timers[i] = createSharedTimer(i);
+            }
+            
+            return timers;
+        }
+        
+        private static DelayedExecutor createSharedTimer(final int idx) {
+            final ExecutorService threadPool = Executors.newSingleThreadExecutor(
+                    new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    final Thread newThread = new DefaultWorkerThread(
+                            AttributeBuilder.DEFAULT_ATTRIBUTE_BUILDER,
+                            "Grizzly-DelayedExecutor-Shared(" + idx + ")",
+                            null,
+                            r);
+                    newThread.setDaemon(true);
+                    return newThread;
+                }
+            });
+            
+            final DelayedExecutor timer = new DelayedExecutor(threadPool);
+            timer.start();
+            return timer;
+        }
+    }
+
     public interface Worker<E> {
         /**
          * The method is executed by <tt>DelayExecutor</tt> once element's timeout expires.
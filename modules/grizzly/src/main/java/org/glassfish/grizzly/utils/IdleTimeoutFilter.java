@@ -192,7 +192,7 @@ public class IdleTimeoutFilter extends BaseFilter {
     @SuppressWarnings({"UnusedDeclaration"})
     public static DelayedExecutor createDefaultIdleDelayedExecutor() {
 
-        return createDefaultIdleDelayedExecutor(1000, TimeUnit.MILLISECONDS);
+        return DelayedExecutor.createShared();
 
     }
 
@@ -40,9 +40,14 @@
 
 package org.glassfish.grizzly;
 
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.io.InputStream;
 import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
 
 import org.glassfish.grizzly.memory.ByteBufferManager;
 import org.glassfish.grizzly.memory.HeapMemoryManager;
@@ -80,6 +85,7 @@ import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
 import org.glassfish.grizzly.ssl.SSLContextConfigurator;
 import org.glassfish.grizzly.ssl.SSLEngineConfigurator;
 import org.glassfish.grizzly.ssl.SSLFilter;
+import org.glassfish.grizzly.ssl.SSLHandshakeProbe;
 import org.glassfish.grizzly.ssl.SSLStreamReader;
 import org.glassfish.grizzly.ssl.SSLStreamWriter;
 import org.glassfish.grizzly.streams.StreamReader;
@@ -89,6 +95,7 @@ import org.glassfish.grizzly.utils.EchoFilter;
 import org.glassfish.grizzly.utils.StringFilter;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.net.ssl.KeyManager;
@@ -397,10 +404,268 @@ public class SSLTest {
 
     }
 
+    @Test
+    public void testHandshakeExecutor() throws Exception {
+
+        Connection connection = null;
+        SSLContextConfigurator sslContextConfigurator = createSSLContextConfigurator();
+        SSLEngineConfigurator clientSSLEngineConfigurator = null;
+        SSLEngineConfigurator serverSSLEngineConfigurator = null;
+
+        if (sslContextConfigurator.validateConfiguration(true)) {
+            clientSSLEngineConfigurator =
+                    new SSLEngineConfigurator(createSSLContext(),
+                                              true,
+                                              false,
+                                              false);
+            serverSSLEngineConfigurator =
+                    new SSLEngineConfigurator(sslContextConfigurator.createSSLContext(true),
+                                              false,
+                                              false,
+                                              false);
+        } else {
+            fail("Failed to validate SSLContextConfiguration.");
+        }
+
+        final ExecutorService handshakeExecutor = Executors.newSingleThreadExecutor();
+        final AtomicInteger offloadedSteps = new AtomicInteger();
+        final FutureImpl<Long> handshakeDuration = Futures.createSafeFuture();
+
+        final SSLFilter serverSSLFilter = new SSLFilter(serverSSLEngineConfigurator, null);
+        serverSSLFilter.setHandshakeExecutor(handshakeExecutor);
+        serverSSLFilter.getHandshakeMonitoringConfig().addProbes(
+                new SSLHandshakeProbe.Adapter() {
+            @Override
+            public void onHandshakeOffloadEvent(Connection connection,
+                    int pendingSteps) {
+                assertTrue(pendingSteps > 0);
+                offloadedSteps.incrementAndGet();
+            }
+
+            @Override
+            public void onHandshakeCompleteEvent(Connection connection,
+                    long durationNanos) {
+                handshakeDuration.result(durationNanos);
+            }
+
+            @Override
+            public void onHandshakeFailureEvent(Connection connection,
+                    Throwable error) {
+                handshakeDuration.failure(error);
+            }
+        });
+
+        FilterChainBuilder filterChainBuilder = FilterChainBuilder.stateless();
+        filterChainBuilder.add(new TransportFilter());
+        filterChainBuilder.add(serverSSLFilter);
+        filterChainBuilder.add(new EchoFilter());
+
+        TCPNIOTransport transport =
+                TCPNIOTransportBuilder.newInstance().build();
+        transport.setProcessor(filterChainBuilder.build());
+        transport.setMemoryManager(manager);
+
+        final FutureImpl<String> echoFuture = Futures.createSafeFuture();
+        TCPNIOTransport cTransport =
+                TCPNIOTransportBuilder.newInstance().build();
+        FilterChainBuilder clientChain = FilterChainBuilder.stateless();
+        clientChain.add(new TransportFilter());
+        clientChain.add(new SSLFilter(null, clientSSLEngineConfigurator));
+        clientChain.add(new StringFilter());
+        clientChain.add(new BaseFilter() {
+            @Override
+            public NextAction handleRead(FilterChainContext ctx)
+                    throws IOException {
+                echoFuture.result((String) ctx.getMessage());
+                return ctx.getStopAction();
+            }
+        });
+        cTransport.setProcessor(clientChain.build());
+        cTransport.setMemoryManager(manager);
+
+        try {
+            transport.bind(PORT);
+            transport.start();
+
+            cTransport.start();
+
+            Future<Connection> future = cTransport.connect("localhost", PORT);
+            connection = future.get(10, TimeUnit.SECONDS);
+
+            assertNotNull(connection);
+
+            connection.write("message");
+
+            assertEquals("message", echoFuture.get(10, TimeUnit.SECONDS));
+            assertTrue(handshakeDuration.get(10, TimeUnit.SECONDS) > 0);
+            assertTrue(offloadedSteps.get() > 0);
+            assertEquals(0, serverSSLFilter.getPendingHandshakeSteps());
+        } finally {
+            if (connection != null) {
+                connection.closeSilently();
+            }
+            cTransport.shutdownNow();
+            transport.shutdownNow();
+            handshakeExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testHandshakeExecutorRejectsStep() throws Exception {
+        final Executor rejectingExecutor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        };
+        
+        final SSLFilter serverSSLFilter = new SSLFilter(
+                createServerSSLEngineConfigurator(), null);
+        serverSSLFilter.setHandshakeExecutor(rejectingExecutor);
+        
+        final FutureImpl<Throwable> handshakeFailure = Futures.createSafeFuture();
+        serverSSLFilter.getHandshakeMonitoringConfig().addProbes(
+                new SSLHandshakeProbe.Adapter() {
+            @Override
+            public void onHandshakeFailureEvent(Connection connection,
+                    Throwable error) {
+                handshakeFailure.result(error);
+            }
+        });
+
+        final TCPNIOTransport transport = createHandshakeServer(serverSSLFilter);
+        try {
+            // the rejected step fails the handshake and closes the connection
+            assertTrue(isClosedByServer(createClientHello()));
+            assertTrue(handshakeFailure.get(10, TimeUnit.SECONDS)
+                    instanceof RejectedExecutionException);
+            assertEquals(0, serverSSLFilter.getPendingHandshakeSteps());
+            
+            // the steps exceeding the limit are processed by the current thread
+            serverSSLFilter.setMaxPendingHandshakeSteps(0);
+            assertFalse(isClosedByServer(createClientHello()));
+        } finally {
+            transport.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testHandshakeExecutorStepFails() throws Exception {
+        final ExecutorService handshakeExecutor = Executors.newSingleThreadExecutor();
+        final AtomicInteger offloadedSteps = new AtomicInteger();
+        
+        final SSLFilter serverSSLFilter = new SSLFilter(
+                createServerSSLEngineConfigurator(), null);
+        serverSSLFilter.setHandshakeExecutor(handshakeExecutor);
+        
+        final FutureImpl<Throwable> handshakeFailure = Futures.createSafeFuture();
+        serverSSLFilter.getHandshakeMonitoringConfig().addProbes(
+                new SSLHandshakeProbe.Adapter() {
+            @Override
+            public void onHandshakeOffloadEvent(Connection connection,
+                    int pendingSteps) {
+                offloadedSteps.incrementAndGet();
+            }
+
+            @Override
+            public void onHandshakeFailureEvent(Connection connection,
+                    Throwable error) {
+                handshakeFailure.result(error);
+            }
+        });
+
+        final TCPNIOTransport transport = createHandshakeServer(serverSSLFilter);
+        try {
+            // complete TLS handshake record with a broken handshake message
+            final byte[] brokenHello = {
+                0x16, 0x03, 0x01, 0x00, 0x05,
+                (byte) 0xFF, 0x00, 0x00, 0x01, 0x00
+            };
+            
+            assertTrue(isClosedByServer(brokenHello));
+            assertNotNull(handshakeFailure.get(10, TimeUnit.SECONDS));
+            assertEquals(1, offloadedSteps.get());
+            assertEquals(0, serverSSLFilter.getPendingHandshakeSteps());
+        } finally {
+            transport.shutdownNow();
+            handshakeExecutor.shutdownNow();
+        }
+    }
+
 
     // ------------------------------------------------------- Protected Methods
 
 
+    private SSLEngineConfigurator createServerSSLEngineConfigurator() {
+        final SSLContextConfigurator sslContextConfigurator =
+                createSSLContextConfigurator();
+        if (!sslContextConfigurator.validateConfiguration(true)) {
+            fail("Failed to validate SSLContextConfiguration.");
+        }
+        
+        return new SSLEngineConfigurator(
+                sslContextConfigurator.createSSLContext(true),
+                false, false, false);
+    }
+    
+    private TCPNIOTransport createHandshakeServer(final SSLFilter serverSSLFilter)
+            throws IOException {
+        final FilterChainBuilder filterChainBuilder = FilterChainBuilder.stateless();
+        filterChainBuilder.add(new TransportFilter());
+        filterChainBuilder.add(serverSSLFilter);
+        filterChainBuilder.add(new EchoFilter());
+
+        final TCPNIOTransport transport =
+                TCPNIOTransportBuilder.newInstance().build();
+        transport.setProcessor(filterChainBuilder.build());
+        transport.setMemoryManager(manager);
+        transport.bind(PORT);
+        transport.start();
+        
+        return transport;
+    }
+    
+    /**
+     * Creates the initial TLS handshake record using the client side
+     * {@link SSLEngine}.
+     */
+    private byte[] createClientHello() throws Exception {
+        final SSLEngine clientEngine = createSSLContext().createSSLEngine();
+        clientEngine.setUseClientMode(true);
+        clientEngine.beginHandshake();
+        
+        final ByteBuffer out = ByteBuffer.allocate(
+                clientEngine.getSession().getPacketBufferSize());
+        clientEngine.wrap(ByteBuffer.allocate(0), out);
+        out.flip();
+        
+        final byte[] hello = new byte[out.remaining()];
+        out.get(hello);
+        return hello;
+    }
+    
+    /**
+     * Sends the bytes to the server and checks if the server closes the
+     * connection without replying.
+     */
+    private static boolean isClosedByServer(final byte[] bytes)
+            throws IOException {
+        final Socket s = new Socket("localhost", PORT);
+        try {
+            s.setSoTimeout(5000);
+            s.getOutputStream().write(bytes);
+            s.getOutputStream().flush();
+            
+            return s.getInputStream().read() == -1;
+        } catch (SocketException e) {
+            // connection reset
+            return true;
+        } finally {
+            s.close();
+        }
+    }
+
+
     protected void doTestPingPongFilterChain(boolean isBlocking,
             int turnAroundsNum, int filterIndex, Filter... filters)
             throws Exception {
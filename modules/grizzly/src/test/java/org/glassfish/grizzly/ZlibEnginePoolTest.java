@@ -0,0 +1,219 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.glassfish.grizzly.attributes.AttributeHolder;
+import org.glassfish.grizzly.attributes.AttributeStorage;
+import org.glassfish.grizzly.compression.zip.GZipDecoder;
+import org.glassfish.grizzly.compression.zip.GZipEncoder;
+import org.glassfish.grizzly.compression.zip.PooledGZipOutputStream;
+import org.glassfish.grizzly.compression.zip.ZlibEnginePool;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test set for {@link ZlibEnginePool}.
+ */
+public class ZlibEnginePoolTest {
+    private static final MemoryManager MM = MemoryManager.DEFAULT_MEMORY_MANAGER;
+
+    @Test
+    public void testEncoderReusesDeflater() throws Exception {
+        final ZlibEnginePool pool = new ZlibEnginePool(4);
+        final GZipEncoder encoder = new GZipEncoder(512, pool);
+        final byte[] data = createData(64 * 1024);
+
+        for (int i = 0; i < 3; i++) {
+            final AttributeStorage storage = new TestStorage();
+            final byte[] encoded = encode(encoder, storage, data);
+            assertEquals(0, pool.getBorrowedDeflaters());
+            assertArrayEquals(data, gunzip(encoded));
+        }
+
+        assertEquals(1, pool.getDeflaterMisses());
+        assertEquals(2, pool.getDeflaterHits());
+        assertEquals(1, pool.getIdleDeflaters());
+        assertTrue(pool.getNativeMemoryInUse() > 0);
+    }
+
+    @Test
+    public void testDecoderReusesInflater() throws Exception {
+        final ZlibEnginePool pool = new ZlibEnginePool(4);
+        final GZipDecoder decoder = new GZipDecoder(512, pool);
+        final byte[] data = createData(64 * 1024);
+        final byte[] member = gzip(data);
+
+        // two concatenated gzip members in one stream
+        final byte[] twoMembers = new byte[member.length * 2];
+        System.arraycopy(member, 0, twoMembers, 0, member.length);
+        System.arraycopy(member, 0, twoMembers, member.length, member.length);
+
+        final AttributeStorage storage = new TestStorage();
+        Buffer input = Buffers.wrap(MM, twoMembers);
+        final ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        while (input != null && input.hasRemaining()) {
+            final TransformationResult<Buffer, Buffer> result =
+                    decoder.transform(storage, input);
+            final Buffer message = result.getMessage();
+            if (message != null) {
+                final byte[] bytes = new byte[message.remaining()];
+                message.get(bytes);
+                decoded.write(bytes);
+            }
+            input = result.getExternalRemainder();
+        }
+
+        final byte[] expected = new byte[data.length * 2];
+        System.arraycopy(data, 0, expected, 0, data.length);
+        System.arraycopy(data, 0, expected, data.length, data.length);
+        assertArrayEquals(expected, decoded.toByteArray());
+
+        assertEquals(0, pool.getBorrowedInflaters());
+        assertEquals(1, pool.getInflaterMisses());
+        assertEquals(1, pool.getInflaterHits());
+    }
+
+    @Test
+    public void testPooledGZipOutputStream() throws Exception {
+        final ZlibEnginePool pool = new ZlibEnginePool(4);
+        final byte[] data = createData(100 * 1024);
+
+        for (int i = 0; i < 2; i++) {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            final PooledGZipOutputStream out = new PooledGZipOutputStream(
+                    baos, pool, Deflater.BEST_SPEED, 1024);
+            assertEquals(1, pool.getBorrowedDeflaters());
+            out.write(data, 0, data.length / 2);
+            out.write(data, data.length / 2, data.length - data.length / 2);
+            out.close();
+            out.close();
+
+            assertEquals(0, pool.getBorrowedDeflaters());
+            assertArrayEquals(data, gunzip(baos.toByteArray()));
+        }
+
+        assertEquals(1, pool.getDeflaterMisses());
+        assertEquals(1, pool.getDeflaterHits());
+    }
+
+    @Test
+    public void testPoolBound() {
+        final ZlibEnginePool pool = new ZlibEnginePool(1);
+        final Deflater d1 = pool.borrowDeflater(Deflater.DEFAULT_COMPRESSION, true);
+        final Deflater d2 = pool.borrowDeflater(Deflater.DEFAULT_COMPRESSION, true);
+        assertEquals(2, pool.getBorrowedDeflaters());
+
+        pool.releaseDeflater(d1, true);
+        pool.releaseDeflater(d2, true);
+        assertEquals(0, pool.getBorrowedDeflaters());
+        assertEquals(1, pool.getIdleDeflaters());
+
+        // wrapped and nowrap engines are pooled separately
+        pool.borrowDeflater(Deflater.DEFAULT_COMPRESSION, false);
+        assertEquals(3, pool.getDeflaterMisses());
+        assertEquals(1, pool.getIdleDeflaters());
+
+        pool.clear();
+        assertEquals(0, pool.getIdleDeflaters());
+    }
+
+    private static byte[] encode(final GZipEncoder encoder,
+            final AttributeStorage storage, final byte[] data) {
+        final TransformationResult<Buffer, Buffer> result =
+                encoder.transform(storage, Buffers.wrap(MM, data));
+        final Buffer encoded = Buffers.appendBuffers(MM,
+                result.getMessage(), encoder.finish(storage));
+        final byte[] bytes = new byte[encoded.remaining()];
+        encoded.get(bytes);
+        return bytes;
+    }
+
+    private static byte[] gzip(final byte[] data) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final GZIPOutputStream out = new GZIPOutputStream(baos);
+        out.write(data);
+        out.close();
+        return baos.toByteArray();
+    }
+
+    private static byte[] gunzip(final byte[] data) throws IOException {
+        final InputStream in = new GZIPInputStream(new ByteArrayInputStream(data));
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final byte[] buf = new byte[4096];
+        int len;
+        while ((len = in.read(buf)) != -1) {
+            baos.write(buf, 0, len);
+        }
+        in.close();
+        return baos.toByteArray();
+    }
+
+    private static byte[] createData(final int size) {
+        final Random random = new Random(size);
+        final byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            // compressible, but not trivial
+            data[i] = (byte) ('a' + random.nextInt(8));
+        }
+        return data;
+    }
+
+    private static final class TestStorage implements AttributeStorage {
+        private final AttributeHolder attributes =
+                Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createUnsafeAttributeHolder();
+
+        @Override
+        public AttributeHolder getAttributes() {
+            return attributes;
+        }
+    }
+}
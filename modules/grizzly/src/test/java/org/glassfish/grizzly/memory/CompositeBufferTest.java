@@ -40,6 +40,7 @@
 
 package org.glassfish.grizzly.memory;
 
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
@@ -53,6 +54,7 @@ import org.junit.runners.Parameterized;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * {@link CompositeBuffer} test set.
@@ -598,6 +600,68 @@ public class CompositeBufferTest extends AbstractMemoryManagerTest {
         assertEquals("HELLO WORLD", composite.toStringContent(ascii));
     }
     
+    @Test
+    public void testIndexOf() {
+        final Charset ascii = Charset.forName("ASCII");
+        final CompositeBuffer composite = CompositeBuffer.newBuffer(
+                mm, Buffers.wrap(mm, "hello", ascii),
+                Buffers.wrap(mm, " wor", ascii),
+                Buffers.wrap(mm, "ld, hello", ascii));
+        final String content = "hello world, hello";
+
+        for (int i = 0; i < content.length(); i++) {
+            final byte b = (byte) content.charAt(i);
+            assertEquals(content.indexOf(b),
+                    composite.indexOf(b, 0, composite.limit()));
+            assertEquals(content.indexOf(b, i),
+                    composite.indexOf(b, i, composite.limit()));
+        }
+        assertEquals(-1, composite.indexOf((byte) 'x', 0, composite.limit()));
+        assertEquals(-1, composite.indexOf((byte) 'd', 0, 10));
+
+        final String[] patterns = {"hello", "o w", "world", "d, h",
+            "lo", "hello world, hello", "worlds", "x"};
+        for (String pattern : patterns) {
+            final byte[] bytes = pattern.getBytes(ascii);
+            assertEquals(pattern, content.indexOf(pattern),
+                    composite.indexOf(bytes, 0, composite.limit()));
+            assertEquals(pattern, content.indexOf(pattern, 1),
+                    composite.indexOf(bytes, 1, composite.limit()));
+        }
+        assertEquals(-1, composite.indexOf("world".getBytes(ascii), 0, 10));
+    }
+
+    @Test
+    public void testCursor() {
+        final Charset ascii = Charset.forName("ASCII");
+        final CompositeBuffer composite = CompositeBuffer.newBuffer(
+                mm, Buffers.wrap(mm, "hello", ascii),
+                Buffers.wrap(mm, " wor", ascii),
+                Buffers.wrap(mm, "ld", ascii));
+        final String content = "hello world";
+
+        for (int start = 0; start <= content.length(); start++) {
+            final CompositeBuffer.Cursor cursor =
+                    composite.cursor(start, composite.limit());
+            final StringBuilder sb = new StringBuilder();
+            while (cursor.hasRemaining()) {
+                assertEquals(start + sb.length(), cursor.position());
+                sb.append((char) cursor.get());
+            }
+
+            assertEquals(content.substring(start), sb.toString());
+
+            try {
+                cursor.get();
+                fail("BufferUnderflowException is expected");
+            } catch (BufferUnderflowException expected) {
+            }
+        }
+        
+        // the cursor doesn't change the buffer position
+        assertEquals(0, composite.position());
+    }
+    
     private <E> void doTest(E[] testData,
             int buffersNum, int bufferSize, Put<E> put, Get<E> get) {
 
@@ -53,9 +53,12 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
 import java.util.logging.Level;
+import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.Grizzly;
 
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
@@ -699,6 +702,157 @@ public class PooledMemoryManagerTest {
     }
 
 
+    @Test
+    public void testRetainRelease() {
+        PooledMemoryManager mm =
+                new PooledMemoryManager(DEFAULT_BASE_BUFFER_SIZE,
+                        1,
+                        0,
+                        1,
+                        DEFAULT_HEAP_USAGE_PERCENTAGE,
+                        DEFAULT_PREALLOCATED_BUFFERS_PERCENTAGE,
+                        isDirect);
+
+        final TestProbe probe = new TestProbe();
+        mm.getMonitoringConfig().addProbes(probe);
+
+        final ReferenceCountedBuffer b = (ReferenceCountedBuffer) mm.allocate(4096);
+        assertEquals(1, b.refCount());
+        assertSame(b, b.retain());
+        assertEquals(2, b.refCount());
+
+        // the first dispose releases one reference only
+        assertTrue(b.tryDispose());
+        assertEquals(1, b.refCount());
+        assertEquals(0, probe.bufferReleasedToPool.get());
+        b.put(0, (byte) 1); // the buffer is still usable
+
+        assertTrue(b.release());
+        assertEquals(0, b.refCount());
+        assertEquals(1, probe.bufferReleasedToPool.get());
+
+        try {
+            b.release();
+            fail("IllegalStateException is expected");
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            b.retain();
+            fail("IllegalStateException is expected");
+        } catch (IllegalStateException expected) {
+        }
+
+        // the buffer reused from the pool starts with a single reference
+        final ReferenceCountedBuffer b2 = (ReferenceCountedBuffer) mm.allocate(4096);
+        assertEquals(1, b2.refCount());
+        b2.tryDispose();
+        assertEquals(2, probe.bufferReleasedToPool.get());
+    }
+
+    @Test
+    public void testRetainedSlice() {
+        PooledMemoryManager mm =
+                new PooledMemoryManager(DEFAULT_BASE_BUFFER_SIZE,
+                        1,
+                        0,
+                        1,
+                        DEFAULT_HEAP_USAGE_PERCENTAGE,
+                        DEFAULT_PREALLOCATED_BUFFERS_PERCENTAGE,
+                        isDirect);
+
+        final TestProbe probe = new TestProbe();
+        mm.getMonitoringConfig().addProbes(probe);
+
+        final ReferenceCountedBuffer b = (ReferenceCountedBuffer) mm.allocate(4096);
+        for (int i = 0; i < 16; i++) {
+            b.put(i, (byte) i);
+        }
+
+        final ReferenceCountedBuffer slice1 = b.retainedSlice(4, 8);
+        b.position(8).limit(12);
+        final ReferenceCountedBuffer slice2 = b.retainedSlice();
+        assertEquals(4, slice1.remaining());
+        assertEquals(4, slice2.remaining());
+        assertEquals(1, slice1.refCount());
+        slice2.retain();
+
+        // the original owner disposes the buffer, slices keep the memory
+        b.tryDispose();
+        assertEquals(0, probe.bufferReleasedToPool.get());
+        assertEquals(4, slice1.get(0));
+        assertEquals(8, slice2.get(0));
+
+        // slices of slices share the same memory as well
+        final ReferenceCountedBuffer slice3 = slice1.retainedSlice(2, 4);
+        assertTrue(slice1.release());
+        assertEquals(6, slice3.get(0));
+
+        assertTrue(slice3.release());
+        assertFalse(slice2.release());
+        assertEquals(0, probe.bufferReleasedToPool.get());
+        assertEquals(9, slice2.get(1));
+
+        assertTrue(slice2.release());
+        assertEquals(1, probe.bufferReleasedToPool.get());
+        assertEquals(1, probe.bufferAllocatedFromPool.get());
+    }
+
+    @Test
+    public void testLeakDetection() throws Exception {
+        PooledMemoryManager mm =
+                new PooledMemoryManager(DEFAULT_BASE_BUFFER_SIZE,
+                        1,
+                        0,
+                        1,
+                        DEFAULT_HEAP_USAGE_PERCENTAGE,
+                        DEFAULT_PREALLOCATED_BUFFERS_PERCENTAGE,
+                        isDirect);
+        assertEquals(0, mm.getLeakDetectionSamplingInterval());
+        mm.setLeakDetectionSamplingInterval(1);
+
+        final AtomicInteger leaksReported = new AtomicInteger();
+        final Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                if (record.getThrown() != null) {
+                    leaksReported.incrementAndGet();
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        final Logger logger = Grizzly.logger(PooledMemoryManager.class);
+        logger.addHandler(handler);
+        try {
+            // released buffers are not reported
+            Buffer b = mm.allocate(4096);
+            Buffer slice = b.slice();
+            b.tryDispose();
+            slice.tryDispose();
+
+            // lose the buffer without releasing it
+            mm.allocate(4096);
+
+            for (int i = 0; i < 50 && leaksReported.get() == 0; i++) {
+                System.gc();
+                Thread.sleep(20);
+                mm.allocate(4096).tryDispose();
+            }
+
+            assertEquals(1, leaksReported.get());
+        } finally {
+            logger.removeHandler(handler);
+            mm.setLeakDetectionSamplingInterval(0);
+        }
+    }
+
     @Test
     public void circularityBoundaryTest() {
         final PooledMemoryManager mm = new PooledMemoryManager(
@@ -0,0 +1,183 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.GrizzlyTestCase;
+
+/**
+ * The {@link DelayedExecutor} tests.
+ */
+public class DelayedExecutorTest extends GrizzlyTestCase {
+
+    public void testDelayQueue() throws Exception {
+        final ExecutorService threadPool = Executors.newSingleThreadExecutor();
+        final DelayedExecutor executor = new DelayedExecutor(threadPool,
+                100, TimeUnit.MILLISECONDS);
+        assertFalse(executor.isShared());
+        assertSame(threadPool, executor.getThreadPool());
+        
+        executor.start();
+        
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            final DelayedExecutor.DelayQueue<CountDownLatch> queue =
+                    executor.createDelayQueue(new LatchWorker(),
+                            new TimeoutResolver());
+            
+            queue.add(latch, 100, TimeUnit.MILLISECONDS);
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } finally {
+            executor.destroy();
+            threadPool.shutdownNow();
+        }
+    }
+    
+    public void testSharedDelayedExecutors() throws Exception {
+        final DelayedExecutor executor1 = DelayedExecutor.createShared();
+        final DelayedExecutor executor2 = DelayedExecutor.createShared();
+        assertTrue(executor1.isShared());
+        assertTrue(executor2.isShared());
+        
+        // the shared timer thread is not owned by the shared executors
+        assertNull(executor1.getThreadPool());
+        assertNull(executor2.getThreadPool());
+        
+        executor1.start();
+        executor2.start();
+        
+        try {
+            final CountDownLatch latch1 = new CountDownLatch(1);
+            final CountDownLatch latch2 = new CountDownLatch(1);
+            final TimeoutResolver resolver = new TimeoutResolver();
+            
+            final DelayedExecutor.DelayQueue<CountDownLatch> queue1 =
+                    executor1.createDelayQueue(new LatchWorker(), resolver);
+            final DelayedExecutor.DelayQueue<CountDownLatch> queue2 =
+                    executor2.createDelayQueue(new LatchWorker(), resolver);
+            
+            // stopping one shared executor must not affect the other
+            executor1.stop();
+            
+            queue1.add(latch1, 100, TimeUnit.MILLISECONDS);
+            queue2.add(latch2, 100, TimeUnit.MILLISECONDS);
+            
+            assertTrue(latch2.await(5, TimeUnit.SECONDS));
+            assertEquals(1, latch1.getCount());
+            
+            executor1.start();
+            assertTrue(latch1.await(5, TimeUnit.SECONDS));
+        } finally {
+            executor1.destroy();
+            executor2.destroy();
+        }
+    }
+
+    public void testSharedTimerSurvivesWorkerError() throws Exception {
+        final DelayedExecutor executor = DelayedExecutor.createShared();
+        executor.start();
+        
+        try {
+            final TimeoutResolver resolver = new TimeoutResolver();
+            final DelayedExecutor.DelayQueue<CountDownLatch> failingQueue =
+                    executor.createDelayQueue(
+                            new DelayedExecutor.Worker<CountDownLatch>() {
+                @Override
+                public boolean doWork(final CountDownLatch element) {
+                    element.countDown();
+                    throw new AssertionError("worker failure");
+                }
+            }, resolver);
+            final DelayedExecutor.DelayQueue<CountDownLatch> queue =
+                    executor.createDelayQueue(new LatchWorker(), resolver);
+            
+            final CountDownLatch failedLatch = new CountDownLatch(1);
+            failingQueue.add(failedLatch, 10, TimeUnit.MILLISECONDS);
+            assertTrue(failedLatch.await(5, TimeUnit.SECONDS));
+            
+            // the Error thrown by the worker must not stop the shared timer
+            final CountDownLatch latch = new CountDownLatch(1);
+            queue.add(latch, 100, TimeUnit.MILLISECONDS);
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } finally {
+            executor.destroy();
+        }
+    }
+
+    private static final class LatchWorker
+            implements DelayedExecutor.Worker<CountDownLatch> {
+
+        @Override
+        public boolean doWork(final CountDownLatch element) {
+            element.countDown();
+            return true;
+        }
+    }
+
+    private static final class TimeoutResolver
+            implements DelayedExecutor.Resolver<CountDownLatch> {
+        
+        private final Map<CountDownLatch, Long> timeouts =
+                new ConcurrentHashMap<>();
+
+        @Override
+        public boolean removeTimeout(final CountDownLatch element) {
+            return timeouts.remove(element) != null;
+        }
+
+        @Override
+        public long getTimeoutMillis(final CountDownLatch element) {
+            final Long timeout = timeouts.get(element);
+            return timeout != null ? timeout : DelayedExecutor.UNSET_TIMEOUT;
+        }
+
+        @Override
+        public void setTimeoutMillis(final CountDownLatch element,
+                final long timeoutMillis) {
+            timeouts.put(element, timeoutMillis);
+        }
+    }
+}
@@ -60,6 +60,7 @@ public class AjpAddOn implements AddOn {
 
     private boolean isTomcatAuthentication;
     private String secret;
+    private boolean isBodyChunkPrefetch;
 
     public AjpAddOn() {
         isTomcatAuthentication = true;
@@ -83,7 +84,8 @@ public class AjpAddOn implements AddOn {
 
     /**
      * Configure Ajp Filter using properties.
-     * We support following properties: request.useSecret, request.secret, tomcatAuthentication.
+     * We support following properties: request.useSecret, request.secret,
+     * request.bodyChunkPrefetch, tomcatAuthentication.
      *
      * @param properties
      */
@@ -93,6 +95,8 @@ public class AjpAddOn implements AddOn {
         }
 
         secret = properties.getProperty("request.secret", secret);
+        isBodyChunkPrefetch = Boolean.parseBoolean(
+                properties.getProperty("request.bodyChunkPrefetch"));
         isTomcatAuthentication =
                 Boolean.parseBoolean(properties.getProperty(
                 "tomcatAuthentication", "true"));
@@ -123,6 +127,29 @@ public class AjpAddOn implements AddOn {
         return secret;
     }
 
+    /**
+     * If true, the next request body chunk will be requested from the
+     * web server as soon as the current one is received.
+     *
+     * @return true, if the next request body chunk is requested in advance.
+     * @see AjpHandlerFilter#isBodyChunkPrefetch()
+     */
+    public boolean isBodyChunkPrefetch() {
+        return isBodyChunkPrefetch;
+    }
+
+    /**
+     * If true, the next request body chunk will be requested from the
+     * web server as soon as the current one is received.
+     *
+     * @param isBodyChunkPrefetch if true, the next request body chunk is
+     *  requested in advance.
+     * @see AjpHandlerFilter#setBodyChunkPrefetch(boolean)
+     */
+    public void setBodyChunkPrefetch(final boolean isBodyChunkPrefetch) {
+        this.isBodyChunkPrefetch = isBodyChunkPrefetch;
+    }
+
     @Override
     public void setup(final NetworkListener networkListener,
             final FilterChainBuilder builder) {
@@ -145,6 +172,7 @@ public class AjpAddOn implements AddOn {
             final AjpHandlerFilter ajpHandlerFilter = createAjpHandlerFilter();
             ajpHandlerFilter.setSecret(secret);
             ajpHandlerFilter.setTomcatAuthentication(isTomcatAuthentication);
+            ajpHandlerFilter.setBodyChunkPrefetch(isBodyChunkPrefetch);
 
             builder.add(idx + 1, ajpHandlerFilter);
         }
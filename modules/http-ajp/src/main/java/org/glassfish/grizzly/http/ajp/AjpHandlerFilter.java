@@ -80,8 +80,13 @@ public class AjpHandlerFilter extends BaseFilter {
             Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createAttribute(
             HttpServerFilter.HTTP_SERVER_REQUEST_ATTR_NAME);
 
+    private final Attribute<Boolean> skipBodyChunkAttr =
+            Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createAttribute(
+            AjpHandlerFilter.class + ".skipBodyChunk");
+
     private String secret;
     private boolean isTomcatAuthentication = true;
+    private boolean isBodyChunkPrefetch;
 
     private final Buffer NEED_MORE_DATA_MESSAGE = Buffers.cloneBuffer(
             Buffers.EMPTY_BUFFER);
@@ -91,7 +96,8 @@ public class AjpHandlerFilter extends BaseFilter {
 
     /**
      * Configure Ajp Filter using properties.
-     * We support following properties: request.useSecret, request.secret, tomcatAuthentication.
+     * We support following properties: request.useSecret, request.secret,
+     * request.bodyChunkPrefetch, tomcatAuthentication.
      *
      * @param properties
      */
@@ -102,11 +108,44 @@ public class AjpHandlerFilter extends BaseFilter {
         }
 
         secret = properties.getProperty("request.secret", secret);
+        isBodyChunkPrefetch = Boolean.parseBoolean(
+                properties.getProperty("request.bodyChunkPrefetch"));
         isTomcatAuthentication =
                 Boolean.parseBoolean(properties.getProperty(
                 "tomcatAuthentication", "true"));
     }
 
+    /**
+     * If set to true, the next request body chunk will be requested from the
+     * web server (GET_BODY_CHUNK) as soon as the current one is received,
+     * so the web server transfers the next chunk while the application
+     * processes the current one. At most one chunk is requested ahead of
+     * what the application has consumed.
+     * The default value is false, so the next body chunk is requested only
+     * when the application needs more data.
+     *
+     * @return true, if the next request body chunk is requested in advance.
+     */
+    public boolean isBodyChunkPrefetch() {
+        return isBodyChunkPrefetch;
+    }
+
+    /**
+     * If set to true, the next request body chunk will be requested from the
+     * web server (GET_BODY_CHUNK) as soon as the current one is received,
+     * so the web server transfers the next chunk while the application
+     * processes the current one. At most one chunk is requested ahead of
+     * what the application has consumed.
+     * The default value is false, so the next body chunk is requested only
+     * when the application needs more data.
+     *
+     * @param isBodyChunkPrefetch if true, the next request body chunk is
+     *  requested in advance.
+     */
+    public void setBodyChunkPrefetch(final boolean isBodyChunkPrefetch) {
+        this.isBodyChunkPrefetch = isBodyChunkPrefetch;
+    }
+
     /**
      * If set to true, the authentication will be done in Grizzly.
      * Otherwise, the authenticated principal will be propagated from the
@@ -199,6 +238,10 @@ public class AjpHandlerFilter extends BaseFilter {
             return ctx.getStopAction();
         }
 
+        if (skipBodyChunkIfNeeded(ctx, message)) {
+            return ctx.getStopAction();
+        }
+
         final int type = extractType(ctx, message);
 
         switch (type) {
@@ -302,7 +345,14 @@ public class AjpHandlerFilter extends BaseFilter {
         if (event.type() == HttpServerFilter.RESPONSE_COMPLETE_EVENT.type()
                 && c.isOpen()) {
             final HttpContext context = HttpContext.get(ctx);
-            if ((httpRequestInProcessAttr.remove(context)) != null) {
+            final AjpHttpRequest httpRequest = httpRequestInProcessAttr.remove(context);
+            if (httpRequest != null) {
+                if (httpRequest.isBodyChunkRequested()) {
+                    // the body chunk requested earlier will come after the
+                    // response is complete, it has to be skipped
+                    skipBodyChunkAttr.set(c, Boolean.TRUE);
+                }
+                
                 sendEndResponse(ctx);
             }
 
@@ -312,11 +362,15 @@ public class AjpHandlerFilter extends BaseFilter {
     }
 
     private NextAction processData(final FilterChainContext ctx,
-            final Buffer messageContent) {
+            final Buffer messageContent) throws IOException {
 
         final AjpHttpRequest httpRequestPacket = httpRequestInProcessAttr.get(
                 ctx.getConnection());
         httpRequestPacket.getProcessingState().getHttpContext().attach(ctx);
+        httpRequestPacket.setBodyChunkRequested(false);
+        
+        final boolean isDemanded = httpRequestPacket.isBodyChunkDemanded();
+        httpRequestPacket.setBodyChunkDemanded(false);
 
         if (messageContent.hasRemaining()) {
             // Skip the content length field - we know the size from the packet header
@@ -342,6 +396,15 @@ public class AjpHandlerFilter extends BaseFilter {
             }
         }
 
+        if (isBodyChunkPrefetch && isDemanded
+                && httpRequestPacket.isExpectContent()) {
+            // the application waits for this chunk, so request the next one
+            // before passing the current one upstream. The prefetched chunk
+            // itself doesn't trigger another request, so no more than one
+            // chunk is buffered ahead of the application.
+            sendBodyChunkRequest(ctx, httpRequestPacket);
+        }
+
         final HttpContent content = HttpContent.builder(httpRequestPacket)
                 .content(messageContent)
                 .last(!httpRequestPacket.isExpectContent())
@@ -386,8 +449,8 @@ public class AjpHandlerFilter extends BaseFilter {
                 isTomcatAuthentication);
 
         if (secret != null) {
-            final String epSecret = httpRequestPacket.getSecret();
-            if (epSecret == null || !secret.equals(epSecret)) {
+            final DataChunk epSecret = httpRequestPacket.secret();
+            if (epSecret.isNull() || !epSecret.equals(secret)) {
                 throw new IllegalStateException("Secret doesn't match");
             }
         }
@@ -400,6 +463,7 @@ public class AjpHandlerFilter extends BaseFilter {
             // so let's wait for it
             httpRequestPacket.setContentBytesRemaining((int) contentLength);
             httpRequestPacket.setExpectContent(true);
+            httpRequestPacket.setBodyChunkDemanded(true);
             return ctx.getStopAction();
         } else if (contentLength < 0) {
             // We don't know if there is any content in the message, but we're
@@ -488,24 +552,62 @@ public class AjpHandlerFilter extends BaseFilter {
     private void sendMoreDataRequestIfNeeded(final FilterChainContext ctx)
             throws IOException {
 
-        final Connection connection = ctx.getConnection();
         final HttpContext context = HttpContext.get(ctx);
         // Check if message is still in process
-        if (httpRequestInProcessAttr.isSet(context)) {
-            final MemoryManager mm = connection.getTransport().getMemoryManager();
-            final Buffer buffer = mm.allocate(7);
+        final AjpHttpRequest httpRequest = httpRequestInProcessAttr.get(context);
+        if (httpRequest != null) {
+            // the application has consumed all the received data
+            httpRequest.setBodyChunkDemanded(true);
+            if (!httpRequest.isBodyChunkRequested()) {
+                sendBodyChunkRequest(ctx, httpRequest);
+            }
+        }
+    }
+
+    private void sendBodyChunkRequest(final FilterChainContext ctx,
+            final AjpHttpRequest httpRequest) throws IOException {
+        final Connection connection = ctx.getConnection();
+        final MemoryManager mm = connection.getTransport().getMemoryManager();
+        final Buffer buffer = mm.allocate(7);
+
+        buffer.put((byte) 'A');
+        buffer.put((byte) 'B');
+        buffer.putShort((short) 3);
+        buffer.put(AjpConstants.JK_AJP13_GET_BODY_CHUNK);
+        buffer.putShort(AjpConstants.SUGGESTED_MAX_PAYLOAD_SIZE);
+
+        buffer.flip();
+        buffer.allowBufferDispose(true);
 
-            buffer.put((byte) 'A');
-            buffer.put((byte) 'B');
-            buffer.putShort((short) 3);
-            buffer.put(AjpConstants.JK_AJP13_GET_BODY_CHUNK);
-            buffer.putShort(AjpConstants.SUGGESTED_MAX_PAYLOAD_SIZE);
+        httpRequest.setBodyChunkRequested(true);
+        ctx.write(buffer);
+    }
 
-            buffer.flip();
-            buffer.allowBufferDispose(true);
+    /**
+     * Skips the body chunk, which was requested, but came after the response
+     * had been completed.
+     *
+     * @return <tt>true</tt> if the message has been skipped.
+     */
+    private boolean skipBodyChunkIfNeeded(final FilterChainContext ctx,
+            final Buffer message) {
+        final Connection connection = ctx.getConnection();
+        if (skipBodyChunkAttr.remove(connection) == null
+                || httpRequestInProcessAttr.isSet(connection)) {
+            return false;
+        }
 
-            ctx.write(buffer);
+        // make sure the message looks like a data packet:
+        // the chunk length followed by the chunk bytes
+        final int remaining = message.remaining();
+        if (remaining == 0 || (remaining >= 2 &&
+                AjpMessageUtils.readShort(message, message.position())
+                == remaining - 2)) {
+            message.tryDispose();
+            return true;
         }
+
+        return false;
     }
 
     private void sendEndResponse(final FilterChainContext ctx) throws IOException {
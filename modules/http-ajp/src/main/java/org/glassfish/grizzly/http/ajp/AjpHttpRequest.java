@@ -44,6 +44,8 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.glassfish.grizzly.Grizzly;
@@ -81,8 +83,16 @@ public final class AjpHttpRequest extends HttpRequestPacket {
     private final DataChunk sslCert = DataChunk.newInstance();
 
     final DataChunk tmpDataChunk = DataChunk.newInstance();
+    final DataChunk tmpValueDataChunk = DataChunk.newInstance();
     
-    private String secret;
+    private final DataChunk secret = DataChunk.newInstance();
+
+    // The attributes, which were passed by the web server, but haven't been
+    // requested yet. They are kept as DataChunks, referencing the forward
+    // request message, and are converted to Strings on demand.
+    private DataChunk[] rawAttributeNames = new DataChunk[4];
+    private DataChunk[] rawAttributeValues = new DataChunk[4];
+    private int rawAttributesCount;
     
     private final AjpHttpResponse cachedResponse = new AjpHttpResponse();
     
@@ -90,6 +100,10 @@ public final class AjpHttpRequest extends HttpRequestPacket {
 
     private int contentBytesRemaining = -1;
 
+    private boolean isBodyChunkRequested;
+
+    private boolean isBodyChunkDemanded;
+
     private AjpHttpRequest() {
     }
 
@@ -97,6 +111,10 @@ public final class AjpHttpRequest extends HttpRequestPacket {
     public Object getAttribute(final String name) {
         Object result = super.getAttribute(name);
         
+        if (result == null && rawAttributesCount > 0) {
+            result = decodeRawAttribute(name);
+        }
+
         // If it's CERTIFICATE_KEY request - lazy initialize it, if required
         if (result == null && SSLSupport.CERTIFICATE_KEY.equals(name)) {
             // Extract SSL certificate information (if requested)
@@ -126,6 +144,33 @@ public final class AjpHttpRequest extends HttpRequestPacket {
         return result;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getAttributeNames() {
+        decodeRawAttributes();
+        return super.getAttributeNames();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setAttribute(final String name, final Object value) {
+        removeRawAttribute(name);
+        super.setAttribute(name, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeAttribute(final String name) {
+        removeRawAttribute(name);
+        super.removeAttribute(name);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -215,12 +260,92 @@ public final class AjpHttpRequest extends HttpRequestPacket {
         return sslCert;
     }
 
-    String getSecret() {
+    DataChunk secret() {
         return secret;
     }
 
-    void setSecret(final String secret) {
-        this.secret = secret;
+    /**
+     * Registers the attribute passed by the web server. The attribute
+     * is decoded to a {@link String} only if it's requested.
+     */
+    void addRawAttribute(final DataChunk name, final DataChunk value) {
+        if (rawAttributesCount == rawAttributeNames.length) {
+            final int newLength = rawAttributesCount * 2;
+            rawAttributeNames = Arrays.copyOf(rawAttributeNames, newLength);
+            rawAttributeValues = Arrays.copyOf(rawAttributeValues, newLength);
+        }
+
+        DataChunk nameDC = rawAttributeNames[rawAttributesCount];
+        DataChunk valueDC = rawAttributeValues[rawAttributesCount];
+        if (nameDC == null) {
+            nameDC = DataChunk.newInstance();
+            valueDC = DataChunk.newInstance();
+            rawAttributeNames[rawAttributesCount] = nameDC;
+            rawAttributeValues[rawAttributesCount] = valueDC;
+        }
+
+        nameDC.set(name);
+        valueDC.set(value);
+        rawAttributesCount++;
+    }
+
+    /**
+     * Registers the attribute passed by the web server. The attribute
+     * value is decoded to a {@link String} only if it's requested.
+     */
+    void addRawAttribute(final String name, final DataChunk value) {
+        tmpDataChunk.setString(name);
+        addRawAttribute(tmpDataChunk, value);
+        tmpDataChunk.recycle();
+    }
+
+    private Object decodeRawAttribute(final String name) {
+        // the last attribute occurrence wins
+        for (int i = rawAttributesCount - 1; i >= 0; i--) {
+            if (rawAttributeNames[i].equals(name)) {
+                final String value = rawAttributeValues[i].toString();
+                removeRawAttribute(name);
+                super.setAttribute(name, value);
+                return value;
+            }
+        }
+
+        return null;
+    }
+
+    private void decodeRawAttributes() {
+        final int count = rawAttributesCount;
+        rawAttributesCount = 0;
+
+        for (int i = 0; i < count; i++) {
+            final DataChunk nameDC = rawAttributeNames[i];
+            final DataChunk valueDC = rawAttributeValues[i];
+            super.setAttribute(nameDC.toString(), valueDC.toString());
+            nameDC.recycle();
+            valueDC.recycle();
+        }
+    }
+
+    private void removeRawAttribute(final String name) {
+        int j = 0;
+        for (int i = 0; i < rawAttributesCount; i++) {
+            final DataChunk nameDC = rawAttributeNames[i];
+            final DataChunk valueDC = rawAttributeValues[i];
+            if (name != null && nameDC.equals(name)) {
+                nameDC.recycle();
+                valueDC.recycle();
+            } else {
+                if (i != j) {
+                    rawAttributeNames[i] = rawAttributeNames[j];
+                    rawAttributeValues[i] = rawAttributeValues[j];
+                    rawAttributeNames[j] = nameDC;
+                    rawAttributeValues[j] = valueDC;
+                }
+                j++;
+            }
+        }
+
+        rawAttributesCount = j;
     }
     
     private AjpHttpRequest init() {
@@ -243,6 +368,30 @@ public final class AjpHttpRequest extends HttpRequestPacket {
         this.contentBytesRemaining = contentBytesRemaining;
     }
 
+    /**
+     * @return <tt>true</tt> if GET_BODY_CHUNK has been sent to the web server,
+     *  but the body chunk hasn't been received yet.
+     */
+    boolean isBodyChunkRequested() {
+        return isBodyChunkRequested;
+    }
+
+    void setBodyChunkRequested(final boolean isBodyChunkRequested) {
+        this.isBodyChunkRequested = isBodyChunkRequested;
+    }
+
+    /**
+     * @return <tt>true</tt> if the application has consumed all the received
+     *  body chunks and waits for the next one.
+     */
+    boolean isBodyChunkDemanded() {
+        return isBodyChunkDemanded;
+    }
+
+    void setBodyChunkDemanded(final boolean isBodyChunkDemanded) {
+        this.isBodyChunkDemanded = isBodyChunkDemanded;
+    }
+
     @Override
     public void setExpectContent(boolean isExpectContent) {
         super.setExpectContent(isExpectContent);
@@ -261,13 +410,21 @@ public final class AjpHttpRequest extends HttpRequestPacket {
     protected void reset() {
         processingState.recycle();
         contentBytesRemaining = -1;
+        isBodyChunkRequested = false;
+        isBodyChunkDemanded = false;
         cachedResponse.recycle();
 
         instanceId.recycle();
         sslCert.recycle();
         tmpDataChunk.recycle();
+        tmpValueDataChunk.recycle();
 
-        secret = null;
+        secret.recycle();
+        for (int i = 0; i < rawAttributesCount; i++) {
+            rawAttributeNames[i].recycle();
+            rawAttributeValues[i].recycle();
+        }
+        rawAttributesCount = 0;
         
         super.reset();
     }
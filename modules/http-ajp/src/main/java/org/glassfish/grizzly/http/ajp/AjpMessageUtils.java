@@ -43,6 +43,7 @@ package org.glassfish.grizzly.http.ajp;
 import org.glassfish.grizzly.memory.Buffers;
 import java.io.IOException;
 import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.http.HttpHeaderTemplate;
 import org.glassfish.grizzly.http.HttpRequestPacket;
 import org.glassfish.grizzly.http.HttpResponsePacket;
 import org.glassfish.grizzly.http.util.Ascii;
@@ -113,8 +114,6 @@ final class AjpMessageUtils {
     private static int decodeAttributes(final Buffer requestContent, int offset,
             final AjpHttpRequest req, final boolean tomcatAuthentication) {
 
-        final DataChunk tmpDataChunk = req.tmpDataChunk;
-        
         boolean moreAttr = true;
 
         while (moreAttr) {
@@ -194,11 +193,7 @@ final class AjpMessageUtils {
                     break;
 
                 case AjpConstants.SC_A_SECRET:
-                    offset = getBytesToDataChunk(requestContent, offset, tmpDataChunk);
-
-                    req.setSecret(tmpDataChunk.toString());
-                    tmpDataChunk.recycle();
-
+                    offset = getBytesToDataChunk(requestContent, offset, req.secret());
                     break;
 
                 case AjpConstants.SC_A_STORED_METHOD:
@@ -379,19 +374,17 @@ final class AjpMessageUtils {
 
     private static int setStringAttribute(final AjpHttpRequest req,
             final Buffer buffer, int offset) {
-        final DataChunk tmpDataChunk = req.tmpDataChunk;
+        final DataChunk keyDataChunk = req.tmpDataChunk;
+        final DataChunk valueDataChunk = req.tmpValueDataChunk;
 
-        offset = getBytesToDataChunk(buffer, offset, tmpDataChunk);
-        final String key = tmpDataChunk.toString();
+        offset = getBytesToDataChunk(buffer, offset, keyDataChunk);
+        offset = getBytesToDataChunk(buffer, offset, valueDataChunk);
 
-        tmpDataChunk.recycle();
-
-        offset = getBytesToDataChunk(buffer, offset, tmpDataChunk);        
-        final String value = tmpDataChunk.toString();
-        
-        tmpDataChunk.recycle();
+        // the attribute will be decoded on demand
+        req.addRawAttribute(keyDataChunk, valueDataChunk);
 
-        req.setAttribute(key, value);
+        keyDataChunk.recycle();
+        valueDataChunk.recycle();
         
         return offset;
     }
@@ -399,14 +392,14 @@ final class AjpMessageUtils {
     private static int setStringAttributeValue(final AjpHttpRequest req,
             final String key, final Buffer buffer, int offset) {
 
-        final DataChunk tmpDataChunk = req.tmpDataChunk;
+        final DataChunk valueDataChunk = req.tmpValueDataChunk;
         
-        offset = getBytesToDataChunk(buffer, offset, tmpDataChunk);
-        final String value = tmpDataChunk.toString();
-        
-        tmpDataChunk.recycle();
+        offset = getBytesToDataChunk(buffer, offset, valueDataChunk);
 
-        req.setAttribute(key, value);
+        // the attribute will be decoded on demand
+        req.addRawAttribute(key, valueDataChunk);
+        
+        valueDataChunk.recycle();
         return offset;
     }
 
@@ -453,6 +446,12 @@ final class AjpMessageUtils {
                         contentLengthBuffer.position(), contentLengthBuffer.limit());
             }
 
+            final HttpHeaderTemplate headerTemplate =
+                    httpResponsePacket.getHeaderTemplate();
+            if (headerTemplate != null) {
+                headerTemplate.applyTo(headers);
+            }
+
             final int numHeaders = headers.size();
 
             encodedBuffer = putShort(mm, encodedBuffer, numHeaders);
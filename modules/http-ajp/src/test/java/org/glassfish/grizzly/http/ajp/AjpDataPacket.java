@@ -52,8 +52,7 @@ public class AjpDataPacket extends AjpPacket {
     @Override
     protected ByteBuffer buildContent() {
         final ByteBuffer buffer = ByteBuffer.allocate(data.length + 2);
-        buffer.put((byte) 0);
-        buffer.put((byte) data.length);
+        buffer.putShort((short) data.length);
         buffer.put(data);
         buffer.flip();
 
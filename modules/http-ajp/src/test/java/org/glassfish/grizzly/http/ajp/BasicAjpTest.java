@@ -136,6 +136,178 @@ public class BasicAjpTest extends AjpTestBase {
         Assert.assertEquals("FINE", ajpResponse.getResponseMessage());
     }
     
+    @Test
+    public void testBodyChunkPrefetch() throws Exception {
+        final int chunkSize = 1024;
+        final int chunksCount = 4;
+        
+        HttpHandler httpHanlder = new HttpHandler() {
+
+            @Override
+            public void service(Request request, Response response)
+                    throws Exception {
+                final int length = request.getContentLength();
+                final InputStream is = request.getInputStream();
+
+                for (int i = 0; i < length; i++) {
+                    final int c = is.read();
+                    final int expected = (i % 'Z' - 'A') + 'A';
+                    if (c != expected) {
+                        response.sendError(400, "Unexpected char[" + i + "]. Expected: " + ((char) expected) + " but was: " + ((char) c) + "(" + c + ")");
+                        return;
+                    }
+                }
+
+                response.setStatus(200, "FINE");
+            }
+
+        };
+
+        ajpAddon.setBodyChunkPrefetch(true);
+        startHttpServer(httpHanlder);
+
+        final AjpForwardRequestPacket headersPacket =
+                new AjpForwardRequestPacket("POST", "/myresource", 80, PORT);
+        headersPacket.addHeader("Content-Length", String.valueOf(chunkSize * chunksCount));
+        headersPacket.addHeader("Host", "localhost:80");
+        
+        send(headersPacket.toByteArray());
+        
+        int chunksSent = 0;
+        send(createDataPacket(chunkSize, chunksSent++).toByteArray());
+
+        AjpResponse ajpResponse;
+        while ((ajpResponse = Utils.parseResponse(readAjpMessage())).getType()
+                == AjpConstants.JK_AJP13_GET_BODY_CHUNK) {
+            // the body chunks must not be requested more than needed
+            assertTrue(chunksSent < chunksCount);
+            send(createDataPacket(chunkSize, chunksSent++).toByteArray());
+        }
+
+        assertEquals(chunksCount, chunksSent);
+        Assert.assertEquals(ajpResponse.getResponseMessage(), 200, ajpResponse.getResponseCode());
+        Assert.assertEquals("FINE", ajpResponse.getResponseMessage());
+
+        ajpResponse = Utils.parseResponse(readAjpMessage());
+        Assert.assertEquals(AjpConstants.JK_AJP13_END_RESPONSE, ajpResponse.getType());
+    }
+    
+    @Test
+    public void testBodyChunkPrefetchUnreadBody() throws Exception {
+        final int chunkSize = 1024;
+        
+        HttpHandler httpHanlder = new HttpHandler() {
+
+            @Override
+            public void service(Request request, Response response)
+                    throws Exception {
+                // don't read the request body
+                response.setStatus(200, "FINE");
+            }
+
+        };
+
+        ajpAddon.setBodyChunkPrefetch(true);
+        startHttpServer(httpHanlder);
+
+        final AjpForwardRequestPacket headersPacket =
+                new AjpForwardRequestPacket("POST", "/myresource", 80, PORT);
+        headersPacket.addHeader("Content-Length", String.valueOf(chunkSize * 2));
+        headersPacket.addHeader("Host", "localhost:80");
+        
+        send(headersPacket.toByteArray());
+        send(createDataPacket(chunkSize, 0).toByteArray());
+
+        AjpResponse ajpResponse = Utils.parseResponse(readAjpMessage());
+        Assert.assertEquals(AjpConstants.JK_AJP13_GET_BODY_CHUNK, ajpResponse.getType());
+
+        ajpResponse = Utils.parseResponse(readAjpMessage());
+        Assert.assertEquals(ajpResponse.getResponseMessage(), 200, ajpResponse.getResponseCode());
+        Assert.assertEquals("FINE", ajpResponse.getResponseMessage());
+
+        ajpResponse = Utils.parseResponse(readAjpMessage());
+        Assert.assertEquals(AjpConstants.JK_AJP13_END_RESPONSE, ajpResponse.getType());
+
+        // the web server replies to GET_BODY_CHUNK after the response is complete
+        send(createDataPacket(chunkSize, 1).toByteArray());
+        
+        // make sure the connection is still alive and operable
+        final AjpForwardRequestPacket getPacket =
+                new AjpForwardRequestPacket("GET", "/myresource", 80, PORT);
+        getPacket.addHeader("Content-Length", "0");
+        getPacket.addHeader("Host", "localhost:80");
+        send(getPacket.toByteArray());
+
+        ajpResponse = Utils.parseResponse(readAjpMessage());
+        Assert.assertEquals(ajpResponse.getResponseMessage(), 200, ajpResponse.getResponseCode());
+        Assert.assertEquals("FINE", ajpResponse.getResponseMessage());
+
+        ajpResponse = Utils.parseResponse(readAjpMessage());
+        Assert.assertEquals(AjpConstants.JK_AJP13_END_RESPONSE, ajpResponse.getType());
+    }
+    
+    @Test
+    public void testBodyChunkPrefetchBounded() throws Exception {
+        final int chunkSize = 1024;
+        final FutureImpl<Response> suspendedResponse =
+                SafeFutureImpl.create();
+        
+        HttpHandler httpHanlder = new HttpHandler() {
+
+            @Override
+            public void service(Request request, Response response)
+                    throws Exception {
+                // suspend without reading the request body, so the
+                // incoming chunks are buffered
+                response.suspend();
+                suspendedResponse.result(response);
+            }
+
+        };
+
+        ajpAddon.setBodyChunkPrefetch(true);
+        startHttpServer(httpHanlder);
+
+        final AjpForwardRequestPacket headersPacket =
+                new AjpForwardRequestPacket("POST", "/myresource", 80, PORT);
+        headersPacket.addHeader("Content-Length", String.valueOf(chunkSize * 4));
+        headersPacket.addHeader("Host", "localhost:80");
+        
+        send(headersPacket.toByteArray());
+        send(createDataPacket(chunkSize, 0).toByteArray());
+
+        // the second chunk is prefetched
+        AjpResponse ajpResponse = Utils.parseResponse(readAjpMessage());
+        Assert.assertEquals(AjpConstants.JK_AJP13_GET_BODY_CHUNK, ajpResponse.getType());
+        
+        final Response response = suspendedResponse.get(10, TimeUnit.SECONDS);
+        send(createDataPacket(chunkSize, 1).toByteArray());
+        
+        // give the server a chance to send the (unexpected) next request
+        Thread.sleep(500);
+        response.setStatus(200, "FINE");
+        response.resume();
+
+        // no other chunk is requested, while the application doesn't read
+        ajpResponse = Utils.parseResponse(readAjpMessage());
+        Assert.assertEquals(AjpConstants.JK_AJP13_SEND_HEADERS, ajpResponse.getType());
+        Assert.assertEquals(ajpResponse.getResponseMessage(), 200, ajpResponse.getResponseCode());
+
+        ajpResponse = Utils.parseResponse(readAjpMessage());
+        Assert.assertEquals(AjpConstants.JK_AJP13_END_RESPONSE, ajpResponse.getType());
+    }
+    
+    private static AjpDataPacket createDataPacket(final int chunkSize,
+            final int chunkNum) {
+        final byte[] chunk = new byte[chunkSize];
+        for (int i = 0; i < chunkSize; i++) {
+            final int pos = chunkNum * chunkSize + i;
+            chunk[i] = (byte) ((pos % 'Z' - 'A') + 'A');
+        }
+        
+        return new AjpDataPacket(chunk);
+    }
+    
     /**
      * CVE-2014-0095 Denial of Service related
      * 
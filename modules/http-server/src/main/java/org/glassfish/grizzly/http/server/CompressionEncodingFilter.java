@@ -40,6 +40,7 @@
 
 package org.glassfish.grizzly.http.server;
 
+import org.glassfish.grizzly.http.AdaptiveCompressionPolicy;
 import org.glassfish.grizzly.http.CompressionConfig;
 import org.glassfish.grizzly.http.CompressionConfig.CompressionMode;
 import org.glassfish.grizzly.http.CompressionConfig.CompressionModeI;
@@ -198,6 +199,14 @@ public class CompressionEncodingFilter implements EncodingFilter {
                 || contentLength >= compressionConfig.getCompressionMinSize()) {
 
             if (compressionConfig.checkMimeType(response.getContentType())) {
+                final AdaptiveCompressionPolicy adaptivePolicy =
+                        compressionConfig.getAdaptiveCompressionPolicy();
+                if (adaptivePolicy != null
+                        && adaptivePolicy.selectCompressionLevel(response)
+                        == AdaptiveCompressionPolicy.SKIP_COMPRESSION) {
+                    return false;
+                }
+                
                 response.setChunked(true);
                 response.setContentLength(-1);
                 return true;
@@ -45,11 +45,10 @@ import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import org.glassfish.grizzly.http.Cookie;
 import org.glassfish.grizzly.http.server.util.Globals;
+import org.glassfish.grizzly.utils.DelayedExecutor;
 
 /**
  * Default {@link SessionManager} implementation.
@@ -80,39 +79,18 @@ public class DefaultSessionManager implements SessionManager {
     private String sessionCookieName = Globals.SESSION_COOKIE_NAME;
 
     /**
-     * Scheduled Thread that clean the cache every XX seconds.
+     * Shared timer, which cleans the cache every XX seconds.
      */
-    private final ScheduledThreadPoolExecutor sessionExpirer
-            = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
-                @Override
-                public Thread newThread(Runnable r) {
-                    final Thread t = new Thread(r, "Grizzly-HttpSession-Expirer");
-                    t.setDaemon(true);
-                    return t;
-                }
-            });
+    private final DelayedExecutor sessionExpirer = DelayedExecutor.createShared();
 
     {
-        sessionExpirer.scheduleAtFixedRate(new Runnable() {
-
-            @Override
-            public void run() {
-                long currentTime = System.currentTimeMillis();
-                Iterator<Map.Entry<String, Session>> iterator = sessions.entrySet().iterator();
-                Map.Entry<String, Session> entry;
-                while (iterator.hasNext()) {
-                    entry = iterator.next();
-                    final Session session = entry.getValue();
-
-                    if (!session.isValid()
-                            || (session.getSessionTimeout() > 0
-                            && currentTime - session.getTimestamp() > session.getSessionTimeout())) {
-                        session.setValid(false);
-                        iterator.remove();
-                    }
-                }
-            }
-        }, 5, 5, TimeUnit.SECONDS);
+        final SessionExpirerTask task = new SessionExpirerTask();
+        final DelayedExecutor.DelayQueue<SessionExpirerTask> queue =
+                sessionExpirer.createDelayQueue(task, task);
+        task.queue = queue;
+        
+        sessionExpirer.start();
+        queue.add(task, 5, TimeUnit.SECONDS);
     }
 
     private DefaultSessionManager() {
@@ -181,4 +159,54 @@ public class DefaultSessionManager implements SessionManager {
     private long generateRandomLong() {
         return (rnd.nextLong() & 0x7FFFFFFFFFFFFFFFL);
     }
+
+    /**
+     * Periodic task, which removes the expired sessions and re-schedules
+     * itself.
+     */
+    private final class SessionExpirerTask
+            implements DelayedExecutor.Worker<SessionExpirerTask>,
+            DelayedExecutor.Resolver<SessionExpirerTask> {
+        
+        private volatile long timeoutMillis = DelayedExecutor.UNSET_TIMEOUT;
+        private DelayedExecutor.DelayQueue<SessionExpirerTask> queue;
+        
+        @Override
+        public boolean doWork(final SessionExpirerTask element) {
+            long currentTime = System.currentTimeMillis();
+            Iterator<Map.Entry<String, Session>> iterator = sessions.entrySet().iterator();
+            Map.Entry<String, Session> entry;
+            while (iterator.hasNext()) {
+                entry = iterator.next();
+                final Session session = entry.getValue();
+
+                if (!session.isValid()
+                        || (session.getSessionTimeout() > 0
+                        && currentTime - session.getTimestamp() > session.getSessionTimeout())) {
+                    session.setValid(false);
+                    iterator.remove();
+                }
+            }
+            
+            queue.add(this, 5, TimeUnit.SECONDS);
+            return true;
+        }
+
+        @Override
+        public boolean removeTimeout(final SessionExpirerTask element) {
+            timeoutMillis = DelayedExecutor.UNSET_TIMEOUT;
+            return true;
+        }
+
+        @Override
+        public long getTimeoutMillis(final SessionExpirerTask element) {
+            return timeoutMillis;
+        }
+
+        @Override
+        public void setTimeoutMillis(final SessionExpirerTask element,
+                final long timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+        }
+    }
 }
@@ -43,6 +43,7 @@ package org.glassfish.grizzly.http.server;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -108,20 +109,38 @@ public class FileCacheFilter extends BaseFilter {
                     return flush(ctx);
                 }
 
-                // check if we can send plain or compressed data back.
+                // check if we can send a pre-compressed variant, plain or
+                // compressed data back.
                 // depends on client request headers and file cache entry
-                final boolean isServeCompressed =
-                        cacheEntry.canServeCompressed(request);
+                final FileCacheEntry.Variant variant =
+                        cacheEntry.selectPrecompressedVariant(request);
+                final boolean isServeCompressed = variant == null
+                        && cacheEntry.canServeCompressed(request);
                 
                 // The client doesn't have this resource cached, so
                 // we have to send entire payload
-                prepareResponseWithPayload(cacheEntry, response,
+                prepareResponseWithPayload(cacheEntry, response, variant,
                         isServeCompressed);
 
-                if (cacheEntry.type != CacheType.FILE) {
+                final ByteBuffer bb;
+                final File file;
+                final long fileSize;
+                if (variant != null) {
+                    bb = variant.getByteBuffer();
+                    file = variant.getFile();
+                    fileSize = variant.getFileSize();
+                } else {
+                    bb = cacheEntry.type != CacheType.FILE
+                            ? cacheEntry.getByteBuffer(isServeCompressed)
+                            : null;
+                    file = cacheEntry.getFile(isServeCompressed);
+                    fileSize = cacheEntry.getFileSize(isServeCompressed);
+                }
+                
+                if (bb != null) {
                     // the payload is available in a ByteBuffer
                     final Buffer buffer = Buffers.wrap(ctx.getMemoryManager(),
-                            cacheEntry.getByteBuffer(isServeCompressed).duplicate());
+                            bb.duplicate());
 
                     ctx.write(HttpContent.builder(response)
                             .content(buffer)
@@ -133,9 +152,8 @@ public class FileCacheFilter extends BaseFilter {
                 
                 return fileCache.isFileSendEnabled() && !request.isSecure()
                         ? sendFileZeroCopy(ctx, response, cacheEntry,
-                            isServeCompressed)
-                        : sendFileUsingBuffers(ctx, response, cacheEntry,
-                            isServeCompressed);
+                            file, fileSize)
+                        : sendFileUsingBuffers(ctx, response, file, fileSize);
             }
         }
 
@@ -157,6 +175,10 @@ public class FileCacheFilter extends BaseFilter {
         if (entry.server != null) {
             response.addHeader(Header.Server, entry.server);
         }
+        
+        if (entry.isVaryAcceptEncoding()) {
+            response.addHeader(Header.Vary, Header.AcceptEncoding.toString());
+        }
     }
     
     
@@ -164,11 +186,20 @@ public class FileCacheFilter extends BaseFilter {
      * Prepare response with payload headers.
      */
     private void prepareResponseWithPayload(final FileCacheEntry entry,
-            final HttpResponsePacket response, final boolean isServeCompressed)
+            final HttpResponsePacket response,
+            final FileCacheEntry.Variant variant,
+            final boolean isServeCompressed)
             throws IOException {
-        response.addHeader(Header.ETag, entry.Etag);
+        response.addHeader(Header.ETag,
+                variant != null ? variant.getETag() : entry.Etag);
         response.addHeader(Header.LastModified, entry.lastModifiedHeader);
 
+        if (variant != null) {
+            response.setContentLengthLong(variant.getFileSize());
+            response.addHeader(Header.ContentEncoding, variant.getEncoding());
+            return;
+        }
+        
         response.setContentLengthLong(entry.getFileSize(isServeCompressed));
         
         if (isServeCompressed) {
@@ -177,12 +208,11 @@ public class FileCacheFilter extends BaseFilter {
     }
 
     private NextAction sendFileUsingBuffers(final FilterChainContext ctx,
-            final HttpResponsePacket response, final FileCacheEntry cacheEntry,
-            final boolean isServeCompressed) {
+            final HttpResponsePacket response, final File file,
+            final long fileSize) {
         try {
             final FileSendEntry sendEntry = FileSendEntry.create(ctx, response,
-                    cacheEntry.getFile(isServeCompressed),
-                    cacheEntry.getFileSize(isServeCompressed));
+                    file, fileSize);
             
             ctx.suspend();
             sendEntry.send();
@@ -196,15 +226,13 @@ public class FileCacheFilter extends BaseFilter {
     
     private NextAction sendFileZeroCopy(final FilterChainContext ctx,
             final HttpResponsePacket response, final FileCacheEntry cacheEntry,
-            final boolean isServeCompressed) {
+            final File file, final long fileSize) {
         
         // flush response
         ctx.write(response);
 
         // send-file
-        final FileTransfer f = new FileTransfer(
-                cacheEntry.getFile(isServeCompressed),
-                0, cacheEntry.getFileSize(isServeCompressed));
+        final FileTransfer f = new FileTransfer(file, 0, fileSize);
         ctx.write(f, new EmptyCompletionHandler<WriteResult>() {
             @Override
             public void failed(Throwable throwable) {
@@ -49,9 +49,6 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
@@ -65,11 +62,11 @@ import org.glassfish.grizzly.PortRange;
 import org.glassfish.grizzly.Processor;
 import org.glassfish.grizzly.Transport;
 import org.glassfish.grizzly.TransportProbe;
-import org.glassfish.grizzly.attributes.AttributeBuilder;
 import org.glassfish.grizzly.filterchain.FilterChain;
 import org.glassfish.grizzly.filterchain.FilterChainBuilder;
 import org.glassfish.grizzly.filterchain.FilterChainEvent;
 import org.glassfish.grizzly.filterchain.TransportFilter;
+import org.glassfish.grizzly.http.AdaptiveCompressionPolicy;
 import org.glassfish.grizzly.http.CompressionConfig;
 import org.glassfish.grizzly.http.CompressionConfig.CompressionMode;
 import org.glassfish.grizzly.http.ContentEncoding;
@@ -87,7 +84,6 @@ import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
 import org.glassfish.grizzly.ssl.SSLBaseFilter;
 import org.glassfish.grizzly.ssl.SSLContextConfigurator;
 import org.glassfish.grizzly.ssl.SSLEngineConfigurator;
-import org.glassfish.grizzly.threadpool.DefaultWorkerThread;
 import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
 import org.glassfish.grizzly.threadpool.ThreadPoolProbe;
 import org.glassfish.grizzly.utils.DelayedExecutor;
@@ -129,8 +125,6 @@ public class HttpServer {
     private final Map<String, NetworkListener> listeners =
             new HashMap<>(2);
 
-    private volatile ExecutorService auxExecutorService;
-
     volatile DelayedExecutor delayedExecutor;
 
     protected volatile GrizzlyJmxManager jmxManager;
@@ -262,9 +256,7 @@ public class HttpServer {
         state = State.RUNNING;
         shutdownFuture = null;
         
-        configureAuxThreadPool();
-
-        delayedExecutor = new DelayedExecutor(auxExecutorService);
+        delayedExecutor = DelayedExecutor.createShared();
         delayedExecutor.start();
 
         for (final NetworkListener listener : listeners.values()) {
@@ -447,8 +439,6 @@ public class HttpServer {
             delayedExecutor.stop();
             delayedExecutor.destroy();
             delayedExecutor = null;
-            
-            stopAuxThreadPool();
 
             if (serverConfig.isJmxEnabled()) {
                 disableJMX();
@@ -682,6 +672,7 @@ public class HttpServer {
             
             httpServerCodecFilter.getMonitoringConfig().addProbes(
                     serverConfig.getMonitoringConfig().getHttpConfig().getProbes());
+            configureAdaptiveCompression(listener, httpServerCodecFilter);
             builder.add(httpServerCodecFilter);
             
             builder.add(new IdleTimeoutFilter(delayedExecutor,
@@ -780,6 +771,23 @@ public class HttpServer {
         }
     }
 
+    private static void configureAdaptiveCompression(
+            final NetworkListener listener,
+            final org.glassfish.grizzly.http.HttpCodecFilter httpCodecFilter) {
+        
+        final CompressionConfig compressionConfig = listener.getCompressionConfig();
+        final AdaptiveCompressionPolicy adaptivePolicy =
+                compressionConfig.getAdaptiveCompressionPolicy();
+        
+        if (adaptivePolicy != null
+                && compressionConfig.getCompressionMode() != CompressionMode.OFF) {
+            httpCodecFilter.getMonitoringConfig().addProbes(
+                    adaptivePolicy.getHttpProbe());
+            listener.getTransport().getThreadPoolMonitoringConfig().addProbes(
+                    adaptivePolicy.getThreadPoolProbe());
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private void configureMonitoring(final NetworkListener listener) {
         final TCPNIOTransport transport = listener.getTransport();
@@ -804,35 +812,6 @@ public class HttpServer {
 
     }
 
-    private void configureAuxThreadPool() {
-        final AtomicInteger threadCounter = new AtomicInteger();
-
-        auxExecutorService = Executors.newCachedThreadPool(
-                new ThreadFactory() {
-
-            @Override
-            public Thread newThread(Runnable r) {
-                final Thread newThread = new DefaultWorkerThread(
-                        AttributeBuilder.DEFAULT_ATTRIBUTE_BUILDER,
-                        serverConfig.getName() + "-" + threadCounter.getAndIncrement(),
-                        null,
-                        r);
-                newThread.setDaemon(true);
-                return newThread;
-            }
-        });
-    }
-
-
-    private void stopAuxThreadPool() {
-        final ExecutorService localThreadPool = auxExecutorService;
-        auxExecutorService = null;
-
-        if (localThreadPool != null) {
-            localThreadPool.shutdownNow();
-        }
-    }
-
     //************ Runtime config change listeners ******************
 
     /**
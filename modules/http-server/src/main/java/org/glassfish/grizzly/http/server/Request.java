@@ -108,6 +108,7 @@ import org.glassfish.grizzly.http.util.Header;
 import org.glassfish.grizzly.http.util.MimeHeaders;
 import org.glassfish.grizzly.http.util.Parameters;
 import org.glassfish.grizzly.localization.LogMessages;
+import org.glassfish.grizzly.memory.Buffers;
 import org.glassfish.grizzly.utils.Charsets;
 import org.glassfish.grizzly.utils.JdkVersion;
 
@@ -2160,7 +2161,17 @@ public class Request {
         try {
             final Buffer formData = getPostBody(len);
             read = formData.remaining();
-            parameters.processParameters(formData, formData.position(), read);
+            if (parameters.isLazyParsing()) {
+                // the POST body is released by skipPostBody(), so the lazy
+                // index has to be built over a private copy
+                final byte[] formBytes = new byte[read];
+                final int position = formData.position();
+                formData.get(formBytes);
+                formData.position(position);
+                parameters.processParameters(Buffers.wrap(null, formBytes), 0, read);
+            } else {
+                parameters.processParameters(formData, formData.position(), read);
+            }
         } catch (Exception ignored) {
         } finally {
             try {
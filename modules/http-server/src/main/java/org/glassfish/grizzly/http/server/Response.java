@@ -87,6 +87,7 @@ import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.glassfish.grizzly.http.Cookie;
 import org.glassfish.grizzly.http.Cookies;
 import org.glassfish.grizzly.http.HttpContext;
+import org.glassfish.grizzly.http.HttpHeaderTemplate;
 import org.glassfish.grizzly.http.HttpResponsePacket;
 import org.glassfish.grizzly.http.Protocol;
 import org.glassfish.grizzly.http.io.InputBuffer;
@@ -1325,6 +1326,34 @@ public class Response {
         return response.containsHeader(header);
     }
 
+    /**
+     * Sets the immutable pre-encoded {@link HttpHeaderTemplate}, which will be
+     * sent along with this response headers. The headers set on the response
+     * take precedence over the template headers with the same name.
+     *
+     * @param headerTemplate the {@link HttpHeaderTemplate} or <tt>null</tt>.
+     *
+     * @since 2.4.4
+     */
+    public void setHeaderTemplate(final HttpHeaderTemplate headerTemplate) {
+        checkResponse();
+        if (isCommitted())
+            return;
+
+        response.setHeaderTemplate(headerTemplate);
+    }
+
+    /**
+     * @return the {@link HttpHeaderTemplate} associated with this response,
+     *  or <tt>null</tt> if no template is set.
+     *
+     * @since 2.4.4
+     */
+    public HttpHeaderTemplate getHeaderTemplate() {
+        checkResponse();
+        return response.getHeaderTemplate();
+    }
+
 
     /**
      * Send an acknowledgment of a request.   An acknowledgment in this
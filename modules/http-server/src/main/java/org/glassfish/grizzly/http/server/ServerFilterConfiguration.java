@@ -61,6 +61,7 @@ public class ServerFilterConfiguration {
     private boolean traceEnabled;
     private boolean passTraceRequest;
     private int maxRequestParameters = MAX_REQUEST_PARAMETERS;
+    private boolean lazyParameterParsing;
     
     private long maxPostSize = -1L;
     private int maxFormPostSize = 2 * 1024 * 1024;
@@ -115,6 +116,7 @@ public class ServerFilterConfiguration {
         this.traceEnabled = configuration.traceEnabled;
         this.passTraceRequest = configuration.passTraceRequest;
         this.maxRequestParameters = configuration.maxRequestParameters;
+        this.lazyParameterParsing = configuration.lazyParameterParsing;
         this.maxFormPostSize = configuration.maxFormPostSize;
         this.maxBufferedPostSize = configuration.maxBufferedPostSize;
         this.defaultQueryEncoding = configuration.defaultQueryEncoding;
@@ -347,6 +349,32 @@ public class ServerFilterConfiguration {
         }
     }
 
+    /**
+     * @return <tt>true</tt> if query string and form parameters are only
+     *  tokenized when the parameters are parsed and are decoded on lookup,
+     *  or <tt>false</tt> (default) if all the parameters are decoded at once.
+     *
+     * @since 2.4.4
+     */
+    public boolean isLazyParameterParsing() {
+        return lazyParameterParsing;
+    }
+
+    /**
+     * Enables or disables lazy request parameter parsing. When enabled,
+     * {@link Request#getParameter(java.lang.String)} decodes only the
+     * requested parameter, which is cheaper for requests carrying lots of
+     * parameters when just a few of them are used.
+     *
+     * @param lazyParameterParsing <tt>true</tt> to enable lazy parameter parsing.
+     *
+     * @see org.glassfish.grizzly.http.util.Parameters#setLazyParsing(boolean)
+     * @since 2.4.4
+     */
+    public void setLazyParameterParsing(final boolean lazyParameterParsing) {
+        this.lazyParameterParsing = lazyParameterParsing;
+    }
+
     /**
      * Returns the "reuse session IDs when creating sessions"
      * 
@@ -54,6 +54,7 @@ import org.glassfish.grizzly.filterchain.Filter;
 import org.glassfish.grizzly.filterchain.FilterChain;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.glassfish.grizzly.http.server.filecache.FileCache;
+import org.glassfish.grizzly.http.server.util.PrecompressedVariants;
 import org.glassfish.grizzly.http.io.NIOOutputStream;
 import org.glassfish.grizzly.http.io.OutputBuffer;
 import org.glassfish.grizzly.http.util.MimeType;
@@ -76,6 +77,11 @@ public abstract class StaticHttpHandlerBase extends HttpHandler {
     
     private volatile boolean isFileCacheEnabled = true;
     
+    private volatile boolean isPrecompressedVariantsEnabled;
+    
+    private final PrecompressedVariants precompressedVariants =
+            new PrecompressedVariants();
+    
     /**
      * Returns <tt>true</tt> if this <tt>StaticHttpHandler</tt> has been
      * configured to use file cache to serve static resources,
@@ -113,12 +119,67 @@ public abstract class StaticHttpHandlerBase extends HttpHandler {
         this.isFileCacheEnabled = isFileCacheEnabled;
     }
     
+    /**
+     * Returns <tt>true</tt> if this <tt>StaticHttpHandler</tt> looks for
+     * pre-compressed variants of the requested resources (like
+     * <tt>app.js.gz</tt> next to <tt>app.js</tt>) and serves them to the
+     * clients, which accept the corresponding content-coding,
+     * or <tt>false</tt> otherwise.
+     * 
+     * @return <tt>true</tt> if pre-compressed variants are served
+     * @see #getPrecompressedVariants()
+     */
+    public boolean isPrecompressedVariantsEnabled() {
+        return isPrecompressedVariantsEnabled;
+    }
+
+    /**
+     * Set <tt>true</tt> to configure this <tt>StaticHttpHandler</tt> to look
+     * for pre-compressed variants of the requested resources and serve them
+     * to the clients, which accept the corresponding content-coding.
+     * By default pre-compressed variants are not served.
+     * 
+     * @param isPrecompressedVariantsEnabled <tt>true</tt> to serve
+     *        pre-compressed variants
+     * @see #getPrecompressedVariants()
+     */
+    public void setPrecompressedVariantsEnabled(
+            final boolean isPrecompressedVariantsEnabled) {
+        this.isPrecompressedVariantsEnabled = isPrecompressedVariantsEnabled;
+    }
+
+    /**
+     * Returns the pre-compressed variants configuration, which could be
+     * used to add or remove the supported content-codings.
+     * 
+     * @return the pre-compressed variants configuration
+     */
+    public PrecompressedVariants getPrecompressedVariants() {
+        return precompressedVariants;
+    }
+    
     public static void sendFile(final Response response, final File file)
             throws IOException {
+        sendFile(response, file, file.getPath());
+    }
+
+    /**
+     * Sends the file content, picking up the content-type from the passed
+     * resource path rather than from the file name. This way a pre-compressed
+     * variant, like <tt>name.ext.gz</tt>, is sent with the content-type of the
+     * original <tt>name.ext</tt> resource.
+     * 
+     * @param response the {@link Response}
+     * @param file the {@link File} to be sent
+     * @param resourcePath the resource path to derive the content-type from
+     * @throws IOException
+     */
+    protected static void sendFile(final Response response, final File file,
+            final String resourcePath) throws IOException {
         response.setStatus(HttpStatus.OK_200);
 
         // In case this sendFile(...) is called directly by user - pickup the content-type
-        pickupContentType(response, file.getPath());
+        pickupContentType(response, resourcePath);
 
         final long length = file.length();
         response.setContentLengthLong(length);
@@ -288,21 +349,66 @@ public abstract class StaticHttpHandlerBase extends HttpHandler {
         }
     }
 
+    /**
+     * Looks up the pre-compressed variant of the resource, acceptable by
+     * the client. If the resource has pre-compressed variants - the
+     * <tt>Vary</tt> header is added to the response, and if one of them
+     * is acceptable - the <tt>Content-Encoding</tt> and <tt>ETag</tt> headers
+     * are set to match the variant.
+     * The returned variant has to be sent with the content-type of the
+     * original resource, see {@link #sendFile(Response, File, String)}.
+     * 
+     * @param request the {@link Request}
+     * @param response the {@link Response}
+     * @param resource the resource file
+     * @return the variant {@link File} to be sent, or the passed resource
+     *         if there is no acceptable pre-compressed variant
+     */
+    protected File lookupPrecompressedVariant(final Request request,
+            final Response response, final File resource) {
+        if (!isPrecompressedVariantsEnabled) {
+            return resource;
+        }
+        
+        final PrecompressedVariants.Variant[] available =
+                precompressedVariants.discover(resource);
+        if (available.length == 0) {
+            return resource;
+        }
+        
+        response.addHeader(Header.Vary, Header.AcceptEncoding.toString());
+        
+        final int idx = PrecompressedVariants.select(available,
+                request.getHeader(Header.AcceptEncoding));
+        if (idx == -1) {
+            return resource;
+        }
+        
+        final File variantFile = available[idx].getFile(resource);
+        response.setHeader(Header.ContentEncoding, available[idx].getEncoding());
+        response.setHeader(Header.ETag,
+                buildETag(variantFile.length(), variantFile.lastModified()));
+        
+        return variantFile;
+    }
+    
     protected static void addCachingHeaders(final Response response,
                                           final File file) {
-        final StringBuilder sb = new StringBuilder();
-
         final long fileLength = file.length();
         final long lastModified = file.lastModified();
         if ((fileLength >= 0) || (lastModified >= 0)) {
-            sb.append('"').append(fileLength).append('-').
-                    append(lastModified).append('"');
-            response.setHeader(Header.ETag, sb.toString());
+            response.setHeader(Header.ETag, buildETag(fileLength, lastModified));
         }
         response.addDateHeader(Header.LastModified, lastModified);
 
     }
     
+    private static String buildETag(final long fileLength,
+            final long lastModified) {
+        return new StringBuilder().append('"').append(fileLength).append('-')
+                .append(lastModified).append('"').toString();
+    }
+    
     private static class NonBlockingDownloadHandler implements WriteHandler {
         // keep the remaining size
         private volatile long size;
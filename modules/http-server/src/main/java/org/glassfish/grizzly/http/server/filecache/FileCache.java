@@ -41,8 +41,10 @@
 package org.glassfish.grizzly.http.server.filecache;
 
 import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.compression.zip.PooledGZipOutputStream;
 import org.glassfish.grizzly.http.HttpRequestPacket;
 import org.glassfish.grizzly.http.HttpResponsePacket;
+import org.glassfish.grizzly.http.server.util.PrecompressedVariants;
 import org.glassfish.grizzly.http.server.util.SimpleDateFormats;
 import org.glassfish.grizzly.http.util.FastHttpDateFormat;
 import org.glassfish.grizzly.http.util.Header;
@@ -67,7 +69,6 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.zip.GZIPOutputStream;
 import org.glassfish.grizzly.http.CompressionConfig;
 import org.glassfish.grizzly.http.Method;
 import org.glassfish.grizzly.http.util.ContentType;
@@ -173,6 +174,18 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
      */
     private final CompressionConfig compressionConfig = new CompressionConfig();
     
+    /**
+     * <tt>true</tt>, if pre-compressed file variants have to be discovered
+     * and served, or <tt>false</tt> otherwise.
+     */
+    private volatile boolean precompressedVariantsEnabled;
+    
+    /**
+     * Pre-compressed file variants configuration
+     */
+    private final PrecompressedVariants precompressedVariants =
+            new PrecompressedVariants();
+    
     /**
      * <tt>true</tt>, if zero-copy file-send feature could be used, or
      * <tt>false</tt> otherwise.
@@ -259,6 +272,9 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
         if (cacheFile != null) { // If we have a file - try to create File-aware cache resource
             entry = createEntry(cacheFile);
             entry.setCanBeCompressed(canBeCompressed(cacheFile, contentType));
+            if (precompressedVariantsEnabled) {
+                addPrecompressedVariants(entry, cacheFile);
+            }
         } else {
             entry = new FileCacheEntry(this);
             entry.type = CacheType.TIMESTAMP;
@@ -345,6 +361,18 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
         } else if (entry.type == FileCache.CacheType.HEAP) {
             subHeapSize(entry.bb.remaining());
         }
+        
+        if (entry.variants != null) {
+            for (FileCacheEntry.Variant variant : entry.variants) {
+                if (variant.bb != null) {
+                    if (entry.type == FileCache.CacheType.MAPPED) {
+                        subMappedMemorySize(variant.bb.remaining());
+                    } else {
+                        subHeapSize(variant.bb.remaining());
+                    }
+                }
+            }
+        }
 
         notifyProbesEntryRemoved(this, entry);
     }
@@ -441,6 +469,82 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
         return entry;
     }
 
+    /**
+     * Discovers the pre-compressed variants of the file and, if the plain
+     * file content is cached in memory, caches the variants the same way.
+     */
+    private void addPrecompressedVariants(final FileCacheEntry entry,
+            final File file) {
+        final PrecompressedVariants.Variant[] available =
+                precompressedVariants.discover(file);
+        if (available.length == 0) {
+            return;
+        }
+        
+        final FileCacheEntry.Variant[] variants =
+                new FileCacheEntry.Variant[available.length];
+        for (int i = 0; i < available.length; i++) {
+            final File variantFile = available[i].getFile(file);
+            final long size = variantFile.length();
+            final long lastModified = variantFile.lastModified();
+            
+            variants[i] = new FileCacheEntry.Variant(available[i].getEncoding(),
+                    variantFile, size,
+                    "\"" + size + '-' + lastModified + '"');
+            
+            if (entry.type == CacheType.HEAP || entry.type == CacheType.MAPPED) {
+                variants[i].bb = tryMapVariantToBuffer(variantFile, size,
+                        entry.type);
+            }
+        }
+        
+        entry.variantDescriptors = available;
+        entry.variants = variants;
+    }
+    
+    /**
+     * Map the variant file to a {@link ByteBuffer}, accounting it the same way
+     * as the plain file.
+     * 
+     * @return the {@link ByteBuffer}, or <tt>null</tt> if the cache is full
+     */
+    private ByteBuffer tryMapVariantToBuffer(final File file, final long size,
+            final CacheType type) {
+        if (type == CacheType.MAPPED) {
+            if (addMappedMemorySize(size) > getMaxLargeFileCacheSize()) {
+                subMappedMemorySize(size);
+                return null;
+            }
+        } else if (addHeapSize(size) > getMaxSmallFileCacheSize()) {
+            subHeapSize(size);
+            return null;
+        }
+        
+        try {
+            final FileInputStream stream = new FileInputStream(file);
+            try {
+                final MappedByteBuffer bb = stream.getChannel().map(
+                        FileChannel.MapMode.READ_ONLY, 0, size);
+                if (type == CacheType.HEAP) {
+                    bb.load();
+                }
+                
+                return bb;
+            } finally {
+                stream.close();
+            }
+        } catch (IOException e) {
+            notifyProbesError(this, e);
+            if (type == CacheType.MAPPED) {
+                subMappedMemorySize(size);
+            } else {
+                subHeapSize(size);
+            }
+            
+            return null;
+        }
+    }
+    
     /**
      * Checks if the {@link File} with the given content-type could be compressed.
      */
@@ -599,6 +703,40 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
         return compressionConfig;
     }
 
+    /**
+     * Returns <tt>true</tt> if the pre-compressed variants of the cached
+     * files (like <tt>app.js.gz</tt> next to <tt>app.js</tt>) are discovered
+     * and served to the clients, which accept the corresponding
+     * content-coding, or <tt>false</tt> otherwise.
+     * 
+     * @see #getPrecompressedVariants()
+     */
+    public boolean isPrecompressedVariantsEnabled() {
+        return precompressedVariantsEnabled;
+    }
+
+    /**
+     * Enables/disables discovering and serving the pre-compressed variants
+     * of the cached files. By default the pre-compressed variants are not
+     * served. A pre-compressed variant, acceptable by the client, takes
+     * precedence over the runtime compression.
+     * 
+     * @param precompressedVariantsEnabled <tt>true</tt> to serve the
+     *        pre-compressed variants
+     */
+    public void setPrecompressedVariantsEnabled(
+            final boolean precompressedVariantsEnabled) {
+        this.precompressedVariantsEnabled = precompressedVariantsEnabled;
+    }
+
+    /**
+     * Returns the pre-compressed variants configuration, which could be
+     * used to add or remove the supported content-codings.
+     */
+    public PrecompressedVariants getPrecompressedVariants() {
+        return precompressedVariants;
+    }
+
     /**
      * Returns the folder to be used to store temporary compressed files.
      */
@@ -671,7 +809,7 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
             OutputStream out = null;
             try {
                 in = new FileInputStream(entry.plainFile);
-                out = new GZIPOutputStream(
+                out = new PooledGZipOutputStream(
                         new FileOutputStream(tmpCompressedFile));
                 
                 final byte[] tmp = new byte[1024];
@@ -846,8 +984,6 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
 
         String headerValue = request.getHeader(Header.IfNoneMatch);
         if (headerValue != null) {
-            String eTag = entry.Etag;
-
             boolean conditionSatisfied = false;
 
             if (!headerValue.equals("*")) {
@@ -857,7 +993,7 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
 
                 while (!conditionSatisfied && commaTokenizer.hasMoreTokens()) {
                     String currentToken = commaTokenizer.nextToken();
-                    if (currentToken.trim().equals(eTag)) {
+                    if (entry.isETagMatch(currentToken.trim())) {
                         conditionSatisfied = true;
                     }
                 }
@@ -934,14 +1070,12 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
         String headerValue = request.getHeader(Header.IfMatch);
         if (headerValue != null) {
             if (headerValue.indexOf('*') == -1) {
-                String eTag = entry.Etag;
-
                 StringTokenizer commaTokenizer = new StringTokenizer(headerValue, ",");
                 boolean conditionSatisfied = false;
 
                 while (!conditionSatisfied && commaTokenizer.hasMoreTokens()) {
                     String currentToken = commaTokenizer.nextToken();
-                    if (currentToken.trim().equals(eTag)) {
+                    if (entry.isETagMatch(currentToken.trim())) {
                         conditionSatisfied = true;
                     }
                 }
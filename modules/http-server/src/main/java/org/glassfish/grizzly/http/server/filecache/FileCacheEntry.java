@@ -42,6 +42,7 @@ package org.glassfish.grizzly.http.server.filecache;
 
 import java.io.File;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -49,7 +50,9 @@ import java.util.logging.Logger;
 import org.glassfish.grizzly.Grizzly;
 import org.glassfish.grizzly.http.CompressionConfig;
 import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.http.server.util.PrecompressedVariants;
 import org.glassfish.grizzly.http.util.ContentType;
+import org.glassfish.grizzly.http.util.Header;
 
 /**
  * The entry value in the file cache map.
@@ -76,6 +79,10 @@ public final class FileCacheEntry implements Runnable {
     ByteBuffer compressedBb;
     long compressedFileSize = -1;
     
+    // pre-compressed variants found next to the plain file
+    PrecompressedVariants.Variant[] variantDescriptors;
+    Variant[] variants;
+    
     public String xPoweredBy;
     public FileCache.CacheType type;
     public String date;
@@ -126,6 +133,49 @@ public final class FileCacheEntry implements Runnable {
         return compressedFile != null;
     }
     
+    /**
+     * Returns <tt>true</tt> if the entry representation depends on the
+     * request <tt>Accept-Encoding</tt> header, so the response has to
+     * carry the <tt>Vary</tt> header.
+     */
+    public boolean isVaryAcceptEncoding() {
+        return variants != null || canBeCompressed;
+    }
+    
+    /**
+     * Returns the pre-compressed {@link Variant} of this entry, acceptable by
+     * the client, or <tt>null</tt> if there is no such variant.
+     */
+    public Variant selectPrecompressedVariant(final HttpRequestPacket request) {
+        if (variants == null) {
+            return null;
+        }
+        
+        final int idx = PrecompressedVariants.select(variantDescriptors,
+                request.getHeader(Header.AcceptEncoding));
+        return idx != -1 ? variants[idx] : null;
+    }
+    
+    /**
+     * Returns <tt>true</tt> if the passed entity tag matches either the plain
+     * resource entity tag or one of the pre-compressed variants' tags.
+     */
+    boolean isETagMatch(final String eTag) {
+        if (eTag.equals(Etag)) {
+            return true;
+        }
+        
+        if (variants != null) {
+            for (Variant variant : variants) {
+                if (eTag.equals(variant.eTag)) {
+                    return true;
+                }
+            }
+        }
+        
+        return false;
+    }
+    
     /**
      * Returns the entry file size.
      * @param isCompressed if <tt>true</tt> the compressed file size will be
@@ -158,6 +208,61 @@ public final class FileCacheEntry implements Runnable {
         return isCompressed ? compressedBb : bb;
     }
     
+    /**
+     * The pre-compressed variant of a {@link FileCacheEntry}.
+     */
+    public static final class Variant {
+        final String encoding;
+        final File file;
+        final long fileSize;
+        final String eTag;
+        ByteBuffer bb;
+
+        Variant(final String encoding, final File file, final long fileSize,
+                final String eTag) {
+            this.encoding = encoding;
+            this.file = file;
+            this.fileSize = fileSize;
+            this.eTag = eTag;
+        }
+
+        /**
+         * @return the variant content-coding
+         */
+        public String getEncoding() {
+            return encoding;
+        }
+
+        /**
+         * @return the variant {@link File}
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * @return the variant file size
+         */
+        public long getFileSize() {
+            return fileSize;
+        }
+
+        /**
+         * @return the variant entity tag
+         */
+        public String getETag() {
+            return eTag;
+        }
+
+        /**
+         * @return the variant {@link ByteBuffer} representation, or
+         *         <tt>null</tt> if the variant has to be sent from the file
+         */
+        public ByteBuffer getByteBuffer() {
+            return bb;
+        }
+    }
+    
     @Override
     public void run() {
         fileCache.remove(this);
@@ -175,6 +280,10 @@ public final class FileCacheEntry implements Runnable {
         sb.append(", plainFileSize=").append(plainFileSize);
         sb.append(", canBeCompressed=").append(canBeCompressed);
         sb.append(", compressedFileSize=").append(compressedFileSize);
+        if (variantDescriptors != null) {
+            sb.append(", precompressedVariants=").append(
+                    Arrays.toString(variantDescriptors));
+        }
         sb.append(", timeoutMillis=").append(timeoutMillis);
         sb.append(", fileCache=").append(fileCache);
         sb.append(", server=").append(server);
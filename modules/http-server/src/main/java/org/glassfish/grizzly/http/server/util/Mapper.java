@@ -98,6 +98,13 @@ public class Mapper {
 
     private static final CharChunk SLASH = new CharChunk();
 
+    /**
+     * The default number of the mapping cache slots, <tt>0</tt> disables
+     * the cache.
+     */
+    private static final int DEFAULT_MAPPING_CACHE_SIZE = Integer.getInteger(
+            "org.glassfish.grizzly.http.server.util.Mapper.mappingCacheSize", 256);
+
     /**
      * Allow replacement of already added {@link Host}, {@link Context}
      * and {@link Wrapper}
@@ -141,6 +148,15 @@ public class Mapper {
      */
     private int port = 0;
 
+    /**
+     * The (host, URI) -> {@link MappingData} cache, or <tt>null</tt> if
+     * the cache is disabled.
+     */
+    private volatile MappingCache mappingCache =
+            DEFAULT_MAPPING_CACHE_SIZE > 0
+                    ? new MappingCache(DEFAULT_MAPPING_CACHE_SIZE)
+                    : null;
+
 
     // --------------------------------------------------------- Public Methods
 
@@ -196,6 +212,76 @@ public class Mapper {
      */
     public void setDefaultHostName(String defaultHostName) {
         this.defaultHostName = defaultHostName;
+        invalidateMappingCache();
+    }
+
+
+    /**
+     * Sets the maximum number of the cached (host, URI) mapping results.
+     * The size is rounded up to the nearest power of two, <tt>0</tt> disables
+     * the cache. Changing the size resets the cache hit/miss counters.
+     *
+     * @param size the maximum number of the cached mapping results.
+     *
+     * @since 2.4.4
+     */
+    public void setMappingCacheSize(final int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Cache size can't be negative");
+        }
+
+        mappingCache = size > 0 ? new MappingCache(size) : null;
+    }
+
+
+    /**
+     * @return the maximum number of the cached (host, URI) mapping results,
+     *  <tt>0</tt> if the cache is disabled.
+     *
+     * @since 2.4.4
+     */
+    public int getMappingCacheSize() {
+        final MappingCache cache = mappingCache;
+        return cache != null ? cache.size() : 0;
+    }
+
+
+    /**
+     * @return the number of the mapping requests served from the cache.
+     *
+     * @since 2.4.4
+     */
+    public long getMappingCacheHits() {
+        final MappingCache cache = mappingCache;
+        return cache != null ? cache.getHits() : 0;
+    }
+
+
+    /**
+     * @return the number of the mapping requests, which were not found
+     *  in the cache.
+     *
+     * @since 2.4.4
+     */
+    public long getMappingCacheMisses() {
+        final MappingCache cache = mappingCache;
+        return cache != null ? cache.getMisses() : 0;
+    }
+
+
+    /**
+     * Invalidates all the cached mapping results. The method is called
+     * automatically whenever hosts, contexts or wrappers are added or removed,
+     * subclasses, which modify the mapping structures directly, have to
+     * call it explicitly.
+     *
+     * @since 2.4.4
+     */
+    public void invalidateMappingCache() {
+        final MappingCache cache = mappingCache;
+        if (cache != null) {
+            cache.invalidate();
+        }
     }
 
     /**
@@ -245,6 +331,8 @@ public class Mapper {
         if (defaultContextPath != null) {
             newHost.defaultContextPaths[0] = defaultContextPath;
         }
+
+        invalidateMappingCache();
     }
 
 
@@ -277,6 +365,8 @@ public class Mapper {
         // START GlassFish 1024
         defaultContextPathsMap.remove(name);
         // END GlassFish 1024
+
+        invalidateMappingCache();
     }
 
     public String[] getHosts() {
@@ -376,6 +466,8 @@ public class Mapper {
                     oldElem.resources = resources;
                 }
             }
+
+            invalidateMappingCache();
         }
     }
 
@@ -413,6 +505,8 @@ public class Mapper {
                     }
                 }
             }
+
+            invalidateMappingCache();
         }
     }
 
@@ -612,6 +706,8 @@ public class Mapper {
                 }
             }
         }
+
+        invalidateMappingCache();
     }
 
 
@@ -695,6 +791,8 @@ public class Mapper {
                 }
             }
         }
+
+        invalidateMappingCache();
     }
 
     public String getWrappersString( String host, String context ) {
@@ -761,13 +859,17 @@ public class Mapper {
             return;
         }
 
-        hosts[pos].defaultContextPaths[0] = defaultContextPath;
+        try {
+            hosts[pos].defaultContextPaths[0] = defaultContextPath;
 
-        if (defaultContextPath != null) {
-            addDefaultContext(hosts[pos], defaultContextPath);
-        } else {
-            hosts[pos].defaultContexts[0] = null;
-            defaultContextPathsMap.remove(hostName);
+            if (defaultContextPath != null) {
+                addDefaultContext(hosts[pos], defaultContextPath);
+            } else {
+                hosts[pos].defaultContexts[0] = null;
+                defaultContextPathsMap.remove(hostName);
+            }
+        } finally {
+            invalidateMappingCache();
         }
     }
 
@@ -909,7 +1011,7 @@ public class Mapper {
         host.toChars(Constants.DEFAULT_HTTP_CHARSET);
         uri.toChars(Charsets.UTF8_CHARSET);
         
-        internalMap(host.getCharChunk(), uri.getCharChunk(), mappingData);
+        internalMapCached(host.getCharChunk(), uri.getCharChunk(), mappingData);
 
     }
 
@@ -943,7 +1045,7 @@ public class Mapper {
         }
         
         uri.toChars(Charsets.UTF8_CHARSET);
-        internalMap(hostCC,
+        internalMapCached(hostCC,
                     uri.getCharChunk(),
                     mappingData);
 
@@ -972,10 +1074,51 @@ public class Mapper {
     // -------------------------------------------------------- Private Methods
 
 
+    /**
+     * Map the specified URI using the mapping cache, if it's enabled.
+     */
+    private void internalMapCached(final CharChunk host, final CharChunk uri,
+                                   final MappingData mappingData)
+        throws Exception {
+
+        final MappingCache cache = mappingCache;
+        if (cache == null || !mappingData.isEmpty()) {
+            internalMap(host, uri, mappingData);
+            return;
+        }
+
+        final int generation = cache.generation();
+        final int hash = MappingCache.hash(host, uri);
+        if (cache.lookup(hash, generation, host, uri, mappingData)) {
+            uri.setLimit(-1);
+            return;
+        }
+
+        final char[] uriBuffer = uri.getBuffer();
+        final int uriStart = uri.getStart();
+        final int uriEnd = uri.getEnd();
+
+        final Context ctx = internalMap(host, uri, mappingData);
+
+        // Don't cache the results, which depend on the context resources
+        // (physical files), redirects and results, which modified the URI
+        if ((ctx == null || ctx.resources == null)
+                && mappingData.redirectPath.isNull()
+                && uri.getBuffer() == uriBuffer
+                && uri.getStart() == uriStart
+                && uri.getEnd() == uriEnd) {
+            cache.put(hash, generation, host, uri, mappingData);
+        }
+    }
+
+
     /**
      * Map the specified URI.
+     *
+     * @return the matched {@link Context}, or <tt>null</tt> if no context
+     *  has been matched.
      */
-    private void internalMap(CharChunk host, CharChunk uri,
+    private Context internalMap(CharChunk host, CharChunk uri,
                                    MappingData mappingData)
         throws Exception {
 
@@ -1000,7 +1143,7 @@ public class Mapper {
                 nesting = newHosts[pos].contextList.nesting;
             } else {
                 if (defaultHostName == null) {
-                    return;
+                    return null;
                 }
                 pos = findIgnoreCase(newHosts, defaultHostName);
                 if (pos != -1 && defaultHostName.equalsIgnoreCase(newHosts[pos].name)) {
@@ -1009,7 +1152,7 @@ public class Mapper {
                     contexts = newHosts[pos].contextList.contexts;
                     nesting = newHosts[pos].contextList.nesting;
                 } else {
-                    return;
+                    return null;
                 }
             }
         }
@@ -1026,7 +1169,7 @@ public class Mapper {
                 // START GlassFish 1024
                 if (hosts[hostPos].defaultContexts[0] == null) {
                 // END GlassFish 1024
-                    return;
+                    return null;
                 // START GlassFish 1024
                 }
                 ctx = hosts[hostPos].defaultContexts[0];
@@ -1091,6 +1234,7 @@ public class Mapper {
             internalMapWrapper(ctx, uri, mappingData);
         }
 
+        return ctx;
     }
 
 
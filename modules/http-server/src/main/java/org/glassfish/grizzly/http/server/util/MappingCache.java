@@ -0,0 +1,263 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http.server.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.glassfish.grizzly.http.util.CharChunk;
+import org.glassfish.grizzly.http.util.DataChunk;
+
+/**
+ * Bounded, lock-free cache of {@link Mapper} results keyed by the
+ * (host, decoded request URI) pair.
+ *
+ * The cache is direct-mapped: every key hashes to exactly one slot, so
+ * a new entry simply replaces the one, which occupied the slot before. The
+ * lookup doesn't allocate any objects. Each entry is tagged with the mapper
+ * configuration generation it was computed for, so the whole cache is
+ * invalidated atomically by incrementing the generation.
+ */
+final class MappingCache {
+
+    private final MappingCacheEntry[] entries;
+    private final int mask;
+
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    MappingCache(final int size) {
+        int capacity = 1;
+        while (capacity < size) {
+            capacity <<= 1;
+        }
+
+        entries = new MappingCacheEntry[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * @return the number of the cache slots.
+     */
+    int size() {
+        return entries.length;
+    }
+
+    /**
+     * @return the current mapper configuration generation.
+     */
+    int generation() {
+        return generation.get();
+    }
+
+    /**
+     * Invalidates all the cached mapping results.
+     */
+    void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Looks up the cached mapping result and, if found, copies it into
+     * the passed {@link MappingData}.
+     *
+     * @return <tt>true</tt> if the cached result has been found and applied,
+     *  or <tt>false</tt> otherwise.
+     */
+    boolean lookup(final int hash, final int generation,
+            final CharChunk host, final CharChunk uri,
+            final MappingData mappingData) {
+        final MappingCacheEntry entry = entries[hash & mask];
+        if (entry != null && entry.generation == generation
+                && entry.hash == hash && entry.matches(host, uri)) {
+            entry.applyTo(mappingData);
+            hits.increment();
+            return true;
+        }
+
+        misses.increment();
+        return false;
+    }
+
+    /**
+     * Caches the mapping result computed for the given configuration
+     * generation.
+     */
+    void put(final int hash, final int generation,
+            final CharChunk host, final CharChunk uri,
+            final MappingData mappingData) {
+        entries[hash & mask] = new MappingCacheEntry(hash, generation,
+                host, uri, mappingData);
+    }
+
+    static int hash(final CharChunk host, final CharChunk uri) {
+        int h = hash(1, uri);
+        if (host != null && !host.isNull()) {
+            h = hash(h * 31 + '@', host);
+        }
+
+        return h ^ (h >>> 16);
+    }
+
+    private static int hash(int h, final CharChunk cc) {
+        final char[] buffer = cc.getBuffer();
+        final int end = cc.getEnd();
+        for (int i = cc.getStart(); i < end; i++) {
+            h = 31 * h + buffer[i];
+        }
+
+        return h;
+    }
+
+    private static boolean charsEqual(final char[] chars, final CharChunk cc) {
+        if (cc == null || cc.isNull()) {
+            return chars == null;
+        }
+
+        final int start = cc.getStart();
+        final int length = cc.getEnd() - start;
+        if (chars == null || chars.length != length) {
+            return false;
+        }
+
+        final char[] buffer = cc.getBuffer();
+        for (int i = 0; i < length; i++) {
+            if (chars[i] != buffer[start + i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static char[] toChars(final CharChunk cc) {
+        if (cc == null || cc.isNull()) {
+            return null;
+        }
+
+        final int start = cc.getStart();
+        final char[] chars = new char[cc.getEnd() - start];
+        System.arraycopy(cc.getBuffer(), start, chars, 0, chars.length);
+        return chars;
+    }
+
+    private static void setString(final DataChunk dc, final String value) {
+        if (value != null) {
+            dc.setString(value);
+        }
+    }
+
+    /**
+     * Immutable snapshot of the {@link MappingData}.
+     */
+    private static final class MappingCacheEntry {
+        private final int hash;
+        private final int generation;
+        private final char[] hostChars;
+        private final char[] uriChars;
+
+        private final byte mappingType;
+        private final Object host;
+        private final Object context;
+        private final Object wrapper;
+        private final String servletName;
+        private final String descriptorPath;
+        private final String matchedPath;
+        private final boolean jspWildCard;
+        private final boolean isDefaultContext;
+        private final String contextPath;
+        private final String requestPath;
+        private final String wrapperPath;
+        private final String pathInfo;
+
+        private MappingCacheEntry(final int hash, final int generation,
+                final CharChunk hostCC, final CharChunk uriCC,
+                final MappingData mappingData) {
+            this.hash = hash;
+            this.generation = generation;
+            hostChars = toChars(hostCC);
+            uriChars = toChars(uriCC);
+
+            mappingType = mappingData.mappingType;
+            host = mappingData.host;
+            context = mappingData.context;
+            wrapper = mappingData.wrapper;
+            servletName = mappingData.servletName;
+            descriptorPath = mappingData.descriptorPath;
+            matchedPath = mappingData.matchedPath;
+            jspWildCard = mappingData.jspWildCard;
+            isDefaultContext = mappingData.isDefaultContext;
+            contextPath = mappingData.contextPath.toString();
+            requestPath = mappingData.requestPath.toString();
+            wrapperPath = mappingData.wrapperPath.toString();
+            pathInfo = mappingData.pathInfo.toString();
+        }
+
+        private boolean matches(final CharChunk hostCC, final CharChunk uriCC) {
+            return charsEqual(uriChars, uriCC) && charsEqual(hostChars, hostCC);
+        }
+
+        private void applyTo(final MappingData mappingData) {
+            mappingData.mappingType = mappingType;
+            mappingData.host = host;
+            mappingData.context = context;
+            mappingData.wrapper = wrapper;
+            mappingData.servletName = servletName;
+            mappingData.descriptorPath = descriptorPath;
+            mappingData.matchedPath = matchedPath;
+            mappingData.jspWildCard = jspWildCard;
+            mappingData.isDefaultContext = isDefaultContext;
+            setString(mappingData.contextPath, contextPath);
+            setString(mappingData.requestPath, requestPath);
+            setString(mappingData.wrapperPath, wrapperPath);
+            setString(mappingData.pathInfo, pathInfo);
+        }
+    }
+}
@@ -116,6 +116,20 @@ public class MappingData {
         matchedPath = null;
     }
 
+    /**
+     * @return <tt>true</tt> if this <tt>MappingData</tt> doesn't contain any
+     *  mapping information, for example right after {@link #recycle()}.
+     */
+    boolean isEmpty() {
+        return host == null && context == null && wrapper == null
+                && mappingType == UNKNOWN && servletName == null
+                && descriptorPath == null && matchedPath == null
+                && !jspWildCard && !isDefaultContext
+                && contextPath.isNull() && requestPath.isNull()
+                && wrapperPath.isNull() && pathInfo.isNull()
+                && redirectPath.isNull();
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,274 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http.server.util;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * The configuration of pre-compressed static resource variants, like
+ * <tt>app.js.gz</tt> built next to <tt>app.js</tt>.
+ * 
+ * Each {@link Variant} maps a content-coding, as used in the
+ * <tt>Accept-Encoding</tt> and <tt>Content-Encoding</tt> headers, to the file
+ * name suffix of the pre-compressed variant. The order the variants are added
+ * in is the server preference order, used if the client accepts several
+ * codings with the same quality. By default <tt>br</tt> (<tt>.br</tt>) and
+ * <tt>gzip</tt> (<tt>.gz</tt>) variants are configured.
+ * 
+ * A variant file is considered only if it's not older than the original file.
+ */
+public class PrecompressedVariants {
+    private static final Variant[] EMPTY = new Variant[0];
+    
+    private volatile Variant[] variants = EMPTY;
+
+    public PrecompressedVariants() {
+        add("br", ".br");
+        add("gzip", ".gz");
+    }
+
+    /**
+     * Adds (or replaces) the pre-compressed variant.
+     * 
+     * @param encoding the content-coding, for example <tt>gzip</tt>
+     * @param fileSuffix the variant file name suffix, for example <tt>.gz</tt>
+     */
+    public synchronized void add(final String encoding, final String fileSuffix) {
+        if (encoding == null || fileSuffix == null || fileSuffix.isEmpty()) {
+            throw new IllegalArgumentException("encoding and fileSuffix can't be null or empty");
+        }
+        
+        remove(encoding);
+        
+        final Variant[] newVariants = Arrays.copyOf(variants, variants.length + 1);
+        newVariants[variants.length] = new Variant(
+                encoding.toLowerCase(Locale.ENGLISH), fileSuffix);
+        variants = newVariants;
+    }
+    
+    /**
+     * Removes the pre-compressed variant.
+     * 
+     * @param encoding the content-coding
+     * @return <tt>true</tt> if the variant has been removed,
+     *         or <tt>false</tt> otherwise
+     */
+    public synchronized boolean remove(final String encoding) {
+        final Variant[] current = variants;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].encoding.equalsIgnoreCase(encoding)) {
+                final Variant[] newVariants = new Variant[current.length - 1];
+                System.arraycopy(current, 0, newVariants, 0, i);
+                System.arraycopy(current, i + 1, newVariants, i,
+                        current.length - i - 1);
+                variants = newVariants;
+                return true;
+            }
+        }
+        
+        return false;
+    }
+
+    /**
+     * Removes all the pre-compressed variants.
+     */
+    public synchronized void clear() {
+        variants = EMPTY;
+    }
+    
+    /**
+     * @return the configured variants in the preference order
+     */
+    public Variant[] getVariants() {
+        return variants.clone();
+    }
+    
+    /**
+     * Discovers the variants available for the given file.
+     * 
+     * @param file the original file
+     * @return the available variants, in the preference order
+     */
+    public Variant[] discover(final File file) {
+        final Variant[] current = variants;
+        if (current.length == 0) {
+            return EMPTY;
+        }
+        
+        final long lastModified = file.lastModified();
+        Variant[] available = null;
+        int count = 0;
+        
+        for (Variant variant : current) {
+            final File variantFile = variant.getFile(file);
+            if (variantFile.isFile() && variantFile.lastModified() >= lastModified) {
+                if (available == null) {
+                    available = new Variant[current.length];
+                }
+                
+                available[count++] = variant;
+            }
+        }
+        
+        return count == 0 ? EMPTY : Arrays.copyOf(available, count);
+    }
+    
+    /**
+     * Selects the variant to be sent to the client, based on the
+     * <tt>Accept-Encoding</tt> header value.
+     * 
+     * @param available the available variants, in the preference order
+     * @param acceptEncoding the <tt>Accept-Encoding</tt> header value
+     * @return the index of the {@link Variant} to be sent, or <tt>-1</tt>
+     *         if none of the available variants is acceptable
+     */
+    public static int select(final Variant[] available,
+            final String acceptEncoding) {
+        if (acceptEncoding == null || available.length == 0) {
+            return -1;
+        }
+        
+        int selected = -1;
+        float selectedQ = 0;
+        for (int i = 0; i < available.length; i++) {
+            final float q = qValue(acceptEncoding, available[i].encoding);
+            if (q > selectedQ) {
+                selected = i;
+                selectedQ = q;
+            }
+        }
+        
+        return selected;
+    }
+    
+    /**
+     * Returns the quality of the content-coding in the <tt>Accept-Encoding</tt>
+     * header value, or <tt>0</tt> if the coding is not acceptable.
+     */
+    private static float qValue(final String acceptEncoding,
+            final String encoding) {
+        float wildcardQ = 0;
+        
+        final int len = acceptEncoding.length();
+        int start = 0;
+        while (start < len) {
+            int end = acceptEncoding.indexOf(',', start);
+            if (end == -1) {
+                end = len;
+            }
+            
+            final int paramsIdx = acceptEncoding.indexOf(';', start);
+            final int nameEnd = paramsIdx != -1 && paramsIdx < end ? paramsIdx : end;
+            final String name = acceptEncoding.substring(start, nameEnd).trim();
+            
+            final boolean isCoding = name.equalsIgnoreCase(encoding);
+            if (isCoding || "*".equals(name)) {
+                final float q = nameEnd < end
+                        ? parseQ(acceptEncoding.substring(nameEnd + 1, end))
+                        : 1;
+                if (isCoding) {
+                    return q;
+                }
+                
+                wildcardQ = q;
+            }
+            
+            start = end + 1;
+        }
+        
+        return wildcardQ;
+    }
+    
+    private static float parseQ(final String params) {
+        final int eqIdx = params.indexOf('=');
+        if (eqIdx == -1 || !"q".equalsIgnoreCase(params.substring(0, eqIdx).trim())) {
+            return 1;
+        }
+        
+        try {
+            return Float.parseFloat(params.substring(eqIdx + 1).trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    /**
+     * The pre-compressed variant: content-coding and file name suffix.
+     */
+    public static final class Variant {
+        private final String encoding;
+        private final String fileSuffix;
+
+        private Variant(final String encoding, final String fileSuffix) {
+            this.encoding = encoding;
+            this.fileSuffix = fileSuffix;
+        }
+
+        /**
+         * @return the content-coding
+         */
+        public String getEncoding() {
+            return encoding;
+        }
+
+        /**
+         * @return the variant file name suffix
+         */
+        public String getFileSuffix() {
+            return fileSuffix;
+        }
+        
+        /**
+         * @param file the original file
+         * @return the variant {@link File} of the given original file
+         */
+        public File getFile(final File file) {
+            return new File(file.getPath() + fileSuffix);
+        }
+
+        @Override
+        public String toString() {
+            return encoding + '(' + fileSuffix + ')';
+        }
+    }
+}
@@ -43,8 +43,12 @@ package org.glassfish.grizzly.http.server;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Random;
+import java.util.zip.Deflater;
 import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.http.AdaptiveCompressionPolicy;
+import org.glassfish.grizzly.http.CompressionConfig;
 import org.glassfish.grizzly.http.CompressionConfig.CompressionMode;
+import org.glassfish.grizzly.http.ContentEncodingProbe;
 import org.glassfish.grizzly.http.HttpRequestPacket;
 import org.glassfish.grizzly.http.HttpResponsePacket;
 import org.glassfish.grizzly.http.Method;
@@ -52,12 +56,16 @@ import org.glassfish.grizzly.http.Protocol;
 import org.glassfish.grizzly.http.util.Header;
 import org.glassfish.grizzly.memory.Buffers;
 import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.threadpool.FixedThreadPool;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
+import org.glassfish.grizzly.threadpool.ThreadPoolProbe;
 import org.glassfish.grizzly.utils.Charsets;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -186,6 +194,142 @@ public class CompressionEncodingFilterTest {
         assertFalse(filter.applyDecoding(request));
     }
     
+    @Test
+    public void testAdaptiveCompressionPolicy() throws Exception {
+        final TestAdaptiveCompressionPolicy policy =
+                new TestAdaptiveCompressionPolicy();
+        final CompressionConfig config = new CompressionConfig(
+                CompressionMode.ON, 1, null, null);
+        config.setAdaptiveCompressionPolicy(policy);
+        final CompressionEncodingFilter filter =
+                new CompressionEncodingFilter(config, new String[] {"gzip"});
+
+        // idle - max level
+        policy.utilization = 0;
+        HttpResponsePacket response = createResponse("text/html; charset=UTF-8");
+        assertTrue(filter.applyEncoding(response));
+        assertEquals(policy.getMaxCompressionLevel(),
+                AdaptiveCompressionPolicy.getCompressionLevel(response));
+
+        // moderate load - lower level
+        policy.utilization = 0.5f;
+        response = createResponse("text/html");
+        assertTrue(filter.applyEncoding(response));
+        final int level = AdaptiveCompressionPolicy.getCompressionLevel(response);
+        assertTrue(level < policy.getMaxCompressionLevel());
+        assertTrue(level >= policy.getMinCompressionLevel());
+
+        // saturated - skip
+        policy.utilization = 0.95f;
+        response = createResponse("text/html");
+        assertFalse(filter.applyEncoding(response));
+        assertEquals(Deflater.DEFAULT_COMPRESSION,
+                AdaptiveCompressionPolicy.getCompressionLevel(response));
+
+        final AdaptiveCompressionPolicy.ContentTypeStats htmlStats =
+                policy.getContentTypeStats("text/html");
+        assertEquals(2, htmlStats.getCompressedResponses());
+        assertEquals(1, htmlStats.getSkippedResponses());
+
+        // content type, which doesn't compress well
+        policy.utilization = 0;
+        response = createResponse("image/png");
+        assertTrue(filter.applyEncoding(response));
+        ((ContentEncodingProbe) policy.getHttpProbe()).onContentEncodingStatsEvent(
+                null, response, null, 32 * 1024, 32 * 1024 - 10, 1000);
+        final AdaptiveCompressionPolicy.ContentTypeStats pngStats =
+                policy.getContentTypeStats("image/png");
+        assertEquals(32 * 1024, pngStats.getInputBytes());
+        assertEquals(1000, pngStats.getEncodeTimeNanos());
+        assertTrue(pngStats.getCompressionRatio() > policy.getMaxCompressionRatio());
+
+        int compressed = 0;
+        for (int i = 0; i < 64; i++) {
+            response = createResponse("image/png");
+            if (filter.applyEncoding(response)) {
+                compressed++;
+                assertEquals(policy.getMinCompressionLevel(),
+                        AdaptiveCompressionPolicy.getCompressionLevel(response));
+            }
+        }
+        // still re-probed once in a while
+        assertEquals(2, compressed);
+
+        // the html ratio is not affected
+        response = createResponse("text/html");
+        assertTrue(filter.applyEncoding(response));
+    }
+
+    @Test
+    public void testAdaptiveCompressionPolicyTaskCancel() throws Exception {
+        final AdaptiveCompressionPolicy policy = new AdaptiveCompressionPolicy();
+        final ThreadPoolProbe probe = policy.getThreadPoolProbe();
+        final FixedThreadPool threadPool = new FixedThreadPool(
+                ThreadPoolConfig.defaultConfig()
+                        .setCorePoolSize(1).setMaxPoolSize(4));
+        try {
+            final Runnable task1 = new Runnable() {
+                @Override
+                public void run() {
+                }
+            };
+            final Runnable task2 = new Runnable() {
+                @Override
+                public void run() {
+                }
+            };
+            final Runnable task3 = new Runnable() {
+                @Override
+                public void run() {
+                }
+            };
+            
+            probe.onTaskQueueEvent(threadPool, task1);
+            probe.onTaskQueueEvent(threadPool, task2);
+            probe.onTaskQueueEvent(threadPool, task3);
+            assertEquals(0.75f, policy.getWorkerUtilization(), 0.001f);
+            
+            // task1 is dequeued by a worker thread
+            final Thread worker = new Thread() {
+                @Override
+                public void run() {
+                    probe.onTaskDequeueEvent(threadPool, task1);
+                }
+            };
+            worker.start();
+            worker.join();
+            assertEquals(0.75f, policy.getWorkerUtilization(), 0.001f);
+            
+            // the current thread is busy with task3
+            probe.onTaskDequeueEvent(threadPool, task3);
+            assertEquals(0.75f, policy.getWorkerUtilization(), 0.001f);
+            
+            // cancelling from the current thread releases the worker thread
+            probe.onTaskCancelEvent(threadPool, task1);
+            assertEquals(0.5f, policy.getWorkerUtilization(), 0.001f);
+            
+            // the queued task is not counted anymore, the current thread
+            // is still busy
+            probe.onTaskCancelEvent(threadPool, task2);
+            assertEquals(0.25f, policy.getWorkerUtilization(), 0.001f);
+            
+            probe.onTaskCompleteEvent(threadPool, task3);
+            assertEquals(0f, policy.getWorkerUtilization(), 0.001f);
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
+    private HttpResponsePacket createResponse(final String contentType) {
+        final HttpRequestPacket request = setAcceptEncoding(
+                HttpRequestPacket.builder().method(Method.GET).protocol(Protocol.HTTP_1_1).uri("/").build(),
+                "gzip");
+        final HttpResponsePacket response = HttpResponsePacket.builder(request)
+                .protocol(Protocol.HTTP_1_1).build();
+        response.setContentType(contentType);
+        return response;
+    }
+
     private HttpRequestPacket setAcceptEncoding(HttpRequestPacket request, String acceptEncoding) {
         return setHeader(request, Header.AcceptEncoding, acceptEncoding);
     }
@@ -228,4 +372,14 @@ public class CompressionEncodingFilterTest {
         
         return request;
     }
+
+    private static class TestAdaptiveCompressionPolicy
+            extends AdaptiveCompressionPolicy {
+        private volatile float utilization;
+
+        @Override
+        public float getWorkerUtilization() {
+            return utilization;
+        }
+    }
 }
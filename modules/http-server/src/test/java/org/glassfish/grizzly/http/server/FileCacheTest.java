@@ -87,6 +87,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
 import org.glassfish.grizzly.http.CompressionConfig.CompressionMode;
 
 import org.glassfish.grizzly.http.server.filecache.FileCacheProbe;
@@ -570,6 +571,92 @@ public class FileCacheTest {
         }
     }
     
+    @Test
+    public void testPrecompressedVariants() throws Exception {
+        final File file = createTempFile();
+        final File gzFile = new File(file.getPath() + ".gz");
+        gzFile.deleteOnExit();
+        
+        // the variant content differs from the plain file, to make sure it's
+        // not compressed at runtime
+        final String variantPattern = "Hello pre-compressed data";
+        final GZIPOutputStream gzOut = new GZIPOutputStream(new FileOutputStream(gzFile));
+        try {
+            gzOut.write(variantPattern.getBytes());
+        } finally {
+            gzOut.close();
+        }
+        
+        final StatsCacheProbe probe = new StatsCacheProbe();
+        httpServer.getServerConfiguration().getMonitoringConfig().getFileCacheConfig().addProbes(probe);
+        httpServer.getListener("grizzly").getFileCache().setPrecompressedVariantsEnabled(true);
+
+        final StaticHttpHandler staticHttpHandler = new StaticHttpHandler(file.getParent());
+        staticHttpHandler.setPrecompressedVariantsEnabled(true);
+        startHttpServer(staticHttpHandler);
+
+        InputStream fis = new FileInputStream(file);
+        byte[] data = new byte[(int) file.length()];
+        fis.read(data);
+        fis.close();
+        final String pattern = new String(data);
+        
+        final ReusableFuture<HttpContent> responseFuture =
+                new ReusableFuture<HttpContent>();
+        final Connection c = getConnection("localhost", PORT, responseFuture);
+        
+        // 1st request is served by the StaticHttpHandler, 2nd - by the FileCache
+        String eTag = null;
+        for (int i = 0; i < 2; i++) {
+            responseFuture.reset();
+            c.write(HttpRequestPacket.builder()
+                    .method("GET")
+                    .uri("/" + file.getName())
+                    .protocol("HTTP/1.1")
+                    .header("Host", "localhost")
+                    .header("Accept-Encoding", "deflate, gzip;q=0.8")
+                    .build());
+            final HttpContent response = responseFuture.get(10, TimeUnit.SECONDS);
+            
+            assertEquals(probe.toString(), "gzip", response.getHttpHeader().getHeader("Content-Encoding"));
+            assertEquals(probe.toString(), "Accept-Encoding", response.getHttpHeader().getHeader("Vary"));
+            assertEquals(probe.toString(), "text/plain", response.getHttpHeader().getContentType());
+            assertEquals("Variant data mismatch\n" + probe, variantPattern, response.getContent().toStringContent());
+            
+            eTag = response.getHttpHeader().getHeader("ETag");
+        }
+        assertEquals(1, probe.entryHitCounter.get());
+        
+        // gzip is not acceptable
+        responseFuture.reset();
+        c.write(HttpRequestPacket.builder()
+                .method("GET")
+                .uri("/" + file.getName())
+                .protocol("HTTP/1.1")
+                .header("Host", "localhost")
+                .header("Accept-Encoding", "gzip;q=0, identity")
+                .build());
+        final HttpContent response3 = responseFuture.get(10, TimeUnit.SECONDS);
+        assertNull(response3.getHttpHeader().getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response3.getHttpHeader().getHeader("Vary"));
+        assertEquals("Cached data mismatch\n" + probe, pattern, response3.getContent().toStringContent());
+        assertFalse(eTag.equals(response3.getHttpHeader().getHeader("ETag")));
+        
+        // the variant entity tag is recognized
+        responseFuture.reset();
+        c.write(HttpRequestPacket.builder()
+                .method("GET")
+                .uri("/" + file.getName())
+                .protocol("HTTP/1.1")
+                .header("Host", "localhost")
+                .header("Accept-Encoding", "gzip")
+                .header("If-None-Match", eTag)
+                .build());
+        final HttpContent response4 = responseFuture.get(10, TimeUnit.SECONDS);
+        assertEquals(304, ((HttpResponsePacket) response4.getHttpHeader()).getStatus());
+        assertEquals("Accept-Encoding", response4.getHttpHeader().getHeader("Vary"));
+    }
+    
     @SuppressWarnings("ResultOfMethodCallIgnored")
     @Test
     public void testIfModifiedSince() throws Exception {
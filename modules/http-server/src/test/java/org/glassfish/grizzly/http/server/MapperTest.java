@@ -119,4 +119,77 @@ public class MapperTest {
         assertEquals(wrapper21, md.wrapper);
         
     }
+
+    @Test
+    public void testMappingCache() throws Exception {
+        final Object host = new Object();
+        final Mapper mapper = new Mapper();
+        mapper.setDefaultHostName("default");
+        mapper.addHost("default", new String[0], host);
+
+        final Object context = new Object();
+        mapper.addContext("default", "/ctx", context, new String[0], null);
+        final Object exactWrapper = new Object();
+        final Object prefixWrapper = new Object();
+        mapper.addWrapper("default", "/ctx", "/exact", exactWrapper);
+        mapper.addWrapper("default", "/ctx", "/prefix/*", prefixWrapper);
+
+        final Mapper uncachedMapper = new Mapper();
+        uncachedMapper.setMappingCacheSize(0);
+        uncachedMapper.setDefaultHostName("default");
+        uncachedMapper.addHost("default", new String[0], host);
+        uncachedMapper.addContext("default", "/ctx", context, new String[0], null);
+        uncachedMapper.addWrapper("default", "/ctx", "/exact", exactWrapper);
+        uncachedMapper.addWrapper("default", "/ctx", "/prefix/*", prefixWrapper);
+
+        final String[] uris = {"/ctx/exact", "/ctx/prefix/a/b", "/unknown"};
+        for (int i = 0; i < 3; i++) {
+            for (String uri : uris) {
+                final MappingData expected = map(uncachedMapper, uri);
+                final MappingData md = map(mapper, uri);
+                assertEquals(expected.toString(), md.toString());
+            }
+        }
+
+        assertEquals(uris.length, mapper.getMappingCacheMisses());
+        assertEquals(uris.length * 2, mapper.getMappingCacheHits());
+        assertEquals(0, uncachedMapper.getMappingCacheHits());
+
+        MappingData md = map(mapper, "/ctx/prefix/a/b");
+        assertEquals(prefixWrapper, md.wrapper);
+        assertEquals("/prefix", md.wrapperPath.toString());
+        assertEquals("/a/b", md.pathInfo.toString());
+        assertEquals("/ctx", md.contextPath.toString());
+
+        // mapper modification has to invalidate the cached results
+        mapper.removeWrapper("default", "/ctx", "/exact");
+        md = map(mapper, "/ctx/exact");
+        assertNull(md.wrapper);
+        assertEquals(context, md.context);
+
+        final Object newWrapper = new Object();
+        mapper.addWrapper("default", "/ctx", "/exact", newWrapper);
+        md = map(mapper, "/ctx/exact");
+        assertEquals(newWrapper, md.wrapper);
+
+        // redirects modify the URI and must not be cached
+        final long misses = mapper.getMappingCacheMisses();
+        for (int i = 0; i < 2; i++) {
+            md = map(mapper, "/ctx");
+            assertEquals("/ctx/", md.redirectPath.toString());
+        }
+        assertEquals(misses + 2, mapper.getMappingCacheMisses());
+    }
+
+    private static MappingData map(final Mapper mapper, final String uriStr)
+            throws Exception {
+        final DataChunk host = DataChunk.newInstance();
+        host.setBytes("default".getBytes());
+        final DataChunk uri = DataChunk.newInstance();
+        uri.setBytes(uriStr.getBytes());
+
+        final MappingData md = new MappingData();
+        mapper.map(host, uri, md);
+        return md;
+    }
 }
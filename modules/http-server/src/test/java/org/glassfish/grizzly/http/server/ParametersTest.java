@@ -200,6 +200,68 @@ public class ParametersTest {
         }
     }
     
+    /**
+     * Lazy parameter parsing of the query string and the POST body
+     */
+    @Test
+    public void testLazyParameterParsing() throws Exception {
+        final HttpServer server = createServer();
+        final String body = generatePostBody(1024 * 3);
+        final String[][] paramParts = getParts(body);
+        final FutureImpl<Boolean> resultFuture = Futures.createSafeFuture();
+        server.getServerConfiguration().setLazyParameterParsing(true);
+        server.getServerConfiguration().addHttpHandler(
+                new HttpHandler() {
+                    @Override
+                    public void service(Request request, Response response) throws Exception {
+                        try {
+                            assertEquals("a b", request.getParameter("q"));
+                            for (int i = 0, len = paramParts.length; i < len; i++) {
+                                assertEquals(paramParts[i][1],
+                                        request.getParameter(paramParts[i][0]));
+                            }
+                            assertEquals("q", request.getParameterNames().iterator().next());
+                            assertEquals(paramParts.length + 1,
+                                    request.getParameterMap().size());
+                            resultFuture.result(Boolean.TRUE);
+                        } catch (Throwable t) {
+                            resultFuture.failure(t);
+                        }
+                    }
+                }
+                , "/*");
+
+        final TCPNIOTransport clientTransport =
+                TCPNIOTransportBuilder.newInstance().build();
+        try {
+            FilterChainBuilder clientFilterChainBuilder = FilterChainBuilder.stateless();
+            clientFilterChainBuilder.add(new TransportFilter());
+            clientFilterChainBuilder.add(new HttpClientFilter());
+            clientTransport.setProcessor(clientFilterChainBuilder.build());
+            clientTransport.start();
+
+            server.start();
+            TCPNIOConnectorHandler handler = TCPNIOConnectorHandler.builder(clientTransport).build();
+            GrizzlyFuture<Connection> future = handler.connect("localhost", PORT);
+            final Buffer bodyBuffer = Buffers.wrap(clientTransport.getMemoryManager(), body);
+            HttpRequestPacket request = HttpRequestPacket.builder()
+                    .method(Method.POST)
+                    .uri("/")
+                    .query("q=a%20b")
+                    .contentLength(bodyBuffer.remaining())
+                    .header(Header.Host, "localhost:" + PORT)
+                    .contentType("application/x-www-form-urlencoded; charset=ISO-8859-1")
+                    .protocol(Protocol.HTTP_1_1).build();
+            HttpContent content = HttpContent.builder(request).content(bodyBuffer).last(true).build();
+            Connection c = future.get(10, TimeUnit.SECONDS);
+            c.write(content);
+            resultFuture.get(10, TimeUnit.SECONDS);
+        } finally {
+            server.shutdownNow();
+            clientTransport.shutdownNow();
+        }
+    }
+
     /**
      * Test customized query string encoding
      * https://java.net/jira/browse/GRIZZLY-1794
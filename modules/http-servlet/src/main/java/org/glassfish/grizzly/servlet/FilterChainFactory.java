@@ -57,8 +57,11 @@
  */
 package org.glassfish.grizzly.servlet;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import javax.servlet.DispatcherType;
 import javax.servlet.Servlet;
 import javax.servlet.ServletRequest;
@@ -69,16 +72,42 @@ import org.glassfish.grizzly.http.server.util.Globals;
  * <code>FilterChainFactory</code> is responsible for building a {@link javax.servlet.FilterChain}
  * instance with the Filters that need to be invoked for a particular request URI.
  *
- * TODO: We should look into how to cache these.  They currently are re-built
- *  on each request.
+ * The resolved filter arrays depend only on the (servlet name, request path,
+ * dispatcher type) triple, so they are kept in a bounded cache and shared by
+ * the {@link FilterChainImpl}s created for the same triple. The cache is
+ * invalidated by the {@link WebappContext} whenever the filter mappings
+ * change.
  *
  * @since 2.2
  */
 public class FilterChainFactory {
 
+    /**
+     * The number of the filter chain cache slots, <tt>0</tt> disables
+     * the cache.
+     */
+    private static final int FILTER_CHAIN_CACHE_SIZE = Integer.getInteger(
+            "org.glassfish.grizzly.servlet.FilterChainFactory.filterChainCacheSize", 256);
+
+    private static final FilterRegistration[] EMPTY_FILTERS =
+            new FilterRegistration[0];
+
 //    private final Collection<FilterRegistration> registrations;
     private final WebappContext ctx;
 
+    /**
+     * Direct-mapped cache of the resolved filter arrays, or <tt>null</tt> if
+     * the cache is disabled.
+     */
+    private final AtomicReferenceArray<CachedFilters> filtersCache;
+    private final int filtersCacheMask;
+
+    /**
+     * The filter mappings generation, the cached entries of the older
+     * generations are ignored.
+     */
+    private final AtomicInteger generation = new AtomicInteger();
+
 
     // ------------------------------------------------------------ Constructors
 
@@ -88,6 +117,15 @@ public class FilterChainFactory {
         this.ctx = ctx;
 //        this.registrations = registrations;
 
+        if (FILTER_CHAIN_CACHE_SIZE > 0) {
+            final int size = Integer.highestOneBit(
+                    Math.min(FILTER_CHAIN_CACHE_SIZE, 1 << 16) * 2 - 1);
+            filtersCache = new AtomicReferenceArray<>(size);
+            filtersCacheMask = size - 1;
+        } else {
+            filtersCache = null;
+            filtersCacheMask = 0;
+        }
     }
 
 
@@ -126,6 +164,16 @@ public class FilterChainFactory {
 
     }
 
+    /**
+     * Invalidates the cached filter chains. Must be called every time the
+     * filter mappings of the {@link WebappContext} are changed.
+     *
+     * @since 2.4.4
+     */
+    public void invalidateFilterChainCache() {
+        generation.incrementAndGet();
+    }
+
 
 
     // -------------------------------------------------------- Private Methods
@@ -137,18 +185,48 @@ public class FilterChainFactory {
             return (null);
         }
 
-        // Create and initialize a filter chain object
-        FilterChainImpl filterChain = new FilterChainImpl(servlet, ctx);
+        // If there are no filter mappings, we are done
+        if (ctx.getFilterRegistrations().isEmpty()) {
+            return new FilterChainImpl(servlet, ctx, EMPTY_FILTERS);
+        }
 
-        final Map<String, ? extends FilterRegistration> registrations =
-                ctx.getFilterRegistrations();
+        final String servletName = servlet.getServletConfig().getServletName();
 
-        // If there are no filter mappings, we are done
-        if (registrations.isEmpty()) {
-            return filterChain;
+        if (filtersCache == null) {
+            return new FilterChainImpl(servlet, ctx,
+                    resolveFilters(servletName, requestPath, dispatcherType));
         }
-        
+
+        final int gen = generation.get();
+        final int idx = hash(servletName, requestPath, dispatcherType)
+                & filtersCacheMask;
+
+        final CachedFilters cached = filtersCache.get(idx);
+        if (cached != null && cached.generation == gen
+                && cached.matches(servletName, requestPath, dispatcherType)) {
+            return new FilterChainImpl(servlet, ctx, cached.filters);
+        }
+
+        final FilterRegistration[] filters =
+                resolveFilters(servletName, requestPath, dispatcherType);
+        filtersCache.set(idx, new CachedFilters(gen, servletName, requestPath,
+                dispatcherType, filters));
+
+        return new FilterChainImpl(servlet, ctx, filters);
+    }
+
+    /**
+     * Returns the filters, which have to be invoked for the given servlet
+     * name, request path and dispatcher type, in the invocation order.
+     */
+    private FilterRegistration[] resolveFilters(final String servletName,
+            final String requestPath,
+            final DispatcherType dispatcherType) {
+
+        final Map<String, ? extends FilterRegistration> registrations =
+                ctx.getFilterRegistrations();
         final List<FilterMap> filterMaps = ctx.getFilterMaps();
+        final List<FilterRegistration> filters = new ArrayList<>(4);
 
         // Add the relevant path-mapped filters to this filter chain
         for (final FilterMap filterMap : filterMaps) {
@@ -160,11 +238,10 @@ public class FilterChainFactory {
                 continue;
             }
             
-            filterChain.addFilter(registrations.get(filterMap.getFilterName()));
+            filters.add(registrations.get(filterMap.getFilterName()));
         }
 
         // Add filters that match on servlet name second
-        String servletName = servlet.getServletConfig().getServletName();
         for (final FilterMap filterMap : filterMaps) {
             if (!filterMap.getDispatcherTypes().contains(dispatcherType)) {
                 continue;
@@ -174,13 +251,23 @@ public class FilterChainFactory {
                 continue;
             }
             
-            filterChain.addFilter(registrations.get(filterMap.getFilterName()));
+            filters.add(registrations.get(filterMap.getFilterName()));
         }
 
-        // Return the completed filter chain
-        return filterChain;
+        return filters.isEmpty()
+                ? EMPTY_FILTERS
+                : filters.toArray(new FilterRegistration[filters.size()]);
     }
 
+    private static int hash(final String servletName,
+            final String requestPath,
+            final DispatcherType dispatcherType) {
+        int h = servletName != null ? servletName.hashCode() : 0;
+        h = 31 * h + (requestPath != null ? requestPath.hashCode() : 0);
+        h = 31 * h + dispatcherType.ordinal();
+        
+        return h ^ (h >>> 16);
+    }
 
     private String getRequestPath(ServletRequest request) {
         // get the dispatcher type
@@ -292,4 +379,40 @@ public class FilterChainFactory {
         }
     }
 
+
+    /**
+     * The filters resolved for the (servlet name, request path, dispatcher type)
+     * triple.
+     */
+    private static final class CachedFilters {
+        private final int generation;
+        private final String servletName;
+        private final String requestPath;
+        private final DispatcherType dispatcherType;
+        private final FilterRegistration[] filters;
+
+        private CachedFilters(final int generation,
+                final String servletName,
+                final String requestPath,
+                final DispatcherType dispatcherType,
+                final FilterRegistration[] filters) {
+            this.generation = generation;
+            this.servletName = servletName;
+            this.requestPath = requestPath;
+            this.dispatcherType = dispatcherType;
+            this.filters = filters;
+        }
+
+        private boolean matches(final String servletName,
+                final String requestPath,
+                final DispatcherType dispatcherType) {
+            return this.dispatcherType == dispatcherType
+                    && isEqual(this.requestPath, requestPath)
+                    && isEqual(this.servletName, servletName);
+        }
+
+        private static boolean isEqual(final String s1, final String s2) {
+            return s1 == null ? s2 == null : s1.equals(s2);
+        }
+    }
 }
@@ -75,10 +75,11 @@ final class FilterChainImpl implements FilterChain, FilterChainInvoker {
     private final Servlet servlet;
     private final WebappContext ctx;
 
-    private final Object lock = new Object();
-    private int n;
-
-    private FilterRegistration[] filters = new FilterRegistration[0];
+    /**
+     * The filters to be executed by this chain. The array is shared with
+     * other chains and must not be modified.
+     */
+    private final FilterRegistration[] filters;
 
     /**
      * The int which is used to maintain the current position
@@ -87,10 +88,12 @@ final class FilterChainImpl implements FilterChain, FilterChainInvoker {
     private int pos;
 
     public FilterChainImpl(final Servlet servlet,
-                           final WebappContext ctx) {
+                           final WebappContext ctx,
+                           final FilterRegistration[] filters) {
 
         this.servlet = servlet;
         this.ctx = ctx;
+        this.filters = filters;
     }
 
     // ---------------------------------------------------- FilterChain Methods
@@ -129,7 +132,7 @@ final class FilterChainImpl implements FilterChain, FilterChainInvoker {
             throws IOException, ServletException {
 
         // Call the next filter if there is one
-        if (pos < n) {
+        if (pos < filters.length) {
 
             FilterRegistration registration = filters[pos++];
 
@@ -154,23 +157,6 @@ final class FilterChainImpl implements FilterChain, FilterChainInvoker {
 
     }
 
-    // ------------------------------------------------------- Protected Methods
-
-
-    protected void addFilter(final FilterRegistration filterRegistration) {
-        synchronized (lock) {
-            if (n == filters.length) {
-                FilterRegistration[] newFilters =
-                        new FilterRegistration[n + 4];
-                System.arraycopy(filters, 0, newFilters, 0, n);
-                filters = newFilters;
-            }
-
-            filters[n++] = filterRegistration;
-        }
-    }
-
-
     // --------------------------------------------------------- Private Methods
 
     private void requestDestroyed(ServletRequestEvent event) {
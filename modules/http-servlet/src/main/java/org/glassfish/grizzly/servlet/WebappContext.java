@@ -1777,6 +1777,7 @@ public class WebappContext implements ServletContext {
         } else {
             filterMaps.add(0, filterMap);
         }
+        filterChainFactory.invalidateFilterChainCache();
 
 //        if (notifyContainerListeners) {
 //            fireContainerEvent("addFilterMap", filterMap);
@@ -1799,6 +1800,7 @@ public class WebappContext implements ServletContext {
 //            }
 //        }
         filterMaps.clear();
+        filterChainFactory.invalidateFilterChainCache();
     }    
     /**
      * Gets the current servlet name mappings of the Filter with
@@ -1850,6 +1852,7 @@ public class WebappContext implements ServletContext {
                             fmi.remove();
                         }
                     }
+                    filterChainFactory.invalidateFilterChainCache();
                     f.destroy();
                     i.remove();
                 }
@@ -380,6 +380,54 @@ public class HttpServerTest extends HttpServerAbstractTest {
         assertTrue(destroy[0]);
     }
 
+    public void testCachedFilterChains() throws IOException {
+        System.out.println("testCachedFilterChains");
+        try {
+            final int port = PORT + 11;
+            httpServer = HttpServer.createSimpleServer(".", port);
+            final StringBuffer trace = new StringBuffer();
+            WebappContext ctx = new WebappContext("Test");
+
+            addServlet(ctx, "/test");
+
+            final Filter byServletName = addTracingFilter(ctx, "c", trace);
+            ctx.getFilterRegistration("c").addMappingForServletNames(null, "/test");
+            addTracingFilter(ctx, "a", trace);
+            ctx.getFilterRegistration("a").addMappingForUrlPatterns(null, "/*");
+            final Filter byExactPath = addTracingFilter(ctx, "b", trace);
+            ctx.getFilterRegistration("b").addMappingForUrlPatterns(null, "/test");
+            ctx.deploy(httpServer);
+            httpServer.start();
+
+            // the second request reuses the cached filter chain
+            for (int i = 0; i < 2; i++) {
+                trace.setLength(0);
+                HttpURLConnection conn = getConnection("/test", port);
+                assertEquals(HttpServletResponse.SC_OK,
+                        getResponseCodeFromAlias(conn));
+                assertEquals("/test", readResponse(conn));
+                assertEquals("abc", trace.toString());
+            }
+
+            trace.setLength(0);
+            HttpURLConnection conn = getConnection("/foo", port);
+            assertEquals(HttpServletResponse.SC_NOT_FOUND,
+                    getResponseCodeFromAlias(conn));
+            assertEquals("a", trace.toString());
+
+            // filter mapping changes have to invalidate the cached chains
+            ctx.unregisterFilter(byExactPath);
+            ctx.unregisterFilter(byServletName);
+            trace.setLength(0);
+            conn = getConnection("/test", port);
+            assertEquals(HttpServletResponse.SC_OK,
+                    getResponseCodeFromAlias(conn));
+            assertEquals("a", trace.toString());
+        } finally {
+            stopHttpServer();
+        }
+    }
+
     /**
      * Test for https://grizzly.dev.java.net/issues/show_bug.cgi?id=513
      *
@@ -451,6 +499,30 @@ public class HttpServerTest extends HttpServerAbstractTest {
         }
     }
 
+    private Filter addTracingFilter(final WebappContext ctx,
+                                    final String name,
+                                    final StringBuffer trace) {
+        final Filter filter = new Filter() {
+            @Override
+            public void init(final FilterConfig filterConfig) {
+            }
+
+            @Override
+            public void doFilter(
+                    final ServletRequest request, final ServletResponse response,
+                    final FilterChain chain) throws IOException, ServletException {
+                trace.append(name);
+                chain.doFilter(request, response);
+            }
+
+            @Override
+            public void destroy() {
+            }
+        };
+        ctx.addFilter(name, filter);
+        return filter;
+    }
+
     private ServletRegistration addServlet(final WebappContext ctx,
                                            final String alias) {
         ServletRegistration reg = ctx.addServlet(alias, new HttpServlet() {
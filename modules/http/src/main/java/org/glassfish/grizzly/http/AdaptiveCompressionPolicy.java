@@ -0,0 +1,522 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.attributes.Attribute;
+import org.glassfish.grizzly.threadpool.AbstractThreadPool;
+import org.glassfish.grizzly.threadpool.ThreadPoolProbe;
+
+/**
+ * Policy, which chooses the deflate compression level per HTTP response
+ * based on the current worker thread pool utilization and the compression
+ * ratio observed for the response content type.
+ *
+ * When the worker thread pool is mostly idle, responses are compressed using
+ * the {@link #getMaxCompressionLevel() max compression level}. As the
+ * utilization grows the level is lowered down to the
+ * {@link #getMinCompressionLevel() min compression level}, and once the
+ * utilization reaches the {@link #getHighUtilization() high utilization}
+ * mark compression is skipped completely, so the CPU is not spent on
+ * compression, when it's needed to serve requests. Compression is skipped as
+ * well for the content types, which do not compress well, but every
+ * {@value #REPROBE_INTERVAL}th such response is still compressed to keep the
+ * estimate up-to-date.
+ *
+ * The policy learns from the events it receives via its {@link HttpProbe}
+ * and {@link ThreadPoolProbe}, which have to be registered on the
+ * {@link HttpCodecFilter} and the transport worker thread pool
+ * correspondingly (<tt>HttpServer</tt> does it automatically for the
+ * policy set on the listener {@link CompressionConfig}).
+ *
+ * @since 2.4.4
+ */
+public class AdaptiveCompressionPolicy {
+    /**
+     * The value returned by {@link #selectCompressionLevel(HttpHeader)},
+     * if the response should not be compressed.
+     */
+    public static final int SKIP_COMPRESSION = -2;
+
+    public static final int DEFAULT_MIN_COMPRESSION_LEVEL = Deflater.BEST_SPEED;
+    public static final int DEFAULT_MAX_COMPRESSION_LEVEL = Deflater.BEST_COMPRESSION;
+    public static final float DEFAULT_LOW_UTILIZATION = 0.25f;
+    public static final float DEFAULT_HIGH_UTILIZATION = 0.9f;
+    public static final float DEFAULT_MAX_COMPRESSION_RATIO = 0.9f;
+
+    /**
+     * The content type key, which accumulates the statistics for the
+     * responses without a content type and for the content types, which
+     * didn't fit into the {@link #MAX_TRACKED_CONTENT_TYPES} limit.
+     */
+    public static final String OTHER_CONTENT_TYPE = "*";
+
+    static final int REPROBE_INTERVAL = 32;
+    private static final int MAX_TRACKED_CONTENT_TYPES = 128;
+    // the amount of data, which has to be compressed before the observed
+    // compression ratio is taken into account
+    private static final int MIN_SAMPLE_SIZE = 16 * 1024;
+    // the amount of data, which makes up the moving average window
+    private static final int RATIO_WINDOW_SIZE = 256 * 1024;
+
+    private static final Attribute<Integer> COMPRESSION_LEVEL_ATTR =
+            Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createAttribute(
+            AdaptiveCompressionPolicy.class.getName() + ".compression-level");
+
+    private volatile int minCompressionLevel = DEFAULT_MIN_COMPRESSION_LEVEL;
+    private volatile int maxCompressionLevel = DEFAULT_MAX_COMPRESSION_LEVEL;
+    private volatile float lowUtilization = DEFAULT_LOW_UTILIZATION;
+    private volatile float highUtilization = DEFAULT_HIGH_UTILIZATION;
+    private volatile float maxCompressionRatio = DEFAULT_MAX_COMPRESSION_RATIO;
+
+    private final ConcurrentMap<String, ContentTypeStats> stats =
+            new ConcurrentHashMap<>();
+
+    // worker threads, which are currently processing a task, mapped to the task
+    private final ConcurrentMap<Thread, Runnable> busyThreads =
+            new ConcurrentHashMap<>();
+    private final AtomicInteger queuedTasks = new AtomicInteger();
+    private volatile int maxPoolSize;
+
+    private final HttpProbe httpProbe = new StatsHttpProbe();
+    private final ThreadPoolProbe threadPoolProbe = new UtilizationProbe();
+
+    // ------------------------------------------------------------ Public Methods
+
+    /**
+     * Returns the compression level, which has to be used to compress the
+     * passed {@link HttpHeader} payload, or {@link #SKIP_COMPRESSION}, if the
+     * payload should not be compressed. If the payload should be compressed,
+     * the level is also stored on the {@link HttpHeader}, so it could be
+     * picked up by the {@link ContentEncoding} via
+     * {@link #getCompressionLevel(HttpHeader)}.
+     *
+     * @param httpHeader the {@link HttpHeader} to be compressed.
+     * @return the compression level, or {@link #SKIP_COMPRESSION}.
+     */
+    public int selectCompressionLevel(final HttpHeader httpHeader) {
+        final ContentTypeStats contentTypeStats =
+                obtainStats(httpHeader.getContentType());
+        final int level = selectCompressionLevel(contentTypeStats);
+        if (level == SKIP_COMPRESSION) {
+            contentTypeStats.skippedResponses.incrementAndGet();
+        } else {
+            contentTypeStats.compressedResponses.incrementAndGet();
+            COMPRESSION_LEVEL_ATTR.set(httpHeader, level);
+        }
+
+        return level;
+    }
+
+    /**
+     * Returns the compression level, selected for the {@link HttpHeader}
+     * by an <tt>AdaptiveCompressionPolicy</tt>, or
+     * {@link Deflater#DEFAULT_COMPRESSION}, if the level wasn't selected.
+     */
+    public static int getCompressionLevel(final HttpHeader httpHeader) {
+        final Integer level = COMPRESSION_LEVEL_ATTR.get(httpHeader);
+        return level != null ? level : Deflater.DEFAULT_COMPRESSION;
+    }
+
+    /**
+     * Returns the current worker thread pool utilization, which is the
+     * number of the busy worker threads plus the number of queued tasks
+     * divided by the max thread pool size. Returns <tt>0</tt>, if the
+     * {@link #getThreadPoolProbe() thread pool probe} hasn't received any
+     * events yet.
+     */
+    public float getWorkerUtilization() {
+        final int poolSize = maxPoolSize;
+        if (poolSize <= 0) {
+            return 0;
+        }
+
+        final int load = busyThreads.size() + Math.max(queuedTasks.get(), 0);
+        return (float) load / poolSize;
+    }
+
+    /**
+     * Returns the {@link HttpProbe}, which collects the compression
+     * statistics. The probe has to be registered on the
+     * {@link HttpCodecFilter}, which applies the content encoding.
+     * The returned probe also implements {@link ContentEncodingProbe}.
+     */
+    public HttpProbe getHttpProbe() {
+        return httpProbe;
+    }
+
+    /**
+     * Returns the {@link ThreadPoolProbe}, which tracks the worker thread
+     * pool utilization. The probe has to be registered on the transport
+     * worker thread pool.
+     */
+    public ThreadPoolProbe getThreadPoolProbe() {
+        return threadPoolProbe;
+    }
+
+    /**
+     * Returns the read-only map of the per content type compression
+     * statistics.
+     */
+    public Map<String, ContentTypeStats> getContentTypeStats() {
+        return Collections.unmodifiableMap(stats);
+    }
+
+    /**
+     * Returns the compression statistics for the given content type, or
+     * <tt>null</tt>, if there were no responses of this content type.
+     */
+    public ContentTypeStats getContentTypeStats(final String contentType) {
+        return stats.get(toStatsKey(contentType));
+    }
+
+    /**
+     * Returns the compression level used when the worker thread pool is
+     * about to be saturated.
+     */
+    public int getMinCompressionLevel() {
+        return minCompressionLevel;
+    }
+
+    /**
+     * Sets the compression level used when the worker thread pool is
+     * about to be saturated.
+     */
+    public void setMinCompressionLevel(final int minCompressionLevel) {
+        checkLevel(minCompressionLevel);
+        this.minCompressionLevel = minCompressionLevel;
+    }
+
+    /**
+     * Returns the compression level used when the worker thread pool is
+     * mostly idle.
+     */
+    public int getMaxCompressionLevel() {
+        return maxCompressionLevel;
+    }
+
+    /**
+     * Sets the compression level used when the worker thread pool is
+     * mostly idle.
+     */
+    public void setMaxCompressionLevel(final int maxCompressionLevel) {
+        checkLevel(maxCompressionLevel);
+        this.maxCompressionLevel = maxCompressionLevel;
+    }
+
+    /**
+     * Returns the worker thread pool utilization, below which the
+     * {@link #getMaxCompressionLevel() max compression level} is used.
+     */
+    public float getLowUtilization() {
+        return lowUtilization;
+    }
+
+    /**
+     * Sets the worker thread pool utilization, below which the
+     * {@link #getMaxCompressionLevel() max compression level} is used.
+     */
+    public void setLowUtilization(final float lowUtilization) {
+        this.lowUtilization = lowUtilization;
+    }
+
+    /**
+     * Returns the worker thread pool utilization, starting from which
+     * compression is skipped.
+     */
+    public float getHighUtilization() {
+        return highUtilization;
+    }
+
+    /**
+     * Sets the worker thread pool utilization, starting from which
+     * compression is skipped.
+     */
+    public void setHighUtilization(final float highUtilization) {
+        this.highUtilization = highUtilization;
+    }
+
+    /**
+     * Returns the compressed to original size ratio, above which the content
+     * type is considered not worth compressing.
+     */
+    public float getMaxCompressionRatio() {
+        return maxCompressionRatio;
+    }
+
+    /**
+     * Sets the compressed to original size ratio, above which the content
+     * type is considered not worth compressing.
+     */
+    public void setMaxCompressionRatio(final float maxCompressionRatio) {
+        this.maxCompressionRatio = maxCompressionRatio;
+    }
+
+    // ----------------------------------------------------------- Private Methods
+
+    private int selectCompressionLevel(final ContentTypeStats contentTypeStats) {
+        final float utilization = getWorkerUtilization();
+        final float high = highUtilization;
+        if (utilization >= high) {
+            return SKIP_COMPRESSION;
+        }
+
+        final int min = minCompressionLevel;
+        final int max = Math.max(min, maxCompressionLevel);
+
+        if (contentTypeStats.inputBytes.get() >= MIN_SAMPLE_SIZE
+                && contentTypeStats.ratio > maxCompressionRatio) {
+            // doesn't compress well, probe it once in a while
+            return contentTypeStats.poorRatioHits.incrementAndGet()
+                    % REPROBE_INTERVAL == 0
+                    ? min
+                    : SKIP_COMPRESSION;
+        }
+
+        final float low = lowUtilization;
+        if (utilization <= low) {
+            return max;
+        }
+
+        final int level = max - (int) ((utilization - low) / (high - low)
+                * (max - min + 1));
+        return Math.max(min, level);
+    }
+
+    private ContentTypeStats obtainStats(final String contentType) {
+        final String key = toStatsKey(contentType);
+
+        ContentTypeStats contentTypeStats = stats.get(key);
+        if (contentTypeStats == null) {
+            final String statsKey = stats.size() < MAX_TRACKED_CONTENT_TYPES
+                    ? key
+                    : OTHER_CONTENT_TYPE;
+            final ContentTypeStats newStats = new ContentTypeStats();
+            contentTypeStats = stats.putIfAbsent(statsKey, newStats);
+            if (contentTypeStats == null) {
+                contentTypeStats = newStats;
+            }
+        }
+
+        return contentTypeStats;
+    }
+
+    private static String toStatsKey(final String contentType) {
+        if (contentType == null) {
+            return OTHER_CONTENT_TYPE;
+        }
+
+        final int idx = contentType.indexOf(';');
+        return idx == -1 ? contentType : contentType.substring(0, idx).trim();
+    }
+
+    private static void checkLevel(final int level) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+    }
+
+    // ---------------------------------------------------------- Nested Classes
+
+    /**
+     * Compression statistics collected for a content type.
+     */
+    public static final class ContentTypeStats {
+        private final AtomicLong compressedResponses = new AtomicLong();
+        private final AtomicLong skippedResponses = new AtomicLong();
+        private final AtomicLong inputBytes = new AtomicLong();
+        private final AtomicLong outputBytes = new AtomicLong();
+        private final AtomicLong encodeTimeNanos = new AtomicLong();
+        // number of responses, which found the ratio to be poor
+        private final AtomicInteger poorRatioHits = new AtomicInteger();
+
+        // moving average of the compressed to original size ratio.
+        // updated without synchronization, so concurrent updates might be
+        // lost, which is fine for an estimate.
+        private volatile float ratio = Float.NaN;
+
+        /**
+         * Returns the number of the responses chosen to be compressed.
+         */
+        public long getCompressedResponses() {
+            return compressedResponses.get();
+        }
+
+        /**
+         * Returns the number of the responses, which were not compressed
+         * because of the worker thread pool utilization or poor compression
+         * ratio.
+         */
+        public long getSkippedResponses() {
+            return skippedResponses.get();
+        }
+
+        /**
+         * Returns the total number of bytes passed to the encoder.
+         */
+        public long getInputBytes() {
+            return inputBytes.get();
+        }
+
+        /**
+         * Returns the total number of bytes produced by the encoder.
+         */
+        public long getOutputBytes() {
+            return outputBytes.get();
+        }
+
+        /**
+         * Returns the total time, in nanoseconds, spent in the encoder.
+         */
+        public long getEncodeTimeNanos() {
+            return encodeTimeNanos.get();
+        }
+
+        /**
+         * Returns the recently observed compressed to original size ratio,
+         * or {@link Float#NaN}, if nothing has been compressed yet.
+         */
+        public float getCompressionRatio() {
+            return ratio;
+        }
+
+        void update(final int inputSize, final int outputSize,
+                final long nanos) {
+            inputBytes.addAndGet(inputSize);
+            outputBytes.addAndGet(outputSize);
+            encodeTimeNanos.addAndGet(nanos);
+
+            if (inputSize > 0) {
+                final float sampleRatio = (float) outputSize / inputSize;
+                final float currentRatio = ratio;
+                if (Float.isNaN(currentRatio)) {
+                    ratio = sampleRatio;
+                } else {
+                    final float weight = Math.min(1f,
+                            (float) inputSize / RATIO_WINDOW_SIZE);
+                    ratio = currentRatio + (sampleRatio - currentRatio) * weight;
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "ContentTypeStats{compressedResponses=" + compressedResponses
+                    + ", skippedResponses=" + skippedResponses
+                    + ", inputBytes=" + inputBytes
+                    + ", outputBytes=" + outputBytes
+                    + ", encodeTimeNanos=" + encodeTimeNanos
+                    + ", ratio=" + ratio + '}';
+        }
+    }
+
+    private final class StatsHttpProbe extends HttpProbe.Adapter
+            implements ContentEncodingProbe {
+
+        @Override
+        public void onContentEncodingStatsEvent(final Connection connection,
+                final HttpHeader header, final ContentEncoding contentEncoding,
+                final int inputSize, final int outputSize,
+                final long encodeTimeNanos) {
+            if (COMPRESSION_LEVEL_ATTR.isSet(header)) {
+                obtainStats(header.getContentType()).update(
+                        inputSize, outputSize, encodeTimeNanos);
+            }
+        }
+    }
+
+    private final class UtilizationProbe extends ThreadPoolProbe.Adapter {
+
+        @Override
+        public void onTaskQueueEvent(final AbstractThreadPool threadPool,
+                final Runnable task) {
+            maxPoolSize = threadPool.getConfig().getMaxPoolSize();
+            queuedTasks.incrementAndGet();
+        }
+
+        @Override
+        public void onTaskDequeueEvent(final AbstractThreadPool threadPool,
+                final Runnable task) {
+            // if the previous task on this thread failed, its entry is
+            // simply overwritten, so the busy threads set can't leak
+            busyThreads.put(Thread.currentThread(), task);
+            queuedTasks.decrementAndGet();
+        }
+
+        @Override
+        public void onTaskCancelEvent(final AbstractThreadPool threadPool,
+                final Runnable task) {
+            // the event is fired by the cancelling thread (see shutdownNow()),
+            // so release the thread, which has dequeued the task, if any.
+            // Cancellation is rare, so the linear scan is fine here.
+            for (Map.Entry<Thread, Runnable> entry : busyThreads.entrySet()) {
+                if (entry.getValue() == task
+                        && busyThreads.remove(entry.getKey(), task)) {
+                    return;
+                }
+            }
+            
+            // the task hasn't been reported as dequeued - it's still counted
+            // as queued
+            queuedTasks.decrementAndGet();
+        }
+
+        @Override
+        public void onTaskCompleteEvent(final AbstractThreadPool threadPool,
+                final Runnable task) {
+            busyThreads.remove(Thread.currentThread());
+        }
+
+        @Override
+        public void onThreadReleaseEvent(final AbstractThreadPool threadPool,
+                final Thread thread) {
+            busyThreads.remove(thread);
+        }
+    }
+}
@@ -103,6 +103,8 @@ public final class CompressionConfig {
             new ArraySet<String>(String.class);
     // Allow decompression of incoming data
     private boolean decompressionEnabled;
+    // the policy to select compression level per response
+    private AdaptiveCompressionPolicy adaptiveCompressionPolicy;
     
     public CompressionConfig() {
         compressionMode = CompressionMode.OFF;
@@ -154,6 +156,7 @@ public final class CompressionConfig {
         setCompressibleMimeTypes(compression.compressibleMimeTypes);
         setNoCompressionUserAgents(compression.noCompressionUserAgents);
         decompressionEnabled = compression.isDecompressionEnabled();
+        adaptiveCompressionPolicy = compression.adaptiveCompressionPolicy;
     }
     
     /**
@@ -337,6 +340,33 @@ public final class CompressionConfig {
         this.decompressionEnabled = decompressionEnabled;
     }
 
+    /**
+     * Returns the {@link AdaptiveCompressionPolicy}, which selects the
+     * compression level (or skips compression) per response, or <tt>null</tt>,
+     * if every eligible response is compressed using the default level.
+     *
+     * @since 2.4.4
+     */
+    public AdaptiveCompressionPolicy getAdaptiveCompressionPolicy() {
+        return adaptiveCompressionPolicy;
+    }
+
+    /**
+     * Sets the {@link AdaptiveCompressionPolicy}, which selects the
+     * compression level (or skips compression) per response.
+     * Please note that, unlike other settings, the policy is not copied, so
+     * the CompressionConfig copies share the same policy and its statistics.
+     *
+     * @param adaptiveCompressionPolicy {@link AdaptiveCompressionPolicy}, or
+     *          <tt>null</tt> to disable adaptive compression.
+     *
+     * @since 2.4.4
+     */
+    public void setAdaptiveCompressionPolicy(
+            final AdaptiveCompressionPolicy adaptiveCompressionPolicy) {
+        this.adaptiveCompressionPolicy = adaptiveCompressionPolicy;
+    }
+
     /**
      * Returns <tt>true</tt> if a client, based on its {@link HttpRequestPacket},
      * could be responded with compressed data, or <tt>false</tt> otherwise.
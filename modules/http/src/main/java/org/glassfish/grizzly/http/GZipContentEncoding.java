@@ -40,12 +40,14 @@
 
 package org.glassfish.grizzly.http;
 
+import java.util.zip.Deflater;
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.TransformationResult;
 import org.glassfish.grizzly.memory.Buffers;
 import org.glassfish.grizzly.compression.zip.GZipDecoder;
 import org.glassfish.grizzly.compression.zip.GZipEncoder;
+import org.glassfish.grizzly.compression.zip.ZlibEnginePool;
 
 /**
  * GZip {@link ContentEncoding} implementation, which compresses/decompresses
@@ -92,8 +94,26 @@ public class GZipContentEncoding implements ContentEncoding {
      */
     public GZipContentEncoding(int inBufferSize, int outBufferSize,
             EncodingFilter encoderFilter) {
-        this.decoder = new GZipDecoder(inBufferSize);
-        this.encoder = new GZipEncoder(outBufferSize);
+        this(inBufferSize, outBufferSize, encoderFilter,
+                ZlibEnginePool.DEFAULT_POOL);
+    }
+
+    /**
+     * Construct <tt>GZipContentEncoding</tt> using specific buffer sizes.
+     * @param inBufferSize input buffer size
+     * @param outBufferSize output buffer size
+     * @param encoderFilter {@link EncodingFilter}, which will decide if
+     *          <tt>GZipContentEncoding</tt> should be applied to encode specific
+     *          {@link HttpHeader} packet.
+     * @param enginePool {@link ZlibEnginePool} the zlib engines will be
+     *          borrowed from.
+     *
+     * @since 2.4.4
+     */
+    public GZipContentEncoding(int inBufferSize, int outBufferSize,
+            EncodingFilter encoderFilter, ZlibEnginePool enginePool) {
+        this.decoder = new GZipDecoder(inBufferSize, enginePool);
+        this.encoder = new GZipEncoder(outBufferSize, enginePool);
 
         if (encoderFilter != null) {
             this.encoderFilter = encoderFilter;
@@ -192,6 +212,11 @@ public class GZipContentEncoding implements ContentEncoding {
             return httpContent;
         }
 
+        final int level = AdaptiveCompressionPolicy.getCompressionLevel(httpHeader);
+        if (level != Deflater.DEFAULT_COMPRESSION) {
+            encoder.setCompressionLevel(httpHeader, level);
+        }
+
         final TransformationResult<Buffer, Buffer> result =
                 encoder.transform(httpHeader, input);
 
@@ -41,6 +41,7 @@
 package org.glassfish.grizzly.http;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Level;
@@ -58,6 +59,7 @@ import org.glassfish.grizzly.http.util.Constants;
 import org.glassfish.grizzly.http.util.DataChunk;
 import org.glassfish.grizzly.http.util.Header;
 import org.glassfish.grizzly.http.util.MimeHeaders;
+import org.glassfish.grizzly.http.util.SwarUtils;
 import org.glassfish.grizzly.memory.Buffers;
 import org.glassfish.grizzly.memory.CompositeBuffer;
 import org.glassfish.grizzly.memory.CompositeBuffer.DisposeOrder;
@@ -98,6 +100,12 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
     
     private final static byte[] CHUNKED_ENCODING_BYTES =
             Constants.CHUNKED_ENCODING.getBytes(ASCII_CHARSET);
+
+    private final static long COLONS = SwarUtils.broadcast(Constants.COLON);
+    private final static String INVALID_HEADER_NAME =
+            "Invalid character in HTTP header name";
+    private final static String INVALID_HEADER_VALUE =
+            "Invalid character in HTTP header value";
     /**
      * Colon bytes.
      */
@@ -172,6 +180,9 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
     protected boolean preserveHeaderCase =
             Boolean.parseBoolean(System.getProperty("org.glassfish.grizzly.http.PRESERVE_HEADER_CASE", "false"));
 
+    protected boolean strictHeaderValidation =
+            Boolean.parseBoolean(System.getProperty("org.glassfish.grizzly.http.STRICT_HEADER_VALIDATION", "false"));
+
     /**
      * Method is responsible for parsing initial line of HTTP message (different
      * for {@link HttpRequestPacket} and {@link HttpResponsePacket}).
@@ -421,6 +432,30 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
         this.preserveHeaderCase = preserveHeaderCase;
     }
 
+    /**
+     * @return <code>true</code> if HTTP header names containing control
+     *  characters and header values containing NUL are rejected, otherwise
+     *  <code>false</code>. Default is <code>false</code>.
+     */
+    public boolean isStrictHeaderValidation() {
+        return strictHeaderValidation;
+    }
+
+    /**
+     * Set to <code>true</code> to reject HTTP header names containing control
+     * characters and header values containing NUL with
+     * <tt>400 Bad Request</tt>. Default is <code>false</code>, in which case
+     * such headers are accepted as is.
+     * The default could also be changed using the
+     * <tt>org.glassfish.grizzly.http.STRICT_HEADER_VALIDATION</tt> system property.
+     *
+     * @param strictHeaderValidation <code>true</code> to reject invalid header
+     *  names and values.
+     */
+    public void setStrictHeaderValidation(boolean strictHeaderValidation) {
+        this.strictHeaderValidation = strictHeaderValidation;
+    }
+
     /**
      * <p>
      * Gets registered {@link TransferEncoding}s.
@@ -888,6 +923,38 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
         final int start = arrayOffs + parsingState.start;
         int offset = arrayOffs + parsingState.offset;
 
+        // scan the name a word at a time: find the colon, validate and
+        // lower case the name bytes preceding it
+        final ByteBuffer wordView = parsingState.wordView(input);
+        while (offset + SwarUtils.WORD_SIZE <= limit) {
+            final long word = wordView.getLong(offset);
+            final long colons = SwarUtils.matchBytes(word, COLONS);
+            final int nameLength = colons == 0
+                    ? SwarUtils.WORD_SIZE
+                    : SwarUtils.firstByteIndex(colons);
+            final long nameBytes = colons == 0
+                    ? -1L
+                    : SwarUtils.leadingBytes(nameLength);
+
+            if (strictHeaderValidation
+                    && (SwarUtils.controlBytes(word) & nameBytes) != 0) {
+                throw new IllegalStateException(INVALID_HEADER_NAME);
+            }
+
+            if (!preserveHeaderCase) {
+                long upperCase = SwarUtils.upperCaseBytes(word) & nameBytes;
+                while (upperCase != 0) {
+                    input[offset + SwarUtils.firstByteIndex(upperCase)] -= Constants.LC_OFFSET;
+                    upperCase &= upperCase - 1;
+                }
+            }
+
+            offset += nameLength;
+            if (colons != 0) {
+                break;
+            }
+        }
+
         while(offset < limit) {
             byte b = input[offset];
             if (b == Constants.COLON) {
@@ -904,6 +971,8 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
                     b -= Constants.LC_OFFSET;
                 }
                 input[offset] =  b;
+            } else if (strictHeaderValidation && isControl(b)) {
+                throw new IllegalStateException(INVALID_HEADER_NAME);
             }
 
             offset++;
@@ -923,7 +992,29 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
         int offset = arrayOffs + parsingState.offset;
 
         final boolean hasShift = (offset != (arrayOffs + parsingState.checkpoint));
-        
+        if (!hasShift) {
+            // skip the value a word at a time, until CR, LF or any other
+            // control character is met
+            int checkpoint = parsingState.checkpoint;
+            int checkpoint2 = parsingState.checkpoint2;
+            final ByteBuffer wordView = parsingState.wordView(input);
+            while (offset + SwarUtils.WORD_SIZE <= limit) {
+                final long word = wordView.getLong(offset);
+                if (SwarUtils.controlBytes(word) != 0) {
+                    break;
+                }
+
+                final long nonSpaces = SwarUtils.invert(SwarUtils.spaceBytes(word));
+                if (nonSpaces != 0) {
+                    checkpoint2 = checkpoint + SwarUtils.lastByteIndex(nonSpaces) + 1;
+                }
+                checkpoint += SwarUtils.WORD_SIZE;
+                offset += SwarUtils.WORD_SIZE;
+            }
+            parsingState.checkpoint = checkpoint;
+            parsingState.checkpoint2 = checkpoint2;
+        }
+
         while (offset < limit) {
             final byte b = input[offset];
             if (b == Constants.CR) {
@@ -949,6 +1040,8 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
 
                 parsingState.offset = offset - arrayOffs;
                 return -1;
+            } else if (b == 0 && isStrictHeaderValidation(parsingState)) {
+                throw new IllegalStateException(INVALID_HEADER_VALUE);
             } else if (b == Constants.SP) {
                 if (hasShift) {
                     input[arrayOffs + parsingState.checkpoint++] = b;
@@ -970,31 +1063,38 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
         return -1;
     }
     
+    private static boolean isControl(final byte b) {
+        return (b >= 0 && b < Constants.SP) || b == 0x7F;
+    }
+
+    private static boolean isStrictHeaderValidation(
+            final HeaderParsingState parsingState) {
+        return parsingState.codecFilter != null
+                && parsingState.codecFilter.strictHeaderValidation;
+    }
+
     private static void finalizeKnownHeaderNames(final HttpHeader httpHeader,
             final HeaderParsingState parsingState, final byte[] input,
             final int start, final int end) {
         
-        final int size = end - start;
-        if (size == Header.ContentLength.getLowerCaseBytes().length) {
-            if (ByteChunk.equalsIgnoreCaseLowerCase(input, start, end,
-                    Header.ContentLength.getLowerCaseBytes())) {
+        final Header header = Header.find(input, start, end);
+        if (header == null) {
+            return;
+        }
+
+        switch (header) {
+            case ContentLength:
                 parsingState.isContentLengthHeader = true;
-            }
-        } else if (size == Header.TransferEncoding.getLowerCaseBytes().length) {
-            if (ByteChunk.equalsIgnoreCaseLowerCase(input, start, end,
-                    Header.TransferEncoding.getLowerCaseBytes())) {
+                break;
+            case TransferEncoding:
                 parsingState.isTransferEncodingHeader = true;
-            }
-        } else if (size == Header.Upgrade.getLowerCaseBytes().length) {
-            if (ByteChunk.equalsIgnoreCaseLowerCase(input, start, end,
-                    Header.Upgrade.getLowerCaseBytes())) {
+                break;
+            case Upgrade:
                 parsingState.isUpgradeHeader = true;
-            }
-        } else if (size == Header.Expect.getLowerCaseBytes().length) {
-            if (ByteChunk.equalsIgnoreCaseLowerCase(input, start, end,
-                    Header.Expect.getLowerCaseBytes())) {
+                break;
+            case Expect:
                 ((HttpRequestPacket) httpHeader).requiresAcknowledgement(true);
-            }
+                break;
         }
     }
 
@@ -1167,6 +1267,38 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
         final int start = parsingState.start;
         int offset = parsingState.offset;
 
+        // scan the name a word at a time: find the colon, validate and
+        // lower case the name bytes preceding it
+        while (offset + SwarUtils.WORD_SIZE <= limit) {
+            final long word = SwarUtils.getLong(input, offset);
+            final long colons = SwarUtils.matchBytes(word, COLONS);
+            final int nameLength = colons == 0
+                    ? SwarUtils.WORD_SIZE
+                    : SwarUtils.firstByteIndex(colons);
+            final long nameBytes = colons == 0
+                    ? -1L
+                    : SwarUtils.leadingBytes(nameLength);
+
+            if (strictHeaderValidation
+                    && (SwarUtils.controlBytes(word) & nameBytes) != 0) {
+                throw new IllegalStateException(INVALID_HEADER_NAME);
+            }
+
+            if (!preserveHeaderCase) {
+                long upperCase = SwarUtils.upperCaseBytes(word) & nameBytes;
+                while (upperCase != 0) {
+                    final int idx = offset + SwarUtils.firstByteIndex(upperCase);
+                    input.put(idx, (byte) (input.get(idx) - Constants.LC_OFFSET));
+                    upperCase &= upperCase - 1;
+                }
+            }
+
+            offset += nameLength;
+            if (colons != 0) {
+                break;
+            }
+        }
+
         while(offset < limit) {
             byte b = input.get(offset);
             if (b == Constants.COLON) {
@@ -1183,6 +1315,8 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
                     b -= Constants.LC_OFFSET;
                 }
                 input.put(offset, b);
+            } else if (strictHeaderValidation && isControl(b)) {
+                throw new IllegalStateException(INVALID_HEADER_NAME);
             }
 
             offset++;
@@ -1200,8 +1334,29 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
         int offset = parsingState.offset;
 
         final boolean hasShift = (offset != parsingState.checkpoint);
-        
-        while(offset < limit) {
+        if (!hasShift) {
+            // skip the value a word at a time, until CR, LF or any other
+            // control character is met
+            int checkpoint = parsingState.checkpoint;
+            int checkpoint2 = parsingState.checkpoint2;
+            while (offset + SwarUtils.WORD_SIZE <= limit) {
+                final long word = SwarUtils.getLong(input, offset);
+                if (SwarUtils.controlBytes(word) != 0) {
+                    break;
+                }
+
+                final long nonSpaces = SwarUtils.invert(SwarUtils.spaceBytes(word));
+                if (nonSpaces != 0) {
+                    checkpoint2 = checkpoint + SwarUtils.lastByteIndex(nonSpaces) + 1;
+                }
+                checkpoint += SwarUtils.WORD_SIZE;
+                offset += SwarUtils.WORD_SIZE;
+            }
+            parsingState.checkpoint = checkpoint;
+            parsingState.checkpoint2 = checkpoint2;
+        }
+
+        while (offset < limit) {
             final byte b = input.get(offset);
             if (b == Constants.CR) {
             } else if (b == Constants.LF) {
@@ -1224,6 +1379,8 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
 
                 parsingState.offset = offset;
                 return -1;
+            } else if (b == 0 && isStrictHeaderValidation(parsingState)) {
+                throw new IllegalStateException(INVALID_HEADER_VALUE);
             } else if (b == Constants.SP) {
                 if (hasShift) {
                     input.put(parsingState.checkpoint++, b);
@@ -1249,27 +1406,24 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
             final HeaderParsingState parsingState, final Buffer input,
             final int start, final int end) {
         
-        final int size = end - start;
-        if (size == Header.ContentLength.getLowerCaseBytes().length) {
-            if (BufferChunk.equalsIgnoreCaseLowerCase(input, start, end,
-                    Header.ContentLength.getLowerCaseBytes())) {
+        final Header header = Header.find(input, start, end);
+        if (header == null) {
+            return;
+        }
+
+        switch (header) {
+            case ContentLength:
                 parsingState.isContentLengthHeader = true;
-            }
-        } else if (size == Header.TransferEncoding.getLowerCaseBytes().length) {
-            if (BufferChunk.equalsIgnoreCaseLowerCase(input, start, end,
-                    Header.TransferEncoding.getLowerCaseBytes())) {
+                break;
+            case TransferEncoding:
                 parsingState.isTransferEncodingHeader = true;
-            }
-        } else if (size == Header.Upgrade.getLowerCaseBytes().length) {
-            if (BufferChunk.equalsIgnoreCaseLowerCase(input, start, end,
-                    Header.Upgrade.getLowerCaseBytes())) {
+                break;
+            case Upgrade:
                 parsingState.isUpgradeHeader = true;
-            }
-        } else if (size == Header.Expect.getLowerCaseBytes().length) {
-            if (BufferChunk.equalsIgnoreCaseLowerCase(input, start, end,
-                    Header.Expect.getLowerCaseBytes())) {
+                break;
+            case Expect:
                 ((HttpRequestPacket) httpHeader).requiresAcknowledgement(true);
-            }
+                break;
         }
     }
 
@@ -1608,6 +1762,15 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
                     httpHeader);
 
             final MimeHeaders mimeHeaders = httpHeader.getHeaders();
+            if (!httpHeader.isRequest()) {
+                final HttpHeaderTemplate headerTemplate =
+                        ((HttpResponsePacket) httpHeader).getHeaderTemplate();
+                if (headerTemplate != null) {
+                    encodedBuffer = headerTemplate.encode(memoryManager,
+                            encodedBuffer, mimeHeaders);
+                }
+            }
+            
             final byte[] tempEncodingBuffer = httpHeader.getTempHeaderEncodingBuffer();
             encodedBuffer = encodeMimeHeaders(memoryManager, encodedBuffer, mimeHeaders, tempEncodingBuffer);
             onHttpHeadersEncoded(httpHeader, ctx);
@@ -1802,8 +1965,29 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
             HttpProbeNotifier.notifyContentEncodingSerialize(this, connection,
                     httpHeader, httpContent.getContent(), encoding);
             
+            // measure the encoder only if a ContentEncodingProbe is listening
+            final boolean collectStats =
+                    HttpProbeNotifier.hasContentEncodingProbes(this);
+            final int inputSize;
+            final long startTime;
+            if (collectStats) {
+                inputSize = httpContent.getContent().remaining();
+                startTime = System.nanoTime();
+            } else {
+                inputSize = 0;
+                startTime = 0;
+            }
+
             final HttpContent encodedContent = encoding.encode(connection, httpContent);
 
+            if (collectStats) {
+                HttpProbeNotifier.notifyContentEncodingStats(this, connection,
+                        httpHeader, encoding, inputSize,
+                        encodedContent != null
+                                ? encodedContent.getContent().remaining()
+                                : 0,
+                        System.nanoTime() - startTime);
+            }
 
             if (encodedContent == null) {
                 httpContent.recycle();
@@ -2047,6 +2231,9 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
         public boolean isTransferEncodingHeader;
         public boolean isUpgradeHeader;
 
+        private byte[] wordViewArray;
+        private ByteBuffer wordView;
+
         public void initialize(final HttpCodecFilter codecFilter,
                                final int initialOffset,
                                final int maxHeaderSize) {
@@ -2073,6 +2260,20 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
             parsingNumericValue = 0;
             contentLengthHeadersCount = 0;
             contentLengthsDiffer = false;
+            wordViewArray = null;
+            wordView = null;
+        }
+
+        /**
+         * @return the cached {@link SwarUtils#wordView(byte[])} of the array.
+         */
+        ByteBuffer wordView(final byte[] array) {
+            if (array != wordViewArray) {
+                wordView = SwarUtils.wordView(array);
+                wordViewArray = array;
+            }
+
+            return wordView;
         }
 
         public final void checkOverflow(final int pos,
@@ -0,0 +1,323 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.http.util.Header;
+import org.glassfish.grizzly.http.util.MimeHeaders;
+import org.glassfish.grizzly.memory.MemoryManager;
+
+import static org.glassfish.grizzly.http.util.HttpCodecUtils.put;
+
+/**
+ * Immutable block of pre-encoded HTTP response headers, which are identical
+ * across many responses (<tt>Server</tt>, <tt>Content-Type</tt>,
+ * <tt>Cache-Control</tt>, CORS headers etc).
+ *
+ * The template is encoded once, when it's built, so the HTTP codec is able to
+ * serialize the whole block using a single bulk copy and then append only
+ * the per-response headers like <tt>Date</tt> or <tt>Content-Length</tt>.
+ *
+ * A header explicitly set on the response always takes precedence over the
+ * template header with the same name. Headers managed by the HTTP codec
+ * itself (<tt>Content-Length</tt>, <tt>Transfer-Encoding</tt>,
+ * <tt>Content-Encoding</tt>, <tt>Connection</tt>, <tt>Keep-Alive</tt>,
+ * <tt>Upgrade</tt> and <tt>Date</tt>) can't be part of a template.
+ *
+ * The same template instance may be safely shared by any number of responses.
+ *
+ * @see HttpResponsePacket#setHeaderTemplate(HttpHeaderTemplate)
+ * @since 2.4.4
+ */
+public final class HttpHeaderTemplate {
+
+    private static final Header[] MANAGED_HEADERS = {
+        Header.ContentLength, Header.TransferEncoding, Header.ContentEncoding,
+        Header.Connection, Header.KeepAlive, Header.Upgrade, Header.Date
+    };
+
+    private final String[] names;
+    private final String[] values;
+    private final Header[] knownNames;
+
+    /**
+     * The encoded "name: value\r\n" sequences of all the template headers.
+     */
+    private final byte[] encoded;
+
+    /**
+     * offsets[i] is the position of the i-th header in {@link #encoded},
+     * offsets[size] is equal to encoded.length.
+     */
+    private final int[] offsets;
+
+    /**
+     * Returns {@link HttpHeaderTemplate} builder.
+     *
+     * @return {@link Builder}.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private HttpHeaderTemplate(final List<String> names,
+            final List<String> values) {
+        final int size = names.size();
+        this.names = names.toArray(new String[size]);
+        this.values = values.toArray(new String[size]);
+        knownNames = new Header[size];
+        offsets = new int[size + 1];
+
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            knownNames[i] = Header.find(this.names[i]);
+            offsets[i] = length;
+            // name + ": " + value + CRLF
+            length += this.names[i].length() + this.values[i].length() + 4;
+        }
+        offsets[size] = length;
+
+        encoded = new byte[length];
+        int pos = 0;
+        for (int i = 0; i < size; i++) {
+            pos = putString(this.names[i], encoded, pos);
+            encoded[pos++] = ':';
+            encoded[pos++] = ' ';
+            pos = putString(this.values[i], encoded, pos);
+            encoded[pos++] = '\r';
+            encoded[pos++] = '\n';
+        }
+    }
+
+    /**
+     * @return the number of headers in this template.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @param i the header index.
+     * @return the name of the i-th template header.
+     */
+    public String getName(final int i) {
+        return names[i];
+    }
+
+    /**
+     * @param i the header index.
+     * @return the value of the i-th template header.
+     */
+    public String getValue(final int i) {
+        return values[i];
+    }
+
+    /**
+     * Adds the template headers, which are not present in the passed
+     * {@link MimeHeaders}, to the {@link MimeHeaders}. This method is meant
+     * for the protocols, which can't use the pre-encoded HTTP/1.x
+     * representation of the template (HTTP/2, AJP).
+     *
+     * @param headers the {@link MimeHeaders} to add the template headers to.
+     */
+    public void applyTo(final MimeHeaders headers) {
+        final int size = names.length;
+        final int existingHeadersCount = headers.size();
+        for (int i = 0; i < size; i++) {
+            if (!isOverridden(i, headers, existingHeadersCount)) {
+                headers.addValue(names[i]).setString(values[i]);
+            }
+        }
+    }
+
+    /**
+     * Serializes the template into the passed {@link Buffer}, skipping
+     * the headers overridden by the passed {@link MimeHeaders}.
+     */
+    Buffer encode(final MemoryManager memoryManager, Buffer buffer,
+            final MimeHeaders headers) {
+        final int size = names.length;
+        final int headersCount = headers.size();
+
+        // the start of the pending run of not overridden template headers
+        int runStart = 0;
+        for (int i = 0; i < size; i++) {
+            if (isOverridden(i, headers, headersCount)) {
+                if (runStart < offsets[i]) {
+                    buffer = put(memoryManager, buffer, encoded,
+                            runStart, offsets[i] - runStart);
+                }
+                runStart = offsets[i + 1];
+            }
+        }
+
+        if (runStart < encoded.length) {
+            buffer = put(memoryManager, buffer, encoded,
+                    runStart, encoded.length - runStart);
+        }
+
+        return buffer;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(encoded.length + 32);
+        sb.append("HttpHeaderTemplate (\n");
+        for (int i = 0; i < names.length; i++) {
+            sb.append("   ").append(names[i]).append(": ")
+                    .append(values[i]).append('\n');
+        }
+        sb.append(')');
+        return sb.toString();
+    }
+
+    private boolean isOverridden(final int i, final MimeHeaders headers,
+            final int headersCount) {
+        if (headersCount == 0) {
+            return false;
+        }
+
+        final Header knownName = knownNames[i];
+        return knownName != null
+                ? headers.indexOf(knownName, 0) >= 0
+                : headers.indexOf(names[i], 0) >= 0;
+    }
+
+    private static int putString(final String s, final byte[] dst, int pos) {
+        final int length = s.length();
+        for (int i = 0; i < length; i++) {
+            dst[pos++] = (byte) s.charAt(i);
+        }
+
+        return pos;
+    }
+
+    /**
+     * <tt>HttpHeaderTemplate</tt> builder.
+     */
+    public static final class Builder {
+        private final List<String> names = new ArrayList<String>();
+        private final List<String> values = new ArrayList<String>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds the header to the template.
+         *
+         * @param header the header name.
+         * @param value the header value.
+         * @return this <tt>Builder</tt>.
+         * @throws IllegalArgumentException if the header name or value
+         *  contain illegal characters, or the header is managed by the HTTP codec.
+         */
+        public Builder header(final Header header, final String value) {
+            return header(header.toString(), value);
+        }
+
+        /**
+         * Adds the header to the template.
+         *
+         * @param name the header name.
+         * @param value the header value.
+         * @return this <tt>Builder</tt>.
+         * @throws IllegalArgumentException if the header name or value
+         *  contain illegal characters, or the header is managed by the HTTP codec.
+         */
+        public Builder header(final String name, final String value) {
+            if (name == null || value == null) {
+                throw new IllegalArgumentException("Header name and value can't be null");
+            }
+
+            checkName(name);
+            checkValue(name, value);
+
+            names.add(name);
+            values.add(value);
+            return this;
+        }
+
+        /**
+         * @return the immutable {@link HttpHeaderTemplate}.
+         */
+        public HttpHeaderTemplate build() {
+            return new HttpHeaderTemplate(names, values);
+        }
+
+        private static void checkName(final String name) {
+            final int length = name.length();
+            if (length == 0) {
+                throw new IllegalArgumentException("Header name can't be empty");
+            }
+
+            for (int i = 0; i < length; i++) {
+                final char c = name.charAt(i);
+                if (c <= ' ' || c >= 0x7F || c == ':') {
+                    throw new IllegalArgumentException(
+                            "Illegal character in header name: " + name);
+                }
+            }
+
+            final Header knownName = Header.find(name);
+            if (knownName != null) {
+                for (Header managed : MANAGED_HEADERS) {
+                    if (managed == knownName) {
+                        throw new IllegalArgumentException("Header " + name
+                                + " is managed by the HTTP codec and can't be a part of a template");
+                    }
+                }
+            }
+        }
+
+        private static void checkValue(final String name, final String value) {
+            final int length = value.length();
+            for (int i = 0; i < length; i++) {
+                final char c = value.charAt(i);
+                if ((c < ' ' && c != '\t') || c == 0x7F || c > 0xFF) {
+                    throw new IllegalArgumentException(
+                            "Illegal character in the value of header " + name);
+                }
+            }
+        }
+    }
+}
@@ -266,6 +266,59 @@ final class HttpProbeNotifier {
         }
     }
 
+    /**
+     * Returns <tt>true</tt> if at least one of the registered {@link HttpProbe}s
+     * implements {@link ContentEncodingProbe}, so the "content encoding stats"
+     * have to be collected.
+     *
+     * @param httpFilter the <tt>HttpCodecFilter</tt> to check.
+     */
+    static boolean hasContentEncodingProbes(final HttpCodecFilter httpFilter) {
+        final HttpProbe[] probes =
+                httpFilter.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (HttpProbe probe : probes) {
+                if (probe instanceof ContentEncodingProbe) {
+                    return true;
+                }
+            }
+        }
+        
+        return false;
+    }
+
+    /**
+     * Notify registered {@link HttpProbe}s, which implement
+     * {@link ContentEncodingProbe}, about the "content encoding stats" event.
+     *
+     * @param httpFilter the <tt>HttpCodecFilter</tt> event occurred on.
+     * @param connection the <tt>Connection</tt> event occurred on.
+     * @param header HTTP {@link HttpHeader}, the event belongs to.
+     * @param contentEncoding applied {@link ContentEncoding}.
+     * @param inputSize the number of bytes passed to the encoder.
+     * @param outputSize the number of bytes produced by the encoder.
+     * @param encodeTimeNanos the time, in nanoseconds, spent in the encoder.
+     */
+    static void notifyContentEncodingStats(final HttpCodecFilter httpFilter,
+                                           final Connection connection,
+                                           final HttpHeader header,
+                                           final ContentEncoding contentEncoding,
+                                           final int inputSize,
+                                           final int outputSize,
+                                           final long encodeTimeNanos) {
+        final HttpProbe[] probes =
+                httpFilter.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (HttpProbe probe : probes) {
+                if (probe instanceof ContentEncodingProbe) {
+                    ((ContentEncodingProbe) probe).onContentEncodingStatsEvent(
+                            connection, header, contentEncoding,
+                            inputSize, outputSize, encodeTimeNanos);
+                }
+            }
+        }
+    }
+
     /**
      * Notify registered {@link HttpProbe}s about the "transfer encoding parse" event.
      *
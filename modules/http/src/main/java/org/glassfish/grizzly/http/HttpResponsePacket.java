@@ -101,6 +101,11 @@ public abstract class HttpResponsePacket extends HttpHeader {
      * Do we need to encode HTML sensitive characters in custom reason phrase.
      */
     private boolean isHtmlEncodingCustomReasonPhrase = true;
+
+    /**
+     * The pre-encoded block of headers to be sent with this response.
+     */
+    private HttpHeaderTemplate headerTemplate;
     
     /**
      * Returns {@link HttpResponsePacket} builder.
@@ -195,6 +200,30 @@ public abstract class HttpResponsePacket extends HttpHeader {
         this.isHtmlEncodingCustomReasonPhrase = isHtmlEncodingCustomReasonPhrase;
     }
 
+    /**
+     * Returns the {@link HttpHeaderTemplate} to be serialized along with
+     * this response headers, or <tt>null</tt> if no template is set.
+     *
+     * @return the {@link HttpHeaderTemplate} or <tt>null</tt>.
+     * @since 2.4.4
+     */
+    public HttpHeaderTemplate getHeaderTemplate() {
+        return headerTemplate;
+    }
+
+    /**
+     * Sets the {@link HttpHeaderTemplate}, which will be serialized along with
+     * this response headers. The response headers take precedence over
+     * the template headers with the same name.
+     *
+     * @param headerTemplate the {@link HttpHeaderTemplate} or <tt>null</tt>
+     *  to reset the template.
+     * @since 2.4.4
+     */
+    public void setHeaderTemplate(final HttpHeaderTemplate headerTemplate) {
+        this.headerTemplate = headerTemplate;
+    }
+
     
     /**
      * Gets the custom status reason phrase for this response as {@link DataChunk}
@@ -308,6 +337,7 @@ public abstract class HttpResponsePacket extends HttpHeader {
         locale = null;
         contentLanguage = null;
         request = null;
+        headerTemplate = null;
 
         super.reset();
     }
@@ -1009,26 +1009,28 @@ public class HttpServerFilter extends HttpCodecFilter {
     @Override
     Buffer encodeInitialLine(HttpPacket httpPacket, Buffer output, MemoryManager memoryManager) {
         final HttpResponsePacket httpResponse = (HttpResponsePacket) httpPacket;
+        final HttpStatus httpStatus = httpResponse.getHttpStatus();
+        if (!httpResponse.isCustomReasonPhraseSet()
+                || httpResponse.getReasonPhraseRawDC().equals(
+                        httpStatus.getReasonPhraseBytes())) {
+            // the whole status line is pre-encoded by HttpStatus
+            return put(memoryManager, output,
+                    httpStatus.getStatusLineBytes(httpResponse.getProtocol()));
+        }
+
         output = put(memoryManager, output, httpResponse.getProtocol().getProtocolBytes());
         output = put(memoryManager, output, Constants.SP);
-        output = put(memoryManager, output, httpResponse.getHttpStatus().getStatusBytes());
+        output = put(memoryManager, output, httpStatus.getStatusBytes());
         output = put(memoryManager, output, Constants.SP);
-        if (httpResponse.isCustomReasonPhraseSet()) {
-            
-            final DataChunk customReasonPhrase =
-                    httpResponse.isHtmlEncodingCustomReasonPhrase() ?
-                    HttpUtils.filter(httpResponse.getReasonPhraseDC()) :
-                    HttpUtils.filterNonPrintableCharacters(httpResponse.getReasonPhraseDC());
-            
-            output = put(memoryManager, output,
-                    httpResponse.getTempHeaderEncodingBuffer(),
-                    customReasonPhrase);
-        } else {
-            output = put(memoryManager, output,
-                    httpResponse.getHttpStatus().getReasonPhraseBytes());
-        }
 
-        return output;
+        final DataChunk customReasonPhrase =
+                httpResponse.isHtmlEncodingCustomReasonPhrase() ?
+                HttpUtils.filter(httpResponse.getReasonPhraseDC()) :
+                HttpUtils.filterNonPrintableCharacters(httpResponse.getReasonPhraseDC());
+
+        return put(memoryManager, output,
+                httpResponse.getTempHeaderEncodingBuffer(),
+                customReasonPhrase);
     }
 
     @Override
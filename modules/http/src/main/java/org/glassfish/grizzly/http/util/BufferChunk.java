@@ -499,7 +499,7 @@ public class BufferChunk implements Chunk {
             return cachedString;
         }
 
-        cachedString = buffer.toStringContent(charset, start, end);
+        cachedString = StringCache.toString(this, charset);
 
         cachedStringCharset = charset;
 
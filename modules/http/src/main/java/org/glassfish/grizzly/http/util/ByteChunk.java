@@ -61,7 +61,6 @@ package org.glassfish.grizzly.http.util;
 import java.io.IOException;
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
-import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 
@@ -623,7 +622,6 @@ public final class ByteChunk implements Chunk, Cloneable, Serializable {
         } else if (cachedString != null) {
             return cachedString;
         }
-//        return StringCache.toString(this);
         cachedString = toStringInternal();
         return cachedString;
     }
@@ -658,7 +656,7 @@ public final class ByteChunk implements Chunk, Cloneable, Serializable {
             return cachedString;
         }
 
-        cachedString = charset.decode(ByteBuffer.wrap(buff, start, end - start)).toString();
+        cachedString = StringCache.toString(this, charset);
         cachedStringCharset = charset;
         
         return cachedString;
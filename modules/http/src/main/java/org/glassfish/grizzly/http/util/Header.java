@@ -40,9 +40,11 @@
 
 package org.glassfish.grizzly.http.util;
 
+import java.util.Arrays;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TreeMap;
+import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.utils.Charsets;
 
 /**
@@ -117,6 +119,21 @@ public enum Header {
         }
     }
 
+    // Perfect hash table used to resolve raw header names. The hash is
+    // computed from the name length and its first, middle and last
+    // characters; the multiplier is chosen at class initialization, so
+    // no two known headers share a slot.
+    private static final int HASH_BITS = 8;
+    private static final Header[] HASH_TABLE = new Header[1 << HASH_BITS];
+    private static final int HASH_MULTIPLIER;
+    static {
+        int multiplier = 0x9E3779B1; // golden ratio
+        while (!fillHashTable(multiplier)) {
+            multiplier += 2;
+        }
+        HASH_MULTIPLIER = multiplier;
+    }
+
     // --------------------------------------------------------- Per Enum Fields
 
 
@@ -235,4 +252,94 @@ public enum Header {
 
     }
 
+    /**
+     * <p>
+     * Resolves the raw US-ASCII header name to the <code>Header</code> using
+     * a perfect hash, so the lookup costs a single case insensitive
+     * comparison.
+     * </p>
+     *
+     * @param bytes the array containing the header name.
+     * @param start the header name start offset (inclusive).
+     * @param end the header name end offset (exclusive).
+     *
+     * @return the <code>Header</code> or <code>null</code>, if the name
+     *  doesn't match any known <code>Header</code>.
+     *
+     * @since 2.4.4
+     */
+    public static Header find(final byte[] bytes, final int start, final int end) {
+        final int length = end - start;
+        if (length <= 0) {
+            return null;
+        }
+
+        final Header header = HASH_TABLE[hash(HASH_MULTIPLIER, length,
+                bytes[start], bytes[start + (length >> 1)], bytes[end - 1])];
+        return header != null
+                && ByteChunk.equalsIgnoreCaseLowerCase(bytes, start, end,
+                        header.headerNameLowerCaseBytes)
+                ? header
+                : null;
+    }
+
+    /**
+     * <p>
+     * Resolves the raw US-ASCII header name to the <code>Header</code> using
+     * a perfect hash, so the lookup costs a single case insensitive
+     * comparison.
+     * </p>
+     *
+     * @param buffer the {@link org.glassfish.grizzly.Buffer} containing the header name.
+     * @param start the header name start index (inclusive).
+     * @param end the header name end index (exclusive).
+     *
+     * @return the <code>Header</code> or <code>null</code>, if the name
+     *  doesn't match any known <code>Header</code>.
+     *
+     * @since 2.4.4
+     */
+    public static Header find(final Buffer buffer, final int start, final int end) {
+        final int length = end - start;
+        if (length <= 0) {
+            return null;
+        }
+
+        final Header header = HASH_TABLE[hash(HASH_MULTIPLIER, length,
+                buffer.get(start), buffer.get(start + (length >> 1)),
+                buffer.get(end - 1))];
+        return header != null
+                && BufferChunk.equalsIgnoreCaseLowerCase(buffer, start, end,
+                        header.headerNameLowerCaseBytes)
+                ? header
+                : null;
+    }
+
+    private static int hash(final int multiplier, final int length,
+            final byte first, final byte middle, final byte last) {
+        // "| 0x20" lower cases the letters and keeps '-' and digits intact
+        final int key = (length << 24)
+                | ((first | 0x20) & 0xFF) << 16
+                | ((middle | 0x20) & 0xFF) << 8
+                | ((last | 0x20) & 0xFF);
+        return (key * multiplier) >>> (32 - HASH_BITS);
+    }
+
+    private static boolean fillHashTable(final int multiplier) {
+        Arrays.fill(HASH_TABLE, null);
+        for (final Header h : Header.values()) {
+            final byte[] name = h.headerNameLowerCaseBytes;
+            final int length = name.length;
+            final int idx = hash(multiplier, length,
+                    name[0], name[length >> 1], name[length - 1]);
+            if (HASH_TABLE[idx] != null) {
+                return false;
+            }
+
+            HASH_TABLE[idx] = h;
+        }
+
+        return true;
+    }
+
 }
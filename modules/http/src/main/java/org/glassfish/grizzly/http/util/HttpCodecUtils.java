@@ -46,6 +46,7 @@ import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.http.HttpCodecFilter;
 import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.memory.CompositeBuffer;
 import org.glassfish.grizzly.memory.MemoryManager;
 
 /**
@@ -224,6 +225,30 @@ public class HttpCodecUtils {
         int offset = state.offset;
         final int limit = Math.min(input.limit(), state.packetLimit);
 
+        if (input.isComposite() && offset < limit) {
+            // walk the composite buffer components sequentially
+            final CompositeBuffer.Cursor cursor =
+                    ((CompositeBuffer) input).cursor(offset, limit);
+            while (cursor.hasRemaining()) {
+                final byte b = cursor.get();
+                if (b == Constants.CR) {
+                    state.checkpoint = offset;
+                } else if (b == Constants.LF) {
+                    if (state.checkpoint == -1) {
+                        state.checkpoint = offset;
+                    }
+
+                    state.offset = offset + 1;
+                    return true;
+                }
+
+                offset++;
+            }
+
+            state.offset = offset;
+            return false;
+        }
+
         while (offset < limit) {
             final byte b = input.get(offset);
             if (b == Constants.CR) {
@@ -276,6 +301,20 @@ public class HttpCodecUtils {
     public static int findSpace(final Buffer input, int offset,
                                 final int packetLimit) {
         final int limit = Math.min(input.limit(), packetLimit);
+        if (input.isComposite() && offset < limit) {
+            final CompositeBuffer.Cursor cursor =
+                    ((CompositeBuffer) input).cursor(offset, limit);
+            while (cursor.hasRemaining()) {
+                if (isSpaceOrTab(cursor.get())) {
+                    return offset;
+                }
+
+                offset++;
+            }
+
+            return -1;
+        }
+
         while (offset < limit) {
             final byte b = input.get(offset);
             if (isSpaceOrTab(b)) {
@@ -306,6 +345,20 @@ public class HttpCodecUtils {
     public static int skipSpaces(final Buffer input, int offset,
                                  final int packetLimit) {
         final int limit = Math.min(input.limit(), packetLimit);
+        if (input.isComposite() && offset < limit) {
+            final CompositeBuffer.Cursor cursor =
+                    ((CompositeBuffer) input).cursor(offset, limit);
+            while (cursor.hasRemaining()) {
+                if (isNotSpaceAndTab(cursor.get())) {
+                    return offset;
+                }
+
+                offset++;
+            }
+
+            return -1;
+        }
+
         while (offset < limit) {
             final byte b = input.get(offset);
             if (isNotSpaceAndTab(b)) {
@@ -336,6 +389,10 @@ public class HttpCodecUtils {
     public static int indexOf(final Buffer input, int offset,
                               final byte b, final int packetLimit) {
         final int limit = Math.min(input.limit(), packetLimit);
+        if (input.isComposite()) {
+            return ((CompositeBuffer) input).indexOf(b, offset, limit);
+        }
+
         while (offset < limit) {
             final byte currentByte = input.get(offset);
             if (currentByte == b) {
@@ -45,6 +45,7 @@ import org.glassfish.grizzly.utils.Charsets;
 import java.util.HashMap;
 import java.util.Map;
 import org.glassfish.grizzly.http.HttpResponsePacket;
+import org.glassfish.grizzly.http.Protocol;
 import org.glassfish.grizzly.memory.Buffers;
 
 /**
@@ -134,12 +135,20 @@ public class HttpStatus {
     private final String reasonPhrase;
     private final byte[] reasonPhraseBytes;
     private final byte[] statusBytes;
+    private final byte[][] statusLineBytes;
 
     private HttpStatus(final int status, final String reasonPhrase) {
         this.status = status;
         this.reasonPhrase = reasonPhrase;
         reasonPhraseBytes = reasonPhrase.getBytes(Charsets.ASCII_CHARSET);
         statusBytes = Integer.toString(status).getBytes(Charsets.ASCII_CHARSET);
+
+        final Protocol[] protocols = Protocol.values();
+        statusLineBytes = new byte[protocols.length][];
+        for (Protocol protocol : protocols) {
+            statusLineBytes[protocol.ordinal()] =
+                    createStatusLine(protocol.getProtocolBytes());
+        }
     }
 
     // ---------------------------------------------------------- Public Methods
@@ -178,6 +187,19 @@ public class HttpStatus {
         return reasonPhraseBytes;
     }
 
+    /**
+     * Returns the pre-encoded status line for the given {@link Protocol},
+     * for example <tt>HTTP/1.1 200 OK</tt> (without the trailing CRLF).
+     * The returned array is shared and must not be modified.
+     *
+     * @param protocol the {@link Protocol} of the response.
+     * @return the pre-encoded status line.
+     * @since 2.4.4
+     */
+    public byte[] getStatusLineBytes(final Protocol protocol) {
+        return statusLineBytes[protocol.ordinal()];
+    }
+
     /**
      * Sets the status and reason phrase on the specified response.
      * @param response the response to set the status and reason phrase on.
@@ -186,4 +208,21 @@ public class HttpStatus {
         response.setStatus(this);
         response.setReasonPhrase(Buffers.wrap(null, reasonPhraseBytes));
     }
+
+    // --------------------------------------------------------- Private Methods
+
+    private byte[] createStatusLine(final byte[] protocolBytes) {
+        final byte[] line = new byte[protocolBytes.length + statusBytes.length
+                + reasonPhraseBytes.length + 2];
+        int pos = 0;
+        System.arraycopy(protocolBytes, 0, line, pos, protocolBytes.length);
+        pos += protocolBytes.length;
+        line[pos++] = Constants.SP;
+        System.arraycopy(statusBytes, 0, line, pos, statusBytes.length);
+        pos += statusBytes.length;
+        line[pos++] = Constants.SP;
+        System.arraycopy(reasonPhraseBytes, 0, line, pos, reasonPhraseBytes.length);
+
+        return line;
+    }
 }
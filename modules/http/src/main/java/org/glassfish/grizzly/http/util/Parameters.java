@@ -62,6 +62,7 @@ import java.io.CharConversionException;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Set;
@@ -72,6 +73,7 @@ import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.Grizzly;
 
 import org.glassfish.grizzly.localization.LogMessages;
+import org.glassfish.grizzly.utils.Charsets;
 
 /**
  * @author Costin Manolache
@@ -108,6 +110,25 @@ public final class Parameters {
     private int limit = -1;
     private int parameterCount = 0;
 
+    // Lazy parsing support.
+    // When enabled, processParameters(Buffer, ...) only tokenizes the source
+    // into an offset index (LAZY_ENTRY_SIZE ints per parameter) and the
+    // names/values are decoded on lookup. The index is turned into
+    // paramHashValues the first time a full view is required
+    // (getParameterValues(), getParameterNames(), merge, etc).
+    private static final int LAZY_ENTRY_SIZE = 5;
+    private static final int LAZY_DECODE_NAME = 1;
+    private static final int LAZY_DECODE_VALUE = 2;
+    private static final int LAZY_SEGMENT_SHIFT = 2;
+
+    private boolean lazyParsing;
+    private int[] lazyIndex;
+    private int lazyCount;
+    private Buffer[] lazyBuffers;
+    private Charset[] lazyCharsets;
+    private int lazySegmentCount;
+    private final ByteChunk lazyDecodeChunk = new ByteChunk();
+
     public void setQuery(final DataChunk queryBC) {
         this.queryDC = queryBC;
     }
@@ -120,6 +141,33 @@ public final class Parameters {
         this.limit = limit;
     }
 
+    /**
+     * @return <tt>true</tt> if {@link Buffer} based parameters are tokenized
+     *  lazily and decoded on lookup, or <tt>false</tt> otherwise.
+     *
+     * @see #setLazyParsing(boolean)
+     */
+    public boolean isLazyParsing() {
+        return lazyParsing;
+    }
+
+    /**
+     * Enables or disables lazy parameter parsing.
+     *
+     * In the lazy mode {@link #processParameters(org.glassfish.grizzly.Buffer, int, int, java.nio.charset.Charset)}
+     * doesn't decode parameters, but only builds an offset index over the
+     * passed {@link Buffer}. The names and values are decoded on lookup,
+     * so {@link #getParameter(java.lang.String)} doesn't allocate for ASCII
+     * names, which don't require URL decoding, and only decodes the value
+     * it returns. Please note, the {@link Buffer} content has to remain
+     * unchanged until this <tt>Parameters</tt> object is recycled.
+     *
+     * @param lazyParsing <tt>true</tt> to enable lazy parsing.
+     */
+    public void setLazyParsing(final boolean lazyParsing) {
+        this.lazyParsing = lazyParsing;
+    }
+
     public void setEncoding(final Charset encoding) {
         this.encoding = encoding;
         if (LOGGER.isLoggable(Level.FINEST)) {
@@ -153,6 +201,7 @@ public final class Parameters {
         queryStringEncoding = null;
         parameterCount = 0;
         decodedQuery.recycle();
+        recycleLazyIndex();
 
     }
     // -------------------- Sub-request support --------------------
@@ -217,6 +266,7 @@ public final class Parameters {
         if (key == null) {
             return;
         }
+        materializeLazyParameters();
         ArrayList<String> values;
         if (paramHashValues.containsKey(key)) {
             values = paramHashValues.get(key);
@@ -230,6 +280,7 @@ public final class Parameters {
 
     public String[] getParameterValues(String name) {
         handleQueryParameters();
+        materializeLazyParameters();
         final ArrayList<String> values;
         // sub-request
         if (currentChild != null) {
@@ -244,6 +295,7 @@ public final class Parameters {
 
     public Set<String> getParameterNames() {
         handleQueryParameters();
+        materializeLazyParameters();
         // Slow - the original code
         if (currentChild != null) {
             currentChild.merge();
@@ -276,6 +328,7 @@ public final class Parameters {
 
         // Local parameters first - they take precedence as in spec.
         handleQueryParameters();
+        materializeLazyParameters();
         // we already merged with the parent
         if (didMerge) {
             return;
@@ -307,6 +360,10 @@ public final class Parameters {
                 return "";
             }
             return values.get(0);
+        } else if (lazyCount > 0) {
+            // paramHashValues always holds the parameters, which precede
+            // the ones in the lazy index
+            return getLazyParameter(name);
         } else {
             return null;
         }
@@ -378,6 +435,8 @@ public final class Parameters {
             return;
         }
 
+        materializeLazyParameters();
+
         parameterCount++;
         if (limit > -1 && parameterCount > limit) {
             // Processing this parameter will push us over the limit. ISE is
@@ -387,6 +446,10 @@ public final class Parameters {
                     );
         }
 
+        putParameter(key, value);
+    }
+
+    private void putParameter(final String key, final String value) {
         ArrayList<String> values = paramHashValues.get(key);
         if (values == null) {
             values = new ArrayList<String>(1);
@@ -431,6 +494,11 @@ public final class Parameters {
                                buffer.toStringContent(enc, start, start + len)
                        });
         }
+
+        if (lazyParsing) {
+            indexParameters(buffer, start, len, enc);
+            return;
+        }
         
         int decodeFailCount = 0;
 
@@ -614,6 +682,270 @@ public final class Parameters {
         return result;
     }
 
+    // -------------------- Lazy parameter parsing --------------------
+
+    /**
+     * Tokenizes the parameters into the lazy index without decoding them.
+     * The tokenizing rules are the same as in the eager
+     * {@link #processParameters(org.glassfish.grizzly.Buffer, int, int, java.nio.charset.Charset)}.
+     */
+    private void indexParameters(final Buffer buffer, final int start,
+            final int len, final Charset enc) {
+        final int segment = addLazySegment(buffer, enc);
+
+        final int end = start + len;
+        int pos = start;
+        while (pos < end) {
+            if (limit > -1 && parameterCount >= limit) {
+                LOGGER.warning(LogMessages.WARNING_GRIZZLY_HTTP_SEVERE_GRIZZLY_HTTP_PARAMETERS_MAX_COUNT_FAIL(limit));
+                break;
+            }
+            final int nameStart = pos;
+            int nameEnd = -1;
+            int valueStart = -1;
+            int valueEnd = -1;
+            int flags = 0;
+
+            boolean parsingName = true;
+            boolean parameterComplete = false;
+
+            do {
+                switch (buffer.get(pos)) {
+                    case '=':
+                        if (parsingName) {
+                            nameEnd = pos;
+                            parsingName = false;
+                            valueStart = ++pos;
+                        } else {
+                            pos++;
+                        }
+                        break;
+                    case '&':
+                        if (parsingName) {
+                            nameEnd = pos;
+                        } else {
+                            valueEnd = pos;
+                        }
+                        parameterComplete = true;
+                        pos++;
+                        break;
+                    case '+':
+                    case '%':
+                        flags |= parsingName ? LAZY_DECODE_NAME : LAZY_DECODE_VALUE;
+                        pos++;
+                        break;
+                    default:
+                        pos++;
+                        break;
+                }
+            } while (!parameterComplete && pos < end);
+
+            if (pos == end) {
+                if (nameEnd == -1) {
+                    nameEnd = pos;
+                } else if (valueStart > -1 && valueEnd == -1) {
+                    valueEnd = pos;
+                }
+            }
+
+            if (nameEnd <= nameStart) {
+                // invalid chunk - it's better to ignore
+                continue;
+            }
+
+            parameterCount++;
+            addLazyEntry(nameStart, nameEnd, valueStart, valueEnd,
+                    flags | (segment << LAZY_SEGMENT_SHIFT));
+        }
+    }
+
+    private int addLazySegment(final Buffer buffer, final Charset enc) {
+        if (lazyBuffers == null) {
+            lazyBuffers = new Buffer[2];
+            lazyCharsets = new Charset[2];
+        } else if (lazySegmentCount == lazyBuffers.length) {
+            lazyBuffers = Arrays.copyOf(lazyBuffers, lazySegmentCount * 2);
+            lazyCharsets = Arrays.copyOf(lazyCharsets, lazySegmentCount * 2);
+        }
+
+        lazyBuffers[lazySegmentCount] = buffer;
+        lazyCharsets[lazySegmentCount] = enc != null ? enc : DEFAULT_CHARSET;
+        return lazySegmentCount++;
+    }
+
+    private void addLazyEntry(final int nameStart, final int nameEnd,
+            final int valueStart, final int valueEnd, final int flags) {
+        final int offset = lazyCount * LAZY_ENTRY_SIZE;
+        if (lazyIndex == null) {
+            lazyIndex = new int[INITIAL_SIZE * LAZY_ENTRY_SIZE];
+        } else if (offset == lazyIndex.length) {
+            lazyIndex = Arrays.copyOf(lazyIndex, offset * 2);
+        }
+
+        lazyIndex[offset] = nameStart;
+        lazyIndex[offset + 1] = nameEnd;
+        lazyIndex[offset + 2] = valueStart;
+        lazyIndex[offset + 3] = valueEnd;
+        lazyIndex[offset + 4] = flags;
+        lazyCount++;
+    }
+
+    private String getLazyParameter(final String name) {
+        for (int i = 0; i < lazyCount; i++) {
+            final int offset = i * LAZY_ENTRY_SIZE;
+            try {
+                if (lazyNameEquals(offset, name)) {
+                    return decodeLazyValue(offset);
+                }
+            } catch (Exception e) {
+                // the parameter is skipped, the same way the eager
+                // parsing does
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.log(Level.FINE, "Decoding stacktrace.", e);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Compares the indexed parameter name with the passed <tt>String</tt>.
+     * Names, which don't require URL decoding, are compared with ASCII
+     * <tt>String</tt>s directly in the source {@link Buffer} with no
+     * allocations.
+     */
+    private boolean lazyNameEquals(final int offset, final String name)
+            throws IOException {
+        final int flags = lazyIndex[offset + 4];
+        final int segment = flags >>> LAZY_SEGMENT_SHIFT;
+        final int nameStart = lazyIndex[offset];
+        final int nameEnd = lazyIndex[offset + 1];
+
+        if ((flags & LAZY_DECODE_NAME) == 0
+                && isAsciiCompatible(lazyCharsets[segment])) {
+            final int length = name.length();
+            for (int i = 0; i < length; i++) {
+                if (name.charAt(i) > 0x7F) {
+                    // non-ASCII name, its encoded length may differ from
+                    // the String length, so compare the decoded String
+                    return name.equals(decodeLazy(segment, nameStart, nameEnd, false));
+                }
+            }
+            
+            if (length != nameEnd - nameStart) {
+                return false;
+            }
+
+            final Buffer buffer = lazyBuffers[segment];
+            for (int i = 0; i < length; i++) {
+                if (buffer.get(nameStart + i) != name.charAt(i)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        return name.equals(decodeLazy(segment, nameStart, nameEnd,
+                (flags & LAZY_DECODE_NAME) != 0));
+    }
+
+    private String decodeLazyValue(final int offset) throws IOException {
+        final int valueStart = lazyIndex[offset + 2];
+        if (valueStart == -1) {
+            return "";
+        }
+
+        final int flags = lazyIndex[offset + 4];
+        return decodeLazy(flags >>> LAZY_SEGMENT_SHIFT, valueStart,
+                lazyIndex[offset + 3], (flags & LAZY_DECODE_VALUE) != 0);
+    }
+
+    /**
+     * Decodes the indexed chunk. Unlike the eager parsing, the URL decoding
+     * is done on a copy, so the source {@link Buffer} is never modified and
+     * may be decoded again.
+     */
+    private String decodeLazy(final int segment, final int start,
+            final int end, final boolean urlDecode) throws IOException {
+        final Buffer buffer = lazyBuffers[segment];
+        final Charset enc = lazyCharsets[segment];
+
+        if (!urlDecode) {
+            tmpValue.setBufferChunk(buffer, start, end);
+            try {
+                return tmpValue.toString(enc);
+            } finally {
+                tmpValue.recycle();
+            }
+        }
+
+        final int length = end - start;
+        final ByteChunk bc = lazyDecodeChunk;
+        bc.allocate(length, -1);
+        final byte[] bytes = bc.getBuffer();
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        bc.setEnd(length);
+
+        try {
+            URLDecoder.decode(bc, true);
+            return bc.toString(enc);
+        } finally {
+            bc.recycle();
+        }
+    }
+
+    /**
+     * Decodes all the parameters from the lazy index into paramHashValues,
+     * preserving their order, and clears the index.
+     */
+    private void materializeLazyParameters() {
+        if (lazyCount == 0) {
+            return;
+        }
+
+        int decodeFailCount = 0;
+        for (int i = 0; i < lazyCount; i++) {
+            final int offset = i * LAZY_ENTRY_SIZE;
+            final int flags = lazyIndex[offset + 4];
+            try {
+                final String name = decodeLazy(flags >>> LAZY_SEGMENT_SHIFT,
+                        lazyIndex[offset], lazyIndex[offset + 1],
+                        (flags & LAZY_DECODE_NAME) != 0);
+                putParameter(name, decodeLazyValue(offset));
+            } catch (Exception e) {
+                decodeFailCount++;
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.log(Level.FINE, "Decoding stacktrace.", e);
+                }
+            }
+        }
+
+        recycleLazyIndex();
+
+        if (decodeFailCount > 0 && LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info(LogMessages.INFO_GRIZZLY_HTTP_PARAMETERS_MULTIPLE_DECODING_FAIL(decodeFailCount));
+        }
+    }
+
+    private void recycleLazyIndex() {
+        lazyCount = 0;
+        if (lazySegmentCount > 0) {
+            Arrays.fill(lazyBuffers, 0, lazySegmentCount, null);
+            Arrays.fill(lazyCharsets, 0, lazySegmentCount, null);
+            lazySegmentCount = 0;
+        }
+    }
+
+    private static boolean isAsciiCompatible(final Charset charset) {
+        return DEFAULT_CHARSET.equals(charset)
+                || Charsets.UTF8_CHARSET.equals(charset)
+                || Charsets.ASCII_CHARSET.equals(charset);
+    }
+
     public void processParameters(char chars[], int start, int len) {
         int end = start + len;
         int pos = start;
@@ -758,6 +1090,7 @@ public final class Parameters {
      * Debug purpose
      */
     public String paramsAsString() {
+        materializeLazyParameters();
         StringBuilder sb = new StringBuilder();
         for (final String s : paramHashValues.keySet()) {
             // END PWC 6057385
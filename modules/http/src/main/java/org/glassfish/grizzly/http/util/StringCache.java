@@ -58,99 +58,88 @@
 
 package org.glassfish.grizzly.http.util;
 
-import org.glassfish.grizzly.Grizzly;
-
 import java.nio.charset.Charset;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.TreeMap;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.concurrent.atomic.LongAdder;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.monitoring.DefaultMonitoringConfig;
+import org.glassfish.grizzly.monitoring.MonitoringConfig;
 
 /**
- * This class implements a String cache for ByteChunk and CharChunk.
+ * This class implements a String cache for ByteChunk, BufferChunk and CharChunk.
+ *
+ * The cache is a fixed-size, two-way set associative hash table, which is
+ * accessed without locks. Each entry keeps an approximate use frequency,
+ * which grows on every hit; a miss decays the least frequently used entry of
+ * the set and replaces it once its frequency drops to zero, so the cache
+ * continuously adapts to the traffic. Concurrent updates may be lost, which
+ * only affects the cache efficiency, not the correctness, because entries
+ * themselves are immutable.
  *
  * @author Remy Maucherat
  */
 public final class StringCache {
 
-    /**
-     * Default Logger.
-     */
-    private final static Logger logger = Grizzly.logger(StringCache.class);
-    
-    
     // ------------------------------------------------------- Static Variables
 
     
     /**
      * Enabled ?
      */
-    static boolean byteEnabled =
-        ("true".equals(System.getProperty("tomcat.util.buf.StringCache.byte.enabled", "false")));
+    static volatile boolean byteEnabled =
+        ("true".equals(System.getProperty("tomcat.util.buf.StringCache.byte.enabled", "true")));
 
     
-    static boolean charEnabled =
-        ("true".equals(System.getProperty("tomcat.util.buf.StringCache.char.enabled", "false")));
+    static volatile boolean charEnabled =
+        ("true".equals(System.getProperty("tomcat.util.buf.StringCache.char.enabled", "true")));
 
     
-    static int trainThreshold =
+    static volatile int trainThreshold =
         Integer.parseInt(System.getProperty("tomcat.util.buf.StringCache.trainThreshold", "20000"));
     
 
-    static int cacheSize =
-        Integer.parseInt(System.getProperty("tomcat.util.buf.StringCache.cacheSize", "200"));
-    
-
-    /**
-     * Statistics hash map for byte chunk.
-     */
-    static final HashMap<ByteEntry, int[]> bcStats =
-        new HashMap<ByteEntry, int[]>(cacheSize);
+    static volatile int cacheSize =
+        Integer.parseInt(System.getProperty("tomcat.util.buf.StringCache.cacheSize", "512"));
 
     
-    /**
-     * toString count for byte chunk.
-     */
-    static int bcCount = 0;
-    
-    
-    /**
-     * Cache for byte chunk.
-     */
-    static ByteEntry[] bcCache = null;
+    static volatile int maxStringLength =
+        Integer.parseInt(System.getProperty("tomcat.util.buf.StringCache.maxStringLength", "128"));
     
 
     /**
-     * Statistics hash map for char chunk.
+     * Max frequency an entry could gain.
      */
-    static final HashMap<CharEntry, int[]> ccStats =
-        new HashMap<CharEntry, int[]>(cacheSize);
-
+    private static final int MAX_FREQUENCY = 15;
 
+    
     /**
-     * toString count for char chunk.
+     * Cache for byte and buffer chunks.
      */
-    static int ccCount = 0;
+    private static volatile ByteEntry[] bcCache = new ByteEntry[tableSize(cacheSize)];
     
 
     /**
      * Cache for char chunk.
      */
-    static CharEntry[] ccCache = null;
+    private static volatile CharEntry[] ccCache = new CharEntry[tableSize(cacheSize)];
 
     
     /**
      * Access count.
      */
-    static int accessCount = 0;
+    private static final LongAdder accessCount = new LongAdder();
     
 
     /**
      * Hit count.
      */
-    static int hitCount = 0;
+    private static final LongAdder hitCount = new LongAdder();
+
+
+    /**
+     * Cache probes.
+     */
+    private static final DefaultMonitoringConfig<StringCacheProbe> monitoringConfig =
+            new DefaultMonitoringConfig<>(StringCacheProbe.class);
     
 
     // ------------------------------------------------------------ Properties
@@ -165,10 +154,15 @@ public final class StringCache {
     
     
     /**
+     * Sets the number of entries in each of the byte and char caches
+     * (rounded up to the power of two). The current cache content is dropped.
+     *
      * @param cacheSize The cacheSize to set.
      */
     public static void setCacheSize(int cacheSize) {
         StringCache.cacheSize = cacheSize;
+        bcCache = new ByteEntry[tableSize(cacheSize)];
+        ccCache = new CharEntry[tableSize(cacheSize)];
     }
 
     
@@ -206,7 +200,9 @@ public final class StringCache {
     
     /**
      * @return Returns the trainThreshold.
+     * @deprecated the cache doesn't have a training phase anymore.
      */
+    @Deprecated
     public static int getTrainThreshold() {
         return trainThreshold;
     }
@@ -214,17 +210,36 @@ public final class StringCache {
     
     /**
      * @param trainThreshold The trainThreshold to set.
+     * @deprecated the cache doesn't have a training phase anymore,
+     *             the value is ignored.
      */
+    @Deprecated
     public static void setTrainThreshold(int trainThreshold) {
         StringCache.trainThreshold = trainThreshold;
     }
 
+
+    /**
+     * @return the max length of a String, which could be cached.
+     */
+    public static int getMaxStringLength() {
+        return maxStringLength;
+    }
+
+
+    /**
+     * @param maxStringLength the max length of a String, which could be cached.
+     */
+    public static void setMaxStringLength(int maxStringLength) {
+        StringCache.maxStringLength = maxStringLength;
+    }
+
     
     /**
      * @return Returns the accessCount.
      */
     public static int getAccessCount() {
-        return accessCount;
+        return accessCount.intValue();
     }
     
     
@@ -232,7 +247,16 @@ public final class StringCache {
      * @return Returns the hitCount.
      */
     public static int getHitCount() {
-        return hitCount;
+        return hitCount.intValue();
+    }
+
+
+    /**
+     * @return the {@link MonitoringConfig} of the String cache, which
+     *         allows to register {@link StringCacheProbe}s.
+     */
+    public static MonitoringConfig<StringCacheProbe> getMonitoringConfig() {
+        return monitoringConfig;
     }
 
     
@@ -240,473 +264,286 @@ public final class StringCache {
 
     
     public static void reset() {
-        hitCount = 0;
-        accessCount = 0;
-        synchronized (bcStats) {
-            bcCache = null;
-            bcCount = 0;
-        }
-        synchronized (ccStats) {
-            ccCache = null;
-            ccCount = 0;
-        }
+        hitCount.reset();
+        accessCount.reset();
+        bcCache = new ByteEntry[bcCache.length];
+        ccCache = new CharEntry[ccCache.length];
     }
     
     
     public static String toString(ByteChunk bc) {
-
-        // If the cache is null, then either caching is disabled, or we're
-        // still training
-        if (bcCache == null) {
-            String value = bc.toStringInternal();
-            if (byteEnabled) {
-                // If training, everything is synced
-                synchronized (bcStats) {
-                    // If the cache has been generated on a previous invocation
-                    // while waiting fot the lock, just return the toString value
-                    // we just calculated
-                    if (bcCache != null) {
-                        return value;
-                    }
-                    // Two cases: either we just exceeded the train count, in which
-                    // case the cache must be created, or we just update the count for
-                    // the string
-                    if (bcCount > trainThreshold) {
-                        long t1 = System.currentTimeMillis();
-                        // Sort the entries according to occurrence
-                        TreeMap<Integer, ArrayList<ByteEntry>> tempMap =
-                            new TreeMap<Integer, ArrayList<ByteEntry>>();
-                        Iterator<ByteEntry> entries =
-                            bcStats.keySet().iterator();
-                        while (entries.hasNext()) {
-                            ByteEntry entry = entries.next();
-                            int[] countA = bcStats.get(entry);
-                            Integer count = countA[0];
-                            // Add to the list for that count
-                            ArrayList<ByteEntry> list = tempMap.get(count);
-                            if (list == null) {
-                                // Create list
-                                list = new ArrayList<ByteEntry>();
-                                tempMap.put(count, list);
-                            }
-                            list.add(entry);
-                        }
-                        // Allocate array of the right size
-                        int size = bcStats.size();
-                        if (size > cacheSize) {
-                            size = cacheSize;
-                        }
-                        ByteEntry[] tempbcCache = new ByteEntry[size];
-                        // Fill it up using an alphabetical order
-                        // and a dumb insert sort
-                        ByteChunk tempChunk = new ByteChunk();
-                        int n = 0;
-                        while (n < size) {
-                            Object key = tempMap.lastKey();
-                            ArrayList<ByteEntry> list = tempMap.get(key);
-                            for (int i = 0; i < list.size() && n < size; i++) {
-                                ByteEntry entry = list.get(i);
-                                tempChunk.setBytes(entry.name, 0, entry.name.length);
-                                int insertPos = findClosest(tempChunk, tempbcCache, n);
-                                if (insertPos == n) {
-                                    tempbcCache[n + 1] = entry;
-                                } else {
-                                    System.arraycopy(tempbcCache, insertPos + 1, tempbcCache, 
-                                            insertPos + 2, n - insertPos - 1);
-                                    tempbcCache[insertPos + 1] = entry;
-                                }
-                                n++;
-                            }
-                            tempMap.remove(key);
-                        }
-                        bcCount = 0;
-                        bcStats.clear();
-                        bcCache = tempbcCache;
-                        if (logger.isLoggable(Level.FINEST)) {
-                            long t2 = System.currentTimeMillis();
-                            logger.log(Level.FINEST,"ByteCache generation time: " + (t2 - t1) + "ms");
-                        }
-                    } else {
-                        bcCount++;
-                        // Allocate new ByteEntry for the lookup
-                        ByteEntry entry = new ByteEntry();
-                        entry.value = value;
-                        int[] count = bcStats.get(entry);
-                        if (count == null) {
-                            int end = bc.getEnd();
-                            int start = bc.getStart();
-                            // Create byte array and copy bytes
-                            entry.name = new byte[bc.getLength()];
-                            System.arraycopy(bc.getBuffer(), start, entry.name, 0, end - start);
-                            // Set encoding
-                            entry.charset = bc.getCharset();
-                            // Initialize occurrence count to one 
-                            count = new int[1];
-                            count[0] = 1;
-                            // Set in the stats hash map
-                            bcStats.put(entry, count);
-                        } else {
-                            count[0] = count[0] + 1;
-                        }
-                    }
-                }
-            }
-            return value;
-        } else {
-            accessCount++;
-            // Find the corresponding String
-            String result = find(bc);
-            if (result == null) {
-                return bc.toStringInternal();
-            }
-            // Note: We don't care about safety for the stats
-            hitCount++;
-            return result;
-        }
-        
+        return toString(bc, bc.getCharset());
     }
 
 
-    public static String toString(CharChunk cc) {
-        
-        // If the cache is null, then either caching is disabled, or we're
-        // still training
-        if (ccCache == null) {
-            String value = cc.toStringInternal();
-            if (charEnabled) {
-                // If training, everything is synced
-                synchronized (ccStats) {
-                    // If the cache has been generated on a previous invocation
-                    // while waiting fot the lock, just return the toString value
-                    // we just calculated
-                    if (ccCache != null) {
-                        return value;
-                    }
-                    // Two cases: either we just exceeded the train count, in which
-                    // case the cache must be created, or we just update the count for
-                    // the string
-                    if (ccCount > trainThreshold) {
-                        long t1 = System.currentTimeMillis();
-                        // Sort the entries according to occurrence
-                        TreeMap<Integer, ArrayList<CharEntry>> tempMap =
-                            new TreeMap<Integer, ArrayList<CharEntry>>();
-                        Iterator<CharEntry> entries = ccStats.keySet().iterator();
-                        while (entries.hasNext()) {
-                            CharEntry entry = entries.next();
-                            int[] countA = ccStats.get(entry);
-                            Integer count = countA[0];
-                            // Add to the list for that count
-                            ArrayList<CharEntry> list = tempMap.get(count);
-                            if (list == null) {
-                                // Create list
-                                list = new ArrayList<CharEntry>();
-                                tempMap.put(count, list);
-                            }
-                            list.add(entry);
-                        }
-                        // Allocate array of the right size
-                        int size = ccStats.size();
-                        if (size > cacheSize) {
-                            size = cacheSize;
-                        }
-                        CharEntry[] tempccCache = new CharEntry[size];
-                        // Fill it up using an alphabetical order
-                        // and a dumb insert sort
-                        CharChunk tempChunk = new CharChunk();
-                        int n = 0;
-                        while (n < size) {
-                            Object key = tempMap.lastKey();
-                            ArrayList<CharEntry> list = tempMap.get(key);
-                            for (int i = 0; i < list.size() && n < size; i++) {
-                                CharEntry entry = list.get(i);
-                                tempChunk.setChars(entry.name, 0, entry.name.length);
-                                int insertPos = findClosest(tempChunk, tempccCache, n);
-                                if (insertPos == n) {
-                                    tempccCache[n + 1] = entry;
-                                } else {
-                                    System.arraycopy(tempccCache, insertPos + 1, tempccCache, 
-                                            insertPos + 2, n - insertPos - 1);
-                                    tempccCache[insertPos + 1] = entry;
-                                }
-                                n++;
-                            }
-                            tempMap.remove(key);
-                        }
-                        ccCount = 0;
-                        ccStats.clear();
-                        ccCache = tempccCache;
-                        if (logger.isLoggable(Level.FINEST)) {
-                            long t2 = System.currentTimeMillis();
-                            logger.log(Level.FINEST,"CharCache generation time: " + (t2 - t1) + "ms");
-                        }
-                    } else {
-                        ccCount++;
-                        // Allocate new CharEntry for the lookup
-                        CharEntry entry = new CharEntry();
-                        entry.value = value;
-                        int[] count = ccStats.get(entry);
-                        if (count == null) {
-                            int end = cc.getEnd();
-                            int start = cc.getStart();
-                            // Create char array and copy chars
-                            entry.name = new char[cc.getLength()];
-                            System.arraycopy(cc.getBuffer(), start, entry.name, 0, end - start);
-                            // Initialize occurrence count to one 
-                            count = new int[1];
-                            count[0] = 1;
-                            // Set in the stats hash map
-                            ccStats.put(entry, count);
-                        } else {
-                            count[0] = count[0] + 1;
-                        }
-                    }
-                }
-            }
-            return value;
-        } else {
-            accessCount++;
-            // Find the corresponding String
-            String result = find(cc);
-            if (result == null) {
-                return cc.toStringInternal();
-            }
-            // Note: We don't care about safety for the stats
-            hitCount++;
-            return result;
+    public static String toString(ByteChunk bc, Charset charset) {
+        final byte[] b = bc.getBuffer();
+        final int start = bc.getStart();
+        final int len = bc.getLength();
+
+        if (!byteEnabled || len > maxStringLength) {
+            return new String(b, start, len, charset);
         }
-        
-    }
-    
-    
-    // ----------------------------------------------------- Protected Methods
 
+        accessCount.increment();
 
-    /**
-     * Compare given byte chunk with byte array.
-     * Return -1, 0 or +1 if inferior, equal, or superior to the String.
-     */
-    protected static int compare(ByteChunk name, byte[] compareTo) {
-        int result = 0;
+        int hash = 0;
+        for (int i = start, end = start + len; i < end; i++) {
+            hash = 31 * hash + b[i];
+        }
 
-        byte[] b = name.getBuffer();
-        int start = name.getStart();
-        int end = name.getEnd();
-        int len = compareTo.length;
+        final ByteEntry[] table = bcCache;
+        final int idx1 = hash & (table.length - 1);
+        final int idx2 = idx1 ^ 1;
 
-        if ((end - start) < len) {
-            len = end - start;
+        final ByteEntry e1 = table[idx1];
+        if (e1 != null && e1.matches(hash, b, start, len, charset)) {
+            return onHit(e1);
         }
-        for (int i = 0; (i < len) && (result == 0); i++) {
-            if (b[i + start] > compareTo[i]) {
-                result = 1;
-            } else if (b[i + start] < compareTo[i]) {
-                result = -1;
-            }
+        final ByteEntry e2 = table[idx2];
+        if (e2 != null && e2.matches(hash, b, start, len, charset)) {
+            return onHit(e2);
         }
-        if (result == 0) {
-            if (compareTo.length > (end - start)) {
-                result = -1;
-            } else if (compareTo.length < (end - start)) {
-                result = 1;
-            }
-        }
-        return result;
-    }
 
-    
-    /**
-     * Find an entry given its name in the cache and return the associated String.
-     */
-    protected static String find(ByteChunk name) {
-        int pos = findClosest(name, bcCache, bcCache.length);
-        if ((pos < 0) || (compare(name, bcCache[pos].name) != 0)
-                || !(name.getCharset().equals(bcCache[pos].charset))) {
-            return null;
-        } else {
-            return bcCache[pos].value;
-        }
+        final String value = new String(b, start, len, charset);
+        final byte[] name = new byte[len];
+        System.arraycopy(b, start, name, 0, len);
+        admit(table, idx1, e1, idx2, e2,
+                new ByteEntry(hash, value, name, charset));
+        return value;
     }
 
-    
-    /**
-     * Find an entry given its name in a sorted array of map elements.
-     * This will return the index for the closest inferior or equal item in the
-     * given array.
-     */
-    protected static int findClosest(ByteChunk name, ByteEntry[] array, int len) {
 
-        int a = 0;
-        int b = len - 1;
+    public static String toString(BufferChunk bc, Charset charset) {
+        final Buffer b = bc.getBuffer();
+        final int start = bc.getStart();
+        final int len = bc.getEnd() - start;
 
-        // Special cases: -1 and 0
-        if (b == -1) {
-            return -1;
+        if (!byteEnabled || len > maxStringLength) {
+            return b.toStringContent(charset, start, start + len);
         }
-        
-        if (compare(name, array[0].name) < 0) {
-            return -1;
-        }         
-        if (b == 0) {
-            return 0;
+
+        accessCount.increment();
+
+        int hash = 0;
+        for (int i = start, end = start + len; i < end; i++) {
+            hash = 31 * hash + b.get(i);
         }
 
-        int i;
-        while (true) {
-            i = (b + a) >>> 1;
-            int result = compare(name, array[i].name);
-            if (result == 1) {
-                a = i;
-            } else if (result == 0) {
-                return i;
-            } else {
-                b = i;
-            }
-            if ((b - a) == 1) {
-                int result2 = compare(name, array[b].name);
-                if (result2 < 0) {
-                    return a;
-                } else {
-                    return b;
-                }
-            }
+        final ByteEntry[] table = bcCache;
+        final int idx1 = hash & (table.length - 1);
+        final int idx2 = idx1 ^ 1;
+
+        final ByteEntry e1 = table[idx1];
+        if (e1 != null && e1.matches(hash, b, start, len, charset)) {
+            return onHit(e1);
+        }
+        final ByteEntry e2 = table[idx2];
+        if (e2 != null && e2.matches(hash, b, start, len, charset)) {
+            return onHit(e2);
         }
 
+        final String value = b.toStringContent(charset, start, start + len);
+        final byte[] name = new byte[len];
+        for (int i = 0; i < len; i++) {
+            name[i] = b.get(start + i);
+        }
+        admit(table, idx1, e1, idx2, e2,
+                new ByteEntry(hash, value, name, charset));
+        return value;
     }
 
 
-    /**
-     * Compare given char chunk with char array.
-     * Return -1, 0 or +1 if inferior, equal, or superior to the String.
-     */
-    protected static int compare(CharChunk name, char[] compareTo) {
-        int result = 0;
+    public static String toString(CharChunk cc) {
+        final char[] c = cc.getBuffer();
+        final int start = cc.getStart();
+        final int len = cc.getLength();
 
-        char[] c = name.getBuffer();
-        int start = name.getStart();
-        int end = name.getEnd();
-        int len = compareTo.length;
+        if (!charEnabled || len > maxStringLength) {
+            return new String(c, start, len);
+        }
+
+        accessCount.increment();
 
-        if ((end - start) < len) {
-            len = end - start;
+        int hash = 0;
+        for (int i = start, end = start + len; i < end; i++) {
+            hash = 31 * hash + c[i];
         }
-        for (int i = 0; (i < len) && (result == 0); i++) {
-            if (c[i + start] > compareTo[i]) {
-                result = 1;
-            } else if (c[i + start] < compareTo[i]) {
-                result = -1;
-            }
+
+        final CharEntry[] table = ccCache;
+        final int idx1 = hash & (table.length - 1);
+        final int idx2 = idx1 ^ 1;
+
+        final CharEntry e1 = table[idx1];
+        if (e1 != null && e1.matches(hash, c, start, len)) {
+            return onHit(e1);
         }
-        if (result == 0) {
-            if (compareTo.length > (end - start)) {
-                result = -1;
-            } else if (compareTo.length < (end - start)) {
-                result = 1;
-            }
+        final CharEntry e2 = table[idx2];
+        if (e2 != null && e2.matches(hash, c, start, len)) {
+            return onHit(e2);
         }
-        return result;
-    }
 
-    
-    /**
-     * Find an entry given its name in the cache and return the associated String.
-     */
-    protected static String find(CharChunk name) {
-        int pos = findClosest(name, ccCache, ccCache.length);
-        if ((pos < 0) || (compare(name, ccCache[pos].name) != 0)) {
-            return null;
-        } else {
-            return ccCache[pos].value;
-        }
+        final String value = new String(c, start, len);
+        final char[] name = new char[len];
+        System.arraycopy(c, start, name, 0, len);
+        admit(table, idx1, e1, idx2, e2, new CharEntry(hash, value, name));
+        return value;
     }
-
     
-    /**
-     * Find an entry given its name in a sorted array of map elements.
-     * This will return the index for the closest inferior or equal item in the
-     * given array.
-     */
-    protected static int findClosest(CharChunk name, CharEntry[] array, int len) {
+    
+    // ------------------------------------------------------- Private Methods
 
-        int a = 0;
-        int b = len - 1;
 
-        // Special cases: -1 and 0
-        if (b == -1) {
-            return -1;
+    private static String onHit(final Entry entry) {
+        if (entry.frequency < MAX_FREQUENCY) {
+            entry.frequency++;
         }
-        
-        if (compare(name, array[0].name) < 0 ) {
-            return -1;
-        }         
-        if (b == 0) {
-            return 0;
+        hitCount.increment();
+
+        final StringCacheProbe[] probes = monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (StringCacheProbe probe : probes) {
+                probe.onCacheHitEvent(entry.value);
+            }
         }
 
-        int i;
-        while (true) {
-            i = (b + a) >>> 1;
-            int result = compare(name, array[i].name);
-            if (result == 1) {
-                a = i;
-            } else if (result == 0) {
-                return i;
+        return entry.value;
+    }
+
+
+    /**
+     * Puts the new entry to a free slot, or decays the least frequently
+     * used entry of the set and replaces it, if it's not used anymore.
+     */
+    private static <E extends Entry> void admit(final E[] table,
+            final int idx1, final E e1, final int idx2, final E e2,
+            final E entry) {
+        boolean isAdded = true;
+        if (e1 == null) {
+            table[idx1] = entry;
+        } else if (e2 == null) {
+            table[idx2] = entry;
+        } else {
+            final int victimIdx;
+            final E victim;
+            if (e1.frequency <= e2.frequency) {
+                victimIdx = idx1;
+                victim = e1;
             } else {
-                b = i;
+                victimIdx = idx2;
+                victim = e2;
             }
-            if ((b - a) == 1) {
-                int result2 = compare(name, array[b].name);
-                if (result2 < 0) {
-                    return a;
-                } else {
-                    return b;
-                }
+
+            if (victim.frequency <= 0) {
+                table[victimIdx] = entry;
+            } else {
+                victim.frequency--;
+                isAdded = false;
             }
         }
 
+        final StringCacheProbe[] probes = monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (StringCacheProbe probe : probes) {
+                probe.onCacheMissEvent(entry.value, isAdded);
+            }
+        }
     }
 
 
-    // -------------------------------------------------- ByteEntry Inner Class
+    private static int tableSize(final int cacheSize) {
+        // at least one two-way set
+        final int size = Math.max(cacheSize, 2);
+        return Integer.highestOneBit(size - 1) << 1;
+    }
 
 
-    protected static class ByteEntry {
+    // ------------------------------------------------------ Entry Inner Class
 
-        public byte[] name = null;
-        public Charset charset = null;
-        public String value = null;
 
+    private static abstract class Entry {
+        final int hash;
+        final String value;
+        // approximate use frequency, updated without synchronization
+        int frequency;
+
+        Entry(final int hash, final String value) {
+            this.hash = hash;
+            this.value = value;
+        }
+
+        @Override
         public String toString() {
             return value;
         }
-        public int hashCode() {
-            return value.hashCode();
-        }
-        public boolean equals(Object obj) {
-            return obj instanceof ByteEntry && value.equals(((ByteEntry) obj).value);
-        }
-        
     }
 
 
-    // -------------------------------------------------- CharEntry Inner Class
+    private static final class ByteEntry extends Entry {
+        final byte[] name;
+        final Charset charset;
 
+        ByteEntry(final int hash, final String value, final byte[] name,
+                final Charset charset) {
+            super(hash, value);
+            this.name = name;
+            this.charset = charset;
+        }
 
-    protected static class CharEntry {
+        boolean matches(final int hash, final byte[] b, final int start,
+                final int len, final Charset charset) {
+            if (this.hash != hash || name.length != len
+                    || !isSameCharset(charset)) {
+                return false;
+            }
+            for (int i = 0; i < len; i++) {
+                if (name[i] != b[start + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
 
-        public char[] name = null;
-        public String value = null;
+        boolean matches(final int hash, final Buffer b, final int start,
+                final int len, final Charset charset) {
+            if (this.hash != hash || name.length != len
+                    || !isSameCharset(charset)) {
+                return false;
+            }
+            for (int i = 0; i < len; i++) {
+                if (name[i] != b.get(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
 
-        public String toString() {
-            return value;
+        private boolean isSameCharset(final Charset charset) {
+            return this.charset == charset || this.charset.equals(charset);
         }
-        public int hashCode() {
-            return value.hashCode();
+    }
+
+
+    private static final class CharEntry extends Entry {
+        final char[] name;
+
+        CharEntry(final int hash, final String value, final char[] name) {
+            super(hash, value);
+            this.name = name;
         }
-        public boolean equals(Object obj) {
-            return obj instanceof CharEntry && value.equals(((CharEntry) obj).value);
+
+        boolean matches(final int hash, final char[] c, final int start,
+                final int len) {
+            if (this.hash != hash || name.length != len) {
+                return false;
+            }
+            for (int i = 0; i < len; i++) {
+                if (name[i] != c[start + i]) {
+                    return false;
+                }
+            }
+            return true;
         }
-        
     }
 
-
 }
@@ -0,0 +1,181 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.glassfish.grizzly.Buffer;
+
+/**
+ * SWAR (SIMD within a register) helpers, which let the HTTP parser inspect
+ * eight bytes at a time.
+ *
+ * All the methods operate on <tt>long</tt> words in little-endian order, so
+ * the byte with the lowest address is the least significant one. The
+ * <tt>xxxBytes(long)</tt> methods return a mask, which has the high bit
+ * (<tt>0x80</tt>) set in every byte matching the condition and all the other
+ * bits cleared; the masks are exact, i.e. there are no false positives
+ * caused by carries between bytes.
+ *
+ * @since 2.4.4
+ */
+public final class SwarUtils {
+
+    /**
+     * The number of bytes processed at once.
+     */
+    public static final int WORD_SIZE = 8;
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private static final long SPACES = broadcast(Constants.SP);
+    private static final long DELETES = broadcast(0x7F);
+
+    private SwarUtils() {
+    }
+
+    /**
+     * @param b the byte value.
+     * @return the word, which has every byte set to the passed value.
+     */
+    public static long broadcast(final int b) {
+        return (b & 0xFF) * ONES;
+    }
+
+    /**
+     * Returns the little-endian {@link ByteBuffer} view of the array, which
+     * is used to read words from the array. Unlike assembling a word from
+     * separate bytes, {@link ByteBuffer#getLong(int)} is compiled into a
+     * single memory load by modern JVMs.
+     */
+    public static ByteBuffer wordView(final byte[] array) {
+        return ByteBuffer.wrap(array).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Reads the little-endian word starting at the given index regardless
+     * of the {@link Buffer} byte order. The caller is responsible for making
+     * sure the buffer has at least {@link #WORD_SIZE} bytes starting at
+     * the index.
+     */
+    public static long getLong(final Buffer buffer, final int index) {
+        final long word = buffer.getLong(index);
+        return buffer.order() == ByteOrder.LITTLE_ENDIAN
+                ? word
+                : Long.reverseBytes(word);
+    }
+
+    /**
+     * @return the mask of the bytes, which are equal to the corresponding
+     *  bytes of the pattern.
+     */
+    public static long matchBytes(final long word, final long pattern) {
+        return zeroBytes(word ^ pattern);
+    }
+
+    /**
+     * @return the mask of the zero bytes.
+     */
+    public static long zeroBytes(final long word) {
+        return ~(((word & LOW_BITS) + LOW_BITS) | word | LOW_BITS);
+    }
+
+    /**
+     * @return the mask of the space (<tt>0x20</tt>) bytes.
+     */
+    public static long spaceBytes(final long word) {
+        return matchBytes(word, SPACES);
+    }
+
+    /**
+     * @return the mask of the US-ASCII control characters, i.e. bytes less
+     *  than <tt>0x20</tt> (including CR, LF and HT) and <tt>0x7F</tt>.
+     */
+    public static long controlBytes(final long word) {
+        // the high bit is set if (b & 0x7F) >= 0x20
+        final long geSpace = ((word & LOW_BITS) + broadcast(0x80 - 0x20)) & HIGH_BITS;
+        return (~geSpace & ~word & HIGH_BITS) | matchBytes(word, DELETES);
+    }
+
+    /**
+     * @return the mask of the upper case US-ASCII letters.
+     */
+    public static long upperCaseBytes(final long word) {
+        final long low = word & LOW_BITS;
+        final long geA = (low + broadcast(0x80 - 'A')) & HIGH_BITS;
+        final long gtZ = (low + broadcast(0x80 - 'Z' - 1)) & HIGH_BITS;
+        return geA & ~gtZ & ~word;
+    }
+
+    /**
+     * @return the mask, which selects the first <tt>count</tt> bytes
+     *  (0 &lt;= count &lt; {@link #WORD_SIZE}) of the word.
+     */
+    public static long leadingBytes(final int count) {
+        return (1L << (count << 3)) - 1;
+    }
+
+    /**
+     * @param mask the non-zero mask.
+     * @return the index of the first (lowest address) byte selected by the mask.
+     */
+    public static int firstByteIndex(final long mask) {
+        return Long.numberOfTrailingZeros(mask) >>> 3;
+    }
+
+    /**
+     * @param mask the non-zero mask.
+     * @return the index of the last (highest address) byte selected by the mask.
+     */
+    public static int lastByteIndex(final long mask) {
+        return (63 - Long.numberOfLeadingZeros(mask)) >>> 3;
+    }
+
+    /**
+     * @param mask the mask.
+     * @return the mask of the bytes, which are <b>not</b> selected by the passed mask.
+     */
+    public static long invert(final long mask) {
+        return ~mask & HIGH_BITS;
+    }
+}
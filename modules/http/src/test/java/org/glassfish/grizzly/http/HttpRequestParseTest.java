@@ -43,6 +43,7 @@ package org.glassfish.grizzly.http;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -69,6 +70,7 @@ import org.glassfish.grizzly.nio.NIOConnection;
 import org.glassfish.grizzly.nio.transport.TCPNIOConnectorHandler;
 import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
 import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
+import org.glassfish.grizzly.utils.Charsets;
 import org.glassfish.grizzly.utils.ChunkingFilter;
 import org.glassfish.grizzly.utils.Pair;
 
@@ -206,12 +208,96 @@ public class HttpRequestParseTest extends TestCase {
         assertTrue(packet.getHttpHeader().isChunked());
     }
     
-    @SuppressWarnings({"unchecked"})
-    private HttpPacket doTestDecoder(String request, int limit) {
+    public void testLongHeaders() {
+        final String request = "POST /index.html HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36   \r\n"
+                + "X-Custom-Long-Header-Name:a:b:c\r\n"
+                + "Content-Length: 12345678\r\n"
+                + "\r\n";
+
+        checkLongHeaders(doTestDecoder(request, 4096));
+        checkLongHeaders(doTestDecoder(toDirectBuffer(request), 4096));
+    }
+
+    private static void checkLongHeaders(final HttpPacket packet) {
+        final HttpRequestPacket request = (HttpRequestPacket) packet.getHttpHeader();
+        final MimeHeaders headers = request.getHeaders();
+        assertEquals("Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36",
+                request.getHeader("user-agent"));
+        assertEquals("a:b:c", request.getHeader("X-CUSTOM-LONG-HEADER-NAME"));
+        assertEquals("x-custom-long-header-name", headers.getName(2).toString());
+        assertEquals(12345678L, request.getContentLength());
+    }
+
+    public void testDecoderInvalidHeaderName() {
+        final String[] requests = {
+            "GET /index.html HTTP/1.1\r\nHost: localhost\r\nBad\u0001Header-Name: x\r\n\r\n",
+            "GET /index.html HTTP/1.1\r\nHost: localhost\r\nX\u0001: x\r\n\r\n",
+            "GET /index.html HTTP/1.1\r\nHost: localhost\r\nNo-Colon-Header\r\nAccept: */*\r\n\r\n"
+        };
+
+        for (String request : requests) {
+            try {
+                doTestDecoder(Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER,
+                        request), 4096, true);
+                fail("Invalid header name had to be rejected");
+            } catch (IllegalStateException e) {
+                // expected
+            }
 
-        MemoryManager mm = MemoryManager.DEFAULT_MEMORY_MANAGER;
-        Buffer input = Buffers.wrap(mm, request);
+            try {
+                doTestDecoder(toDirectBuffer(request), 4096, true);
+                fail("Invalid header name had to be rejected");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+        }
         
+        // not rejected, unless the strict header validation is enabled
+        final String request = requests[0];
+        assertEquals("x", doTestDecoder(request, 4096).getHttpHeader()
+                .getHeader("bad\u0001header-name"));
+        assertEquals("x", doTestDecoder(toDirectBuffer(request), 4096).getHttpHeader()
+                .getHeader("bad\u0001header-name"));
+    }
+
+    public void testDecoderInvalidHeaderValue() {
+        final String request =
+                "GET /index.html HTTP/1.1\r\nHost: localhost\r\nX-Value: a\u0000b\r\n\r\n";
+        try {
+            doTestDecoder(Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER,
+                    request), 4096, true);
+            fail("NUL in the header value had to be rejected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        
+        // not rejected, unless the strict header validation is enabled
+        assertEquals("a\u0000b", doTestDecoder(request, 4096).getHttpHeader()
+                .getHeader("x-value"));
+    }
+
+    private static Buffer toDirectBuffer(final String request) {
+        final byte[] bytes = request.getBytes(Charsets.ASCII_CHARSET);
+        final ByteBuffer directBuffer = ByteBuffer.allocateDirect(bytes.length);
+        directBuffer.put(bytes).flip();
+        return Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER, directBuffer);
+    }
+
+    private HttpPacket doTestDecoder(String request, int limit) {
+        return doTestDecoder(Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER,
+                request), limit);
+    }
+
+    private HttpPacket doTestDecoder(Buffer input, int limit) {
+        return doTestDecoder(input, limit, false);
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private HttpPacket doTestDecoder(Buffer input, int limit,
+            boolean strictHeaderValidation) {
+
         HttpServerFilter filter = new HttpServerFilter(true, limit, null, null) {
 
             @Override
@@ -221,6 +307,7 @@ public class HttpRequestParseTest extends TestCase {
                 throw new IllegalStateException(t);
             }
         };
+        filter.setStrictHeaderValidation(strictHeaderValidation);
         FilterChainContext ctx = FilterChainContext.create(new StandaloneConnection());
         ctx.setMessage(input);
 
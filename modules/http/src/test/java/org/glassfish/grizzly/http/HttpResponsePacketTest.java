@@ -165,5 +165,52 @@ public class HttpResponsePacketTest extends TestCase {
                 + "      some-header=secondValue]\n"
                 + ")");
     }
+
+    public void testHeaderTemplateBuilder() {
+        final HttpHeaderTemplate template = HttpHeaderTemplate.builder()
+                .header(Header.Server, "Grizzly")
+                .header("Cache-Control", "no-cache")
+                .build();
+        assertEquals(2, template.size());
+        assertEquals("Server", template.getName(0));
+        assertEquals("Grizzly", template.getValue(0));
+        assertEquals("Cache-Control", template.getName(1));
+        assertEquals("no-cache", template.getValue(1));
+
+        assertRejected("Content-Length", "1");
+        assertRejected("transfer-encoding", "chunked");
+        assertRejected(Header.Date.toString(), "Thu, 01 Jan 1970 00:00:00 GMT");
+        assertRejected("Bad Name", "value");
+        assertRejected("Bad:Name", "value");
+        assertRejected("", "value");
+        assertRejected("X-Injected", "value\r\nSet-Cookie: a=b");
+    }
+
+    public void testHeaderTemplateApplyTo() {
+        final HttpHeaderTemplate template = HttpHeaderTemplate.builder()
+                .header(Header.Server, "Grizzly")
+                .header("Cache-Control", "no-cache")
+                .build();
+
+        response.setHeader("cache-control", "max-age=60");
+        response.setHeaderTemplate(template);
+        assertSame(template, response.getHeaderTemplate());
+
+        template.applyTo(response.getHeaders());
+        assertEquals("Grizzly", response.getHeader(Header.Server));
+        assertEquals("max-age=60", response.getHeader("Cache-Control"));
+        assertEquals(2, response.getHeaders().size());
+
+        response.reset();
+        assertNull(response.getHeaderTemplate());
+    }
+
+    private static void assertRejected(final String name, final String value) {
+        try {
+            HttpHeaderTemplate.builder().header(name, value);
+            fail("Header " + name + " has to be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
     
 }
@@ -873,6 +873,85 @@ public class HttpSemanticsTest extends TestCase {
         // check that keep-alive is false
         assertFalse(response.getProcessingState().isKeepAlive());
     }
+
+    public void testHeaderTemplateSerialization() throws Throwable {
+        final HttpHeaderTemplate template = HttpHeaderTemplate.builder()
+                .header(Header.Server, "Template-Server")
+                .header("Cache-Control", "no-cache")
+                .header("Access-Control-Allow-Origin", "*")
+                .build();
+        
+        final TCPNIOConnection connection = new TCPNIOConnection(
+                TCPNIOTransportBuilder.newInstance().build(), null);
+        
+        Buffer requestBuf = Buffers.wrap(connection.getMemoryManager(),
+                "GET /path HTTP/1.1\n"
+                        + "Host: localhost:" + PORT + '\n'
+                        + '\n');
+        
+        FilterChainContext ctx = FilterChainContext.create(connection);
+        ctx.setMessage(requestBuf);
+        httpServerFilter.handleRead(ctx);
+        
+        final HttpRequestPacket request =
+                (HttpRequestPacket) ((HttpContent) ctx.getMessage())
+                        .getHttpHeader();
+        
+        final HttpResponsePacket response = request.getResponse();
+        HttpStatus.NOT_FOUND_404.setValues(response);
+        response.setContentLength(0);
+        response.setHeaderTemplate(template);
+        // the response header has to override the template one
+        response.setHeader("Cache-Control", "max-age=60");
+        
+        final String encoded = httpServerFilter.encodeHttpPacket(ctx, response)
+                .toStringContent(Charsets.ASCII_CHARSET);
+        
+        assertTrue(encoded, encoded.startsWith("HTTP/1.1 404 Not Found\r\n"
+                + "Server: Template-Server\r\n"
+                + "Access-Control-Allow-Origin: *\r\n"));
+        assertTrue(encoded, encoded.contains("\r\nCache-Control: max-age=60\r\n"));
+        assertFalse(encoded, encoded.contains("no-cache"));
+        assertTrue(encoded, encoded.contains("\r\nContent-Length: 0\r\n"));
+        assertTrue(encoded, encoded.endsWith("\r\n\r\n"));
+    }
+    
+    public void testHeaderTemplate() throws Throwable {
+        final HttpHeaderTemplate template = HttpHeaderTemplate.builder()
+                .header("Cache-Control", "no-cache")
+                .header("X-Template", "value")
+                .build();
+        
+        final BaseFilter serverResponseFilter = new BaseFilter() {
+            @Override
+            public NextAction handleRead(FilterChainContext ctx) throws IOException {
+                final HttpContent httpContent = ctx.getMessage();
+
+                if (!httpContent.isLast()) {
+                    return ctx.getStopAction(httpContent);
+                }
+
+                HttpRequestPacket request =
+                        (HttpRequestPacket) httpContent.getHttpHeader();
+                HttpResponsePacket response = request.getResponse();
+                HttpStatus.OK_200.setValues(response);
+                response.setHeaderTemplate(template);
+                response.setHeader("X-Template", "overridden");
+                response.setContentLength(0);
+                ctx.write(response);
+                return ctx.getStopAction();
+            }
+        };
+
+        ExpectedResult result = new ExpectedResult();
+        result.setProtocol("HTTP/1.1");
+        result.setStatusCode(200);
+        result.addHeader("Content-Length", "0");
+        result.addHeader("Cache-Control", "no-cache");
+        result.addHeader("X-Template", "overridden");
+        result.setStatusMessage("ok");
+        doTest(createHttpRequest(), result, serverResponseFilter);
+    }
     
     // --------------------------------------------------------- Private Methods
 
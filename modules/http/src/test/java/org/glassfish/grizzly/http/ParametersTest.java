@@ -62,6 +62,7 @@ import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
 import java.util.Iterator;
 import java.util.Set;
+import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.http.util.Constants;
 
 import org.glassfish.grizzly.http.util.DataChunk;
@@ -391,6 +392,99 @@ public class ParametersTest {
         params.processParameters(request);
     }
 
+    @Test
+    public void testLazyParsing() {
+        final String query = "a=1&b=x%20y&c&d=&b=2&n%41me=v+1&bad=%zz&e=\u00e9";
+        final Buffer buffer = Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER,
+                query, Charsets.UTF8_CHARSET);
+
+        final Parameters params = new Parameters();
+        params.setLazyParsing(true);
+        params.processParameters(buffer, 0, buffer.remaining(),
+                Charsets.UTF8_CHARSET);
+
+        assertEquals("1", params.getParameter("a"));
+        assertEquals("x y", params.getParameter("b"));
+        assertEquals("x y", params.getParameter("b"));
+        assertEquals("", params.getParameter("c"));
+        assertEquals("", params.getParameter("d"));
+        assertEquals("v 1", params.getParameter("nAme"));
+        assertEquals("\u00e9", params.getParameter("e"));
+        assertNull(params.getParameter("bad"));
+        assertNull(params.getParameter("missing"));
+
+        // lookups must not decode the source buffer in place
+        assertEquals(query, buffer.toStringContent(Charsets.UTF8_CHARSET));
+
+        assertArrayEquals(new String[] {"x y", "2"}, params.getParameterValues("b"));
+        assertArrayEquals(new String[] {"a", "b", "c", "d", "nAme", "e"},
+                params.getParameterNames().toArray(new String[0]));
+        assertEquals("1", params.getParameter("a"));
+        assertEquals("v 1", params.getParameter("nAme"));
+
+        params.recycle();
+        assertNull(params.getParameter("a"));
+        assertTrue(params.getParameterNames().isEmpty());
+    }
+
+    @Test
+    public void testLazyParsingRawUtf8Name() {
+        final String query = "p\u00e4rameter=\u00e4&\u0430\u0440\u0433=1&p\u00e4=2";
+        
+        for (boolean lazy : new boolean[] {false, true}) {
+            final Buffer buffer = Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER,
+                    query, Charsets.UTF8_CHARSET);
+
+            final Parameters params = new Parameters();
+            params.setLazyParsing(lazy);
+            params.processParameters(buffer, 0, buffer.remaining(),
+                    Charsets.UTF8_CHARSET);
+
+            assertEquals("\u00e4", params.getParameter("p\u00e4rameter"));
+            assertEquals("1", params.getParameter("\u0430\u0440\u0433"));
+            assertEquals("2", params.getParameter("p\u00e4"));
+            assertNull(params.getParameter("p\u00e4r"));
+        }
+    }
+
+    @Test
+    public void testLazyParsingPreservesOrder() {
+        final Parameters params = new Parameters();
+        params.setLazyParsing(true);
+        params.addParameter("a", "0");
+
+        final Buffer buffer = Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER,
+                "a=1&b=2");
+        params.processParameters(buffer, 0, buffer.remaining(), null);
+        assertEquals("0", params.getParameter("a"));
+        assertEquals("2", params.getParameter("b"));
+
+        params.addParameter("b", "3");
+        assertArrayEquals(new String[] {"0", "1"}, params.getParameterValues("a"));
+        assertArrayEquals(new String[] {"2", "3"}, params.getParameterValues("b"));
+    }
+
+    @Test
+    public void testLazyParsingLimit() {
+        final Parameters params = new Parameters();
+        params.setLazyParsing(true);
+        params.setLimit(2);
+
+        final Buffer buffer = Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER,
+                "a=1&b=2&c=3");
+        params.processParameters(buffer, 0, buffer.remaining(), null);
+        assertEquals("1", params.getParameter("a"));
+        assertEquals("2", params.getParameter("b"));
+        assertNull(params.getParameter("c"));
+        assertEquals(2, params.getParameterNames().size());
+
+        try {
+            params.addParameter("d", "4");
+            fail("Parameters limit has to be applied to lazily parsed parameters");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
     private void validateParameters(Parameter[] parameters, Parameters p) {
         Iterator<String> names = p.getParameterNames().iterator();
 
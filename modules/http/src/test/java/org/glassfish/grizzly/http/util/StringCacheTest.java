@@ -0,0 +1,173 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.utils.Charsets;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StringCacheTest {
+    private int cacheSize;
+
+    @Before
+    public void setUp() {
+        cacheSize = StringCache.getCacheSize();
+        StringCache.reset();
+    }
+
+    @After
+    public void tearDown() {
+        StringCache.setCacheSize(cacheSize);
+        StringCache.reset();
+    }
+
+    @Test
+    public void testByteAndBufferChunksShareEntries() {
+        final String s1 = StringCache.toString(byteChunk("text/html"));
+        final String s2 = StringCache.toString(byteChunk("text/html"));
+        assertEquals("text/html", s1);
+        assertSame(s1, s2);
+
+        final BufferChunk bufferChunk = new BufferChunk();
+        bufferChunk.setBufferChunk(Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER,
+                "xxtext/htmlxx"), 2, 11);
+        assertSame(s1, StringCache.toString(bufferChunk, Charsets.ASCII_CHARSET));
+
+        final CharChunk charChunk = new CharChunk();
+        charChunk.setChars("text/html".toCharArray(), 0, 9);
+        final String s3 = StringCache.toString(charChunk);
+        assertEquals(s1, s3);
+        assertSame(s3, StringCache.toString(charChunk));
+
+        assertEquals(5, StringCache.getAccessCount());
+        assertEquals(3, StringCache.getHitCount());
+    }
+
+    @Test
+    public void testCharsetIsPartOfKey() {
+        final ByteChunk bc = byteChunk("\u00e9t\u00e9", Charsets.UTF8_CHARSET);
+        final String utf8 = StringCache.toString(bc, Charsets.UTF8_CHARSET);
+        final String latin1 = StringCache.toString(bc, Charsets.lookupCharset("ISO-8859-1"));
+        assertEquals("\u00e9t\u00e9", utf8);
+        assertFalse(utf8.equals(latin1));
+        assertSame(utf8, StringCache.toString(bc, Charsets.UTF8_CHARSET));
+    }
+
+    @Test
+    public void testLongStringsNotCached() {
+        final StringBuilder sb = new StringBuilder();
+        while (sb.length() <= StringCache.getMaxStringLength()) {
+            sb.append("0123456789");
+        }
+        final String s1 = StringCache.toString(byteChunk(sb.toString()));
+        final String s2 = StringCache.toString(byteChunk(sb.toString()));
+        assertEquals(s1, s2);
+        assertNotSame(s1, s2);
+        assertEquals(0, StringCache.getAccessCount());
+    }
+
+    @Test
+    public void testAdaptsToNewValues() {
+        // a single two-way set, so all values compete for it
+        StringCache.setCacheSize(2);
+
+        final String a = StringCache.toString(byteChunk("a"));
+        final String b = StringCache.toString(byteChunk("b"));
+        for (int i = 0; i < 3; i++) {
+            assertSame(a, StringCache.toString(byteChunk("a")));
+        }
+
+        // "c" gets admitted once "b" decays
+        StringCache.toString(byteChunk("c"));
+        final String c = StringCache.toString(byteChunk("c"));
+        assertSame(c, StringCache.toString(byteChunk("c")));
+        assertSame(a, StringCache.toString(byteChunk("a")));
+        assertNotSame(b, StringCache.toString(byteChunk("b")));
+    }
+
+    @Test
+    public void testProbe() {
+        final AtomicInteger hits = new AtomicInteger();
+        final AtomicInteger misses = new AtomicInteger();
+        final StringCacheProbe probe = new StringCacheProbe.Adapter() {
+            @Override
+            public void onCacheHitEvent(String value) {
+                hits.incrementAndGet();
+            }
+
+            @Override
+            public void onCacheMissEvent(String value, boolean isCached) {
+                misses.incrementAndGet();
+            }
+        };
+
+        StringCache.getMonitoringConfig().addProbes(probe);
+        try {
+            StringCache.toString(byteChunk("keep-alive"));
+            StringCache.toString(byteChunk("keep-alive"));
+            StringCache.toString(byteChunk("keep-alive"));
+        } finally {
+            StringCache.getMonitoringConfig().removeProbes(probe);
+        }
+
+        assertEquals(2, hits.get());
+        assertEquals(1, misses.get());
+    }
+
+    private static ByteChunk byteChunk(final String s) {
+        return byteChunk(s, Charsets.ASCII_CHARSET);
+    }
+
+    private static ByteChunk byteChunk(final String s,
+            final java.nio.charset.Charset charset) {
+        final byte[] bytes = s.getBytes(charset);
+        final ByteChunk bc = new ByteChunk();
+        bc.setBytes(bytes, 0, bytes.length);
+        bc.setCharset(charset);
+        return bc;
+    }
+}
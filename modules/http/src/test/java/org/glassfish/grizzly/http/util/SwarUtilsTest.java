@@ -0,0 +1,128 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http.util;
+
+import java.nio.ByteOrder;
+import java.util.Locale;
+import java.util.Random;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.utils.Charsets;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SwarUtilsTest {
+
+    @Test
+    public void testMasks() {
+        final Random r = new Random(1234);
+        final byte[] bytes = new byte[SwarUtils.WORD_SIZE];
+        // interesting bytes are picked more often
+        final byte[] special = {0, 0x1F, ' ', ':', 'A', 'Z', '@', '[', 0x7F, (byte) 0x80, (byte) 0xFF, '\r', '\n', '\t'};
+
+        for (int i = 0; i < 100000; i++) {
+            for (int j = 0; j < bytes.length; j++) {
+                bytes[j] = r.nextBoolean()
+                        ? special[r.nextInt(special.length)]
+                        : (byte) r.nextInt(256);
+            }
+
+            final long word = SwarUtils.wordView(bytes).getLong(0);
+            long zeros = 0, spaces = 0, colons = 0, controls = 0, upperCase = 0;
+            for (int j = 0; j < bytes.length; j++) {
+                final int b = bytes[j] & 0xFF;
+                final long bit = 0x80L << (j * 8);
+                if (b == 0) zeros |= bit;
+                if (b == ' ') spaces |= bit;
+                if (b == ':') colons |= bit;
+                if (b < 0x20 || b == 0x7F) controls |= bit;
+                if (b >= 'A' && b <= 'Z') upperCase |= bit;
+            }
+
+            assertEquals(zeros, SwarUtils.zeroBytes(word));
+            assertEquals(spaces, SwarUtils.spaceBytes(word));
+            assertEquals(colons, SwarUtils.matchBytes(word, SwarUtils.broadcast(':')));
+            assertEquals(controls, SwarUtils.controlBytes(word));
+            assertEquals(upperCase, SwarUtils.upperCaseBytes(word));
+        }
+    }
+
+    @Test
+    public void testByteIndexes() {
+        final byte[] bytes = "ab:cd:ef".getBytes(Charsets.ASCII_CHARSET);
+        final long colons = SwarUtils.matchBytes(SwarUtils.wordView(bytes).getLong(0),
+                SwarUtils.broadcast(':'));
+        assertEquals(2, SwarUtils.firstByteIndex(colons));
+        assertEquals(5, SwarUtils.lastByteIndex(colons));
+        assertEquals(0xFFFFL, SwarUtils.leadingBytes(2));
+        assertEquals(0L, SwarUtils.leadingBytes(0));
+    }
+
+    @Test
+    public void testBufferByteOrder() {
+        final byte[] bytes = "12345678".getBytes(Charsets.ASCII_CHARSET);
+        final Buffer buffer = Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER, bytes);
+        assertEquals(SwarUtils.wordView(bytes).getLong(0), SwarUtils.getLong(buffer, 0));
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(SwarUtils.wordView(bytes).getLong(0), SwarUtils.getLong(buffer, 0));
+    }
+
+    @Test
+    public void testHeaderFind() {
+        for (Header header : Header.values()) {
+            for (String name : new String[] {header.toString(),
+                    header.getLowerCase(), header.toString().toUpperCase(Locale.ENGLISH)}) {
+                final byte[] bytes = ("x" + name + ":").getBytes(Charsets.ASCII_CHARSET);
+                assertSame(header, Header.find(bytes, 1, bytes.length - 1));
+
+                final Buffer buffer = Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER, bytes);
+                assertSame(header, Header.find(buffer, 1, bytes.length - 1));
+            }
+        }
+
+        for (String name : new String[] {"", "x", "content-lengtx", "hosts", "x-custom"}) {
+            final byte[] bytes = name.getBytes(Charsets.ASCII_CHARSET);
+            assertNull(name, Header.find(bytes, 0, bytes.length));
+        }
+    }
+}
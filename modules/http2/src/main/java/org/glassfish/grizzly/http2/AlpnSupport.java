@@ -41,10 +41,10 @@
 package org.glassfish.grizzly.http2;
 
 import java.io.IOException;
-import java.util.Map;
-import java.util.WeakHashMap;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.net.ssl.SSLEngine;
@@ -54,6 +54,7 @@ import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.Grizzly;
 import org.glassfish.grizzly.ICloseType;
 import org.glassfish.grizzly.Transport;
+import org.glassfish.grizzly.attributes.Attribute;
 import org.glassfish.grizzly.npn.AlpnClientNegotiator;
 import org.glassfish.grizzly.npn.AlpnServerNegotiator;
 import org.glassfish.grizzly.npn.NegotiationSupport;
@@ -68,8 +69,10 @@ import org.glassfish.grizzly.ssl.SSLUtils;
 public class AlpnSupport {
     private final static Logger LOGGER = Grizzly.logger(AlpnSupport.class);
 
-    private final static Map<SSLEngine, Connection> SSL_TO_CONNECTION_MAP =
-            new WeakHashMap<>();
+    // SSLEngine doesn't override equals()/hashCode(), so the map is
+    // identity-based. The entries are removed once the Connection is closed.
+    private final static ConcurrentHashMap<SSLEngine, Connection> SSL_TO_CONNECTION_MAP =
+            new ConcurrentHashMap<>();
     
     private static final AlpnSupport INSTANCE;
     
@@ -99,25 +102,27 @@ public class AlpnSupport {
     }
 
     public static Connection getConnection(final SSLEngine engine) {
-        synchronized (SSL_TO_CONNECTION_MAP) {
-            return SSL_TO_CONNECTION_MAP.get(engine);
-        }
+        return SSL_TO_CONNECTION_MAP.get(engine);
     }
     
     private static void setConnection(final SSLEngine engine,
             final Connection connection) {
-        synchronized (SSL_TO_CONNECTION_MAP) {
-            SSL_TO_CONNECTION_MAP.put(engine, connection);
-        }
+        SSL_TO_CONNECTION_MAP.put(engine, connection);
     }
 
-    private final Map<Object, AlpnServerNegotiator> serverSideNegotiators =
-            new WeakHashMap<>();
-    private final ReadWriteLock serverSideLock = new ReentrantReadWriteLock();
+    // Connection specific negotiators are stored as Connection attributes
+    private final Attribute<AlpnServerNegotiator> serverSideNegotiatorAttr =
+            Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createAttribute(
+                    AlpnSupport.class.getName() + ".serverSideNegotiator");
+    private final Attribute<AlpnClientNegotiator> clientSideNegotiatorAttr =
+            Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createAttribute(
+                    AlpnSupport.class.getName() + ".clientSideNegotiator");
     
-    private final Map<Object, AlpnClientNegotiator> clientSideNegotiators =
-            new WeakHashMap<>();
-    private final ReadWriteLock clientSideLock = new ReentrantReadWriteLock();
+    // Transport specific negotiators
+    private final TransportNegotiators<AlpnServerNegotiator> serverSideNegotiators =
+            new TransportNegotiators<>();
+    private final TransportNegotiators<AlpnClientNegotiator> clientSideNegotiators =
+            new TransportNegotiators<>();
 
     private final SSLFilter.HandshakeListener handshakeListener = 
             new SSLFilter.HandshakeListener() {
@@ -128,55 +133,50 @@ public class AlpnSupport {
             assert sslEngine != null;
             
             if (sslEngine.getUseClientMode()) {
-                AlpnClientNegotiator negotiator;
-                clientSideLock.readLock().lock();
-                
-                try {
-                    negotiator = clientSideNegotiators.get(connection);
-                    if (negotiator == null) {
-                        negotiator = clientSideNegotiators.get(connection.getTransport());
-                    }
-                } finally {
-                    clientSideLock.readLock().unlock();
+                AlpnClientNegotiator negotiator =
+                        clientSideNegotiatorAttr.get(connection);
+                if (negotiator == null) {
+                    negotiator = clientSideNegotiators.get(connection.getTransport());
                 }
                 
                 if (negotiator != null) {
+                    setConnection(sslEngine, connection);
+                    NegotiationSupport.addNegotiator(sslEngine, negotiator);
+                    
                     // add a CloseListener to ensure we remove the
-                    // negotiator associated with this SSLEngine
+                    // negotiator associated with this SSLEngine.
+                    // It's added last, because it's invoked right away,
+                    // if the connection is already closed
                     connection.addCloseListener(new CloseListener() {
                         @Override
                         public void onClosed(Closeable closeable, ICloseType type) throws IOException {
                             NegotiationSupport.removeClientNegotiator(sslEngine);
+                            SSL_TO_CONNECTION_MAP.remove(sslEngine);
                         }
                     });
-                    setConnection(sslEngine, connection);
-                    NegotiationSupport.addNegotiator(sslEngine, negotiator);
                 }
             } else {
-                AlpnServerNegotiator negotiator;
-                serverSideLock.readLock().lock();
-                
-                try {
-                    negotiator = serverSideNegotiators.get(connection);
-                    if (negotiator == null) {
-                        negotiator = serverSideNegotiators.get(connection.getTransport());
-                    }
-                } finally {
-                    serverSideLock.readLock().unlock();
+                AlpnServerNegotiator negotiator =
+                        serverSideNegotiatorAttr.get(connection);
+                if (negotiator == null) {
+                    negotiator = serverSideNegotiators.get(connection.getTransport());
                 }
                 
                 if (negotiator != null) {
-
+                    setConnection(sslEngine, connection);
+                    NegotiationSupport.addNegotiator(sslEngine, negotiator);
+                    
                     // add a CloseListener to ensure we remove the
-                    // negotiator associated with this SSLEngine
+                    // negotiator associated with this SSLEngine.
+                    // It's added last, because it's invoked right away,
+                    // if the connection is already closed
                     connection.addCloseListener(new CloseListener() {
                         @Override
                         public void onClosed(Closeable closeable, ICloseType type) throws IOException {
                             NegotiationSupport.removeServerNegotiator(sslEngine);
+                            SSL_TO_CONNECTION_MAP.remove(sslEngine);
                         }
                     });
-                    setConnection(sslEngine, connection);
-                    NegotiationSupport.addNegotiator(sslEngine, negotiator);
                 }
             }
             
@@ -200,45 +200,78 @@ public class AlpnSupport {
     
     public void setServerSideNegotiator(final Transport transport,
             final AlpnServerNegotiator negotiator) {
-        putServerSideNegotiator(transport, negotiator);
+        serverSideNegotiators.put(transport, negotiator);
     }
     
     public void setServerSideNegotiator(final Connection connection,
             final AlpnServerNegotiator negotiator) {
-        putServerSideNegotiator(connection, negotiator);
+        serverSideNegotiatorAttr.set(connection, negotiator);
     }
 
     
     public void setClientSideNegotiator(final Transport transport,
             final AlpnClientNegotiator negotiator) {
-        putClientSideNegotiator(transport, negotiator);
+        clientSideNegotiators.put(transport, negotiator);
     }
 
     public void setClientSideNegotiator(final Connection connection,
             final AlpnClientNegotiator negotiator) {
-        putClientSideNegotiator(connection, negotiator);
+        clientSideNegotiatorAttr.set(connection, negotiator);
     }
 
-    private void putServerSideNegotiator(final Object object,
-            final AlpnServerNegotiator negotiator) {
-        serverSideLock.writeLock().lock();
+    /**
+     * The negotiators registered per {@link Transport}. There are only a few
+     * {@link Transport}s, so the lookup scans an immutable array of weakly
+     * referenced {@link Transport}s, which is replaced on update, and
+     * doesn't require any locking on the handshake path.
+     */
+    private static final class TransportNegotiators<E> {
+        private volatile TransportEntry<E>[] entries = newArray(0);
 
-        try {
-            serverSideNegotiators.put(object, negotiator);
-        } finally {
-            serverSideLock.writeLock().unlock();
+        E get(final Transport transport) {
+            final TransportEntry<E>[] localEntries = entries;
+            for (int i = 0; i < localEntries.length; i++) {
+                if (localEntries[i].get() == transport) {
+                    return localEntries[i].negotiator;
+                }
+            }
+            
+            return null;
         }
-    }
 
-    private void putClientSideNegotiator(final Object object,
-            final AlpnClientNegotiator negotiator) {
-        clientSideLock.writeLock().lock();
+        synchronized void put(final Transport transport, final E negotiator) {
+            final TransportEntry<E>[] localEntries = entries;
+            final List<TransportEntry<E>> newEntries =
+                    new ArrayList<>(localEntries.length + 1);
+            
+            for (TransportEntry<E> entry : localEntries) {
+                final Transport t = entry.get();
+                // skip the replaced entry and the garbage collected Transports
+                if (t != null && t != transport) {
+                    newEntries.add(entry);
+                }
+            }
+            
+            if (negotiator != null) {
+                newEntries.add(new TransportEntry<>(transport, negotiator));
+            }
+            
+            entries = newEntries.toArray(newArray(newEntries.size()));
+        }
 
-        try {
-            clientSideNegotiators.put(object, negotiator);
-        } finally {
-            clientSideLock.writeLock().unlock();
+        @SuppressWarnings("unchecked")
+        private static <E> TransportEntry<E>[] newArray(final int size) {
+            return new TransportEntry[size];
         }
     }
 
+    private static final class TransportEntry<E>
+            extends WeakReference<Transport> {
+        private final E negotiator;
+
+        TransportEntry(final Transport transport, final E negotiator) {
+            super(transport);
+            this.negotiator = negotiator;
+        }
+    }
 }
@@ -44,6 +44,7 @@ import java.io.IOException;
 import java.util.Map;
 
 import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.http.HttpHeaderTemplate;
 import org.glassfish.grizzly.http.HttpRequestPacket;
 import org.glassfish.grizzly.http.HttpResponsePacket;
 import org.glassfish.grizzly.http.util.Ascii;
@@ -84,18 +85,30 @@ class EncoderUtils extends EncoderDecoderUtilsBase {
         headers.removeHeader(Header.ProxyConnection);
         headers.removeHeader(Header.TransferEncoding);
         headers.removeHeader(Header.Upgrade);
+
+        final HttpHeaderTemplate headerTemplate = response.getHeaderTemplate();
+        if (headerTemplate != null) {
+            // the pre-encoded HTTP/1.x header block can't be used here
+            headerTemplate.applyTo(headers);
+        }
         
         final HeadersEncoder encoder = http2Session.getHeadersEncoder();
+        encoder.startCacheableHeaderBlock();
 
-//        encoder.encodeHeader(Constants.STATUS_HEADER_BYTES,
-//                response.getHttpStatus().getStatusBytes(), false);
-        
-        encoder.encodeHeader(STATUS_HEADER,
-                String.valueOf(response.getHttpStatus().getStatusCode()), capture);
+        try {
+//            encoder.encodeHeader(Constants.STATUS_HEADER_BYTES,
+//                    response.getHttpStatus().getStatusBytes(), false);
 
-        encodeUserHeaders(headers, encoder, capture);
+            encoder.encodeHeader(STATUS_HEADER,
+                    String.valueOf(response.getHttpStatus().getStatusCode()), capture);
 
-        return encoder.flushHeaders();
+            encodeUserHeaders(headers, encoder, capture);
+
+            return encoder.flushHeaders();
+        } finally {
+            // if the block failed, the next block must not be treated as cacheable
+            encoder.resetCacheableHeaderBlock();
+        }
     }
     
     @SuppressWarnings("unchecked")
@@ -0,0 +1,216 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.http2;
+
+/**
+ * Grows the local flow-control windows of an {@link Http2Session} based on
+ * the measured bandwidth-delay product (BDP).
+ * 
+ * When DATA is received and no measurement is in progress, a PING frame is
+ * sent and the amount of data received until the PING is acknowledged is
+ * counted. If the data received during the round trip gets close to the
+ * current window size, the window is the bottleneck, so both the connection
+ * and the stream windows are grown to twice the measured BDP, bounded by
+ * {@link Http2Configuration#getMaxAdaptiveWindowSize()} and the shared
+ * {@link Http2Configuration#getAdaptiveWindowBudget() budget}.
+ * The stream window is updated using the SETTINGS_INITIAL_WINDOW_SIZE setting,
+ * which also grows the windows of the already open streams.
+ * 
+ * The session window sizes are read and updated under the session lock, so
+ * the growth is never computed from, or applied over, a stale window size.
+ */
+final class FlowControlWindowTuner {
+    // "BDP" marker in the high bytes to distinguish our PINGs
+    private static final long BDP_PING_MARKER = 0x4244500000000000L;
+    
+    // grow(...) results
+    private static final int NOT_CHANGED = 0;
+    private static final int CHANGED = 1;
+    private static final int BUDGET_EXHAUSTED = 2;
+    
+    private final Http2Session http2Session;
+    private final Http2Configuration configuration;
+    
+    private boolean isPingOutstanding;
+    private long pingPayload;
+    private long pingSentNanos;
+    private int pingCounter;
+    private long bytesReceived;
+    
+    private int reservedBytes;
+    private boolean isMaxedOut;
+    private boolean isReleased;
+
+    FlowControlWindowTuner(final Http2Session http2Session,
+            final Http2Configuration configuration) {
+        this.http2Session = http2Session;
+        this.configuration = configuration;
+    }
+    
+    /**
+     * Is called once a DATA frame has been received.
+     */
+    void onDataReceived(final int size) {
+        final long payload;
+        synchronized (this) {
+            if (isMaxedOut || isReleased) {
+                return;
+            }
+            
+            if (isPingOutstanding) {
+                bytesReceived += size;
+                return;
+            }
+            
+            isPingOutstanding = true;
+            bytesReceived = size;
+            payload = pingPayload = BDP_PING_MARKER | (++pingCounter & 0xFFFFFFFFL);
+            pingSentNanos = System.nanoTime();
+        }
+        
+        http2Session.sendPing(payload);
+    }
+    
+    /**
+     * Is called once a PING ACK has been received.
+     * 
+     * @return <tt>true</tt> if the PING has been sent by this tuner,
+     *  or <tt>false</tt> otherwise.
+     */
+    boolean onPingAck(final long payload) {
+        final long rttNanos;
+        final int sample;
+        synchronized (this) {
+            if (!isPingOutstanding || payload != pingPayload) {
+                return false;
+            }
+            
+            isPingOutstanding = false;
+            rttNanos = System.nanoTime() - pingSentNanos;
+            sample = (int) Math.min(Integer.MAX_VALUE, bytesReceived);
+        }
+        
+        Http2SessionProbeNotifier.notifyBdpSample(http2Session, rttNanos, sample);
+        
+        final int windowSize = (int) Math.min(
+                configuration.getMaxAdaptiveWindowSize(), (long) sample * 2);
+        final int connectionWindow;
+        final int streamWindow;
+        final int result;
+        synchronized (http2Session.getSessionLock()) {
+            connectionWindow = http2Session.getLocalConnectionWindowSize();
+            streamWindow = http2Session.getLocalStreamWindowSize();
+            
+            // grow only if the window, not the sender, is the bottleneck
+            if ((long) sample * 3 < (long) Math.min(connectionWindow, streamWindow) * 2) {
+                return true;
+            }
+            
+            result = grow(windowSize, connectionWindow, streamWindow);
+        }
+        
+        if (result == BUDGET_EXHAUSTED) {
+            Http2SessionProbeNotifier.notifyAdaptiveWindowBudgetExhausted(
+                    http2Session, windowSize);
+        } else if (result == CHANGED) {
+            Http2SessionProbeNotifier.notifyLocalWindowSizeChanged(http2Session,
+                    Math.max(windowSize, connectionWindow),
+                    Math.max(windowSize, streamWindow));
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Returns the reserved bytes back to the budget, once the session is closed.
+     */
+    synchronized void release() {
+        if (!isReleased) {
+            isReleased = true;
+            configuration.releaseAdaptiveWindow(reservedBytes);
+            reservedBytes = 0;
+        }
+    }
+    
+    /**
+     * Grows the session windows up to the passed size.
+     * Must be called under the session lock.
+     * 
+     * @return {@link #CHANGED}, {@link #NOT_CHANGED} or
+     *  {@link #BUDGET_EXHAUSTED}, if the growth couldn't be reserved from
+     *  the budget.
+     */
+    private int grow(final int windowSize, final int connectionWindow,
+            final int streamWindow) {
+        final int connectionDelta = Math.max(0, windowSize - connectionWindow);
+        final int streamDelta = Math.max(0, windowSize - streamWindow);
+        
+        synchronized (this) {
+            if (isReleased) {
+                return NOT_CHANGED;
+            }
+            
+            if (connectionDelta == 0 && streamDelta == 0) {
+                isMaxedOut = windowSize >= configuration.getMaxAdaptiveWindowSize();
+                return NOT_CHANGED;
+            }
+            
+            if (!configuration.reserveAdaptiveWindow(
+                    connectionDelta + streamDelta)) {
+                return BUDGET_EXHAUSTED;
+            }
+            
+            reservedBytes += connectionDelta + streamDelta;
+            isMaxedOut = windowSize >= configuration.getMaxAdaptiveWindowSize();
+        }
+        
+        if (connectionDelta > 0) {
+            http2Session.setLocalConnectionWindowSize(windowSize);
+            http2Session.sendWindowUpdate(0, connectionDelta);
+        }
+        
+        if (streamDelta > 0) {
+            http2Session.setLocalStreamWindowSize(windowSize);
+            http2Session.sendInitialWindowSize(windowSize);
+        }
+        
+        return CHANGED;
+    }
+}
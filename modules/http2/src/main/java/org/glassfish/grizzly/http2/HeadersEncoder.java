@@ -42,13 +42,22 @@ package org.glassfish.grizzly.http2;
 
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.http2.hpack.Encoder;
+import org.glassfish.grizzly.http2.hpack.HeaderIndexingPolicy;
 import org.glassfish.grizzly.memory.CompositeBuffer;
 import org.glassfish.grizzly.memory.MemoryManager;
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
- *
+ * HPACK headers encoder.
+ * 
+ * If a header block cache is enabled, the header blocks started using
+ * {@link #startCacheableHeaderBlock()} are looked up in a per-encoder LRU cache
+ * keyed by the header set, and if the HPACK encoder state hasn't changed since
+ * the block was cached - the pre-encoded bytes are reused.
+ * 
  * @author oleksiys
  */
 public class HeadersEncoder {
@@ -65,24 +74,91 @@ public class HeadersEncoder {
 
     private CompositeBuffer buffer;
 
+    // header block cache
+    private final HeaderBlockCache blockCache;
+    private final HeaderBlockKey lookupKey;
+    private boolean cacheableBlock;
+    private long blockCacheHits;
+    private long blockCacheMisses;
+
     public HeadersEncoder(final MemoryManager memoryManager,
                           final int maxHeaderTableSize) {
+        this(memoryManager, maxHeaderTableSize, null, 0);
+    }
+    
+    /**
+     * @param memoryManager the {@link MemoryManager} to allocate buffers
+     * @param maxHeaderTableSize the header table size agreed with the peer
+     * @param indexingPolicy the {@link HeaderIndexingPolicy}, or <code>null</code>
+     *  if the dynamic table must not be used
+     * @param headerBlockCacheSize the max number of cached header blocks,
+     *  <code>0</code> disables the cache
+     */
+    public HeadersEncoder(final MemoryManager memoryManager,
+                          final int maxHeaderTableSize,
+                          final HeaderIndexingPolicy indexingPolicy,
+                          final int headerBlockCacheSize) {
         this.memoryManager = memoryManager;
-        hpackEncoder = new Encoder(maxHeaderTableSize);
+        hpackEncoder = new Encoder(maxHeaderTableSize, indexingPolicy);
+        
+        if (headerBlockCacheSize > 0) {
+            blockCache = new HeaderBlockCache(headerBlockCacheSize);
+            lookupKey = new HeaderBlockKey();
+        } else {
+            blockCache = null;
+            lookupKey = null;
+        }
+    }
+
+    /**
+     * Sets the max header table size, the peer is ready to accept.
+     */
+    public void setMaxHeaderTableSize(final int maxHeaderTableSize) {
+        hpackEncoder.setMaxCapacity(maxHeaderTableSize);
+    }
+    
+    /**
+     * Marks the header block, which is about to be encoded, as cacheable.
+     * The headers will be encoded once the block is flushed, unless the block
+     * is found in the header block cache.
+     * Has no effect if the header block cache is disabled.
+     */
+    public void startCacheableHeaderBlock() {
+        if (blockCache != null) {
+            cacheableBlock = true;
+            lookupKey.reset();
+        }
+    }
+    
+    /**
+     * Ends the cacheable header block, if it hasn't been flushed, for example
+     * because an error occurred while the block was being encoded.
+     * The headers collected for the block are discarded.
+     */
+    public void resetCacheableHeaderBlock() {
+        cacheableBlock = false;
     }
     
     public void encodeHeader(final String name, final String value, final Map<String,String> capture) {
         if (capture != null) {
             capture.put(name, value);
         }
-        init();
-        hpackEncoder.header(name, value);
-        while (!hpackEncoder.encode(buffer)) {
-            buffer.append(memoryManager.allocate(DEFAULT_BUFFER_SIZE));
+        
+        if (cacheableBlock) {
+            lookupKey.add(name, value);
+            return;
         }
+        
+        init();
+        encode(name, value);
     }
     
     public Buffer flushHeaders() {
+        if (cacheableBlock) {
+            cacheableBlock = false;
+            return flushCacheableHeaders();
+        }
+        
         final Buffer bufferLocal = buffer;
         bufferLocal.trim();
         buffer = null;
@@ -90,6 +166,68 @@ public class HeadersEncoder {
         return bufferLocal;
     }
 
+    /**
+     * @return the number of header blocks served from the header block cache
+     */
+    public long getHeaderBlockCacheHits() {
+        return blockCacheHits;
+    }
+
+    /**
+     * @return the number of cacheable header blocks, which had to be encoded
+     */
+    public long getHeaderBlockCacheMisses() {
+        return blockCacheMisses;
+    }
+
+    private Buffer flushCacheableHeaders() {
+        final HeaderBlockKey key = lookupKey;
+        final CachedHeaderBlock cached = blockCache.get(key);
+        
+        if (cached != null && cached.stateVersion == hpackEncoder.getStateVersion()) {
+            blockCacheHits++;
+            final Buffer result = memoryManager.allocate(cached.encoded.length);
+            result.put(cached.encoded);
+            result.flip();
+            return result;
+        }
+        
+        blockCacheMisses++;
+        
+        final long stateVersion = hpackEncoder.getStateVersion();
+        boolean sensitive = false;
+        
+        init();
+        for (int i = 0; i < key.size; i += 2) {
+            encode(key.namesAndValues[i], key.namesAndValues[i + 1]);
+            sensitive |= hpackEncoder.isLastHeaderNeverIndexed();
+        }
+        
+        final Buffer result = flushHeaders();
+        
+        if (!sensitive && stateVersion == hpackEncoder.getStateVersion()
+                && result.remaining() <= DEFAULT_BUFFER_SIZE) {
+            // the block neither changed, nor depends on the encoder state changes
+            final byte[] encoded = new byte[result.remaining()];
+            final int pos = result.position();
+            result.get(encoded);
+            result.position(pos);
+            
+            blockCache.put(key.copy(), new CachedHeaderBlock(encoded, stateVersion));
+        } else if (cached != null) {
+            blockCache.remove(key);
+        }
+        
+        return result;
+    }
+    
+    private void encode(final String name, final String value) {
+        hpackEncoder.header(name, value);
+        while (!hpackEncoder.encode(buffer)) {
+            buffer.append(memoryManager.allocate(DEFAULT_BUFFER_SIZE));
+        }
+    }
+
     private void init() {
         if (buffer == null) {
             buffer = CompositeBuffer.newBuffer(memoryManager);
@@ -98,4 +236,100 @@ public class HeadersEncoder {
             buffer.append(memoryManager.allocate(DEFAULT_BUFFER_SIZE));
         }
     }
+    
+    private static final class HeaderBlockCache
+            extends LinkedHashMap<HeaderBlockKey, CachedHeaderBlock> {
+        private static final long serialVersionUID = 1L;
+        
+        private final int maxSize;
+
+        HeaderBlockCache(final int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(
+                final Map.Entry<HeaderBlockKey, CachedHeaderBlock> eldest) {
+            return size() > maxSize;
+        }
+    }
+    
+    private static final class CachedHeaderBlock {
+        private final byte[] encoded;
+        private final long stateVersion;
+
+        CachedHeaderBlock(final byte[] encoded, final long stateVersion) {
+            this.encoded = encoded;
+            this.stateVersion = stateVersion;
+        }
+    }
+    
+    /**
+     * The ordered header set: names and values, one after another.
+     */
+    private static final class HeaderBlockKey {
+        private String[] namesAndValues;
+        private int size;
+        private int hash;
+
+        HeaderBlockKey() {
+            namesAndValues = new String[16];
+        }
+        
+        private HeaderBlockKey(final String[] namesAndValues, final int hash) {
+            this.namesAndValues = namesAndValues;
+            this.size = namesAndValues.length;
+            this.hash = hash;
+        }
+        
+        void add(final String name, final String value) {
+            if (size + 2 > namesAndValues.length) {
+                namesAndValues = Arrays.copyOf(namesAndValues, size * 2);
+            }
+            
+            namesAndValues[size++] = name;
+            namesAndValues[size++] = value;
+            hash = 31 * (31 * hash + name.hashCode()) + value.hashCode();
+        }
+        
+        void reset() {
+            Arrays.fill(namesAndValues, 0, size, null);
+            size = 0;
+            hash = 0;
+        }
+        
+        HeaderBlockKey copy() {
+            return new HeaderBlockKey(Arrays.copyOf(namesAndValues, size), hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            
+            if (!(obj instanceof HeaderBlockKey)) {
+                return false;
+            }
+            
+            final HeaderBlockKey other = (HeaderBlockKey) obj;
+            if (hash != other.hash || size != other.size) {
+                return false;
+            }
+            
+            for (int i = 0; i < size; i++) {
+                if (!namesAndValues[i].equals(other.namesAndValues[i])) {
+                    return false;
+                }
+            }
+            
+            return true;
+        }
+    }
 }
@@ -81,6 +81,9 @@ import org.glassfish.grizzly.http2.frames.PingFrame;
 import org.glassfish.grizzly.http2.frames.PushPromiseFrame;
 import org.glassfish.grizzly.http2.frames.RstStreamFrame;
 import org.glassfish.grizzly.http2.frames.SettingsFrame;
+import org.glassfish.grizzly.monitoring.DefaultMonitoringConfig;
+import org.glassfish.grizzly.monitoring.MonitoringAware;
+import org.glassfish.grizzly.monitoring.MonitoringConfig;
 import org.glassfish.grizzly.http2.frames.WindowUpdateFrame;
 import org.glassfish.grizzly.threadpool.GrizzlyExecutorService;
 import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
@@ -102,7 +105,8 @@ import org.glassfish.grizzly.http2.frames.PriorityFrame;
  * 
  * @author Grizzly team
  */
-public abstract class Http2BaseFilter extends HttpBaseFilter {
+public abstract class Http2BaseFilter extends HttpBaseFilter
+        implements MonitoringAware<Http2SessionProbe> {
     private final static Logger LOGGER = Grizzly.logger(Http2BaseFilter.class);
 
     /**
@@ -128,6 +132,12 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
     
     private int localMaxFramePayloadSize;
 
+    /**
+     * Http2Session probes
+     */
+    final DefaultMonitoringConfig<Http2SessionProbe> monitoringConfig =
+            new DefaultMonitoringConfig<>(Http2SessionProbe.class);
+
     /**
      * Constructs Http2HandlerFilter.
      */
@@ -161,6 +171,14 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
         return configuration;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MonitoringConfig<Http2SessionProbe> getMonitoringConfig() {
+        return monitoringConfig;
+    }
+
     protected boolean processFrames(final FilterChainContext ctx,
             final Http2Session http2Session,
             final List<Http2Frame> framesList) {
@@ -553,7 +571,11 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
                 throw new Http2SessionException(ErrorCode.FRAME_SIZE_ERROR, "SETTINGS frame length not multiple of six.");
             }
             sendSettingsAck(http2Session, context);
+            
+            final int oldMaxConcurrentStreams =
+                    http2Session.getPeerMaxConcurrentStreams();
             applySettings(http2Session, settingsFrame);
+            http2Session.onPeerSettingsApplied(oldMaxConcurrentStreams);
         } finally {
             frame.recycle();
         }
@@ -569,6 +591,7 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
             
             switch (setting.getId()) {
                 case SettingsFrame.SETTINGS_HEADER_TABLE_SIZE:
+                    http2Session.setPeerHeaderTableSize(setting.getValue());
                     break;
                 case SettingsFrame.SETTINGS_ENABLE_PUSH:
                     final int val = setting.getValue();
@@ -612,6 +635,7 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
         PingFrame pingFrame = (PingFrame) frame;
 
         if (pingFrame.isAckSet()) {
+            http2Session.onPingAck(pingFrame.getOpaqueData());
             return;
         }
 
@@ -1026,6 +1050,7 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
 
         // Always ACK the data to maintain flow-control state
         http2Session.ackConsumedData(data.remaining());
+        http2Session.onDataFrameReceived(data.remaining());
 
         // If we're going away, ignore any frames for streams greater than the last stream ID from the goaway frame.
         if (ignoreFrameForStreamId(http2Session, streamId)) {
@@ -0,0 +1,1070 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http2;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.glassfish.grizzly.CloseListener;
+import org.glassfish.grizzly.CloseType;
+import org.glassfish.grizzly.Closeable;
+import org.glassfish.grizzly.CompletionHandler;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.ConnectorHandler;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.GrizzlyFuture;
+import org.glassfish.grizzly.impl.FutureImpl;
+import org.glassfish.grizzly.impl.SafeFutureImpl;
+import org.glassfish.grizzly.utils.DelayedExecutor;
+import org.glassfish.grizzly.utils.DelayedExecutor.DelayQueue;
+import org.glassfish.grizzly.utils.Futures;
+
+/**
+ * The client-side HTTP/2 {@link Connection} pool, which hands out stream
+ * capacity rather than exclusive {@link Connection}s.
+ * 
+ * Each {@link Connection} (and its {@link Http2Session}) may be taken by
+ * several users at the same time, up to the number of concurrent streams
+ * allowed by the peer (SETTINGS_MAX_CONCURRENT_STREAMS), which could be
+ * additionally limited by <tt>maxStreamsPerConnection</tt>.
+ * New {@link Connection}s are opened only if all the existing ones are
+ * at their concurrency limit.
+ * 
+ * {@link Connection}s, whose {@link Http2Session} received GOAWAY, are
+ * not used for new streams anymore, they are closed and removed from the
+ * pool once all the streams taken on them are released.
+ * 
+ * Each successful <tt>take</tt> operation has to be followed by exactly one
+ * {@link #release(org.glassfish.grizzly.Connection)}, once the stream
+ * (request/response exchange) is complete.
+ * 
+ * If the <tt>takeTimeout</tt> is set, the users waiting for stream capacity
+ * longer than the timeout are notified with a {@link TimeoutException}.
+ * 
+ * The <tt>ConnectorHandler</tt> is expected to create {@link Connection}s,
+ * whose {@link org.glassfish.grizzly.filterchain.FilterChain} contains
+ * {@link Http2ClientFilter}.
+ */
+public class Http2ClientConnectionPool {
+    private static final Logger LOGGER = Grizzly.logger(Http2ClientConnectionPool.class);
+    
+    /**
+     * The number of streams assumed for a {@link Connection}, whose
+     * peer's SETTINGS have not been received yet
+     */
+    private static final int UNKNOWN_MAX_CONCURRENT_STREAMS = 1;
+    
+    /**
+     * @return a new {@link Builder} instance.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    /**
+     * The {@link ConnectorHandler} used to establish new {@link Connection}s
+     */
+    private final ConnectorHandler<SocketAddress> connectorHandler;
+    /**
+     * The endpoint address
+     */
+    private final SocketAddress endpointAddress;
+    /**
+     * The maximum number of {@link Connection}s kept by this pool
+     */
+    private final int maxConnections;
+    /**
+     * The maximum number of streams, which may be taken on a single
+     * {@link Connection}, if the peer allows more
+     */
+    private final int maxStreamsPerConnection;
+    /**
+     * The max time a user may wait for stream capacity, or a negative value,
+     * if the timeout is not set
+     */
+    private final long takeTimeoutMillis;
+    
+    /**
+     * Own {@link DelayedExecutor} to be used for the take timeout mechanism,
+     * if one was not specified by user
+     */
+    private final DelayedExecutor ownDelayedExecutor;
+    /**
+     * {@link DelayQueue} for the take timeout mechanism
+     */
+    private final DelayQueue<Waiter> takeTimeoutQueue;
+    
+    /**
+     * The pool's sync
+     */
+    private final Object poolSync = new Object();
+    /**
+     * Pooled connections in the order they were created
+     */
+    private final List<Entry> entries = new ArrayList<>();
+    /**
+     * Maps Connection -to- Entry
+     */
+    private final Map<Connection, Entry> connectionsMap =
+            new ConcurrentHashMap<>();
+    /**
+     * Users waiting for stream capacity
+     */
+    private final Queue<Waiter> waitingList = new ArrayDeque<>();
+    /**
+     * The number of connections being established
+     */
+    private int pendingConnections;
+    /**
+     * Is the pool closed
+     */
+    private boolean isClosed;
+    
+    private final CloseListener<Closeable, CloseType> closeListener =
+            new PoolConnectionCloseListener();
+    
+    private final Http2Session.PeerSettingsListener peerSettingsListener =
+            new PoolPeerSettingsListener();
+    
+    /**
+     * Constructs Http2ClientConnectionPool instance.
+     * 
+     * @param connectorHandler {@link ConnectorHandler} to be used to establish new {@link Connection}s
+     * @param endpointAddress the endpoint address
+     * @param maxConnections the max number of {@link Connection}s kept by this pool
+     * @param maxStreamsPerConnection the max number of streams to be taken on a single {@link Connection}
+     * @param delayedExecutor custom {@link DelayedExecutor} to be used by the take timeout mechanism
+     * @param takeTimeoutMillis the max time a user may wait for stream capacity
+     */
+    protected Http2ClientConnectionPool(
+            final ConnectorHandler<SocketAddress> connectorHandler,
+            final SocketAddress endpointAddress,
+            final int maxConnections,
+            final int maxStreamsPerConnection,
+            DelayedExecutor delayedExecutor,
+            final long takeTimeoutMillis) {
+        this.connectorHandler = connectorHandler;
+        this.endpointAddress = endpointAddress;
+        this.maxConnections = maxConnections;
+        this.maxStreamsPerConnection = maxStreamsPerConnection;
+        this.takeTimeoutMillis = takeTimeoutMillis;
+        
+        if (takeTimeoutMillis >= 0) {
+            if (delayedExecutor == null) {
+                // if custom DelayedExecutor is null - share the common timer thread
+                ownDelayedExecutor = DelayedExecutor.createShared();
+                ownDelayedExecutor.start();
+                
+                delayedExecutor = ownDelayedExecutor;
+            } else {
+                ownDelayedExecutor = null;
+            }
+            
+            takeTimeoutQueue = delayedExecutor.createDelayQueue(
+                    new TakeTimeoutWorker(), new TakeTimeoutResolver());
+        } else {
+            ownDelayedExecutor = null;
+            takeTimeoutQueue = null;
+        }
+    }
+
+    /**
+     * @return the endpoint address
+     */
+    public SocketAddress getEndpointAddress() {
+        return endpointAddress;
+    }
+
+    /**
+     * @return the max number of {@link Connection}s kept by this pool
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * @return the max number of streams to be taken on a single {@link Connection}
+     */
+    public int getMaxStreamsPerConnection() {
+        return maxStreamsPerConnection;
+    }
+
+    /**
+     * @param timeUnit {@link TimeUnit}
+     * @return the max time a user may wait for stream capacity, or a negative
+     *          value, if the timeout is not set
+     */
+    public long getTakeTimeout(final TimeUnit timeUnit) {
+        return takeTimeoutMillis <= 0
+                ? takeTimeoutMillis
+                : timeUnit.convert(takeTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * @return the number of {@link Connection}s kept by the pool, including
+     *          the ones being established and drained
+     */
+    public int size() {
+        synchronized (poolSync) {
+            return entries.size() + pendingConnections;
+        }
+    }
+
+    /**
+     * @return the number of streams currently taken from the pool
+     */
+    public int getActiveStreamsCount() {
+        synchronized (poolSync) {
+            int count = 0;
+            for (Entry entry : entries) {
+                count += entry.activeStreams;
+            }
+            
+            return count;
+        }
+    }
+    
+    /**
+     * @param connection {@link Connection}
+     * @return the number of streams currently taken on the {@link Connection},
+     *          or <tt>-1</tt> if the {@link Connection} is not registered in the pool
+     */
+    public int getActiveStreamsCount(final Connection connection) {
+        final Entry entry = connectionsMap.get(connection);
+        if (entry == null) {
+            return -1;
+        }
+        
+        synchronized (poolSync) {
+            return entry.activeStreams;
+        }
+    }
+
+    /**
+     * @return the number of users waiting for stream capacity
+     */
+    public int getWaitingListSize() {
+        synchronized (poolSync) {
+            return waitingList.size();
+        }
+    }
+    
+    /**
+     * Obtains a {@link Connection} with a free stream slot in
+     * non-blocking/asynchronous fashion.
+     * 
+     * If the returned {@link GrizzlyFuture} is cancelled, the user is removed
+     * from the waiting list. If the stream slot has been already assigned,
+     * it has to be released:
+     * <pre>
+     * if (!future.cancel(false)) {
+     *     // means the stream slot is assigned
+     *     pool.release(future.get());
+     * }
+     * </pre>
+     * 
+     * @return {@link GrizzlyFuture}
+     */
+    public GrizzlyFuture<Connection> take() {
+        final Waiter waiter = new Waiter();
+        final FutureImpl<Connection> future = new SafeFutureImpl<Connection>() {
+            @Override
+            protected void onComplete() {
+                if (isCancelled()) {
+                    removeWaiter(waiter);
+                }
+            }
+        };
+        
+        waiter.future = future;
+        waiter.completionHandler = Futures.toCompletionHandler(future);
+        take(waiter);
+        
+        return future;
+    }
+    
+    /**
+     * Obtains a {@link Connection} with a free stream slot in
+     * non-blocking/asynchronous fashion.
+     * The passed {@link CompletionHandler} will be notified about the result
+     * of the non-blocking/asynchronous obtain task.
+     * 
+     * @param completionHandler {@link CompletionHandler}
+     */
+    public void take(final CompletionHandler<Connection> completionHandler) {
+        if (completionHandler == null) {
+            throw new IllegalArgumentException("The completionHandler argument can not be null");
+        }
+        
+        final Waiter waiter = new Waiter();
+        waiter.completionHandler = completionHandler;
+        take(waiter);
+    }
+    
+    private void take(final Waiter waiter) {
+        Connection connection = null;
+        boolean isConnect = false;
+        boolean isPoolClosed = false;
+        List<Connection> drainedConnections = null;
+        
+        synchronized (poolSync) {
+            if (isClosed) {
+                isPoolClosed = true;
+            } else {
+                drainedConnections = checkDraining(null);
+                
+                final Entry entry = findAvailableEntry();
+                if (entry != null) {
+                    entry.activeStreams++;
+                    connection = entry.connection;
+                } else {
+                    addWaiter(waiter);
+                    isConnect = checkBeforeOpeningConnection();
+                }
+            }
+        }
+        
+        if (isPoolClosed) {
+            waiter.completionHandler.failed(new IOException("The pool is closed"));
+            return;
+        }
+        
+        closeDrained(drainedConnections);
+        
+        if (connection != null) {
+            complete(waiter, connection);
+        } else if (isConnect) {
+            connect();
+        }
+    }
+    
+    /**
+     * Returns the stream slot, taken on the {@link Connection}, to the pool.
+     * 
+     * @param connection the {@link Connection}
+     * @return <tt>true</tt> if the stream slot was successfully returned,
+     *          or <tt>false</tt> if the {@link Connection} is not registered in
+     *          the pool
+     */
+    public boolean release(final Connection connection) {
+        final Entry entry = connectionsMap.get(connection);
+        if (entry == null) {
+            return false;
+        }
+        
+        List<Waiter> served = null;
+        List<Connection> drainedConnections;
+        
+        synchronized (poolSync) {
+            if (entry.activeStreams == 0) {
+                return false;
+            }
+            
+            entry.activeStreams--;
+            drainedConnections = checkDraining(entry);
+            
+            if (!entry.isDraining && !isClosed) {
+                // pass the freed stream slot to a waiting user
+                served = pollWaiters(entry, null);
+            }
+        }
+        
+        closeDrained(drainedConnections);
+        complete(served, connection);
+        
+        return true;
+    }
+
+    /**
+     * Closes the pool and all the {@link Connection}s it keeps.
+     * The users waiting for stream capacity will be notified with an
+     * {@link IOException}.
+     */
+    public void close() {
+        final List<Connection> connections;
+        final List<Waiter> waiters;
+        
+        synchronized (poolSync) {
+            if (isClosed) {
+                return;
+            }
+            
+            isClosed = true;
+            
+            connections = new ArrayList<>(entries.size());
+            for (Entry entry : entries) {
+                connections.add(entry.connection);
+            }
+            entries.clear();
+            connectionsMap.clear();
+            
+            waiters = pollAllWaiters();
+        }
+        
+        if (ownDelayedExecutor != null) {
+            ownDelayedExecutor.destroy();
+        }
+        
+        for (Connection connection : connections) {
+            connection.removeCloseListener(closeListener);
+            connection.closeSilently();
+        }
+        
+        failWaiters(waiters, new IOException("The pool is closed"));
+    }
+
+    @Override
+    public String toString() {
+        synchronized (poolSync) {
+            return "Http2ClientConnectionPool{"
+                    + "endpointAddress=" + endpointAddress
+                    + ", connections=" + entries.size()
+                    + ", pendingConnections=" + pendingConnections
+                    + ", waitingListSize=" + waitingList.size()
+                    + ", maxConnections=" + maxConnections
+                    + ", maxStreamsPerConnection=" + maxStreamsPerConnection
+                    + ", isClosed=" + isClosed
+                    + "}";
+        }
+    }
+    
+    /**
+     * Returns the first {@link Connection} (in creation order) having a
+     * free stream slot, so the load gets packed into as few
+     * {@link Connection}s as possible.
+     * 
+     * Must be called within poolSync.
+     */
+    private Entry findAvailableEntry() {
+        for (int i = 0; i < entries.size(); i++) {
+            final Entry entry = entries.get(i);
+            if (!entry.isDraining
+                    && entry.activeStreams < getStreamsCapacity(entry)) {
+                return entry;
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Takes the free stream slots on the {@link Connection} for the
+     * waiting users.
+     * 
+     * Must be called within poolSync.
+     * 
+     * @param served the list to add the served {@link Waiter}s to,
+     *      or <tt>null</tt>
+     * @return the served {@link Waiter}s, or <tt>null</tt> if no {@link Waiter}
+     *      has been served and the passed list was <tt>null</tt>
+     */
+    private List<Waiter> pollWaiters(final Entry entry, List<Waiter> served) {
+        final int capacity = getStreamsCapacity(entry);
+        while (entry.activeStreams < capacity) {
+            final Waiter waiter = pollWaiter();
+            if (waiter == null) {
+                break;
+            }
+
+            if (served == null) {
+                served = new ArrayList<>(1);
+            }
+            entry.activeStreams++;
+            served.add(waiter);
+        }
+        
+        return served;
+    }
+    
+    /**
+     * Serves the waiting users, once the peer's SETTINGS changed the
+     * {@link Connection} capacity.
+     */
+    private void onMaxConcurrentStreamsChanged(final Connection connection) {
+        final List<Waiter> served;
+        
+        synchronized (poolSync) {
+            final Entry entry = connectionsMap.get(connection);
+            if (entry == null || entry.isDraining || isClosed) {
+                return;
+            }
+            
+            served = pollWaiters(entry, null);
+        }
+        
+        complete(served, connection);
+    }
+    
+    /**
+     * Returns the number of streams, which may be taken on the {@link Connection}.
+     */
+    private int getStreamsCapacity(final Entry entry) {
+        final Http2Session http2Session = Http2Session.get(entry.connection);
+        if (http2Session == null || !http2Session.isHttp2InputEnabled()) {
+            // the session is not established yet (TLS/ALPN handshake is
+            // in progress) or the peer's SETTINGS have not been received,
+            // so the peer's limit is unknown
+            return UNKNOWN_MAX_CONCURRENT_STREAMS;
+        }
+        
+        // the client session refuses to open more streams than its local limit
+        return Math.min(maxStreamsPerConnection,
+                Math.min(limit(http2Session.getPeerMaxConcurrentStreams()),
+                        limit(http2Session.getLocalMaxConcurrentStreams())));
+    }
+    
+    // negative value means "unlimited"
+    private static int limit(final int maxConcurrentStreams) {
+        return maxConcurrentStreams < 0 ? Integer.MAX_VALUE : maxConcurrentStreams;
+    }
+
+    /**
+     * Marks the {@link Connection}s, whose {@link Http2Session} is going
+     * away, as draining and removes the drained ones, which don't have
+     * active streams.
+     * 
+     * Must be called within poolSync.
+     * 
+     * @param entry the only {@link Entry} to check, or <tt>null</tt> to check all
+     * @return the drained {@link Connection}s to be closed, or <tt>null</tt>
+     */
+    private List<Connection> checkDraining(final Entry entry) {
+        if (entry != null) {
+            if (!isDrained(entry)) {
+                return null;
+            }
+
+            removeEntry(entry);
+            
+            final List<Connection> drained = new ArrayList<>(1);
+            drained.add(entry.connection);
+            return drained;
+        }
+        
+        List<Connection> drained = null;
+        for (Iterator<Entry> it = entries.iterator(); it.hasNext();) {
+            final Entry e = it.next();
+            if (isDrained(e)) {
+                it.remove();
+                connectionsMap.remove(e.connection);
+                
+                if (drained == null) {
+                    drained = new ArrayList<>(2);
+                }
+                drained.add(e.connection);
+            }
+        }
+        
+        return drained;
+    }
+
+    /**
+     * Must be called within poolSync.
+     */
+    private boolean isDrained(final Entry entry) {
+        if (!entry.isDraining) {
+            final Http2Session http2Session = Http2Session.get(entry.connection);
+            if (http2Session == null || !http2Session.isGoingAway()) {
+                return false;
+            }
+            
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "Draining {0}, which is going away",
+                        entry.connection);
+            }
+            entry.isDraining = true;
+        }
+        
+        return entry.activeStreams == 0;
+    }
+    
+    private void closeDrained(final List<Connection> drainedConnections) {
+        if (drainedConnections != null) {
+            for (Connection connection : drainedConnections) {
+                connection.removeCloseListener(closeListener);
+                connection.closeSilently();
+            }
+            
+            // the drained connections' capacity might be replaced with new ones
+            connectForWaiters();
+        }
+    }
+    
+    /**
+     * Must be called within poolSync.
+     */
+    private void removeEntry(final Entry entry) {
+        entries.remove(entry);
+        connectionsMap.remove(entry.connection);
+    }
+    
+    /**
+     * Checks if a new {@link Connection} has to be opened to serve the
+     * waiting users and increments the pending connections counter if so.
+     * 
+     * Must be called within poolSync.
+     */
+    private boolean checkBeforeOpeningConnection() {
+        if (entries.size() + pendingConnections >= maxConnections) {
+            return false;
+        }
+        
+        // the connections being established will serve the waiters
+        final long expectedCapacity = (long) pendingConnections
+                * UNKNOWN_MAX_CONCURRENT_STREAMS;
+        if (waitingList.size() <= expectedCapacity) {
+            return false;
+        }
+        
+        pendingConnections++;
+        return true;
+    }
+
+    private void connectForWaiters() {
+        final boolean isConnect;
+        synchronized (poolSync) {
+            isConnect = !isClosed && checkBeforeOpeningConnection();
+        }
+        
+        if (isConnect) {
+            connect();
+        }
+    }
+    
+    private void connect() {
+        connectorHandler.connect(endpointAddress, new ConnectCompletionHandler());
+    }
+    
+    private void onConnected(final Connection connection) {
+        final List<Waiter> served = new ArrayList<>();
+        boolean isClose = false;
+        
+        synchronized (poolSync) {
+            pendingConnections--;
+            
+            if (isClosed) {
+                isClose = true;
+            } else {
+                final Entry entry = new Entry(connection);
+                entries.add(entry);
+                connectionsMap.put(connection, entry);
+                connection.addCloseListener(closeListener);
+                // the capacity is known once the peer's SETTINGS come
+                Http2Session.PEER_SETTINGS_LISTENER_ATTR.set(connection,
+                        peerSettingsListener);
+                
+                pollWaiters(entry, served);
+            }
+        }
+        
+        if (isClose) {
+            connection.closeSilently();
+            return;
+        }
+        
+        complete(served, connection);
+        
+        // some users might still be waiting
+        connectForWaiters();
+    }
+    
+    private void onFailedToConnect(final Throwable t) {
+        List<Waiter> waiters = null;
+        
+        synchronized (poolSync) {
+            pendingConnections--;
+            
+            // fail the waiters if there is no other connection to serve them
+            if (pendingConnections == 0 && entries.isEmpty()) {
+                waiters = pollAllWaiters();
+            }
+        }
+        
+        if (waiters != null) {
+            failWaiters(waiters, t);
+        } else {
+            connectForWaiters();
+        }
+    }
+    
+    private void onConnectionClosed(final Connection connection) {
+        final Entry entry = connectionsMap.get(connection);
+        if (entry == null) {
+            return;
+        }
+        
+        synchronized (poolSync) {
+            removeEntry(entry);
+        }
+        
+        connectForWaiters();
+    }
+    
+    /**
+     * Must be called within poolSync.
+     */
+    private void addWaiter(final Waiter waiter) {
+        waitingList.add(waiter);
+        
+        if (takeTimeoutMillis >= 0) {
+            takeTimeoutQueue.add(waiter, takeTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Must be called within poolSync.
+     */
+    private Waiter pollWaiter() {
+        final Waiter waiter = waitingList.poll();
+        if (waiter != null && takeTimeoutMillis >= 0) {
+            takeTimeoutQueue.remove(waiter);
+        }
+        
+        return waiter;
+    }
+    
+    /**
+     * Must be called within poolSync.
+     */
+    private List<Waiter> pollAllWaiters() {
+        final List<Waiter> waiters = new ArrayList<>(waitingList.size());
+        Waiter waiter;
+        while ((waiter = pollWaiter()) != null) {
+            waiters.add(waiter);
+        }
+        
+        return waiters;
+    }
+    
+    /**
+     * Removes the cancelled or timed out {@link Waiter} from the waiting list.
+     * 
+     * @return <tt>true</tt> if the {@link Waiter} was waiting, or <tt>false</tt>
+     *          if it has been already served or failed
+     */
+    private boolean removeWaiter(final Waiter waiter) {
+        synchronized (poolSync) {
+            if (!waitingList.remove(waiter)) {
+                return false;
+            }
+        }
+        
+        if (takeTimeoutMillis >= 0) {
+            takeTimeoutQueue.remove(waiter);
+        }
+        
+        return true;
+    }
+    
+    private void complete(final Waiter waiter, final Connection connection) {
+        waiter.completionHandler.completed(connection);
+        
+        if (waiter.future != null && waiter.future.isCancelled()) {
+            // the user gave up before the stream slot was assigned
+            release(connection);
+        }
+    }
+    
+    private void complete(final List<Waiter> served,
+            final Connection connection) {
+        if (served != null) {
+            for (Waiter waiter : served) {
+                complete(waiter, connection);
+            }
+        }
+    }
+    
+    private static void failWaiters(final List<Waiter> waiters,
+            final Throwable t) {
+        for (Waiter waiter : waiters) {
+            try {
+                waiter.completionHandler.failed(t);
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Waiter failure notification error", e);
+            }
+        }
+    }
+    
+    /**
+     * The pooled {@link Connection} state.
+     */
+    private static final class Entry {
+        private final Connection connection;
+        /**
+         * The number of streams currently taken on the {@link Connection}
+         */
+        private int activeStreams;
+        /**
+         * <tt>true</tt>, if the {@link Connection} received GOAWAY and can't
+         * be used for new streams
+         */
+        private boolean isDraining;
+
+        private Entry(final Connection connection) {
+            this.connection = connection;
+        }
+    }
+    
+    /**
+     * The user waiting for stream capacity.
+     */
+    private static final class Waiter {
+        private CompletionHandler<Connection> completionHandler;
+        /**
+         * The {@link FutureImpl} returned by {@link #take()}, or <tt>null</tt>
+         */
+        private FutureImpl<Connection> future;
+        
+        private long timeout = DelayedExecutor.UNSET_TIMEOUT; // timeout stamp
+    }
+    
+    private final class TakeTimeoutWorker
+            implements DelayedExecutor.Worker<Waiter> {
+
+        @Override
+        public boolean doWork(final Waiter waiter) {
+            // the waiter might have been already served or cancelled
+            if (removeWaiter(waiter)) {
+                if (LOGGER.isLoggable(Level.FINEST)) {
+                    LOGGER.log(Level.FINEST, "Take timed out for {0}",
+                            Http2ClientConnectionPool.this);
+                }
+                
+                waiter.completionHandler.failed(
+                        new TimeoutException("Take timeout expired"));
+            }
+            
+            return true;
+        }
+    }
+    
+    private static final class TakeTimeoutResolver
+            implements DelayedExecutor.Resolver<Waiter> {
+
+        @Override
+        public boolean removeTimeout(final Waiter waiter) {
+            waiter.timeout = DelayedExecutor.UNSET_TIMEOUT;
+            return true;
+        }
+
+        @Override
+        public long getTimeoutMillis(final Waiter waiter) {
+            return waiter.timeout;
+        }
+
+        @Override
+        public void setTimeoutMillis(final Waiter waiter,
+                final long timeoutMillis) {
+            waiter.timeout = timeoutMillis;
+        }
+    }
+    
+    private final class ConnectCompletionHandler
+            implements CompletionHandler<Connection> {
+
+        @Override
+        public void cancelled() {
+            onFailedToConnect(new IOException("Connect cancelled"));
+        }
+
+        @Override
+        public void failed(final Throwable throwable) {
+            onFailedToConnect(throwable);
+        }
+
+        @Override
+        public void completed(final Connection connection) {
+            onConnected(connection);
+        }
+
+        @Override
+        public void updated(final Connection result) {
+        }
+    }
+    
+    private final class PoolPeerSettingsListener
+            implements Http2Session.PeerSettingsListener {
+
+        @Override
+        public void onMaxConcurrentStreamsChanged(final Http2Session http2Session) {
+            Http2ClientConnectionPool.this.onMaxConcurrentStreamsChanged(
+                    http2Session.getConnection());
+        }
+    }
+    
+    private final class PoolConnectionCloseListener
+            implements CloseListener<Closeable, CloseType> {
+
+        @Override
+        public void onClosed(final Closeable closeable, final CloseType type)
+                throws IOException {
+            onConnectionClosed((Connection) closeable);
+        }
+    }
+    
+    /**
+     * The Builder class responsible for constructing {@link Http2ClientConnectionPool}.
+     */
+    public static class Builder {
+        private ConnectorHandler<SocketAddress> connectorHandler;
+        private SocketAddress endpointAddress;
+        private int maxConnections = 4;
+        private int maxStreamsPerConnection = Integer.MAX_VALUE;
+        private DelayedExecutor delayedExecutor;
+        private long takeTimeoutMillis = -1;
+
+        /**
+         * Sets the {@link ConnectorHandler} to be used to establish new
+         * {@link Connection}s. The {@link Connection}s' filter chain is
+         * expected to contain {@link Http2ClientFilter}.
+         * 
+         * @param connectorHandler {@link ConnectorHandler}
+         * @return this {@link Builder}
+         */
+        public Builder connectorHandler(
+                final ConnectorHandler<SocketAddress> connectorHandler) {
+            this.connectorHandler = connectorHandler;
+            return this;
+        }
+
+        /**
+         * Sets the endpoint address.
+         * 
+         * @param endpointAddress the endpoint address
+         * @return this {@link Builder}
+         */
+        public Builder endpointAddress(final SocketAddress endpointAddress) {
+            this.endpointAddress = endpointAddress;
+            return this;
+        }
+
+        /**
+         * Sets the max number of {@link Connection}s kept by the pool.
+         * The default value is 4.
+         * 
+         * @param maxConnections the max number of {@link Connection}s
+         * @return this {@link Builder}
+         */
+        public Builder maxConnections(final int maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * Sets the max number of streams, which may be taken on a single
+         * {@link Connection}. The effective limit is the min of this value
+         * and the SETTINGS_MAX_CONCURRENT_STREAMS advertised by the peer.
+         * By default only the peer's limit applies.
+         * 
+         * @param maxStreamsPerConnection the max number of streams per {@link Connection}
+         * @return this {@link Builder}
+         */
+        public Builder maxStreamsPerConnection(final int maxStreamsPerConnection) {
+            this.maxStreamsPerConnection = maxStreamsPerConnection;
+            return this;
+        }
+
+        /**
+         * Sets the custom {@link DelayedExecutor} to be used by the take
+         * timeout mechanism.
+         * If none is set - the pool will use its own {@link DelayedExecutor}
+         * sharing the common timer thread.
+         * 
+         * @param delayedExecutor {@link DelayedExecutor}
+         * @return this {@link Builder}
+         */
+        public Builder delayExecutor(final DelayedExecutor delayedExecutor) {
+            this.delayedExecutor = delayedExecutor;
+            return this;
+        }
+
+        /**
+         * Sets the max time a user may wait for stream capacity. Once the
+         * timeout expires, the user is notified with a {@link TimeoutException}.
+         * If takeTimeout &lt; 0 - timeout will not be set.
+         * By default the timeout is not set and the user may wait forever.
+         * 
+         * @param takeTimeout the max time a user may wait for stream capacity
+         * @param timeunit a <tt>TimeUnit</tt> determining how to interpret the
+         *        <tt>timeout</tt> parameter
+         * @return this {@link Builder}
+         */
+        public Builder takeTimeout(final long takeTimeout,
+                final TimeUnit timeunit) {
+            this.takeTimeoutMillis = takeTimeout > 0
+                    ? TimeUnit.MILLISECONDS.convert(takeTimeout, timeunit)
+                    : takeTimeout;
+            return this;
+        }
+
+        /**
+         * @return {@link Http2ClientConnectionPool}
+         */
+        public Http2ClientConnectionPool build() {
+            if (connectorHandler == null) {
+                throw new IllegalStateException("ConnectorHandler is not set");
+            }
+            if (endpointAddress == null) {
+                throw new IllegalStateException("Endpoint address is not set");
+            }
+            if (maxConnections <= 0) {
+                throw new IllegalStateException("maxConnections can't be less than one");
+            }
+            if (maxStreamsPerConnection <= 0) {
+                throw new IllegalStateException("maxStreamsPerConnection can't be less than one");
+            }
+            
+            return new Http2ClientConnectionPool(connectorHandler,
+                    endpointAddress, maxConnections, maxStreamsPerConnection,
+                    delayedExecutor, takeTimeoutMillis);
+        }
+    }
+}
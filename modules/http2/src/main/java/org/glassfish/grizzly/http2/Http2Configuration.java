@@ -41,9 +41,11 @@
 package org.glassfish.grizzly.http2;
 
 import org.glassfish.grizzly.filterchain.Filter;
+import org.glassfish.grizzly.http2.hpack.HeaderIndexingPolicy;
 import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
 
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Configuration information for HTTP/2 {@link Filter} implementations.
@@ -57,6 +59,8 @@ public class Http2Configuration {
     public static final float DEFAULT_STREAMS_HIGH_WATER_MARK = 0.5f;
     public static final float DEFAULT_STREAMS_CLEAN_PERCENTAGE = 0.5f;
     public static final int DEFAULT_CLEAN_FREQUENCY_CHECK = 50;
+    public static final int DEFAULT_MAX_ADAPTIVE_WINDOW_SIZE = 16 * 1024 * 1024;
+    public static final long DEFAULT_ADAPTIVE_WINDOW_BUDGET = 256L * 1024 * 1024;
 
     private volatile int maxConcurrentStreams;
     private volatile int initialWindowSize;
@@ -68,6 +72,12 @@ public class Http2Configuration {
     private volatile boolean disableCipherCheck;
     private volatile boolean priorKnowledge;
     private volatile boolean pushEnabled;
+    private volatile boolean adaptiveWindow;
+    private volatile int maxAdaptiveWindowSize;
+    private volatile long adaptiveWindowBudget;
+    private final AtomicLong adaptiveWindowBudgetUsed = new AtomicLong();
+    private volatile HeaderIndexingPolicy headerIndexingPolicy;
+    private volatile int headerBlockCacheSize;
     private final ExecutorService executorService;
     private final ThreadPoolConfig threadPoolConfig;
 
@@ -88,6 +98,11 @@ public class Http2Configuration {
         streamsHighWaterMark = builder.streamsHighWaterMark;
         cleanPercentage = builder.cleanPercentage;
         cleanFrequencyCheck = builder.cleanFrequencyCheck;
+        adaptiveWindow = builder.adaptiveWindow;
+        maxAdaptiveWindowSize = builder.maxAdaptiveWindowSize;
+        adaptiveWindowBudget = builder.adaptiveWindowBudget;
+        headerIndexingPolicy = builder.headerIndexingPolicy;
+        headerBlockCacheSize = builder.headerBlockCacheSize;
     }
 
 
@@ -217,10 +232,11 @@ public class Http2Configuration {
     }
 
     /**
-     * Streams are maintained and periodically cleaned when the stream count (open or otherwise) surpasses the
-     * the specified high-water mark.  This value is applied against the max concurrent streams for the
-     * endpoint which HTTP2 is being configured for.  For example, if the max concurrent streams is 100 and the mark
-     * percentage is .5, then the high water mark for a clean attempt would be 50.
+     * Closed streams are retained, so late frames could be recognized as belonging to a closed stream, and
+     * reclaimed, oldest first, once the number of retained closed streams surpasses the specified high-water mark.
+     * This value is applied against the max concurrent streams for the endpoint which HTTP2 is being configured for.
+     * For example, if the max concurrent streams is 100 and the mark percentage is .5, then at most 50 closed
+     * streams would be retained.
      */
     public void setStreamsHighWaterMark(final float streamsHighWaterMark) {
         this.streamsHighWaterMark = streamsHighWaterMark;
@@ -229,7 +245,10 @@ public class Http2Configuration {
     /**
      * @return the number of streams to attempt to remove from the streams structure.  Note that only closed streams
      * will ultimately be removed.  If not explicitly configured, this returns {@value #DEFAULT_STREAMS_CLEAN_PERCENTAGE}.
+     *
+     * @deprecated closed streams are reclaimed incrementally, see {@link #setStreamsHighWaterMark(float)}.
      */
+    @Deprecated
     public float getCleanPercentage() {
         return cleanPercentage;
     }
@@ -240,7 +259,10 @@ public class Http2Configuration {
      * mark.  For example, if the max concurrent streams is 100 and the mark percentage is .5, then the high water mark
      * for a clean attempt would be 50.  The number of streams to process in the clean attempt, assuming the clean
      * percentage is .5, would be 25.
+     *
+     * @deprecated closed streams are reclaimed incrementally, see {@link #setStreamsHighWaterMark(float)}.
      */
+    @Deprecated
     public void setCleanPercentage(final float cleanPercentage) {
         this.cleanPercentage = cleanPercentage;
     }
@@ -248,7 +270,10 @@ public class Http2Configuration {
     /**
      * @return how often, in terms of closed streams, the streams structure will be checked for cleaning.
      *  If not explicitly configured, this returns {@value #DEFAULT_CLEAN_FREQUENCY_CHECK}
+     *
+     * @deprecated closed streams are reclaimed incrementally, see {@link #setStreamsHighWaterMark(float)}.
      */
+    @Deprecated
     public int getCleanFrequencyCheck() {
         return cleanFrequencyCheck;
     }
@@ -256,11 +281,136 @@ public class Http2Configuration {
     /**
      * Set the number of streams that must be closed before checking if the number of streams exceeds the high-water
      * mark.
+     *
+     * @deprecated closed streams are reclaimed incrementally, see {@link #setStreamsHighWaterMark(float)}.
      */
+    @Deprecated
     public void setCleanFrequencyCheck(final int cleanFrequencyCheck) {
         this.cleanFrequencyCheck = cleanFrequencyCheck;
     }
 
+    /**
+     * @return <tt>true</tt> if the local connection and stream flow-control windows are
+     *  automatically grown based on the measured bandwidth-delay product, otherwise <tt>false</tt>.
+     *  If not explicitly configured, this returns <tt>false</tt>.
+     */
+    public boolean isAdaptiveWindow() {
+        return adaptiveWindow;
+    }
+
+    /**
+     * If enabled, each session periodically measures the round-trip time using PING frames
+     * along with the amount of data received during that time (bandwidth-delay product). Once the
+     * data received during a round trip approaches the current window size, the connection and
+     * stream windows are grown, up to {@link #getMaxAdaptiveWindowSize()} and as long as the
+     * {@link #getAdaptiveWindowBudget() budget} allows.
+     */
+    public void setAdaptiveWindow(final boolean adaptiveWindow) {
+        this.adaptiveWindow = adaptiveWindow;
+    }
+
+    /**
+     * @return the maximum size, in bytes, an adaptive window may grow to.  If not explicitly configured,
+     *  this returns {@value #DEFAULT_MAX_ADAPTIVE_WINDOW_SIZE}.
+     */
+    public int getMaxAdaptiveWindowSize() {
+        return maxAdaptiveWindowSize;
+    }
+
+    /**
+     * Sets the maximum size, in bytes, an adaptive window may grow to.
+     */
+    public void setMaxAdaptiveWindowSize(final int maxAdaptiveWindowSize) {
+        this.maxAdaptiveWindowSize = maxAdaptiveWindowSize;
+    }
+
+    /**
+     * @return the total number of bytes the adaptive windows of all the sessions sharing this
+     *  configuration may grow beyond their initial sizes.  If not explicitly configured, this
+     *  returns {@value #DEFAULT_ADAPTIVE_WINDOW_BUDGET}.
+     */
+    public long getAdaptiveWindowBudget() {
+        return adaptiveWindowBudget;
+    }
+
+    /**
+     * Sets the total number of bytes the adaptive windows of all the sessions sharing this
+     * configuration may grow beyond their initial sizes, which bounds the memory used to buffer
+     * inbound data.
+     */
+    public void setAdaptiveWindowBudget(final long adaptiveWindowBudget) {
+        this.adaptiveWindowBudget = adaptiveWindowBudget;
+    }
+
+    /**
+     * @return the number of bytes of the {@link #getAdaptiveWindowBudget() adaptive window budget}
+     *  currently in use.
+     */
+    public long getAdaptiveWindowBudgetUsed() {
+        return adaptiveWindowBudgetUsed.get();
+    }
+
+    /**
+     * Reserves the passed number of bytes from the adaptive window budget.
+     *
+     * @return <tt>true</tt> if the bytes have been reserved, or <tt>false</tt> if the budget is exhausted.
+     */
+    boolean reserveAdaptiveWindow(final int bytes) {
+        final long budget = adaptiveWindowBudget;
+        for (;;) {
+            final long used = adaptiveWindowBudgetUsed.get();
+            if (used + bytes > budget) {
+                return false;
+            }
+            
+            if (adaptiveWindowBudgetUsed.compareAndSet(used, used + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the passed number of bytes back to the adaptive window budget.
+     */
+    void releaseAdaptiveWindow(final int bytes) {
+        adaptiveWindowBudgetUsed.addAndGet(-bytes);
+    }
+
+    /**
+     * @return the {@link HeaderIndexingPolicy} used by the HPACK encoder, or <code>null</code>
+     *  if the dynamic header table is not used (default).
+     */
+    public HeaderIndexingPolicy getHeaderIndexingPolicy() {
+        return headerIndexingPolicy;
+    }
+
+    /**
+     * Sets the {@link HeaderIndexingPolicy} used by the HPACK encoder of the sessions created afterwards.
+     * If <code>null</code>, the dynamic header table is not used.
+     *
+     * @see org.glassfish.grizzly.http2.hpack.DefaultHeaderIndexingPolicy
+     */
+    public void setHeaderIndexingPolicy(final HeaderIndexingPolicy headerIndexingPolicy) {
+        this.headerIndexingPolicy = headerIndexingPolicy;
+    }
+
+    /**
+     * @return the max number of encoded response header blocks cached per session, <code>0</code>
+     *  (default) means the cache is disabled.
+     */
+    public int getHeaderBlockCacheSize() {
+        return headerBlockCacheSize;
+    }
+
+    /**
+     * Sets the max number of encoded response header blocks cached per session. A response
+     * whose header set matches a cached one reuses the pre-encoded bytes, as long as the HPACK
+     * encoder state hasn't changed since the block was cached.
+     */
+    public void setHeaderBlockCacheSize(final int headerBlockCacheSize) {
+        this.headerBlockCacheSize = headerBlockCacheSize;
+    }
+
     /**
      * @return the thread pool configuration for servicing HTTP/2 streams, if any.
      */
@@ -289,6 +439,11 @@ public class Http2Configuration {
         private float streamsHighWaterMark = DEFAULT_STREAMS_HIGH_WATER_MARK;
         private float cleanPercentage = DEFAULT_STREAMS_CLEAN_PERCENTAGE;
         private int cleanFrequencyCheck = DEFAULT_CLEAN_FREQUENCY_CHECK;
+        private boolean adaptiveWindow;
+        private int maxAdaptiveWindowSize = DEFAULT_MAX_ADAPTIVE_WINDOW_SIZE;
+        private long adaptiveWindowBudget = DEFAULT_ADAPTIVE_WINDOW_BUDGET;
+        private HeaderIndexingPolicy headerIndexingPolicy;
+        private int headerBlockCacheSize;
         private ThreadPoolConfig threadPoolConfig;
         private ExecutorService executorService;
 
@@ -380,7 +535,10 @@ public class Http2Configuration {
 
         /**
          * @see #setCleanPercentage(float)
+         *
+         * @deprecated closed streams are reclaimed incrementally.
          */
+        @Deprecated
         public Http2ConfigurationBuilder cleanPercentage(final float val) {
             cleanPercentage = val;
             return this;
@@ -388,12 +546,55 @@ public class Http2Configuration {
 
         /**
          * @see #setCleanFrequencyCheck(int)
+         *
+         * @deprecated closed streams are reclaimed incrementally.
          */
+        @Deprecated
         public Http2ConfigurationBuilder cleanFrequencyCheck(final int val) {
             cleanFrequencyCheck = val;
             return this;
         }
 
+        /**
+         * @see #setAdaptiveWindow(boolean)
+         */
+        public Http2ConfigurationBuilder adaptiveWindow(final boolean val) {
+            adaptiveWindow = val;
+            return this;
+        }
+
+        /**
+         * @see #setMaxAdaptiveWindowSize(int)
+         */
+        public Http2ConfigurationBuilder maxAdaptiveWindowSize(final int val) {
+            maxAdaptiveWindowSize = val;
+            return this;
+        }
+
+        /**
+         * @see #setAdaptiveWindowBudget(long)
+         */
+        public Http2ConfigurationBuilder adaptiveWindowBudget(final long val) {
+            adaptiveWindowBudget = val;
+            return this;
+        }
+
+        /**
+         * @see #setHeaderIndexingPolicy(HeaderIndexingPolicy)
+         */
+        public Http2ConfigurationBuilder headerIndexingPolicy(final HeaderIndexingPolicy val) {
+            headerIndexingPolicy = val;
+            return this;
+        }
+
+        /**
+         * @see #setHeaderBlockCacheSize(int)
+         */
+        public Http2ConfigurationBuilder headerBlockCacheSize(final int val) {
+            headerBlockCacheSize = val;
+            return this;
+        }
+
         /**
          * @return a new {@link Http2Configuration} instances based on the values of this builder.
          */
@@ -42,11 +42,9 @@ package org.glassfish.grizzly.http2;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.locks.ReentrantLock;
@@ -64,6 +62,8 @@ import org.glassfish.grizzly.IOEvent;
 import org.glassfish.grizzly.IOEventLifeCycleListener;
 import org.glassfish.grizzly.ProcessorExecutor;
 import org.glassfish.grizzly.WriteResult;
+import org.glassfish.grizzly.attributes.Attribute;
+import org.glassfish.grizzly.attributes.AttributeBuilder;
 import org.glassfish.grizzly.filterchain.FilterChain;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.glassfish.grizzly.http.util.MimeHeaders;
@@ -109,6 +109,8 @@ import org.glassfish.grizzly.http2.frames.WindowUpdateFrame;
  */
 public class Http2Session {
     private static final Logger LOGGER = Grizzly.logger(Http2Session.class);
+    // the default SETTINGS_HEADER_TABLE_SIZE, see RFC 7540 6.5.2
+    private static final int DEFAULT_HEADER_TABLE_SIZE = 4096;
 
     private final boolean isServer;
     private final Connection<?> connection;
@@ -116,6 +118,8 @@ public class Http2Session {
     
     private HeadersDecoder headersDecoder;
     private HeadersEncoder headersEncoder;
+    // guarded by deflaterLock
+    private int peerHeaderTableSize = DEFAULT_HEADER_TABLE_SIZE;
 
     private final ReentrantLock deflaterLock = new ReentrantLock();
     
@@ -133,7 +137,7 @@ public class Http2Session {
     @SuppressWarnings("unused")
     private volatile int concurrentStreamsCount;
 
-    private final TreeMap<Integer, Http2Stream> streamsMap = new TreeMap<>();
+    private final Http2StreamMap streamsMap = new Http2StreamMap();
     
     // (Optimization) We may read several DataFrames belonging to the same
     // Http2Stream, so in order to not process every DataFrame separately -
@@ -157,14 +161,15 @@ public class Http2Session {
     private volatile int maxHeaderListSize;
     
     private volatile int localMaxConcurrentStreams = getDefaultMaxConcurrentStreams();
-    private int peerMaxConcurrentStreams = getDefaultMaxConcurrentStreams();
+    private volatile int peerMaxConcurrentStreams = getDefaultMaxConcurrentStreams();
+    // true, once the first peer's SETTINGS frame has been applied
+    private boolean isPeerSettingsApplied;
 
     private final Http2SessionOutputSink outputSink;
 
     private final Http2Configuration http2Configuration;
 
     private volatile int streamsHighWaterMark;
-    private int checkCount;
 
     private int goingAwayLastStreamId = Integer.MIN_VALUE;
     private FutureImpl<Http2Session> sessionClosed;
@@ -174,6 +179,15 @@ public class Http2Session {
     private volatile boolean isPrefaceReceived;
     private volatile boolean isPrefaceSent;
     
+    /**
+     * The {@link PeerSettingsListener} registered for a {@link Connection},
+     * the {@link Connection} attribute is used, because the listener might
+     * be registered before the {@link Http2Session} is created.
+     */
+    static final Attribute<PeerSettingsListener> PEER_SETTINGS_LISTENER_ATTR =
+            AttributeBuilder.DEFAULT_ATTRIBUTE_BUILDER.createAttribute(
+                    Http2Session.class.getName() + ".peer-settings-listener");
+    
     public static Http2Session get(final Connection connection) {
         final Http2State http2State = Http2State.get(connection);
         return http2State != null
@@ -197,6 +211,9 @@ public class Http2Session {
     private volatile SSLBaseFilter sslFilter;
     
     private final AtomicInteger unackedReadBytes  = new AtomicInteger();
+    
+    // not null, if adaptive flow-control window is enabled
+    private final FlowControlWindowTuner windowTuner;
         
     public Http2Session(final Connection<?> connection,
                         final boolean isServer,
@@ -229,6 +246,10 @@ public class Http2Session {
                 : getSpecDefaultFramePayloadSize();
 
         maxHeaderListSize = handlerFilter.getConfiguration().getMaxHeaderListSize();
+        
+        windowTuner = http2Configuration.isAdaptiveWindow()
+                ? new FlowControlWindowTuner(this, http2Configuration)
+                : null;
 
         if (isServer) {
             lastLocalStreamId = 0;
@@ -493,6 +514,13 @@ public class Http2Session {
         this.localConnectionWindowSize = localConnectionWindowSize;
     }
     
+    /**
+     * @return the lock, which guards the session state changes.
+     */
+    Object getSessionLock() {
+        return sessionLock;
+    }
+    
     @SuppressWarnings("unused")
     public int getAvailablePeerConnectionWindowSize() {
         return outputSink.getAvailablePeerConnectionWindowSize();
@@ -529,6 +557,26 @@ public class Http2Session {
         this.peerMaxConcurrentStreams = peerMaxConcurrentStreams;
     }
 
+    /**
+     * Notifies the {@link PeerSettingsListener}, if the peer's SETTINGS frame
+     * is the first one or it changed the max number of concurrent streams.
+     * 
+     * @param oldPeerMaxConcurrentStreams the max number of concurrent streams
+     *      before the SETTINGS frame was applied
+     */
+    void onPeerSettingsApplied(final int oldPeerMaxConcurrentStreams) {
+        final boolean isFirst = !isPeerSettingsApplied;
+        isPeerSettingsApplied = true;
+        
+        if (isFirst || oldPeerMaxConcurrentStreams != peerMaxConcurrentStreams) {
+            final PeerSettingsListener listener =
+                    PEER_SETTINGS_LISTENER_ATTR.get(connection);
+            if (listener != null) {
+                listener.onMaxConcurrentStreamsChanged(this);
+            }
+        }
+    }
+
     /**
      * @return <code>true</code> if push is enabled for this {@link Http2Session}, otherwise
      *  returns <code>false</code>.  Push is enabled by default.
@@ -700,15 +748,12 @@ public class Http2Session {
         // close streams that rank above the last stream ID specified by the GOAWAY frame.
         // Allow other streams to continue processing.  Once the concurrent stream count reaches zero,
         // the session will be closed.
-        Map<Integer, Http2Stream> invalidStreams =
-                streamsMap.subMap(goingAwayLastStreamId,
-                        false,
-                        Integer.MAX_VALUE,
-                        true);
+        final List<Http2Stream> invalidStreams =
+                streamsMap.valuesAbove(goingAwayLastStreamId);
         if (!invalidStreams.isEmpty()) {
-            for (final Http2Stream stream : invalidStreams.values()) {
+            for (final Http2Stream stream : invalidStreams) {
                 stream.closedRemotely();
-                deregisterStream();
+                deregisterStream(stream);
             }
         }
     }
@@ -749,6 +794,41 @@ public class Http2Session {
         outputSink.writeDownStream(f);
     }
     
+    void sendPing(final long opaqueData) {
+        final PingFrame f = PingFrame.builder()
+                .opaqueData(opaqueData)
+                .build();
+        NetLogger.log(NetLogger.Context.TX, this, f);
+        outputSink.writeDownStream(f);
+    }
+    
+    void sendInitialWindowSize(final int windowSize) {
+        final SettingsFrame f = SettingsFrame.builder()
+                .setting(SETTINGS_INITIAL_WINDOW_SIZE, windowSize)
+                .build();
+        NetLogger.log(NetLogger.Context.TX, this, f);
+        outputSink.writeDownStream(f);
+    }
+    
+    /**
+     * Is called once a DATA frame has been received, so the adaptive
+     * flow-control window, if enabled, could measure the data rate.
+     */
+    void onDataFrameReceived(final int size) {
+        if (windowTuner != null && isPrefaceSent) {
+            windowTuner.onDataReceived(size);
+        }
+    }
+    
+    /**
+     * Is called once a PING ACK frame has been received.
+     */
+    void onPingAck(final long opaqueData) {
+        if (windowTuner != null) {
+            windowTuner.onPingAck(opaqueData);
+        }
+    }
+    
     void sendPreface() {
         if (!isPrefaceSent) {
             synchronized (sessionLock) {
@@ -829,12 +909,40 @@ public class Http2Session {
 
     HeadersEncoder getHeadersEncoder() {
         if (headersEncoder == null) {
-            headersEncoder = new HeadersEncoder(getMemoryManager(), 4096);
+            headersEncoder = new HeadersEncoder(getMemoryManager(),
+                    peerHeaderTableSize,
+                    http2Configuration.getHeaderIndexingPolicy(),
+                    http2Configuration.getHeaderBlockCacheSize());
         }
         
         return headersEncoder;
     }
 
+    /**
+     * Applies the peer's SETTINGS_HEADER_TABLE_SIZE to the headers encoder.
+     */
+    void setPeerHeaderTableSize(final int peerHeaderTableSize) {
+        // the value is unsigned, the encoder never uses more than the
+        // default table size anyway
+        final int size = (peerHeaderTableSize < 0 || peerHeaderTableSize > DEFAULT_HEADER_TABLE_SIZE)
+                ? DEFAULT_HEADER_TABLE_SIZE
+                : peerHeaderTableSize;
+        
+        deflaterLock.lock();
+        try {
+            if (this.peerHeaderTableSize == size) {
+                return;
+            }
+            
+            this.peerHeaderTableSize = size;
+            if (headersEncoder != null) {
+                headersEncoder.setMaxHeaderTableSize(size);
+            }
+        } finally {
+            deflaterLock.unlock();
+        }
+    }
+
     /**
      * Encodes the {@link HttpHeader} and locks the compression lock.
      * 
@@ -1215,7 +1323,7 @@ public class Http2Session {
     /**
      * Called from {@link Http2Stream} once stream is completely closed.
      */
-    void deregisterStream() {
+    void deregisterStream(final Http2Stream stream) {
         decStreamCount();
         
         final boolean isCloseSession;
@@ -1223,18 +1331,10 @@ public class Http2Session {
             // If we're in GOAWAY state and there are no streams left - close this session
             isCloseSession = isGoingAway() && concurrentStreamsCount == 0;
             if (!isCloseSession) {
-                if (checkCount++ > http2Configuration.getCleanFrequencyCheck() && streamsMap.size() > streamsHighWaterMark) {
-                    checkCount = 0;
-                    int maxCount = Float.valueOf(streamsHighWaterMark * http2Configuration.getCleanPercentage()).intValue();
-                    int count = 0;
-                    for (final Iterator<Map.Entry<Integer,Http2Stream>> streamIds = streamsMap.entrySet().iterator(); (streamIds.hasNext() && count < maxCount);) {
-                        final Map.Entry<Integer,Http2Stream> entry = streamIds.next();
-                        if (entry.getValue().isClosed()) {
-                            streamIds.remove();
-                        }
-                        count++;
-                    }
-                }
+                // keep up to streamsHighWaterMark recently closed streams,
+                // so late frames could be recognized as belonging to a closed
+                // stream, the older ones are reclaimed one by one
+                streamsMap.onStreamClosed(stream.getId(), streamsHighWaterMark);
             }
         }
         
@@ -1390,7 +1490,9 @@ public class Http2Session {
             throw new NullPointerException("Attempt to register null stream");
         }
 
-        streamsMap.put(streamId, stream);
+        assert streamId == stream.getId();
+        
+        streamsMap.put(stream);
         incStreamCount();
     }
 
@@ -1416,6 +1518,14 @@ public class Http2Session {
         concurrentStreamCountUpdater.decrementAndGet(this);
     }
 
+    /**
+     * Listener, which is notified once the peer's SETTINGS allow a different
+     * number of concurrent streams.
+     */
+    interface PeerSettingsListener {
+        void onMaxConcurrentStreamsChanged(Http2Session http2Session);
+    }
+    
     private final class ConnectionCloseListener implements CloseListener<Closeable, CloseType> {
 
         @Override
@@ -1435,6 +1545,10 @@ public class Http2Session {
                 for (Http2Stream stream : streamsMap.values()) {
                     stream.closedRemotely();
                 }
+                
+                if (windowTuner != null) {
+                    windowTuner.release();
+                }
             }
         }
     }
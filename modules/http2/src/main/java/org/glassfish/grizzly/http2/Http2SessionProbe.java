@@ -0,0 +1,115 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.http2;
+
+/**
+ * Monitoring probe providing callbacks that may be invoked by {@link Http2Session}s
+ * created by {@link Http2BaseFilter}.
+ */
+public interface Http2SessionProbe {
+
+    /**
+     * Method will be called, when the bandwidth-delay product of the
+     * {@link Http2Session} has been measured, see {@link Http2Configuration#isAdaptiveWindow()}.
+     *
+     * @param session the {@link Http2Session}, the event belongs to.
+     * @param rttNanos the measured round-trip time in nanoseconds.
+     * @param bytesReceived the number of bytes received during the round trip.
+     */
+    void onBdpSampleEvent(Http2Session session, long rttNanos, int bytesReceived);
+
+    /**
+     * Method will be called, when the local flow-control window sizes of the
+     * {@link Http2Session} have been changed.
+     *
+     * @param session the {@link Http2Session}, the event belongs to.
+     * @param connectionWindowSize the new local connection window size.
+     * @param streamWindowSize the new local stream window size.
+     */
+    void onLocalWindowSizeChangedEvent(Http2Session session,
+            int connectionWindowSize, int streamWindowSize);
+
+    /**
+     * Method will be called, when the {@link Http2Session} window could not be
+     * grown, because the {@link Http2Configuration#getAdaptiveWindowBudget() budget}
+     * is exhausted.
+     *
+     * @param session the {@link Http2Session}, the event belongs to.
+     * @param requestedWindowSize the window size, which has been requested.
+     */
+    void onAdaptiveWindowBudgetExhaustedEvent(Http2Session session,
+            int requestedWindowSize);
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+
+    /**
+     * {@link Http2SessionProbe} adapter that provides no-op implementations for
+     * all interface methods allowing easy extension by the developer.
+     */
+    @SuppressWarnings("UnusedDeclaration")
+    class Adapter implements Http2SessionProbe {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onBdpSampleEvent(Http2Session session, long rttNanos,
+                int bytesReceived) {
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onLocalWindowSizeChangedEvent(Http2Session session,
+                int connectionWindowSize, int streamWindowSize) {
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onAdaptiveWindowBudgetExhaustedEvent(Http2Session session,
+                int requestedWindowSize) {
+        }
+    }
+}
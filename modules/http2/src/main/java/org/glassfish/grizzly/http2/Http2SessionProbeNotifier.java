@@ -0,0 +1,105 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.http2;
+
+/**
+ * Utility class, which has notification methods for different
+ * {@link Http2SessionProbe} events.
+ */
+final class Http2SessionProbeNotifier {
+
+    /**
+     * Notify registered {@link Http2SessionProbe}s about the "BDP sample" event.
+     *
+     * @param session the {@link Http2Session} event occurred on.
+     * @param rttNanos the measured round-trip time.
+     * @param bytesReceived the number of bytes received during the round trip.
+     */
+    static void notifyBdpSample(final Http2Session session,
+            final long rttNanos, final int bytesReceived) {
+
+        final Http2SessionProbe[] probes =
+                session.handlerFilter.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (Http2SessionProbe probe : probes) {
+                probe.onBdpSampleEvent(session, rttNanos, bytesReceived);
+            }
+        }
+    }
+
+    /**
+     * Notify registered {@link Http2SessionProbe}s about the "local window size changed" event.
+     *
+     * @param session the {@link Http2Session} event occurred on.
+     * @param connectionWindowSize the new local connection window size.
+     * @param streamWindowSize the new local stream window size.
+     */
+    static void notifyLocalWindowSizeChanged(final Http2Session session,
+            final int connectionWindowSize, final int streamWindowSize) {
+
+        final Http2SessionProbe[] probes =
+                session.handlerFilter.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (Http2SessionProbe probe : probes) {
+                probe.onLocalWindowSizeChangedEvent(session,
+                        connectionWindowSize, streamWindowSize);
+            }
+        }
+    }
+
+    /**
+     * Notify registered {@link Http2SessionProbe}s about the "adaptive window budget exhausted" event.
+     *
+     * @param session the {@link Http2Session} event occurred on.
+     * @param requestedWindowSize the requested window size.
+     */
+    static void notifyAdaptiveWindowBudgetExhausted(final Http2Session session,
+            final int requestedWindowSize) {
+
+        final Http2SessionProbe[] probes =
+                session.handlerFilter.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (Http2SessionProbe probe : probes) {
+                probe.onAdaptiveWindowBudgetExhaustedEvent(session,
+                        requestedWindowSize);
+            }
+        }
+    }
+}
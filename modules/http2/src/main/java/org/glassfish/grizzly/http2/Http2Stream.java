@@ -685,7 +685,7 @@ public class Http2Stream implements AttributeStorage, OutputSink, Closeable {
     private void closeStream() {
         // TODO ensure stream proper transitions to CLOSED state
         //Http2StreamState.close(this);
-        http2Session.deregisterStream();
+        http2Session.deregisterStream(this);
     }
     
     HttpHeader getInputHttpHeader() {
@@ -0,0 +1,298 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.http2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The {@link Http2Stream} table keyed by the primitive stream id.
+ * 
+ * Streams are kept in an open-addressing (linear probing) table, where
+ * each slot references the {@link Http2Stream} itself, so the lookups don't
+ * box the stream id and no node is allocated per stream.
+ * Removed slots are marked with a tombstone instead of shifting the
+ * entries, and the table is rebuilt into a new array on resize, so
+ * {@link #get(int)} may run without holding the lock, which guards
+ * the modifications. The slots are read and written with volatile semantics,
+ * so a stream, put into the table, is safely published to the lock-free
+ * readers.
+ * 
+ * Closed streams are remembered in FIFO order and reclaimed incrementally:
+ * once the number of retained closed streams exceeds the configured limit,
+ * the oldest ones are removed from the table, so no periodic sweep is needed.
+ */
+final class Http2StreamMap {
+    private static final Object REMOVED = new Object();
+    
+    private static final int MIN_CAPACITY = 16;
+    
+    private static final Comparator<Http2Stream> STREAM_ID_COMPARATOR =
+            new Comparator<Http2Stream>() {
+        @Override
+        public int compare(final Http2Stream s1, final Http2Stream s2) {
+            return s1.getId() < s2.getId()
+                    ? -1
+                    : (s1.getId() == s2.getId() ? 0 : 1);
+        }
+    };
+    
+    private volatile AtomicReferenceArray<Object> table =
+            new AtomicReferenceArray<>(MIN_CAPACITY);
+    
+    // the number of streams in the table
+    private int size;
+    // the number of the table slots, which are not null (streams and tombstones)
+    private int used;
+    
+    // FIFO ring of closed stream ids
+    private int[] closedIds = new int[MIN_CAPACITY];
+    private int closedHead;
+    private int closedCount;
+    
+    /**
+     * @return the {@link Http2Stream} with the passed id, or <tt>null</tt>
+     *  if there is no such stream.
+     */
+    Http2Stream get(final int streamId) {
+        final AtomicReferenceArray<Object> t = table;
+        final int mask = t.length() - 1;
+        
+        for (int i = hash(streamId) & mask; ; i = (i + 1) & mask) {
+            final Object o = t.get(i);
+            if (o == null) {
+                return null;
+            }
+            
+            if (o != REMOVED && ((Http2Stream) o).getId() == streamId) {
+                return (Http2Stream) o;
+            }
+        }
+    }
+    
+    /**
+     * Adds the {@link Http2Stream} to the table. If there was another stream
+     * with the same id - it will be replaced.
+     */
+    void put(final Http2Stream stream) {
+        final int streamId = stream.getId();
+        
+        if ((used + 1) << 1 > table.length()) {
+            // keep the load factor (including tombstones) below 0.5
+            rehash(size + 1);
+        }
+        
+        final AtomicReferenceArray<Object> t = table;
+        final int mask = t.length() - 1;
+        int freeIdx = -1;
+        
+        for (int i = hash(streamId) & mask; ; i = (i + 1) & mask) {
+            final Object o = t.get(i);
+            if (o == null) {
+                if (freeIdx == -1) {
+                    freeIdx = i;
+                    used++;
+                }
+                
+                break;
+            }
+            
+            if (o == REMOVED) {
+                if (freeIdx == -1) {
+                    freeIdx = i;
+                }
+            } else if (((Http2Stream) o).getId() == streamId) {
+                t.set(i, stream);
+                return;
+            }
+        }
+        
+        t.set(freeIdx, stream);
+        size++;
+    }
+    
+    /**
+     * Removes the {@link Http2Stream} with the passed id.
+     * 
+     * @return the removed {@link Http2Stream}, or <tt>null</tt>, if there
+     *  was no stream with the passed id.
+     */
+    Http2Stream remove(final int streamId) {
+        final AtomicReferenceArray<Object> t = table;
+        final int mask = t.length() - 1;
+        
+        for (int i = hash(streamId) & mask; ; i = (i + 1) & mask) {
+            final Object o = t.get(i);
+            if (o == null) {
+                return null;
+            }
+            
+            if (o != REMOVED && ((Http2Stream) o).getId() == streamId) {
+                t.set(i, REMOVED);
+                size--;
+                return (Http2Stream) o;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+    
+    boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * @return the snapshot of all the {@link Http2Stream}s in the table.
+     */
+    List<Http2Stream> values() {
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+        
+        final AtomicReferenceArray<Object> t = table;
+        final List<Http2Stream> result = new ArrayList<>(size);
+        for (int i = 0, len = t.length(); i < len; i++) {
+            final Object o = t.get(i);
+            if (o != null && o != REMOVED) {
+                result.add((Http2Stream) o);
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * @return the {@link Http2Stream}s, whose id is greater than the passed one,
+     *  ordered by id.
+     */
+    List<Http2Stream> valuesAbove(final int streamId) {
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+
+        final AtomicReferenceArray<Object> t = table;
+        List<Http2Stream> result = null;
+        for (int i = 0, len = t.length(); i < len; i++) {
+            final Object o = t.get(i);
+            if (o != null && o != REMOVED
+                    && ((Http2Stream) o).getId() > streamId) {
+                if (result == null) {
+                    result = new ArrayList<>(4);
+                }
+                
+                result.add((Http2Stream) o);
+            }
+        }
+        
+        if (result == null) {
+            return Collections.emptyList();
+        }
+        
+        Collections.sort(result, STREAM_ID_COMPARATOR);
+        return result;
+    }
+    
+    /**
+     * Remembers the closed stream id and removes the oldest closed streams
+     * from the table, so at most <tt>maxClosedStreams</tt> closed streams
+     * are retained.
+     * 
+     * @param streamId the closed stream id.
+     * @param maxClosedStreams the max number of the closed streams to retain.
+     */
+    void onStreamClosed(final int streamId, final int maxClosedStreams) {
+        if (closedCount == closedIds.length) {
+            final int[] newClosedIds = new int[closedIds.length << 1];
+            final int tailLen = closedIds.length - closedHead;
+            System.arraycopy(closedIds, closedHead, newClosedIds, 0, tailLen);
+            System.arraycopy(closedIds, 0, newClosedIds, tailLen, closedHead);
+            closedIds = newClosedIds;
+            closedHead = 0;
+        }
+        
+        closedIds[(closedHead + closedCount) & (closedIds.length - 1)] = streamId;
+        closedCount++;
+        
+        while (closedCount > maxClosedStreams) {
+            remove(closedIds[closedHead]);
+            closedHead = (closedHead + 1) & (closedIds.length - 1);
+            closedCount--;
+        }
+    }
+    
+    private void rehash(final int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize << 2) {
+            capacity <<= 1;
+        }
+        
+        final AtomicReferenceArray<Object> oldTable = table;
+        final Object[] newTable = new Object[capacity];
+        final int mask = capacity - 1;
+        
+        for (int j = 0, len = oldTable.length(); j < len; j++) {
+            final Object o = oldTable.get(j);
+            if (o != null && o != REMOVED) {
+                int i = hash(((Http2Stream) o).getId()) & mask;
+                while (newTable[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                
+                newTable[i] = o;
+            }
+        }
+        
+        used = size;
+        table = new AtomicReferenceArray<>(newTable);
+    }
+    
+    static int hash(final int streamId) {
+        // stream ids are sequential and (mostly) either odd or even,
+        // so spread them over the table
+        final int h = streamId * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -0,0 +1,204 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http2.hpack;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Default {@link HeaderIndexingPolicy} implementation.
+ *
+ * <p> The policy distinguishes three groups of header names:
+ * <ul>
+ *   <li><em>sensitive</em> headers (credentials, cookies) are always encoded
+ *       as never-indexed literals;</li>
+ *   <li><em>unindexed</em> headers, whose values are expected to change from
+ *       message to message, are encoded as literals without indexing, so they
+ *       don't evict useful entries from the dynamic table;</li>
+ *   <li><em>indexed</em> (hot) headers are added to the dynamic table
+ *       whenever they fit into it.</li>
+ * </ul>
+ * Any other header is indexed unless its entry would take more than
+ * {@code 1/maxEntrySizeRatio} of the dynamic table capacity, as adding it
+ * would evict too many entries.
+ *
+ * <p> The policy may be shared between sessions, the header name groups may
+ * be modified at any time.
+ */
+public class DefaultHeaderIndexingPolicy implements HeaderIndexingPolicy {
+
+    public static final int DEFAULT_MAX_ENTRY_SIZE_RATIO = 4;
+
+    private final Set<String> sensitiveHeaders = newSet(
+            "authorization", "proxy-authorization", "cookie", "set-cookie");
+    private final Set<String> unindexedHeaders = newSet(
+            ":path", "content-length", "date", "etag", "last-modified",
+            "age", "expires", "if-modified-since", "if-none-match", "location");
+    private final Set<String> indexedHeaders = newSet(
+            ":authority", "content-type", "cache-control", "content-encoding",
+            "server", "vary", "user-agent", "accept", "accept-encoding",
+            "accept-language");
+    
+    private volatile int maxEntrySizeRatio = DEFAULT_MAX_ENTRY_SIZE_RATIO;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Representation representation(final String name, final String value,
+            final int entrySize, final int tableCapacity) {
+        if (sensitiveHeaders.contains(name)) {
+            return Representation.NEVER_INDEXED;
+        }
+        
+        if (entrySize > tableCapacity || unindexedHeaders.contains(name)) {
+            return Representation.WITHOUT_INDEXING;
+        }
+        
+        if (indexedHeaders.contains(name)
+                || (long) entrySize * maxEntrySizeRatio <= tableCapacity) {
+            return Representation.INCREMENTAL_INDEXING;
+        }
+        
+        return Representation.WITHOUT_INDEXING;
+    }
+
+    /**
+     * @return the names of the headers, which are never indexed
+     */
+    public Set<String> getSensitiveHeaders() {
+        return sensitiveHeaders;
+    }
+
+    /**
+     * Adds the header, which must never be indexed.
+     * 
+     * @param name the header name
+     * @return this policy
+     */
+    public DefaultHeaderIndexingPolicy addSensitiveHeader(final String name) {
+        final String lcName = name.toLowerCase(Locale.ENGLISH);
+        unindexedHeaders.remove(lcName);
+        indexedHeaders.remove(lcName);
+        sensitiveHeaders.add(lcName);
+        return this;
+    }
+    
+    /**
+     * @return the names of the headers, which are encoded without indexing
+     */
+    public Set<String> getUnindexedHeaders() {
+        return unindexedHeaders;
+    }
+
+    /**
+     * Adds the header, which has to be encoded without indexing.
+     * 
+     * @param name the header name
+     * @return this policy
+     */
+    public DefaultHeaderIndexingPolicy addUnindexedHeader(final String name) {
+        final String lcName = name.toLowerCase(Locale.ENGLISH);
+        sensitiveHeaders.remove(lcName);
+        indexedHeaders.remove(lcName);
+        unindexedHeaders.add(lcName);
+        return this;
+    }
+    
+    /**
+     * @return the names of the headers, which are always indexed if they fit
+     *         into the dynamic table
+     */
+    public Set<String> getIndexedHeaders() {
+        return indexedHeaders;
+    }
+
+    /**
+     * Adds the header, which has to be indexed whenever it fits into the
+     * dynamic table.
+     * 
+     * @param name the header name
+     * @return this policy
+     */
+    public DefaultHeaderIndexingPolicy addIndexedHeader(final String name) {
+        final String lcName = name.toLowerCase(Locale.ENGLISH);
+        sensitiveHeaders.remove(lcName);
+        unindexedHeaders.remove(lcName);
+        indexedHeaders.add(lcName);
+        return this;
+    }
+    
+    /**
+     * @return the ratio between the dynamic table capacity and the max size
+     *         of an entry, which is indexed by default
+     */
+    public int getMaxEntrySizeRatio() {
+        return maxEntrySizeRatio;
+    }
+
+    /**
+     * Sets the ratio between the dynamic table capacity and the max size
+     * of an entry, which is indexed by default. For example, if the ratio
+     * is {@code 4} and the table capacity is {@code 4096} bytes, the headers
+     * whose entries are larger than {@code 1024} bytes won't be indexed,
+     * unless they are explicitly marked as indexed.
+     * 
+     * @param maxEntrySizeRatio the ratio, must be positive
+     * @return this policy
+     */
+    public DefaultHeaderIndexingPolicy setMaxEntrySizeRatio(final int maxEntrySizeRatio) {
+        if (maxEntrySizeRatio <= 0) {
+            throw new IllegalArgumentException("maxEntrySizeRatio > 0: " + maxEntrySizeRatio);
+        }
+        
+        this.maxEntrySizeRatio = maxEntrySizeRatio;
+        return this;
+    }
+
+    private static Set<String> newSet(final String... names) {
+        final Set<String> set = Collections.newSetFromMap(
+                new ConcurrentHashMap<String, Boolean>());
+        Collections.addAll(set, names);
+        return set;
+    }
+}
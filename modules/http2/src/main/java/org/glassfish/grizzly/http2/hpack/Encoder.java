@@ -104,9 +104,15 @@ import static java.util.Objects.requireNonNull;
  * sensitivity}, etc.) from the short lived ones (e.g. {@code buffer}),
  * simplifying each operation itself.
  *
- * <p> The default implementation does not use dynamic table. It reports to a
- * coupled Decoder a size update with the value of {@code 0}, and never changes
- * it afterwards.
+ * <p> Unless a {@link HeaderIndexingPolicy} is set, the default
+ * implementation does not use dynamic table. It reports to a coupled Decoder a
+ * size update with the value of {@code 0}, and never changes it afterwards.
+ * With a {@link HeaderIndexingPolicy} the whole agreed capacity is used and the
+ * policy decides which headers are added to the dynamic table.
+ *
+ * <p> {@link #getStateVersion()} lets a caller detect whether an encoded header
+ * block may be replayed verbatim: the block doesn't depend on the encoder
+ * state changes as long as the version stays the same.
  */
 public class Encoder {
 
@@ -125,8 +131,11 @@ public class Encoder {
 
     private BinaryRepresentationWriter writer;
     private final HeaderTable headerTable;
+    private final HeaderIndexingPolicy indexingPolicy;
 
     private boolean encoding;
+    private boolean lastHeaderNeverIndexed;
+    private long stateVersion;
 
     private int maxCapacity;
     private int currCapacity;
@@ -151,9 +160,27 @@ public class Encoder {
      *         if maxCapacity is negative
      */
     public Encoder(int maxCapacity) {
+        this(maxCapacity, null);
+    }
+
+    /**
+     * Constructs an {@code Encoder} with the specified maximum capacity of the
+     * header table and the {@link HeaderIndexingPolicy}.
+     *
+     * @param maxCapacity
+     *         a non-negative integer
+     * @param indexingPolicy
+     *         the indexing policy, or {@code null} if the dynamic table
+     *         must not be used
+     *
+     * @throws IllegalArgumentException
+     *         if maxCapacity is negative
+     */
+    public Encoder(int maxCapacity, HeaderIndexingPolicy indexingPolicy) {
         if (maxCapacity < 0) {
             throw new IllegalArgumentException("maxCapacity >= 0: " + maxCapacity);
         }
+        this.indexingPolicy = indexingPolicy;
         // Initial maximum capacity update mechanics
         minCapacity = Long.MAX_VALUE;
         currCapacity = -1;
@@ -210,25 +237,86 @@ public class Encoder {
         // efficiency of encoding
         requireNonNull(name, "name");
         requireNonNull(value, "value");
+        checkEncoding();
+        if (capacityUpdate && !configuredCapacityUpdate) {
+            // the table has to be resized before looking up the header,
+            // otherwise the found entry might be evicted by the size update
+            configureCapacityUpdate();
+        }
         HeaderTable t = getHeaderTable();
         int index = t.indexOf(name, value);
         if (index > 0) {
             indexed(index);
-        } else if (index < 0) {
-            if (sensitive) {
-                literalNeverIndexed(-index, value, DEFAULT_HUFFMAN);
-            } else {
-                literal(-index, value, DEFAULT_HUFFMAN);
-            }
-        } else {
-            if (sensitive) {
-                literalNeverIndexed(name, DEFAULT_HUFFMAN, value, DEFAULT_HUFFMAN);
-            } else {
-                literal(name, DEFAULT_HUFFMAN, value, DEFAULT_HUFFMAN);
-            }
+            lastHeaderNeverIndexed = false;
+            return;
+        }
+
+        final HeaderIndexingPolicy.Representation representation =
+                sensitive
+                        ? HeaderIndexingPolicy.Representation.NEVER_INDEXED
+                        : representation(name, value);
+        lastHeaderNeverIndexed =
+                representation == HeaderIndexingPolicy.Representation.NEVER_INDEXED;
+        switch (representation) {
+            case NEVER_INDEXED:
+                if (index < 0) {
+                    literalNeverIndexed(-index, value, DEFAULT_HUFFMAN);
+                } else {
+                    literalNeverIndexed(name, DEFAULT_HUFFMAN, value, DEFAULT_HUFFMAN);
+                }
+                break;
+            case INCREMENTAL_INDEXING:
+                if (index < 0) {
+                    literalWithIndexing(-index, value, DEFAULT_HUFFMAN);
+                } else {
+                    literalWithIndexing(name, DEFAULT_HUFFMAN, value, DEFAULT_HUFFMAN);
+                }
+                break;
+            default:
+                if (index < 0) {
+                    literal(-index, value, DEFAULT_HUFFMAN);
+                } else {
+                    literal(name, DEFAULT_HUFFMAN, value, DEFAULT_HUFFMAN);
+                }
         }
     }
 
+    private HeaderIndexingPolicy.Representation representation(
+            CharSequence name, CharSequence value) {
+        if (indexingPolicy == null || lastCapacity == 0) {
+            return HeaderIndexingPolicy.Representation.WITHOUT_INDEXING;
+        }
+        final String n = name.toString();
+        final String v = value.toString();
+        // see 4.1. Calculating Table Size
+        final int entrySize = 32 + n.length() + v.length();
+        return indexingPolicy.representation(n, v, entrySize, lastCapacity);
+    }
+
+    /**
+     * Returns {@code true} if the header set up last has been represented as
+     * a never-indexed literal, which means its value is sensitive.
+     *
+     * @return {@code true} if the last header is never indexed
+     */
+    public final boolean isLastHeaderNeverIndexed() {
+        return lastHeaderNeverIndexed;
+    }
+
+    /**
+     * Returns the encoder state version, which is changed every time an
+     * encoded header modifies the dynamic table, or a header table size
+     * update is scheduled or emitted.
+     *
+     * <p> A header block, whose encoding hasn't changed the version, may be
+     * re-sent as is, for as long as the version stays the same.
+     *
+     * @return the encoder state version
+     */
+    public final long getStateVersion() {
+        return stateVersion;
+    }
+
     /**
      * Sets a maximum capacity of the header table.
      *
@@ -264,6 +352,7 @@ public class Encoder {
                             calculated, capacity));
         }
         capacityUpdate = true;
+        stateVersion++;
         // maxCapacity needs to be updated unconditionally, so the encoder
         // always has the newest one (in case it decides to update it later
         // unsolicited)
@@ -274,11 +363,10 @@ public class Encoder {
         minCapacity = Math.min(minCapacity, lastCapacity);
     }
 
-    @SuppressWarnings("UnusedParameters")
     protected int calculateCapacity(int maxCapacity) {
-        // Default implementation of the Encoder won't add anything to the
+        // Without an indexing policy the Encoder won't add anything to the
         // table, therefore no need for a table space
-        return 0;
+        return indexingPolicy != null ? maxCapacity : 0;
     }
 
     /**
@@ -324,17 +412,7 @@ public class Encoder {
     private boolean prependWithCapacityUpdate(Buffer headerBlock) {
         if (capacityUpdate) {
             if (!configuredCapacityUpdate) {
-                List<Integer> sizes = new LinkedList<>();
-                if (minCapacity < currCapacity) {
-                    sizes.add((int) minCapacity);
-                    if (minCapacity != lastCapacity) {
-                        sizes.add(lastCapacity);
-                    }
-                } else if (lastCapacity != currCapacity) {
-                    sizes.add(lastCapacity);
-                }
-                bulkSizeUpdateWriter.maxHeaderTableSizes(sizes);
-                configuredCapacityUpdate = true;
+                configureCapacityUpdate();
             }
             boolean done = bulkSizeUpdateWriter.write(headerTable, headerBlock);
             if (done) {
@@ -343,12 +421,32 @@ public class Encoder {
                 bulkSizeUpdateWriter.reset();
                 capacityUpdate = false;
                 configuredCapacityUpdate = false;
+                stateVersion++;
             }
             return done;
         }
         return true;
     }
 
+    private void configureCapacityUpdate() {
+        List<Integer> sizes = new LinkedList<>();
+        if (minCapacity < currCapacity) {
+            sizes.add((int) minCapacity);
+            if (minCapacity != lastCapacity) {
+                sizes.add(lastCapacity);
+            }
+        } else if (lastCapacity != currCapacity) {
+            sizes.add(lastCapacity);
+        }
+        // the writer applies the same sizes again, which doesn't change
+        // the table state
+        for (Integer size : sizes) {
+            headerTable.setMaxSize(size);
+        }
+        bulkSizeUpdateWriter.maxHeaderTableSizes(sizes);
+        configuredCapacityUpdate = true;
+    }
+
     protected final void indexed(int index) throws IndexOutOfBoundsException {
         checkEncoding();
         encoding = true;
@@ -392,24 +490,24 @@ public class Encoder {
                 .name(name, nameHuffman).value(value, valueHuffman);
     }
 
-    @SuppressWarnings("unused")
     protected final void literalWithIndexing(int index,
                                              CharSequence value,
                                              boolean valueHuffman)
             throws IndexOutOfBoundsException {
         checkEncoding();
         encoding = true;
+        stateVersion++;
         writer = literalWithIndexingWriter
                 .index(index).value(value, valueHuffman);
     }
 
-    @SuppressWarnings("unused")
     protected final void literalWithIndexing(CharSequence name,
                                              boolean nameHuffman,
                                              CharSequence value,
                                              boolean valueHuffman) {
         checkEncoding();
         encoding = true;
+        stateVersion++;
         writer = literalWithIndexingWriter
                 .name(name, nameHuffman).value(value, valueHuffman);
     }
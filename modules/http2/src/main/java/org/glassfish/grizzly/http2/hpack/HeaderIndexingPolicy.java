@@ -0,0 +1,88 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http2.hpack;
+
+/**
+ * Decides which representation an {@link Encoder} uses for a header that is
+ * not already present in the header table (see <a
+ * href="https://tools.ietf.org/html/rfc7541#section-6.2">6.2. Literal Header
+ * Field Representation</a>).
+ *
+ * <p> Setting an indexing policy makes the {@link Encoder} use the dynamic
+ * table, otherwise the dynamic table is never used.
+ *
+ * @see DefaultHeaderIndexingPolicy
+ */
+public interface HeaderIndexingPolicy {
+
+    /**
+     * Literal header field representations.
+     */
+    enum Representation {
+        /**
+         * Literal header field with incremental indexing, the header is
+         * added to the dynamic table.
+         */
+        INCREMENTAL_INDEXING,
+        /**
+         * Literal header field without indexing.
+         */
+        WITHOUT_INDEXING,
+        /**
+         * Literal header field never indexed, intermediaries must not index
+         * the header either.
+         */
+        NEVER_INDEXED
+    }
+
+    /**
+     * Returns the representation to be used for the given header.
+     *
+     * @param name the lower-case header name
+     * @param value the header value
+     * @param entrySize the size the header would occupy in the dynamic table
+     * @param tableCapacity the current dynamic table capacity
+     *
+     * @return the {@link Representation} to be used for the header
+     */
+    Representation representation(String name, String value,
+            int entrySize, int tableCapacity);
+}
@@ -415,9 +415,9 @@ final class HeaderTable {
             Map<String, Long> values = map.get(f.name);
             if (values == null) {
                 values = new HashMap<>();
-                values.put(f.value, counter++);
+                map.put(f.name, values);
             }
-            map.put(f.name, values);
+            values.put(f.value, counter++);
         }
 
         HeaderField get(int index) {
@@ -440,12 +440,18 @@ final class HeaderTable {
         }
 
         HeaderField remove() {
+            // the oldest entry's counter value
+            final long removedIndex = counter - buffer.size;
             HeaderField f = buffer.remove();
             Map<String, Long> values = map.get(f.name);
-            Long index = values.remove(f.value);
+            // a newer duplicate of the same header may own the mapping
+            Long index = values.get(f.value);
             assert index != null;
-            if (values.isEmpty()) {
-                map.remove(f.name);
+            if (index == removedIndex) {
+                values.remove(f.value);
+                if (values.isEmpty()) {
+                    map.remove(f.name);
+                }
             }
             return f;
         }
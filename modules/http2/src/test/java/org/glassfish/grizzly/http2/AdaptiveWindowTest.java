@@ -0,0 +1,234 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.http2;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.SocketConnectorHandler;
+import org.glassfish.grizzly.filterchain.BaseFilter;
+import org.glassfish.grizzly.filterchain.FilterChain;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.filterchain.NextAction;
+import org.glassfish.grizzly.http.HttpContent;
+import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.Protocol;
+import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.Response;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.nio.transport.TCPNIOConnectorHandler;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Adaptive HTTP/2 flow-control window tests.
+ */
+public class AdaptiveWindowTest extends AbstractHttp2Test {
+    private static final int PORT = 18896;
+    private static final int MAX_WINDOW_SIZE = 1024 * 1024;
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int CHUNKS_COUNT = 64;
+    
+    private HttpServer httpServer;
+    
+    private final AtomicInteger bdpSamples = new AtomicInteger();
+    private final AtomicInteger windowChanges = new AtomicInteger();
+    private final AtomicInteger maxObservedWindowSize = new AtomicInteger();
+    
+    @After
+    public void after() throws Exception {
+        if (httpServer != null) {
+            httpServer.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testUpload() throws Exception {
+        final Http2Configuration configuration = startServer(
+                Http2Configuration.DEFAULT_ADAPTIVE_WINDOW_BUDGET);
+        
+        final Connection connection = upload();
+        
+        assertTrue(bdpSamples.get() > 0);
+        assertTrue(maxObservedWindowSize.get() <= MAX_WINDOW_SIZE);
+        if (windowChanges.get() > 0) {
+            assertTrue(configuration.getAdaptiveWindowBudgetUsed() > 0);
+        }
+        
+        connection.closeSilently();
+        assertBudgetReleased(configuration);
+    }
+
+    @Test
+    public void testExhaustedBudget() throws Exception {
+        final Http2Configuration configuration = startServer(0);
+        
+        final Connection connection = upload();
+        
+        assertTrue(bdpSamples.get() > 0);
+        assertEquals(0, windowChanges.get());
+        assertEquals(0, configuration.getAdaptiveWindowBudgetUsed());
+        
+        connection.closeSilently();
+    }
+    
+    private Http2Configuration startServer(final long budget) throws Exception {
+        httpServer = createServer(null, PORT, false,
+                HttpHandlerRegistration.of(new HttpHandler() {
+                    @Override
+                    public void service(Request request, Response response)
+                            throws Exception {
+                        final InputStream in = request.getInputStream();
+                        final byte[] buf = new byte[8192];
+                        int total = 0;
+                        int len;
+                        while ((len = in.read(buf)) != -1) {
+                            total += len;
+                        }
+                        
+                        response.getWriter().write(Integer.toString(total));
+                    }
+                }, "/"));
+        httpServer.getListener("grizzly").getKeepAlive().setIdleTimeoutInSeconds(-1);
+        
+        final Http2Configuration configuration = http2Addon.getConfiguration();
+        configuration.setAdaptiveWindow(true);
+        configuration.setMaxAdaptiveWindowSize(MAX_WINDOW_SIZE);
+        configuration.setAdaptiveWindowBudget(budget);
+        
+        httpServer.start();
+        
+        final FilterChain serverChain =
+                httpServer.getListener("grizzly").getFilterChain();
+        final Http2ServerFilter http2ServerFilter = (Http2ServerFilter)
+                serverChain.get(serverChain.indexOfType(Http2ServerFilter.class));
+        http2ServerFilter.getMonitoringConfig().addProbes(
+                new Http2SessionProbe.Adapter() {
+            @Override
+            public void onBdpSampleEvent(Http2Session session, long rttNanos,
+                    int bytesReceived) {
+                bdpSamples.incrementAndGet();
+            }
+
+            @Override
+            public void onLocalWindowSizeChangedEvent(Http2Session session,
+                    int connectionWindowSize, int streamWindowSize) {
+                windowChanges.incrementAndGet();
+                maxObservedWindowSize.set(Math.max(maxObservedWindowSize.get(),
+                        Math.max(connectionWindowSize, streamWindowSize)));
+            }
+        });
+        
+        return configuration;
+    }
+    
+    private Connection upload() throws Exception {
+        final BlockingQueue<String> responses = new LinkedBlockingQueue<>();
+        final FilterChain clientChain = createClientFilterChainAsBuilder(
+                false, true, new BaseFilter() {
+            private final StringBuilder sb = new StringBuilder();
+            
+            @Override
+            public NextAction handleRead(FilterChainContext ctx) throws IOException {
+                final HttpContent httpContent = ctx.getMessage();
+                sb.append(httpContent.getContent().toStringContent());
+                if (httpContent.isLast()) {
+                    responses.offer(sb.toString());
+                }
+                
+                return ctx.getStopAction();
+            }
+        }).build();
+        
+        final SocketConnectorHandler connectorHandler =
+                TCPNIOConnectorHandler.builder(
+                        httpServer.getListener("grizzly").getTransport())
+                .processor(clientChain)
+                .build();
+        
+        final Future<Connection> connectFuture =
+                connectorHandler.connect("localhost", PORT);
+        final Connection connection = connectFuture.get(10, TimeUnit.SECONDS);
+        
+        final HttpRequestPacket request = HttpRequestPacket.builder()
+                .method(Method.POST)
+                .uri("/")
+                .protocol(Protocol.HTTP_2_0)
+                .host("localhost:" + PORT)
+                .contentLength(CHUNK_SIZE * CHUNKS_COUNT)
+                .build();
+        
+        for (int i = 0; i < CHUNKS_COUNT; i++) {
+            final Buffer chunk = Buffers.wrap(
+                    MemoryManager.DEFAULT_MEMORY_MANAGER, new byte[CHUNK_SIZE]);
+            connection.write(HttpContent.builder(request)
+                    .content(chunk)
+                    .last(i == CHUNKS_COUNT - 1)
+                    .build());
+        }
+        
+        assertEquals(Integer.toString(CHUNK_SIZE * CHUNKS_COUNT),
+                responses.poll(30, TimeUnit.SECONDS));
+        
+        return connection;
+    }
+    
+    private static void assertBudgetReleased(final Http2Configuration configuration)
+            throws InterruptedException {
+        for (int i = 0; i < 100
+                && configuration.getAdaptiveWindowBudgetUsed() != 0; i++) {
+            Thread.sleep(50);
+        }
+        
+        assertEquals(0, configuration.getAdaptiveWindowBudgetUsed());
+    }
+}
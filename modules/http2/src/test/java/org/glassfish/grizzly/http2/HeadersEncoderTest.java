@@ -0,0 +1,221 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http2;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.http2.hpack.Decoder;
+import org.glassfish.grizzly.http2.hpack.DecodingCallback;
+import org.glassfish.grizzly.http2.hpack.DefaultHeaderIndexingPolicy;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link HeadersEncoder} indexing policy and header block cache tests.
+ */
+public class HeadersEncoderTest {
+    private static final String[] RESPONSE_HEADERS = {
+        ":status", "200",
+        "content-type", "application/json;charset=UTF-8",
+        "cache-control", "no-cache",
+        "server", "grizzly",
+        "x-api-version", "2.4"
+    };
+    
+    @Test
+    public void testDynamicTable() {
+        final HeadersEncoder encoder = new HeadersEncoder(
+                MemoryManager.DEFAULT_MEMORY_MANAGER, 4096,
+                new DefaultHeaderIndexingPolicy(), 0);
+        final Decoder decoder = new Decoder(4096);
+        
+        final Buffer first = encode(encoder, false, RESPONSE_HEADERS);
+        final int firstSize = first.remaining();
+        assertHeaders(RESPONSE_HEADERS, decode(decoder, first));
+        
+        final Buffer second = encode(encoder, false, RESPONSE_HEADERS);
+        assertTrue(second.remaining() < firstSize);
+        assertHeaders(RESPONSE_HEADERS, decode(decoder, second));
+    }
+    
+    @Test
+    public void testSensitiveHeaders() {
+        final HeadersEncoder encoder = new HeadersEncoder(
+                MemoryManager.DEFAULT_MEMORY_MANAGER, 4096,
+                new DefaultHeaderIndexingPolicy().addSensitiveHeader("X-Token"), 16);
+        final Decoder decoder = new Decoder(4096);
+
+        final String[] headers = {
+            ":status", "200",
+            "x-token", "secret",
+            "set-cookie", "id=1"
+        };
+        
+        for (int i = 0; i < 3; i++) {
+            final List<String[]> decoded = decode(decoder, encode(encoder, true, headers));
+            assertHeaders(headers, decoded);
+            assertFalse(Boolean.parseBoolean(decoded.get(0)[2]));
+            assertTrue(Boolean.parseBoolean(decoded.get(1)[2]));
+            assertTrue(Boolean.parseBoolean(decoded.get(2)[2]));
+        }
+        
+        assertEquals(0, encoder.getHeaderBlockCacheHits());
+        assertEquals(3, encoder.getHeaderBlockCacheMisses());
+    }
+    
+    @Test
+    public void testHeaderBlockCache() {
+        final HeadersEncoder encoder = new HeadersEncoder(
+                MemoryManager.DEFAULT_MEMORY_MANAGER, 4096,
+                new DefaultHeaderIndexingPolicy(), 16);
+        final Decoder decoder = new Decoder(4096);
+        
+        // 1st block populates the dynamic table, 2nd is cached, 3rd is a hit
+        for (int i = 0; i < 3; i++) {
+            assertHeaders(RESPONSE_HEADERS,
+                    decode(decoder, encode(encoder, true, RESPONSE_HEADERS)));
+        }
+        assertEquals(1, encoder.getHeaderBlockCacheHits());
+        assertEquals(2, encoder.getHeaderBlockCacheMisses());
+        
+        // a different header set changes the dynamic table
+        final String[] otherHeaders = {
+            ":status", "404",
+            "content-type", "text/html"
+        };
+        assertHeaders(otherHeaders,
+                decode(decoder, encode(encoder, true, otherHeaders)));
+        
+        // the cached block is stale
+        assertHeaders(RESPONSE_HEADERS,
+                decode(decoder, encode(encoder, true, RESPONSE_HEADERS)));
+        assertEquals(1, encoder.getHeaderBlockCacheHits());
+        
+        // the table size update has to be sent
+        encoder.setMaxHeaderTableSize(0);
+        assertHeaders(RESPONSE_HEADERS,
+                decode(decoder, encode(encoder, true, RESPONSE_HEADERS)));
+        assertHeaders(RESPONSE_HEADERS,
+                decode(decoder, encode(encoder, true, RESPONSE_HEADERS)));
+        assertHeaders(RESPONSE_HEADERS,
+                decode(decoder, encode(encoder, true, RESPONSE_HEADERS)));
+        assertEquals(2, encoder.getHeaderBlockCacheHits());
+    }
+    
+    @Test
+    public void testHeaderBlockCacheNoDynamicTable() {
+        final HeadersEncoder encoder = new HeadersEncoder(
+                MemoryManager.DEFAULT_MEMORY_MANAGER, 4096, null, 16);
+        final Decoder decoder = new Decoder(4096);
+        
+        // the 1st block carries the table size update
+        for (int i = 0; i < 4; i++) {
+            assertHeaders(RESPONSE_HEADERS,
+                    decode(decoder, encode(encoder, true, RESPONSE_HEADERS)));
+        }
+        
+        assertEquals(2, encoder.getHeaderBlockCacheHits());
+        assertEquals(2, encoder.getHeaderBlockCacheMisses());
+    }
+    
+    @Test
+    public void testResetCacheableHeaderBlock() {
+        final HeadersEncoder encoder = new HeadersEncoder(
+                MemoryManager.DEFAULT_MEMORY_MANAGER, 4096,
+                new DefaultHeaderIndexingPolicy(), 16);
+        final Decoder decoder = new Decoder(4096);
+        
+        // the cacheable block fails before it's flushed
+        encoder.startCacheableHeaderBlock();
+        encoder.encodeHeader(":status", "500", null);
+        encoder.resetCacheableHeaderBlock();
+        
+        // the next block must not contain the failed block's headers
+        assertHeaders(RESPONSE_HEADERS,
+                decode(decoder, encode(encoder, false, RESPONSE_HEADERS)));
+        assertEquals(0, encoder.getHeaderBlockCacheHits());
+        assertEquals(0, encoder.getHeaderBlockCacheMisses());
+    }
+    
+    private static Buffer encode(final HeadersEncoder encoder,
+            final boolean cacheable, final String... namesAndValues) {
+        if (cacheable) {
+            encoder.startCacheableHeaderBlock();
+        }
+        
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            encoder.encodeHeader(namesAndValues[i], namesAndValues[i + 1], null);
+        }
+        
+        return encoder.flushHeaders();
+    }
+    
+    private static List<String[]> decode(final Decoder decoder, final Buffer buffer) {
+        final List<String[]> result = new ArrayList<>();
+        decoder.decode(buffer, true, new DecodingCallback() {
+            @Override
+            public void onDecoded(CharSequence name, CharSequence value) {
+                throw new IllegalStateException();
+            }
+
+            @Override
+            public void onDecoded(CharSequence name, CharSequence value,
+                    boolean sensitive) {
+                result.add(new String[] {name.toString(), value.toString(),
+                    Boolean.toString(sensitive)});
+            }
+        });
+        
+        return result;
+    }
+    
+    private static void assertHeaders(final String[] expected,
+            final List<String[]> decoded) {
+        assertEquals(expected.length / 2, decoded.size());
+        for (int i = 0; i < decoded.size(); i++) {
+            assertEquals(expected[i * 2], decoded.get(i)[0]);
+            assertEquals(expected[i * 2 + 1], decoded.get(i)[1]);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http2;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.GrizzlyFuture;
+import org.glassfish.grizzly.filterchain.FilterChain;
+import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.Response;
+import org.glassfish.grizzly.nio.transport.TCPNIOConnectorHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * The {@link Http2ClientConnectionPool} tests.
+ */
+public class Http2ClientConnectionPoolTest extends AbstractHttp2Test {
+    private static final int PORT = 18895;
+    
+    private HttpServer httpServer;
+    private Http2ClientConnectionPool pool;
+    
+    @Before
+    public void before() throws Exception {
+        httpServer = createServer(null, PORT, false,
+                HttpHandlerRegistration.of(new HttpHandler() {
+                    @Override
+                    public void service(Request request, Response response)
+                            throws Exception {
+                        response.getWriter().write("OK");
+                    }
+                }, "/"));
+        httpServer.getListener("grizzly").getKeepAlive().setIdleTimeoutInSeconds(-1);
+        httpServer.start();
+        
+        pool = createPoolBuilder()
+                .maxConnections(2)
+                .maxStreamsPerConnection(2)
+                .build();
+    }
+    
+    @After
+    public void after() throws Exception {
+        if (pool != null) {
+            pool.close();
+        }
+        
+        if (httpServer != null) {
+            httpServer.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testStreamsShareConnection() throws Exception {
+        final Connection c1 = take();
+        final Connection c2 = take();
+        assertSame(c1, c2);
+        assertEquals(1, pool.size());
+        assertEquals(2, pool.getActiveStreamsCount(c1));
+        
+        // the first connection is at its concurrency limit
+        final Connection c3 = take();
+        assertNotSame(c1, c3);
+        assertSame(c3, take());
+        assertEquals(2, pool.size());
+        assertEquals(4, pool.getActiveStreamsCount());
+        
+        // the pool is exhausted
+        final GrizzlyFuture<Connection> waitingFuture = pool.take();
+        Thread.sleep(100);
+        assertFalse(waitingFuture.isDone());
+        assertEquals(1, pool.getWaitingListSize());
+        
+        assertTrue(pool.release(c3));
+        assertSame(c3, waitingFuture.get(10, TimeUnit.SECONDS));
+        assertEquals(0, pool.getWaitingListSize());
+        assertEquals(2, pool.getActiveStreamsCount(c3));
+        
+        assertTrue(pool.release(c1));
+        assertTrue(pool.release(c1));
+        assertFalse(pool.release(c1));
+        assertEquals(0, pool.getActiveStreamsCount(c1));
+        assertEquals(2, pool.size());
+    }
+    
+    @Test
+    public void testWaitersServedOnPeerSettings() throws Exception {
+        pool.close();
+        pool = createPoolBuilder()
+                .maxConnections(1)
+                .maxStreamsPerConnection(4)
+                .build();
+        
+        final Connection c1 = take();
+        final Http2Session http2Session = Http2Session.get(c1);
+        
+        // the peer allows a single stream
+        final int oldMaxConcurrentStreams = http2Session.getPeerMaxConcurrentStreams();
+        http2Session.setPeerMaxConcurrentStreams(1);
+        http2Session.onPeerSettingsApplied(oldMaxConcurrentStreams);
+        
+        final GrizzlyFuture<Connection> waitingFuture = pool.take();
+        assertFalse(waitingFuture.isDone());
+        assertEquals(1, pool.getWaitingListSize());
+        
+        // the peer's SETTINGS raise the limit - the user has to be served
+        // with no release
+        http2Session.setPeerMaxConcurrentStreams(2);
+        http2Session.onPeerSettingsApplied(1);
+        
+        assertSame(c1, waitingFuture.get(10, TimeUnit.SECONDS));
+        assertEquals(0, pool.getWaitingListSize());
+        assertEquals(2, pool.getActiveStreamsCount(c1));
+    }
+    
+    @Test
+    public void testGoAwayDraining() throws Exception {
+        final Connection c1 = take();
+        
+        final Http2Session http2Session = Http2Session.get(c1);
+        assertNotNull(http2Session);
+        http2Session.setGoAwayByPeer(Integer.MAX_VALUE);
+        
+        // the connection, which received GOAWAY must not be used for new streams
+        final Connection c2 = take();
+        assertNotSame(c1, c2);
+        assertEquals(2, pool.size());
+        
+        // the last stream is released - the connection has to be closed
+        assertTrue(pool.release(c1));
+        assertEquals(-1, pool.getActiveStreamsCount(c1));
+        assertEquals(1, pool.size());
+        assertFalse(c1.isOpen());
+        
+        assertSame(c2, take());
+    }
+    
+    @Test
+    public void testCancelledTake() throws Exception {
+        final Connection c1 = take();
+        assertSame(c1, take());
+        final Connection c2 = take();
+        assertSame(c2, take());
+        
+        final GrizzlyFuture<Connection> waitingFuture = pool.take();
+        assertEquals(1, pool.getWaitingListSize());
+        
+        // the cancelled user has to be removed from the waiting list
+        assertTrue(waitingFuture.cancel(false));
+        assertEquals(0, pool.getWaitingListSize());
+        
+        // and must not get the released stream slot
+        assertTrue(pool.release(c2));
+        assertEquals(1, pool.getActiveStreamsCount(c2));
+        assertEquals(3, pool.getActiveStreamsCount());
+    }
+    
+    @Test
+    public void testTakeTimeout() throws Exception {
+        pool.close();
+        pool = createPoolBuilder()
+                .maxConnections(1)
+                .maxStreamsPerConnection(1)
+                .takeTimeout(500, TimeUnit.MILLISECONDS)
+                .build();
+        
+        final Connection c1 = take();
+        
+        final GrizzlyFuture<Connection> waitingFuture = pool.take();
+        assertEquals(1, pool.getWaitingListSize());
+        
+        try {
+            waitingFuture.get(10, TimeUnit.SECONDS);
+            fail("The take timeout had to expire");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        
+        assertEquals(0, pool.getWaitingListSize());
+        
+        assertTrue(pool.release(c1));
+        assertEquals(0, pool.getActiveStreamsCount());
+        assertSame(c1, take());
+    }
+    
+    @Test
+    public void testClosedPool() throws Exception {
+        pool.close();
+        
+        try {
+            take();
+            fail("The pool is closed");
+        } catch (Exception expected) {
+        }
+    }
+    
+    private Http2ClientConnectionPool.Builder createPoolBuilder() {
+        final FilterChain clientChain =
+                createClientFilterChainAsBuilder(false, true).build();
+        
+        return Http2ClientConnectionPool.builder()
+                .connectorHandler(TCPNIOConnectorHandler.builder(
+                        httpServer.getListener("grizzly").getTransport())
+                        .processor(clientChain)
+                        .build())
+                .endpointAddress(new InetSocketAddress("localhost", PORT));
+    }
+    
+    private Connection take() throws Exception {
+        final Connection connection = pool.take().get(10, TimeUnit.SECONDS);
+        
+        // only a single stream is available until the peer's SETTINGS come
+        final Http2Session http2Session = Http2Session.get(connection);
+        assertNotNull(http2Session);
+        for (int i = 0; i < 100 && !http2Session.isHttp2InputEnabled(); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(http2Session.isHttp2InputEnabled());
+        
+        return connection;
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.grizzly.http2;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.glassfish.grizzly.filterchain.FilterChainBuilder;
+import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.http.Protocol;
+import org.glassfish.grizzly.nio.transport.TCPNIOConnection;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * The {@link Http2StreamMap} tests.
+ */
+public class Http2StreamMapTest {
+    // the table's initial capacity
+    private static final int MIN_CAPACITY = 16;
+    
+    private TCPNIOTransport transport;
+    private Http2Session http2Session;
+    
+    @Before
+    public void before() {
+        transport = TCPNIOTransportBuilder.newInstance().build();
+        final Http2ServerFilter http2Filter =
+                new Http2ServerFilter(Http2Configuration.builder().build());
+        
+        final TCPNIOConnection connection = new TCPNIOConnection(transport, null);
+        connection.setProcessor(FilterChainBuilder.stateless()
+                .add(http2Filter).build());
+        
+        http2Session = new Http2Session(connection, true, http2Filter);
+    }
+    
+    @After
+    public void after() throws Exception {
+        transport.shutdownNow();
+    }
+    
+    @Test
+    public void testPutGetRemove() {
+        final Http2StreamMap map = new Http2StreamMap();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1));
+        assertNull(map.remove(1));
+        
+        final Http2Stream s1 = newStream(1);
+        final Http2Stream s3 = newStream(3);
+        map.put(s1);
+        map.put(s3);
+        
+        assertEquals(2, map.size());
+        assertSame(s1, map.get(1));
+        assertSame(s3, map.get(3));
+        assertNull(map.get(5));
+        
+        // the stream with the same id has to be replaced
+        final Http2Stream s1b = newStream(1);
+        map.put(s1b);
+        assertEquals(2, map.size());
+        assertSame(s1b, map.get(1));
+        
+        assertSame(s1b, map.remove(1));
+        assertNull(map.remove(1));
+        assertNull(map.get(1));
+        assertSame(s3, map.get(3));
+        assertEquals(1, map.size());
+        
+        assertSame(s3, map.remove(3));
+        assertTrue(map.isEmpty());
+        assertTrue(map.values().isEmpty());
+    }
+    
+    @Test
+    public void testCollisions() {
+        final int[] ids = collidingIds(4);
+        final Http2StreamMap map = new Http2StreamMap();
+        
+        for (int id : ids) {
+            map.put(newStream(id));
+        }
+        
+        assertEquals(ids.length, map.size());
+        for (int id : ids) {
+            assertEquals(id, map.get(id).getId());
+        }
+        
+        // removing a stream in the middle of the probe chain must not
+        // hide the streams after it
+        assertEquals(ids[1], map.remove(ids[1]).getId());
+        assertNull(map.get(ids[1]));
+        assertEquals(ids[2], map.get(ids[2]).getId());
+        assertEquals(ids[3], map.get(ids[3]).getId());
+        
+        // the re-added stream has to be found, not duplicated
+        final Http2Stream s = newStream(ids[3]);
+        map.put(s);
+        assertSame(s, map.get(ids[3]));
+        assertEquals(ids.length - 1, map.size());
+        
+        map.put(newStream(ids[1]));
+        assertEquals(ids.length, map.size());
+        for (int id : ids) {
+            assertEquals(id, map.get(id).getId());
+        }
+        
+        for (int id : ids) {
+            assertEquals(id, map.remove(id).getId());
+        }
+        assertTrue(map.isEmpty());
+        for (int id : ids) {
+            assertNull(map.get(id));
+        }
+    }
+    
+    @Test
+    public void testResize() {
+        final int count = MIN_CAPACITY * 64;
+        final Http2StreamMap map = new Http2StreamMap();
+        
+        for (int i = 0; i < count; i++) {
+            map.put(newStream(i * 2 + 1));
+            assertEquals(i + 1, map.size());
+        }
+        
+        for (int i = 0; i < count; i++) {
+            assertEquals(i * 2 + 1, map.get(i * 2 + 1).getId());
+        }
+        assertNull(map.get(count * 2 + 1));
+        assertEquals(count, map.values().size());
+        
+        // the tombstones left by the removed streams have to be purged
+        // on rehash, so the table keeps working
+        for (int i = 0; i < count; i++) {
+            assertNotNull(map.remove(i * 2 + 1));
+            map.put(newStream((count + i) * 2 + 1));
+            assertEquals(count, map.size());
+        }
+        
+        for (int i = 0; i < count; i++) {
+            assertNull(map.get(i * 2 + 1));
+            assertEquals((count + i) * 2 + 1, map.get((count + i) * 2 + 1).getId());
+        }
+    }
+    
+    @Test
+    public void testRemoveWhileIterating() {
+        final Http2StreamMap map = new Http2StreamMap();
+        for (int i = 1; i <= 100; i++) {
+            map.put(newStream(i));
+        }
+        
+        // values() is a snapshot, so the map may be modified while iterating
+        int iterated = 0;
+        for (Http2Stream stream : map.values()) {
+            if (stream.getId() % 2 == 0) {
+                assertSame(stream, map.remove(stream.getId()));
+            } else {
+                // add more streams, which might cause a resize
+                map.put(newStream(stream.getId() + 1000));
+            }
+            
+            iterated++;
+        }
+        
+        assertEquals(100, iterated);
+        assertEquals(100, map.size());
+        for (int i = 1; i <= 100; i++) {
+            if (i % 2 == 0) {
+                assertNull(map.get(i));
+            } else {
+                assertEquals(i, map.get(i).getId());
+                assertEquals(i + 1000, map.get(i + 1000).getId());
+            }
+        }
+    }
+    
+    @Test
+    public void testOddAndEvenStreamIds() {
+        final Http2StreamMap map = new Http2StreamMap();
+        
+        // the client-initiated (odd) and pushed (even) streams
+        for (int i = 0; i < 200; i++) {
+            map.put(newStream(i * 2 + 1));
+            map.put(newStream(i * 2 + 2));
+        }
+        
+        assertEquals(400, map.size());
+        for (int id = 1; id <= 400; id++) {
+            assertEquals(id, map.get(id).getId());
+        }
+        
+        // remove all the odd streams
+        for (int id = 1; id <= 400; id += 2) {
+            assertEquals(id, map.remove(id).getId());
+        }
+        
+        assertEquals(200, map.size());
+        for (int id = 1; id <= 400; id++) {
+            if (id % 2 == 0) {
+                assertEquals(id, map.get(id).getId());
+            } else {
+                assertNull(map.get(id));
+            }
+        }
+        
+        // the streams above the passed id have to be ordered by id
+        final List<Http2Stream> above = map.valuesAbove(300);
+        assertEquals(50, above.size());
+        int lastId = 300;
+        for (Http2Stream stream : above) {
+            assertEquals(lastId + 2, stream.getId());
+            lastId = stream.getId();
+        }
+        
+        assertTrue(map.valuesAbove(400).isEmpty());
+    }
+    
+    @Test
+    public void testClosedStreamsReclaimed() {
+        final Http2StreamMap map = new Http2StreamMap();
+        for (int i = 0; i < 100; i++) {
+            map.put(newStream(i * 2 + 1));
+        }
+        
+        // at most 10 closed streams are retained, the oldest are removed
+        for (int i = 0; i < 50; i++) {
+            map.onStreamClosed(i * 2 + 1, 10);
+        }
+        
+        assertEquals(60, map.size());
+        for (int i = 0; i < 40; i++) {
+            assertNull(map.get(i * 2 + 1));
+        }
+        for (int i = 40; i < 100; i++) {
+            assertEquals(i * 2 + 1, map.get(i * 2 + 1).getId());
+        }
+        
+        // evict all the retained closed streams, including the one,
+        // which has been already removed
+        assertEquals(99, map.remove(99).getId());
+        map.onStreamClosed(99, 0);
+        assertEquals(50, map.size());
+        for (int i = 50; i < 100; i++) {
+            assertEquals(i * 2 + 1, map.get(i * 2 + 1).getId());
+        }
+    }
+    
+    private Http2Stream newStream(final int streamId) {
+        final HttpRequestPacket request = HttpRequestPacket.builder()
+                .method("GET")
+                .uri("/")
+                .protocol(Protocol.HTTP_2_0)
+                .build();
+        
+        return http2Session.newStream(request, streamId, 0, false, 0);
+    }
+    
+    /**
+     * @return the stream ids, which fall into the same initial table slot
+     */
+    private static int[] collidingIds(final int count) {
+        final int slot = Http2StreamMap.hash(1) & (MIN_CAPACITY - 1);
+        final List<Integer> ids = new ArrayList<>(count);
+        for (int id = 1; ids.size() < count; id += 2) {
+            if ((Http2StreamMap.hash(id) & (MIN_CAPACITY - 1)) == slot) {
+                ids.add(id);
+            }
+        }
+        
+        final int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = ids.get(i);
+        }
+        
+        return result;
+    }
+}
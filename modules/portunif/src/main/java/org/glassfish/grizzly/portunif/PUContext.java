@@ -40,6 +40,8 @@
 
 package org.glassfish.grizzly.portunif;
 
+import org.glassfish.grizzly.filterchain.FilterChain;
+
 /**
  * Protocol discovering context, passed to the {@link ProtocolFinder}.
  * 
@@ -52,6 +54,10 @@ public class PUContext {
     short skippedProtocolFinders;
     boolean isSticky = true;
     PUProtocol protocol;
+    int findAttempts;
+    
+    FilterChain boundFilterChain;
+    int boundFilterIdx;
 
     // ------------------------------------------------------------ Constructors
 
@@ -76,5 +82,6 @@ public class PUContext {
         protocol = null;
         skippedProtocolFinders = 0;
         protocolMissCount = 0;
+        findAttempts = 0;
     }
 }
@@ -45,6 +45,7 @@ import java.util.Set;
 import java.util.concurrent.CancellationException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.CompletionHandler;
 import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.Context;
@@ -54,6 +55,7 @@ import org.glassfish.grizzly.IOEventLifeCycleListener;
 import org.glassfish.grizzly.ProcessorExecutor;
 import org.glassfish.grizzly.attributes.Attribute;
 import org.glassfish.grizzly.filterchain.BaseFilter;
+import org.glassfish.grizzly.filterchain.DefaultFilterChain;
 import org.glassfish.grizzly.filterchain.Filter;
 import org.glassfish.grizzly.filterchain.FilterChain;
 import org.glassfish.grizzly.filterchain.FilterChainBuilder;
@@ -61,6 +63,9 @@ import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.glassfish.grizzly.filterchain.FilterChainContext.CopyListener;
 import org.glassfish.grizzly.filterchain.FilterChainEvent;
 import org.glassfish.grizzly.filterchain.NextAction;
+import org.glassfish.grizzly.monitoring.DefaultMonitoringConfig;
+import org.glassfish.grizzly.monitoring.MonitoringAware;
+import org.glassfish.grizzly.monitoring.MonitoringConfig;
 import org.glassfish.grizzly.utils.ArraySet;
 
 /**
@@ -68,7 +73,8 @@ import org.glassfish.grizzly.utils.ArraySet;
  * 
  * @author Alexey Stashok
  */
-public class PUFilter extends BaseFilter {
+public class PUFilter extends BaseFilter
+        implements MonitoringAware<PUFilterProbe> {
     private static final Logger LOGGER = Grizzly.logger(PUFilter.class);
 
     private final SuspendedContextCopyListener suspendedContextCopyListener =
@@ -83,6 +89,14 @@ public class PUFilter extends BaseFilter {
     final Attribute<FilterChainContext> suspendedContextAttribute;
 
     private final boolean isCloseUnrecognizedConnection;
+
+    private volatile boolean isRebindStickyProtocol;
+
+    /**
+     * PUFilter probes
+     */
+    final DefaultMonitoringConfig<PUFilterProbe> monitoringConfig =
+            new DefaultMonitoringConfig<PUFilterProbe>(PUFilterProbe.class);
     
     public PUFilter() {
         this(true);
@@ -194,6 +208,48 @@ public class PUFilter extends BaseFilter {
     public boolean isCloseUnrecognizedConnection() {
         return isCloseUnrecognizedConnection;
     }
+
+    /**
+     * Returns <tt>true</tt> if a {@link Connection}, whose sticky protocol
+     * has been recognized, will be rebound directly to the protocol
+     * {@link FilterChain}, so the following reads bypass <tt>PUFilter</tt>,
+     * or <tt>false</tt> otherwise.
+     *
+     * @see #setRebindStickyProtocol(boolean)
+     */
+    public boolean isRebindStickyProtocol() {
+        return isRebindStickyProtocol;
+    }
+
+    /**
+     * If <tt>true</tt>, once a sticky {@link PUProtocol} is recognized,
+     * the {@link Connection}'s processor is replaced with the {@link FilterChain}
+     * consisting of the main {@link FilterChain} {@link Filter}s preceding
+     * <tt>PUFilter</tt> followed by the protocol {@link Filter}s (except
+     * the {@link BackChannelFilter}), so the following reads skip the
+     * protocol detection and context switching done by <tt>PUFilter</tt>.
+     * 
+     * The combined {@link FilterChain} is built once per protocol and cached,
+     * so the main and protocol {@link FilterChain}s are not expected to be
+     * changed after the first {@link Connection} has been rebound.
+     * The option is applied only if the main {@link FilterChain} is the
+     * {@link Connection}'s processor and neither {@link FilterChain} keeps
+     * a message remainder for the {@link Connection}, otherwise the rebinding
+     * is postponed till the next message.
+     * 
+     * @param isRebindStickyProtocol <tt>true</tt> to enable the rebinding.
+     */
+    public void setRebindStickyProtocol(final boolean isRebindStickyProtocol) {
+        this.isRebindStickyProtocol = isRebindStickyProtocol;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MonitoringConfig<PUFilterProbe> getMonitoringConfig() {
+        return monitoringConfig;
+    }
     
     @Override
     public NextAction handleRead(final FilterChainContext ctx) throws IOException {
@@ -219,10 +275,15 @@ public class PUFilter extends BaseFilter {
                 // if not sticky - next request may belong to another protocol
                 // so reset puContext
                 puContext.reset();
+            } else if (isRebindStickyProtocol
+                    && puContext.boundFilterChain == null) {
+                rebind(puContext, protocol, ctx);
             }
             
             final FilterChainContext filterChainContext =
-                    obtainChildFilterChainContext(protocol, connection, ctx);
+                    puContext.boundFilterChain == null
+                    ? obtainChildFilterChainContext(protocol, connection, ctx)
+                    : obtainBoundFilterChainContext(puContext, connection, ctx);
             
             filterChainContext.addCopyListener(suspendedContextCopyListener);
             suspendedContextAttribute.set(filterChainContext, ctx);
@@ -237,6 +298,9 @@ public class PUFilter extends BaseFilter {
         // no matching protocols within the set of known protocols were found,
         // pass the message to the next filter in the chain
         if (puContext.noProtocolsFound()) {
+            PUFilterProbeNotifier.notifyProtocolNotFound(this, connection,
+                    puContext.findAttempts, bytesInspected(ctx));
+            
             if (isCloseUnrecognizedConnection) {
                 connection.closeSilently();
                 return ctx.getStopAction();
@@ -266,6 +330,60 @@ public class PUFilter extends BaseFilter {
         return filterChainContext;
     }
 
+    private FilterChainContext obtainBoundFilterChainContext(
+            final PUContext puContext,
+            final Connection connection,
+            final FilterChainContext ctx) {
+        
+        // the Filters preceding the PUFilter have already processed the
+        // message, so start right from the first protocol Filter
+        final FilterChain filterChain = puContext.boundFilterChain;
+        final FilterChainContext filterChainContext =
+                filterChain.obtainFilterChainContext(connection);
+        final Context context = filterChainContext.getInternalContext();
+        context.setIoEvent(IOEvent.READ);
+        context.addLifeCycleListener(new InternalProcessingHandler(ctx));
+        filterChainContext.setStartIdx(0);
+        filterChainContext.setFilterIdx(puContext.boundFilterIdx);
+        filterChainContext.setEndIdx(filterChain.size());
+        filterChainContext.setAddressHolder(ctx.getAddressHolder());
+        filterChainContext.setMessage(ctx.getMessage());
+        return filterChainContext;
+    }
+
+    /**
+     * Rebinds the {@link Connection} to the {@link FilterChain}, which combines
+     * the main and the sticky protocol {@link FilterChain}s. The current message
+     * is processed by the protocol part of the combined {@link FilterChain}
+     * as well, so no protocol {@link Filter} state is left behind in the
+     * protocol {@link FilterChain}.
+     */
+    private void rebind(final PUContext puContext, final PUProtocol protocol,
+            final FilterChainContext ctx) {
+        final Connection connection = ctx.getConnection();
+        final FilterChain mainFilterChain = ctx.getFilterChain();
+        
+        if (connection.obtainProcessor(IOEvent.READ) != mainFilterChain
+                || hasStoredMessages(mainFilterChain, connection)
+                || hasStoredMessages(protocol.getFilterChain(), connection)) {
+            // either the main FilterChain is not the Connection processor,
+            // or there are remainders, which would be lost after rebinding -
+            // try again on the next message
+            return;
+        }
+        
+        final int puFilterIdx = ctx.getFilterIdx();
+        final FilterChain boundFilterChain =
+                protocol.obtainBoundFilterChain(mainFilterChain, puFilterIdx);
+        
+        puContext.boundFilterChain = boundFilterChain;
+        puContext.boundFilterIdx = puFilterIdx;
+        connection.setProcessor(boundFilterChain);
+        
+        PUFilterProbeNotifier.notifyFilterChainRebind(this, connection,
+                protocol, boundFilterChain);
+    }
+
     @Override
     public NextAction handleEvent(final FilterChainContext ctx,
             final FilterChainEvent event) throws IOException {
@@ -277,10 +395,19 @@ public class PUFilter extends BaseFilter {
             final PUProtocol protocol;
             if (puContext != null && (protocol = puContext.protocol) != null) {
 
-                final FilterChain filterChain = protocol.getFilterChain();
+                final FilterChain filterChain;
+                final int startIdx;
+                if (puContext.boundFilterChain == null) {
+                    filterChain = protocol.getFilterChain();
+                    startIdx = -1;
+                } else {
+                    filterChain = puContext.boundFilterChain;
+                    startIdx = puContext.boundFilterIdx - 1;
+                }
+                
                 final FilterChainContext context = filterChain.obtainFilterChainContext(connection);
-                context.setStartIdx(-1);
-                context.setFilterIdx(-1);
+                context.setStartIdx(startIdx);
+                context.setFilterIdx(startIdx);
                 context.setEndIdx(filterChain.size());
 
                 suspendedContextAttribute.set(context, ctx);
@@ -304,6 +431,7 @@ public class PUFilter extends BaseFilter {
     protected void findProtocol(final PUContext puContext,
                                 final FilterChainContext ctx) {
         final PUProtocol[] protocolArray = protocols.getArray();
+        final int bytesInspected = bytesInspected(ctx);
 
         for (int i = 0; i < protocolArray.length; i++) {
             final PUProtocol protocol = protocolArray[i];
@@ -311,12 +439,18 @@ public class PUFilter extends BaseFilter {
                 continue;
             }
             try {
+                puContext.findAttempts++;
                 final ProtocolFinder.Result result =
                         protocol.getProtocolFinder().find(puContext, ctx);
+                PUFilterProbeNotifier.notifyProtocolFinder(this,
+                        ctx.getConnection(), protocol, result, bytesInspected);
 
                 switch (result) {
                     case FOUND:
                         puContext.protocol = protocol;
+                        PUFilterProbeNotifier.notifyProtocolFound(this,
+                                ctx.getConnection(), protocol,
+                                puContext.findAttempts, bytesInspected);
                         return;
                     case NOT_FOUND:
                         puContext.skippedProtocolFinders ^= 1 << i;
@@ -329,6 +463,17 @@ public class PUFilter extends BaseFilter {
         }
     }
 
+    private static boolean hasStoredMessages(final FilterChain filterChain,
+            final Connection connection) {
+        return !(filterChain instanceof DefaultFilterChain)
+                || ((DefaultFilterChain) filterChain).hasStoredMessages(connection);
+    }
+
+    private static int bytesInspected(final FilterChainContext ctx) {
+        final Object message = ctx.getMessage();
+        return message instanceof Buffer ? ((Buffer) message).remaining() : -1;
+    }
+
     private static boolean isUpstream(final FilterChainContext context) {
         return context.getStartIdx() < context.getEndIdx();
     }
@@ -0,0 +1,152 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.portunif;
+
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.filterchain.FilterChain;
+
+/**
+ * Monitoring probe providing callbacks that may be invoked by {@link PUFilter}
+ * during protocol detection.
+ */
+public interface PUFilterProbe {
+
+    /**
+     * Method will be called, when a {@link ProtocolFinder} has been asked to
+     * recognize the protocol of the {@link Connection}'s incoming data.
+     *
+     * @param puFilter the {@link PUFilter}, the event belongs to.
+     * @param connection the {@link Connection}, the event belongs to.
+     * @param protocol the {@link PUProtocol}, whose {@link ProtocolFinder} was invoked.
+     * @param result the {@link ProtocolFinder.Result} returned by the finder.
+     * @param bytesInspected the number of bytes available to the finder,
+     *  or <tt>-1</tt> if the message is not a {@link org.glassfish.grizzly.Buffer}.
+     */
+    void onProtocolFinderEvent(PUFilter puFilter, Connection connection,
+            PUProtocol protocol, ProtocolFinder.Result result, int bytesInspected);
+
+    /**
+     * Method will be called, when the {@link Connection}'s protocol has been
+     * recognized.
+     *
+     * @param puFilter the {@link PUFilter}, the event belongs to.
+     * @param connection the {@link Connection}, the event belongs to.
+     * @param protocol the recognized {@link PUProtocol}.
+     * @param attempts the number of {@link ProtocolFinder} invocations it took
+     *  to recognize the protocol.
+     * @param bytesInspected the number of bytes available when the protocol
+     *  was recognized, or <tt>-1</tt> if unknown.
+     */
+    void onProtocolFoundEvent(PUFilter puFilter, Connection connection,
+            PUProtocol protocol, int attempts, int bytesInspected);
+
+    /**
+     * Method will be called, when none of the registered {@link PUProtocol}s
+     * has recognized the {@link Connection}'s protocol.
+     *
+     * @param puFilter the {@link PUFilter}, the event belongs to.
+     * @param connection the {@link Connection}, the event belongs to.
+     * @param attempts the number of {@link ProtocolFinder} invocations made.
+     * @param bytesInspected the number of bytes available when the last
+     *  {@link ProtocolFinder} gave up, or <tt>-1</tt> if unknown.
+     */
+    void onProtocolNotFoundEvent(PUFilter puFilter, Connection connection,
+            int attempts, int bytesInspected);
+
+    /**
+     * Method will be called, when the {@link Connection}'s processing has been
+     * rebound to the {@link FilterChain} combining the main and the recognized
+     * sticky protocol {@link FilterChain}s.
+     *
+     * @param puFilter the {@link PUFilter}, the event belongs to.
+     * @param connection the {@link Connection}, the event belongs to.
+     * @param protocol the recognized {@link PUProtocol}.
+     * @param filterChain the {@link FilterChain} the {@link Connection} is bound to.
+     */
+    void onFilterChainRebindEvent(PUFilter puFilter, Connection connection,
+            PUProtocol protocol, FilterChain filterChain);
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+
+    /**
+     * {@link PUFilterProbe} adapter that provides no-op implementations for
+     * all interface methods allowing easy extension by the developer.
+     */
+    @SuppressWarnings("UnusedDeclaration")
+    class Adapter implements PUFilterProbe {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onProtocolFinderEvent(PUFilter puFilter,
+                Connection connection, PUProtocol protocol,
+                ProtocolFinder.Result result, int bytesInspected) {
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onProtocolFoundEvent(PUFilter puFilter,
+                Connection connection, PUProtocol protocol, int attempts,
+                int bytesInspected) {
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onProtocolNotFoundEvent(PUFilter puFilter,
+                Connection connection, int attempts, int bytesInspected) {
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onFilterChainRebindEvent(PUFilter puFilter,
+                Connection connection, PUProtocol protocol,
+                FilterChain filterChain) {
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.glassfish.grizzly.portunif;
+
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.filterchain.FilterChain;
+
+/**
+ * Utility class, which has notification methods for different
+ * {@link PUFilterProbe} events.
+ */
+final class PUFilterProbeNotifier {
+
+    /**
+     * Notify registered {@link PUFilterProbe}s about the "protocol finder" event.
+     *
+     * @param puFilter the {@link PUFilter} event occurred on.
+     * @param connection the {@link Connection} event occurred on.
+     * @param protocol the {@link PUProtocol}, whose finder was invoked.
+     * @param result the finder result.
+     * @param bytesInspected the number of bytes available to the finder.
+     */
+    static void notifyProtocolFinder(final PUFilter puFilter,
+            final Connection connection, final PUProtocol protocol,
+            final ProtocolFinder.Result result, final int bytesInspected) {
+
+        final PUFilterProbe[] probes = puFilter.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (PUFilterProbe probe : probes) {
+                probe.onProtocolFinderEvent(puFilter, connection, protocol,
+                        result, bytesInspected);
+            }
+        }
+    }
+
+    /**
+     * Notify registered {@link PUFilterProbe}s about the "protocol found" event.
+     *
+     * @param puFilter the {@link PUFilter} event occurred on.
+     * @param connection the {@link Connection} event occurred on.
+     * @param protocol the recognized {@link PUProtocol}.
+     * @param attempts the number of finder invocations.
+     * @param bytesInspected the number of bytes available to the finder.
+     */
+    static void notifyProtocolFound(final PUFilter puFilter,
+            final Connection connection, final PUProtocol protocol,
+            final int attempts, final int bytesInspected) {
+
+        final PUFilterProbe[] probes = puFilter.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (PUFilterProbe probe : probes) {
+                probe.onProtocolFoundEvent(puFilter, connection, protocol,
+                        attempts, bytesInspected);
+            }
+        }
+    }
+
+    /**
+     * Notify registered {@link PUFilterProbe}s about the "protocol not found" event.
+     *
+     * @param puFilter the {@link PUFilter} event occurred on.
+     * @param connection the {@link Connection} event occurred on.
+     * @param attempts the number of finder invocations.
+     * @param bytesInspected the number of bytes available to the finder.
+     */
+    static void notifyProtocolNotFound(final PUFilter puFilter,
+            final Connection connection, final int attempts,
+            final int bytesInspected) {
+
+        final PUFilterProbe[] probes = puFilter.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (PUFilterProbe probe : probes) {
+                probe.onProtocolNotFoundEvent(puFilter, connection, attempts,
+                        bytesInspected);
+            }
+        }
+    }
+
+    /**
+     * Notify registered {@link PUFilterProbe}s about the "filter chain rebind" event.
+     *
+     * @param puFilter the {@link PUFilter} event occurred on.
+     * @param connection the {@link Connection} event occurred on.
+     * @param protocol the recognized {@link PUProtocol}.
+     * @param filterChain the {@link FilterChain} the connection is bound to.
+     */
+    static void notifyFilterChainRebind(final PUFilter puFilter,
+            final Connection connection, final PUProtocol protocol,
+            final FilterChain filterChain) {
+
+        final PUFilterProbe[] probes = puFilter.monitoringConfig.getProbesUnsafe();
+        if (probes != null) {
+            for (PUFilterProbe probe : probes) {
+                probe.onFilterChainRebindEvent(puFilter, connection, protocol,
+                        filterChain);
+            }
+        }
+    }
+}
@@ -40,7 +40,10 @@
 
 package org.glassfish.grizzly.portunif;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.glassfish.grizzly.filterchain.FilterChain;
+import org.glassfish.grizzly.filterchain.FilterChainBuilder;
 
 /**
  * The wrapper class, which holds protocol finder and correspondent protocol,
@@ -52,6 +55,13 @@ public class PUProtocol {
     private final ProtocolFinder finder;
     private final FilterChain filterChain;
 
+    /**
+     * The main {@link FilterChain} -> bound {@link FilterChain} map,
+     * used by {@link PUFilter} to rebind connections with sticky protocol.
+     */
+    private final ConcurrentMap<FilterChain, FilterChain> boundFilterChains =
+            new ConcurrentHashMap<FilterChain, FilterChain>(4);
+
     public PUProtocol(final ProtocolFinder finder, final FilterChain processor) {
         this.finder = finder;
         this.filterChain = processor;
@@ -64,4 +74,40 @@ public class PUProtocol {
     public FilterChain getFilterChain() {
         return filterChain;
     }
+
+    /**
+     * Returns the {@link FilterChain}, which combines the main {@link FilterChain}
+     * {@link org.glassfish.grizzly.filterchain.Filter}s preceding the {@link PUFilter}
+     * and this protocol's {@link org.glassfish.grizzly.filterchain.Filter}s
+     * following the {@link BackChannelFilter}.
+     * The result is created once per main {@link FilterChain} and cached,
+     * so changes made to either chain afterwards are not reflected.
+     *
+     * @param mainFilterChain the main {@link FilterChain}.
+     * @param puFilterIdx the {@link PUFilter} index in the main {@link FilterChain}.
+     */
+    FilterChain obtainBoundFilterChain(final FilterChain mainFilterChain,
+            final int puFilterIdx) {
+        FilterChain boundFilterChain = boundFilterChains.get(mainFilterChain);
+        if (boundFilterChain == null) {
+            final FilterChainBuilder builder = FilterChainBuilder.stateless();
+            for (int i = 0; i < puFilterIdx; i++) {
+                builder.add(mainFilterChain.get(i));
+            }
+            
+            final int size = filterChain.size();
+            for (int i = 1; i < size; i++) {
+                builder.add(filterChain.get(i));
+            }
+            
+            boundFilterChain = builder.build();
+            final FilterChain existing =
+                    boundFilterChains.putIfAbsent(mainFilterChain, boundFilterChain);
+            if (existing != null) {
+                boundFilterChain = existing;
+            }
+        }
+        
+        return boundFilterChain;
+    }
 }
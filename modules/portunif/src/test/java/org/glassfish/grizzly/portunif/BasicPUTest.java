@@ -43,8 +43,10 @@ package org.glassfish.grizzly.portunif;
 import java.io.EOFException;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -234,6 +236,101 @@ public class BasicPUTest {
         }
     }
     
+    @Test
+    public void stickyProtocolRebind() throws Exception {
+        Connection connection = null;
+
+        final AtomicInteger puFilterReads = new AtomicInteger();
+        final PUFilter puFilter = new PUFilter() {
+            @Override
+            public NextAction handleRead(FilterChainContext ctx) throws IOException {
+                puFilterReads.incrementAndGet();
+                return super.handleRead(ctx);
+            }
+        };
+        puFilter.setRebindStickyProtocol(true);
+        puFilter.register(createProtocol(puFilter, "X", false));
+        puFilter.register(createProtocol(puFilter, "Y", false));
+
+        final AtomicInteger finderEvents = new AtomicInteger();
+        final AtomicInteger foundEvents = new AtomicInteger();
+        final AtomicInteger rebindEvents = new AtomicInteger();
+        puFilter.getMonitoringConfig().addProbes(new PUFilterProbe.Adapter() {
+            @Override
+            public void onProtocolFinderEvent(PUFilter puFilter,
+                    Connection connection, PUProtocol protocol,
+                    ProtocolFinder.Result result, int bytesInspected) {
+                finderEvents.incrementAndGet();
+            }
+
+            @Override
+            public void onProtocolFoundEvent(PUFilter puFilter,
+                    Connection connection, PUProtocol protocol, int attempts,
+                    int bytesInspected) {
+                foundEvents.incrementAndGet();
+            }
+
+            @Override
+            public void onFilterChainRebindEvent(PUFilter puFilter,
+                    Connection connection, PUProtocol protocol,
+                    FilterChain filterChain) {
+                rebindEvents.incrementAndGet();
+            }
+        });
+
+        FilterChainBuilder puFilterChainBuilder = FilterChainBuilder.stateless()
+                .add(new TransportFilter())
+                .add(new StringFilter(CHARSET))
+                .add(puFilter);
+
+        TCPNIOTransport transport = TCPNIOTransportBuilder.newInstance().build();
+        transport.setProcessor(puFilterChainBuilder.build());
+
+        try {
+            transport.bind(PORT);
+            transport.start();
+
+            final BlockingQueue<String> responses =
+                    new LinkedBlockingQueue<String>();
+            final FilterChain clientFilterChain =
+                    FilterChainBuilder.stateless()
+                    .add(new TransportFilter())
+                    .add(new StringFilter(CHARSET))
+                    .add(new BaseFilter() {
+                        @Override
+                        public NextAction handleRead(FilterChainContext ctx) {
+                            responses.offer((String) ctx.getMessage());
+                            return ctx.getStopAction();
+                        }
+                    })
+                    .build();
+            
+            final SocketConnectorHandler connectorHandler =
+                    TCPNIOConnectorHandler.builder(transport)
+                    .processor(clientFilterChain)
+                    .build();
+            connection = connectorHandler.connect("localhost", PORT)
+                    .get(10, TimeUnit.SECONDS);
+
+            for (int i = 0; i < 3; i++) {
+                connection.write("X");
+                assertEquals(makeResponseMessage("X"),
+                        responses.poll(10, TimeUnit.SECONDS));
+            }
+
+            assertEquals(1, puFilterReads.get());
+            assertEquals(1, finderEvents.get());
+            assertEquals(1, foundEvents.get());
+            assertEquals(1, rebindEvents.get());
+        } finally {
+            if (connection != null) {
+                connection.closeSilently();
+            }
+
+            transport.shutdownNow();
+        }
+    }
+    
     @Test
     public void testGrizzly1031_001() throws Exception {
 